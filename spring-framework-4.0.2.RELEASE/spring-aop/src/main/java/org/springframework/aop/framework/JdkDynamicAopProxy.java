@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,9 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
@@ -77,6 +79,18 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	/** We use a static Log to avoid serialization issues */
 	private static Log logger = LogFactory.getLog(JdkDynamicAopProxy.class);
 
+	/**
+	 * The {@link Advised} interface and all of its superinterfaces, i.e. all
+	 * interfaces that {@code Advised.class} is assignable to. Used for quickly
+	 * identifying calls to be dispatched to the proxy configuration, avoiding
+	 * a relatively costly {@code Class.isAssignableFrom} check on each call.
+	 */
+	private static final Set<Class<?>> advisedInterfaces = new HashSet<Class<?>>();
+
+	static {
+		collectInterfaces(Advised.class, advisedInterfaces);
+	}
+
 	/** Config used to configure this proxy */
 	private final AdvisedSupport advised;
 
@@ -168,8 +182,7 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// The target does not implement the hashCode() method itself.
 				return hashCode();
 			}
-			if (!this.advised.opaque && method.getDeclaringClass().isInterface() &&
-					method.getDeclaringClass().isAssignableFrom(Advised.class)) {
+			if (!this.advised.opaque && advisedInterfaces.contains(method.getDeclaringClass())) {
 				// Service invocations on ProxyConfig with the proxy config...
 				return AopUtils.invokeJoinpointUsingReflection(this.advised, method, args);
 			}
@@ -233,6 +246,17 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	}
 
 
+	/**
+	 * Collect the given interface and all of its superinterfaces.
+	 */
+	private static void collectInterfaces(Class<?> ifc, Set<Class<?>> interfaces) {
+		if (interfaces.add(ifc)) {
+			for (Class<?> superIfc : ifc.getInterfaces()) {
+				collectInterfaces(superIfc, interfaces);
+			}
+		}
+	}
+
 	/**
 	 * Equality means interfaces, advisors and TargetSource are equal.
 	 * <p>The compared object may be a JdkDynamicAopProxy instance itself
@@ -119,6 +119,13 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	private int autoGrowCollectionLimit = Integer.MAX_VALUE;
 
+	private boolean useGeneratedAccessors = false;
+
+	/**
+	 * Generated accessors for the wrapped object's class, lazily resolved.
+	 */
+	private GeneratedAccessors generatedAccessors;
+
 
 	/**
 	 * Create new empty BeanWrapperImpl. Wrapped instance needs to be set afterwards.
@@ -184,6 +191,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		setExtractOldValueForEditor(superBw.isExtractOldValueForEditor());
 		setAutoGrowNestedPaths(superBw.isAutoGrowNestedPaths());
 		setAutoGrowCollectionLimit(superBw.getAutoGrowCollectionLimit());
+		setUseGeneratedAccessors(superBw.isUseGeneratedAccessors());
 		setConversionService(superBw.getConversionService());
 		setSecurityContext(superBw.acc);
 	}
@@ -289,6 +297,29 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.autoGrowCollectionLimit;
 	}
 
+	/**
+	 * Set whether this BeanWrapper should invoke property read and write methods
+	 * through a {@link GeneratedPropertyAccessor} instead of through reflection,
+	 * also caching parsed property paths per bean class.
+	 * <p>Accessor classes get generated once per bean class, covering public
+	 * methods on public types only; all other methods as well as all invocations
+	 * under a SecurityManager keep going through reflection. Type conversion
+	 * and exception semantics are the same either way.
+	 * <p>Default is "false".
+	 * @since 4.0.3
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether generated property accessors are in use.
+	 * @since 4.0.3
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Set the security context used during the invocation of the wrapped instance methods.
 	 * Can be null.
@@ -314,6 +345,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		if (this.cachedIntrospectionResults != null &&
 				!clazz.equals(this.cachedIntrospectionResults.getBeanClass())) {
 			this.cachedIntrospectionResults = null;
+			this.generatedAccessors = null;
 		}
 	}
 
@@ -329,6 +361,47 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.cachedIntrospectionResults;
 	}
 
+	/**
+	 * Obtain the lazily resolved generated accessors for the wrapped object,
+	 * or {@code null} if generated accessors are not in use.
+	 */
+	private GeneratedAccessors getGeneratedAccessors() {
+		if (!this.useGeneratedAccessors) {
+			return null;
+		}
+		if (this.generatedAccessors == null) {
+			this.generatedAccessors = GeneratedAccessors.forClass(
+					getWrappedClass(), getCachedIntrospectionResults().getPropertyDescriptors());
+		}
+		return this.generatedAccessors;
+	}
+
+	/**
+	 * Invoke the given read method on the wrapped object,
+	 * through the generated accessor if available.
+	 */
+	private Object invokeReadMethod(Method readMethod) throws Exception {
+		GeneratedAccessors accessors = getGeneratedAccessors();
+		if (accessors != null) {
+			Object[] result = new Object[1];
+			if (accessors.read(readMethod, this.object, result)) {
+				return result[0];
+			}
+		}
+		return readMethod.invoke(this.object);
+	}
+
+	/**
+	 * Invoke the given write method on the wrapped object,
+	 * through the generated accessor if available.
+	 */
+	private void invokeWriteMethod(Method writeMethod, Object value) throws Exception {
+		GeneratedAccessors accessors = getGeneratedAccessors();
+		if (accessors == null || !accessors.write(writeMethod, this.object, value)) {
+			writeMethod.invoke(this.object, value);
+		}
+	}
+
 
 	@Override
 	public PropertyDescriptor[] getPropertyDescriptors() {
@@ -670,6 +743,19 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * @return representation of the parsed property tokens
 	 */
 	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		GeneratedAccessors accessors = (this.object != null ? getGeneratedAccessors() : null);
+		if (accessors != null) {
+			PropertyTokenHolder tokens = accessors.getPropertyNameTokens(propertyName);
+			if (tokens == null) {
+				tokens = parsePropertyNameTokens(propertyName);
+				accessors.cachePropertyNameTokens(propertyName, tokens);
+			}
+			return tokens;
+		}
+		return parsePropertyNameTokens(propertyName);
+	}
+
+	private PropertyTokenHolder parsePropertyNameTokens(String propertyName) {
 		PropertyTokenHolder tokens = new PropertyTokenHolder();
 		String actualName = null;
 		List<String> keys = new ArrayList<String>(2);
@@ -756,7 +842,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 				}
 			}
 			else {
-				value = readMethod.invoke(object, (Object[]) null);
+				value = invokeReadMethod(readMethod);
 			}
 
 			if (tokens.keys != null) {
@@ -1103,7 +1189,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 									}, acc);
 								}
 								else {
-									oldValue = readMethod.invoke(object);
+									oldValue = invokeReadMethod(readMethod);
 								}
 							}
 							catch (Exception ex) {
@@ -1154,7 +1240,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 				}
 				else {
-					writeMethod.invoke(this.object, value);
+					invokeWriteMethod(writeMethod, value);
 				}
 			}
 			catch (TypeMismatchException ex) {
@@ -1196,7 +1282,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	// Inner class for internal use
 	//---------------------------------------------------------------------
 
-	private static class PropertyTokenHolder {
+	static class PropertyTokenHolder {
 
 		public String canonicalName;
 
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Internal holder for the {@link GeneratedPropertyAccessor} of a bean class,
+ * along with the parsed property paths used against that class.
+ *
+ * <p>An accessor class gets generated once per bean class, covering all read and
+ * write methods that are public and declared in public types. Other methods
+ * (as well as all methods of classes whose ClassLoader does not see Spring's
+ * own classes) are not covered and need to be invoked through reflection.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ */
+class GeneratedAccessors {
+
+	/** Maximum number of parsed property paths to cache per bean class */
+	private static final int TOKEN_CACHE_LIMIT = 256;
+
+	private static final String ACCESSOR_SUPERCLASS = Type.getInternalName(GeneratedPropertyAccessor.class);
+
+	private static final Log logger = LogFactory.getLog(GeneratedAccessors.class);
+
+	private static final ConcurrentMap<Class<?>, GeneratedAccessors> accessorsCache =
+			new ConcurrentReferenceHashMap<Class<?>, GeneratedAccessors>(64);
+
+	private static final AtomicInteger classCounter = new AtomicInteger();
+
+
+	private final GeneratedPropertyAccessor accessor;
+
+	private final Map<Method, Integer> readIndexes = new HashMap<Method, Integer>();
+
+	private final Map<Method, Integer> writeIndexes = new HashMap<Method, Integer>();
+
+	private final List<Class<?>> writeParameterTypes = new ArrayList<Class<?>>();
+
+	private final ConcurrentMap<String, BeanWrapperImpl.PropertyTokenHolder> tokenCache =
+			new ConcurrentHashMap<String, BeanWrapperImpl.PropertyTokenHolder>(16);
+
+
+	/**
+	 * Obtain the accessors for the given bean class, generating them if necessary.
+	 * @param beanClass the bean class
+	 * @param pds the property descriptors of the bean class
+	 * @return the accessors (never {@code null}, but possibly not covering any methods)
+	 */
+	static GeneratedAccessors forClass(Class<?> beanClass, PropertyDescriptor[] pds) {
+		GeneratedAccessors accessors = accessorsCache.get(beanClass);
+		if (accessors == null) {
+			accessors = new GeneratedAccessors(beanClass, pds);
+			GeneratedAccessors existing = accessorsCache.putIfAbsent(beanClass, accessors);
+			if (existing != null) {
+				accessors = existing;
+			}
+		}
+		return accessors;
+	}
+
+
+	private GeneratedAccessors(Class<?> beanClass, PropertyDescriptor[] pds) {
+		ClassLoader parent = beanClass.getClassLoader();
+		if (parent == null) {
+			parent = GeneratedAccessors.class.getClassLoader();
+		}
+		List<Method> readMethods = new ArrayList<Method>();
+		List<Method> writeMethods = new ArrayList<Method>();
+		if (ClassUtils.isVisible(GeneratedPropertyAccessor.class, parent)) {
+			for (PropertyDescriptor pd : pds) {
+				Method readMethod = pd.getReadMethod();
+				if (isAccessible(readMethod, parent) && !this.readIndexes.containsKey(readMethod)) {
+					this.readIndexes.put(readMethod, readMethods.size());
+					readMethods.add(readMethod);
+				}
+				Method writeMethod = (pd instanceof GenericTypeAwarePropertyDescriptor ?
+						((GenericTypeAwarePropertyDescriptor) pd).getWriteMethodForActualAccess() : pd.getWriteMethod());
+				if (isAccessible(writeMethod, parent) && !this.writeIndexes.containsKey(writeMethod)) {
+					this.writeIndexes.put(writeMethod, writeMethods.size());
+					this.writeParameterTypes.add(writeMethod.getParameterTypes()[0]);
+					writeMethods.add(writeMethod);
+				}
+			}
+		}
+		GeneratedPropertyAccessor accessor = null;
+		if (!readMethods.isEmpty() || !writeMethods.isEmpty()) {
+			try {
+				accessor = generateAccessor(beanClass, parent, readMethods, writeMethods);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not generate property accessor for [" + beanClass.getName() +
+							"] - falling back to reflection", ex);
+				}
+				this.readIndexes.clear();
+				this.writeIndexes.clear();
+			}
+		}
+		this.accessor = accessor;
+	}
+
+	private static boolean isAccessible(Method method, ClassLoader classLoader) {
+		return (method != null && Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()) &&
+				Modifier.isPublic(method.getDeclaringClass().getModifiers()) &&
+				ClassUtils.isVisible(method.getDeclaringClass(), classLoader));
+	}
+
+
+	/**
+	 * Invoke the given read method on the given target, if covered by the generated accessor.
+	 * @param readMethod the read method to invoke
+	 * @param target the bean instance
+	 * @param result the single-element array to store the property value in
+	 * @return {@code true} if the read method has been invoked,
+	 * {@code false} if it needs to be invoked through reflection
+	 * @throws InvocationTargetException if the read method threw an exception
+	 */
+	boolean read(Method readMethod, Object target, Object[] result) throws InvocationTargetException {
+		Integer index = this.readIndexes.get(readMethod);
+		if (index == null) {
+			return false;
+		}
+		try {
+			result[0] = this.accessor.read(target, index);
+			return true;
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Invoke the given write method on the given target, if covered by the generated
+	 * accessor and if the value is assignable to the method's parameter type.
+	 * @param writeMethod the write method to invoke
+	 * @param target the bean instance
+	 * @param value the value to set
+	 * @return {@code true} if the write method has been invoked,
+	 * {@code false} if it needs to be invoked through reflection
+	 * @throws InvocationTargetException if the write method threw an exception
+	 */
+	boolean write(Method writeMethod, Object target, Object value) throws InvocationTargetException {
+		Integer index = this.writeIndexes.get(writeMethod);
+		if (index == null || !ClassUtils.isAssignableValue(this.writeParameterTypes.get(index), value)) {
+			// Let reflection produce the usual IllegalArgumentException for mismatches
+			return false;
+		}
+		try {
+			this.accessor.write(target, index, value);
+			return true;
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Return the cached tokens for the given property path, if any.
+	 */
+	BeanWrapperImpl.PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		return this.tokenCache.get(propertyName);
+	}
+
+	/**
+	 * Cache the given parsed tokens for the given property path,
+	 * unless the limit of cached paths for this bean class has been reached.
+	 */
+	void cachePropertyNameTokens(String propertyName, BeanWrapperImpl.PropertyTokenHolder tokens) {
+		if (this.tokenCache.size() < TOKEN_CACHE_LIMIT) {
+			this.tokenCache.put(propertyName, tokens);
+		}
+	}
+
+
+	private static GeneratedPropertyAccessor generateAccessor(Class<?> beanClass, ClassLoader parent,
+			List<Method> readMethods, List<Method> writeMethods) throws Exception {
+
+		String className = beanClass.getName();
+		if (className.startsWith("java")) {
+			className = GeneratedAccessors.class.getPackage().getName() + "." + className.replace('.', '_');
+		}
+		className = className + "$$PropertyAccessor$$" + classCounter.getAndIncrement();
+		String internalName = className.replace('.', '/');
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+				internalName, null, ACCESSOR_SUPERCLASS, null);
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, ACCESSOR_SUPERCLASS, "<init>", "()V");
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "read", "(Ljava/lang/Object;I)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		Label[] labels = startSwitch(mv, readMethods.size());
+		for (int i = 0; i < readMethods.size(); i++) {
+			Method method = readMethods.get(i);
+			mv.visitLabel(labels[i]);
+			loadTarget(mv, method);
+			invoke(mv, method);
+			box(mv, method.getReturnType());
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		endSwitch(mv);
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "write", "(Ljava/lang/Object;ILjava/lang/Object;)V", null, null);
+		mv.visitCode();
+		labels = startSwitch(mv, writeMethods.size());
+		for (int i = 0; i < writeMethods.size(); i++) {
+			Method method = writeMethods.get(i);
+			mv.visitLabel(labels[i]);
+			loadTarget(mv, method);
+			mv.visitVarInsn(Opcodes.ALOAD, 3);
+			unbox(mv, method.getParameterTypes()[0]);
+			invoke(mv, method);
+			Class<?> returnType = method.getReturnType();
+			if (returnType == long.class || returnType == double.class) {
+				mv.visitInsn(Opcodes.POP2);
+			}
+			else if (returnType != void.class) {
+				mv.visitInsn(Opcodes.POP);
+			}
+			mv.visitInsn(Opcodes.RETURN);
+		}
+		endSwitch(mv);
+
+		cw.visitEnd();
+		Class<?> accessorClass = new AccessorClassLoader(parent).defineClass(className, cw.toByteArray());
+		return (GeneratedPropertyAccessor) accessorClass.newInstance();
+	}
+
+	private static Label[] startSwitch(MethodVisitor mv, int count) {
+		Label[] labels = new Label[count];
+		for (int i = 0; i < count; i++) {
+			labels[i] = new Label();
+		}
+		Label defaultLabel = new Label();
+		mv.visitVarInsn(Opcodes.ILOAD, 2);
+		if (count > 0) {
+			mv.visitTableSwitchInsn(0, count - 1, defaultLabel, labels);
+		}
+		else {
+			mv.visitInsn(Opcodes.POP);
+		}
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/IndexOutOfBoundsException");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IndexOutOfBoundsException", "<init>", "()V");
+		mv.visitInsn(Opcodes.ATHROW);
+		return labels;
+	}
+
+	private static void endSwitch(MethodVisitor mv) {
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void loadTarget(MethodVisitor mv, Method method) {
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(method.getDeclaringClass()));
+	}
+
+	private static void invoke(MethodVisitor mv, Method method) {
+		Class<?> owner = method.getDeclaringClass();
+		String ownerName = Type.getInternalName(owner);
+		String descriptor = Type.getMethodDescriptor(method);
+		if (owner.isInterface()) {
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, ownerName, method.getName(), descriptor);
+		}
+		else {
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, ownerName, method.getName(), descriptor);
+		}
+	}
+
+	private static void box(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			Class<?> wrapper = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(wrapper), "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapper));
+		}
+	}
+
+	private static void unbox(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			Class<?> wrapper = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(wrapper));
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(wrapper), type.getName() + "Value",
+					"()" + Type.getDescriptor(type));
+		}
+		else if (type != Object.class) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader that defines a single accessor class on top of the bean's ClassLoader.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+
+		public AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
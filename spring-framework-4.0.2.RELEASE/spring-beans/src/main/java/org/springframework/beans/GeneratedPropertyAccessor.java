@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+/**
+ * Base class for property accessors generated at runtime by {@link BeanWrapperImpl},
+ * invoking the read and write methods of a particular bean class directly instead
+ * of through reflection. Not intended for direct use by application code.
+ *
+ * <p>Only public in order to allow for subclasses to be defined in the
+ * ClassLoader of the bean class.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ */
+public abstract class GeneratedPropertyAccessor {
+
+	/**
+	 * Invoke the read method with the given index on the given target.
+	 * @param target the bean instance
+	 * @param index the index of the read method
+	 * @return the property value, with primitives being boxed
+	 * @throws Throwable any exception thrown by the read method
+	 */
+	public abstract Object read(Object target, int index) throws Throwable;
+
+	/**
+	 * Invoke the write method with the given index on the given target.
+	 * @param target the bean instance
+	 * @param index the index of the write method
+	 * @param value the value to set, assignable to the method's parameter type
+	 * @throws Throwable any exception thrown by the write method
+	 */
+	public abstract void write(Object target, int index, Object value) throws Throwable;
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,7 @@ import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.ResolvableType;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 
 /**
  * Descriptor for a specific dependency that is about to be injected.
@@ -333,6 +334,33 @@ public class DependencyDescriptor implements Serializable {
 	}
 
 
+	/**
+	 * Two descriptors are considered equal if they are of the same class and
+	 * refer to the same field or method parameter at the same nesting level,
+	 * with the same containing class and the same 'required'/'eager' flags.
+	 * @since 4.0.3
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (other == null || getClass() != other.getClass()) {
+			return false;
+		}
+		DependencyDescriptor otherDesc = (DependencyDescriptor) other;
+		return (this.required == otherDesc.required && this.eager == otherDesc.eager &&
+				this.nestingLevel == otherDesc.nestingLevel && this.containingClass == otherDesc.containingClass &&
+				ObjectUtils.nullSafeEquals(this.field, otherDesc.field) &&
+				ObjectUtils.nullSafeEquals(this.methodParameter, otherDesc.methodParameter));
+	}
+
+	@Override
+	public int hashCode() {
+		return (this.field != null ? this.field.hashCode() : this.methodParameter.hashCode()) * 31 + this.nestingLevel;
+	}
+
+
 	//---------------------------------------------------------------------
 	// Serialization support
 	//---------------------------------------------------------------------
@@ -865,6 +865,18 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 					instance = bw.getWrappedInstance();
 				}
 			}
+			catch (BeanCreationException ex) {
+				if (isParallelSingletonCreation() &&
+						ex.getMostSpecificCause() instanceof BeanCurrentlyInCreationException) {
+					// Depends on a singleton that another thread is creating, which cannot
+					// be waited for within the singleton mutex: no shortcut available.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Bean currently in creation on FactoryBean type check: " + ex);
+					}
+					return null;
+				}
+				throw ex;
+			}
 			finally {
 				// Finished partial creation of this bean.
 				afterSingletonCreation(beanName);
@@ -0,0 +1,759 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Serializable snapshot of the bean definitions held by a bean definition registry,
+ * typically taken once all {@link BeanDefinitionRegistryPostProcessor BeanDefinitionRegistryPostProcessors}
+ * have been applied, so that a subsequent start of the same application can register
+ * the resulting definitions again without re-parsing its configuration sources.
+ *
+ * <p>A snapshot is keyed by a fingerprint that the caller derives from everything
+ * that may affect the resulting bean definitions (configuration locations, active
+ * profiles, classpath contents). {@link #readFrom} ignores snapshots with a
+ * different fingerprint.
+ *
+ * <p>Bean definitions are captured in a detached form: all standard metadata
+ * elements (bean references, typed string values, inner beans, managed collections)
+ * are supported, as well as any {@link Serializable} value. Configuration sources and
+ * {@link org.springframework.core.io.Resource} handles are not retained, and
+ * specialized definition classes are restored as {@link RootBeanDefinition},
+ * {@link ChildBeanDefinition} or {@link GenericBeanDefinition}, respectively.
+ *
+ * <p>{@link RestorableBeanDefinitionRegistryPostProcessor Restorable post-processors}
+ * may store additional state of their own as snapshot attributes.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see RestorableBeanDefinitionRegistryPostProcessor
+ */
+@SuppressWarnings("serial")
+public class BeanDefinitionSnapshot implements Serializable {
+
+	private static final String FORMAT_HEADER = "SpringBeanDefinitionSnapshot-1";
+
+
+	private final String fingerprint;
+
+	private final Map<String, BeanDefinitionData> beanDefinitions = new LinkedHashMap<String, BeanDefinitionData>();
+
+	private final Map<String, String[]> aliases = new LinkedHashMap<String, String[]>();
+
+	private final Map<String, Serializable> attributes = new LinkedHashMap<String, Serializable>();
+
+
+	/**
+	 * Create a new empty snapshot.
+	 * @param fingerprint the fingerprint that identifies the configuration
+	 * state that this snapshot has been taken for
+	 */
+	public BeanDefinitionSnapshot(String fingerprint) {
+		Assert.notNull(fingerprint, "Fingerprint must not be null");
+		this.fingerprint = fingerprint;
+	}
+
+
+	/**
+	 * Return the fingerprint that this snapshot has been taken for.
+	 */
+	public String getFingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * Add the given bean definition to this snapshot.
+	 * @param beanName the name of the bean
+	 * @param beanDefinition the bean definition to capture
+	 * @param aliases the aliases for the bean (may be {@code null})
+	 * @throws NotSerializableException if the bean definition contains
+	 * a value that cannot be captured
+	 */
+	public void addBeanDefinition(String beanName, BeanDefinition beanDefinition, String[] aliases)
+			throws NotSerializableException {
+
+		this.beanDefinitions.put(beanName, new BeanDefinitionData(beanDefinition, beanName));
+		if (!ObjectUtils.isEmpty(aliases)) {
+			this.aliases.put(beanName, aliases);
+		}
+	}
+
+	/**
+	 * Return the number of bean definitions in this snapshot.
+	 */
+	public int getBeanDefinitionCount() {
+		return this.beanDefinitions.size();
+	}
+
+	/**
+	 * Return the names of the beans defined in this snapshot.
+	 */
+	public String[] getBeanDefinitionNames() {
+		return this.beanDefinitions.keySet().toArray(new String[this.beanDefinitions.size()]);
+	}
+
+	/**
+	 * Store an additional state attribute in this snapshot.
+	 * @param name the name of the attribute
+	 * @param value the attribute value (or {@code null} to remove the attribute)
+	 */
+	public void setAttribute(String name, Serializable value) {
+		if (value != null) {
+			this.attributes.put(name, value);
+		}
+		else {
+			this.attributes.remove(name);
+		}
+	}
+
+	/**
+	 * Return the state attribute of the given name, if any.
+	 * @param name the name of the attribute
+	 * @return the attribute value, or {@code null} if none
+	 */
+	public Serializable getAttribute(String name) {
+		return this.attributes.get(name);
+	}
+
+	/**
+	 * Register the bean definitions and aliases captured in this snapshot with
+	 * the given registry, replacing any existing definitions of the same name.
+	 * @param registry the registry to populate
+	 * @return the number of bean definitions registered
+	 */
+	public int registerBeanDefinitions(BeanDefinitionRegistry registry) {
+		for (Map.Entry<String, BeanDefinitionData> entry : this.beanDefinitions.entrySet()) {
+			String beanName = entry.getKey();
+			if (registry.containsBeanDefinition(beanName)) {
+				registry.removeBeanDefinition(beanName);
+			}
+			registry.registerBeanDefinition(beanName, entry.getValue().toBeanDefinition());
+		}
+		for (Map.Entry<String, String[]> entry : this.aliases.entrySet()) {
+			for (String alias : entry.getValue()) {
+				if (!registry.isAlias(alias)) {
+					registry.registerAlias(entry.getKey(), alias);
+				}
+			}
+		}
+		return this.beanDefinitions.size();
+	}
+
+	/**
+	 * Write this snapshot to the given stream in a compressed binary format.
+	 * The stream will be closed afterwards.
+	 * @param out the stream to write to
+	 * @throws IOException in case of I/O errors, in particular a
+	 * {@link NotSerializableException} for non-serializable attribute values
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(out));
+		try {
+			oos.writeUTF(FORMAT_HEADER);
+			oos.writeUTF(this.fingerprint);
+			oos.writeObject(this);
+		}
+		finally {
+			oos.close();
+		}
+	}
+
+	/**
+	 * Read a snapshot from the given stream, provided that it has been written
+	 * for the given fingerprint. The stream will be closed afterwards.
+	 * @param in the stream to read from
+	 * @param classLoader the ClassLoader to resolve serialized classes against
+	 * (may be {@code null} for the default ClassLoader)
+	 * @param expectedFingerprint the fingerprint of the current configuration state
+	 * @return the snapshot, or {@code null} if the stream holds a snapshot
+	 * for a different fingerprint or in a different format
+	 * @throws IOException in case of I/O errors or if the content is corrupt
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream in, ClassLoader classLoader, String expectedFingerprint)
+			throws IOException {
+
+		ObjectInputStream ois = new ConfigurableObjectInputStream(new GZIPInputStream(in), classLoader);
+		try {
+			if (!FORMAT_HEADER.equals(ois.readUTF()) || !ois.readUTF().equals(expectedFingerprint)) {
+				return null;
+			}
+			return (BeanDefinitionSnapshot) ois.readObject();
+		}
+		catch (ClassNotFoundException ex) {
+			throw new IOException("Snapshot refers to unknown class: " + ex.getMessage(), ex);
+		}
+		finally {
+			ois.close();
+		}
+	}
+
+	/**
+	 * Create a snapshot of all bean definitions in the given bean factory.
+	 * @param fingerprint the fingerprint of the current configuration state
+	 * @param beanFactory the bean factory to capture
+	 * @return the snapshot
+	 * @throws NotSerializableException if a bean definition contains
+	 * a value that cannot be captured
+	 */
+	public static BeanDefinitionSnapshot create(String fingerprint, ConfigurableListableBeanFactory beanFactory)
+			throws NotSerializableException {
+
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot(fingerprint);
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			snapshot.addBeanDefinition(beanName, beanFactory.getBeanDefinition(beanName), beanFactory.getAliases(beanName));
+		}
+		return snapshot;
+	}
+
+
+	/**
+	 * Convert the given bean metadata value into its serializable form.
+	 */
+	private static Object toData(Object value, String beanName) throws NotSerializableException {
+		if (value instanceof BeanDefinitionHolder) {
+			return new BeanDefinitionHolderData((BeanDefinitionHolder) value);
+		}
+		else if (value instanceof BeanDefinition) {
+			return new BeanDefinitionData((BeanDefinition) value, beanName);
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			return new BeanReferenceData(ref.getBeanName(), ref.isToParent(), false);
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			return new BeanReferenceData(((RuntimeBeanNameReference) value).getBeanName(), false, true);
+		}
+		else if (value instanceof TypedStringValue) {
+			return new TypedStringValueData((TypedStringValue) value);
+		}
+		else if (value instanceof ManagedList || value instanceof ManagedSet ||
+				value instanceof ManagedMap || value instanceof ManagedProperties) {
+			return new ManagedCollectionData(value, beanName);
+		}
+		else if (value == null || value instanceof Serializable) {
+			return value;
+		}
+		throw new NotSerializableException("Bean definition '" + beanName +
+				"' contains value of non-serializable type [" + value.getClass().getName() + "]");
+	}
+
+	/**
+	 * Convert the given serializable form back into a bean metadata value.
+	 */
+	private static Object fromData(Object data) {
+		return (data instanceof MetadataData ? ((MetadataData) data).restore() : data);
+	}
+
+
+	/**
+	 * Common interface for serializable forms of bean metadata elements.
+	 */
+	private interface MetadataData extends Serializable {
+
+		Object restore();
+	}
+
+
+	private static class BeanReferenceData implements MetadataData {
+
+		private final String beanName;
+
+		private final boolean toParent;
+
+		private final boolean nameOnly;
+
+		public BeanReferenceData(String beanName, boolean toParent, boolean nameOnly) {
+			this.beanName = beanName;
+			this.toParent = toParent;
+			this.nameOnly = nameOnly;
+		}
+
+		@Override
+		public Object restore() {
+			return (this.nameOnly ? new RuntimeBeanNameReference(this.beanName) :
+					new RuntimeBeanReference(this.beanName, this.toParent));
+		}
+	}
+
+
+	private static class TypedStringValueData implements MetadataData {
+
+		private final String value;
+
+		private final String targetTypeName;
+
+		private final String specifiedTypeName;
+
+		private final boolean dynamic;
+
+		public TypedStringValueData(TypedStringValue typedStringValue) {
+			this.value = typedStringValue.getValue();
+			this.targetTypeName = (typedStringValue.hasTargetType() ?
+					typedStringValue.getTargetType().getName() : typedStringValue.getTargetTypeName());
+			this.specifiedTypeName = typedStringValue.getSpecifiedTypeName();
+			this.dynamic = typedStringValue.isDynamic();
+		}
+
+		@Override
+		public Object restore() {
+			TypedStringValue typedStringValue = new TypedStringValue(this.value);
+			if (this.targetTypeName != null) {
+				typedStringValue.setTargetTypeName(this.targetTypeName);
+			}
+			typedStringValue.setSpecifiedTypeName(this.specifiedTypeName);
+			if (this.dynamic) {
+				typedStringValue.setDynamic();
+			}
+			return typedStringValue;
+		}
+	}
+
+
+	private static class ManagedCollectionData implements MetadataData {
+
+		private final Class<?> collectionType;
+
+		private final String elementTypeName;
+
+		private final String valueTypeName;
+
+		private final int size;
+
+		private final boolean mergeEnabled;
+
+		private final List<Object> elements = new ArrayList<Object>();
+
+		public ManagedCollectionData(Object collection, String beanName) throws NotSerializableException {
+			this.collectionType = collection.getClass();
+			if (collection instanceof ManagedMap || collection instanceof ManagedProperties) {
+				Map<?, ?> map = (Map<?, ?>) collection;
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					this.elements.add(toData(entry.getKey(), beanName));
+					this.elements.add(toData(entry.getValue(), beanName));
+				}
+				this.size = map.size();
+			}
+			else {
+				for (Object element : (Iterable<?>) collection) {
+					this.elements.add(toData(element, beanName));
+				}
+				this.size = this.elements.size();
+			}
+			if (collection instanceof ManagedList) {
+				this.elementTypeName = ((ManagedList<?>) collection).getElementTypeName();
+				this.valueTypeName = null;
+				this.mergeEnabled = ((ManagedList<?>) collection).isMergeEnabled();
+			}
+			else if (collection instanceof ManagedSet) {
+				this.elementTypeName = ((ManagedSet<?>) collection).getElementTypeName();
+				this.valueTypeName = null;
+				this.mergeEnabled = ((ManagedSet<?>) collection).isMergeEnabled();
+			}
+			else if (collection instanceof ManagedMap) {
+				this.elementTypeName = ((ManagedMap<?, ?>) collection).getKeyTypeName();
+				this.valueTypeName = ((ManagedMap<?, ?>) collection).getValueTypeName();
+				this.mergeEnabled = ((ManagedMap<?, ?>) collection).isMergeEnabled();
+			}
+			else {
+				this.elementTypeName = null;
+				this.valueTypeName = null;
+				this.mergeEnabled = ((ManagedProperties) collection).isMergeEnabled();
+			}
+		}
+
+		@Override
+		public Object restore() {
+			if (ManagedArray.class == this.collectionType) {
+				ManagedArray array = new ManagedArray(this.elementTypeName, this.size);
+				array.setMergeEnabled(this.mergeEnabled);
+				for (Object element : this.elements) {
+					array.add(fromData(element));
+				}
+				return array;
+			}
+			else if (ManagedList.class.isAssignableFrom(this.collectionType)) {
+				ManagedList<Object> list = new ManagedList<Object>(this.size);
+				list.setElementTypeName(this.elementTypeName);
+				list.setMergeEnabled(this.mergeEnabled);
+				for (Object element : this.elements) {
+					list.add(fromData(element));
+				}
+				return list;
+			}
+			else if (ManagedSet.class.isAssignableFrom(this.collectionType)) {
+				ManagedSet<Object> set = new ManagedSet<Object>(this.size);
+				set.setElementTypeName(this.elementTypeName);
+				set.setMergeEnabled(this.mergeEnabled);
+				for (Object element : this.elements) {
+					set.add(fromData(element));
+				}
+				return set;
+			}
+			else if (ManagedMap.class.isAssignableFrom(this.collectionType)) {
+				ManagedMap<Object, Object> map = new ManagedMap<Object, Object>(this.size);
+				map.setKeyTypeName(this.elementTypeName);
+				map.setValueTypeName(this.valueTypeName);
+				map.setMergeEnabled(this.mergeEnabled);
+				for (int i = 0; i < this.elements.size(); i += 2) {
+					map.put(fromData(this.elements.get(i)), fromData(this.elements.get(i + 1)));
+				}
+				return map;
+			}
+			else {
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(this.mergeEnabled);
+				for (int i = 0; i < this.elements.size(); i += 2) {
+					props.put(fromData(this.elements.get(i)), fromData(this.elements.get(i + 1)));
+				}
+				return props;
+			}
+		}
+	}
+
+
+	private static class BeanDefinitionHolderData implements MetadataData {
+
+		private final BeanDefinitionData beanDefinition;
+
+		private final String beanName;
+
+		private final String[] aliases;
+
+		public BeanDefinitionHolderData(BeanDefinitionHolder holder) throws NotSerializableException {
+			this.beanDefinition = new BeanDefinitionData(holder.getBeanDefinition(), holder.getBeanName());
+			this.beanName = holder.getBeanName();
+			this.aliases = holder.getAliases();
+		}
+
+		@Override
+		public Object restore() {
+			return new BeanDefinitionHolder(this.beanDefinition.toBeanDefinition(), this.beanName, this.aliases);
+		}
+	}
+
+
+	private static class ValueHolderData implements Serializable {
+
+		private final Object value;
+
+		private final String type;
+
+		private final String name;
+
+		public ValueHolderData(ConstructorArgumentValues.ValueHolder valueHolder, String beanName)
+				throws NotSerializableException {
+
+			this.value = toData(valueHolder.getValue(), beanName);
+			this.type = valueHolder.getType();
+			this.name = valueHolder.getName();
+		}
+
+		public ConstructorArgumentValues.ValueHolder toValueHolder() {
+			return new ConstructorArgumentValues.ValueHolder(fromData(this.value), this.type, this.name);
+		}
+	}
+
+
+	private static class MethodOverrideData implements Serializable {
+
+		private final String methodName;
+
+		private final String beanName;
+
+		private final boolean replace;
+
+		private final boolean overloaded;
+
+		private final List<String> typeIdentifiers;
+
+		public MethodOverrideData(MethodOverride override) throws NotSerializableException {
+			this.methodName = override.getMethodName();
+			this.overloaded = override.isOverloaded();
+			if (override instanceof LookupOverride) {
+				this.beanName = ((LookupOverride) override).getBeanName();
+				this.replace = false;
+				this.typeIdentifiers = null;
+			}
+			else if (override instanceof ReplaceOverride) {
+				this.beanName = ((ReplaceOverride) override).getMethodReplacerBeanName();
+				this.replace = true;
+				this.typeIdentifiers = new ArrayList<String>(((ReplaceOverride) override).getTypeIdentifiers());
+			}
+			else {
+				throw new NotSerializableException("Unsupported method override type [" +
+						override.getClass().getName() + "]");
+			}
+		}
+
+		public MethodOverride toMethodOverride() {
+			MethodOverride override;
+			if (this.replace) {
+				ReplaceOverride replaceOverride = new ReplaceOverride(this.methodName, this.beanName);
+				for (String typeIdentifier : this.typeIdentifiers) {
+					replaceOverride.addTypeIdentifier(typeIdentifier);
+				}
+				override = replaceOverride;
+			}
+			else {
+				override = new LookupOverride(this.methodName, this.beanName);
+			}
+			override.setOverloaded(this.overloaded);
+			return override;
+		}
+	}
+
+
+	private static class BeanDefinitionData implements MetadataData {
+
+		private final String definitionType;
+
+		private final String parentName;
+
+		private final String beanClassName;
+
+		private final String scope;
+
+		private final boolean abstractFlag;
+
+		private final boolean lazyInit;
+
+		private final int autowireMode;
+
+		private final int dependencyCheck;
+
+		private final String[] dependsOn;
+
+		private final boolean autowireCandidate;
+
+		private final boolean primary;
+
+		private final Map<String, Map<String, Object>> qualifiers = new LinkedHashMap<String, Map<String, Object>>();
+
+		private final boolean nonPublicAccessAllowed;
+
+		private final boolean lenientConstructorResolution;
+
+		private final Map<Integer, ValueHolderData> indexedArgumentValues = new LinkedHashMap<Integer, ValueHolderData>();
+
+		private final List<ValueHolderData> genericArgumentValues = new ArrayList<ValueHolderData>();
+
+		private final Map<String, Object> propertyValues = new LinkedHashMap<String, Object>();
+
+		private final List<String> optionalProperties = new ArrayList<String>();
+
+		private final List<MethodOverrideData> methodOverrides = new ArrayList<MethodOverrideData>();
+
+		private final String factoryBeanName;
+
+		private final String factoryMethodName;
+
+		private final String initMethodName;
+
+		private final String destroyMethodName;
+
+		private final boolean enforceInitMethod;
+
+		private final boolean enforceDestroyMethod;
+
+		private final boolean synthetic;
+
+		private final int role;
+
+		private final String description;
+
+		private final String resourceDescription;
+
+		private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+
+		private BeanDefinitionHolderData decoratedDefinition;
+
+		private Class<?> targetType;
+
+		private boolean factoryMethodUnique;
+
+		public BeanDefinitionData(BeanDefinition bd, String beanName) throws NotSerializableException {
+			if (!(bd instanceof AbstractBeanDefinition)) {
+				throw new NotSerializableException("Bean definition '" + beanName + "' is of unsupported type [" +
+						bd.getClass().getName() + "]");
+			}
+			AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+			if (abd instanceof RootBeanDefinition) {
+				RootBeanDefinition rbd = (RootBeanDefinition) abd;
+				this.definitionType = "root";
+				if (rbd.getDecoratedDefinition() != null) {
+					this.decoratedDefinition = new BeanDefinitionHolderData(rbd.getDecoratedDefinition());
+				}
+				this.targetType = rbd.getTargetType();
+				this.factoryMethodUnique = rbd.isFactoryMethodUnique;
+			}
+			else if (abd instanceof ChildBeanDefinition) {
+				this.definitionType = "child";
+			}
+			else {
+				this.definitionType = "generic";
+			}
+			this.parentName = abd.getParentName();
+			this.beanClassName = abd.getBeanClassName();
+			this.scope = abd.getScope();
+			this.abstractFlag = abd.isAbstract();
+			this.lazyInit = abd.isLazyInit();
+			this.autowireMode = abd.getAutowireMode();
+			this.dependencyCheck = abd.getDependencyCheck();
+			this.dependsOn = abd.getDependsOn();
+			this.autowireCandidate = abd.isAutowireCandidate();
+			this.primary = abd.isPrimary();
+			for (AutowireCandidateQualifier qualifier : abd.getQualifiers()) {
+				Map<String, Object> qualifierAttributes = new LinkedHashMap<String, Object>();
+				for (String name : qualifier.attributeNames()) {
+					qualifierAttributes.put(name, toData(qualifier.getAttribute(name), beanName));
+				}
+				this.qualifiers.put(qualifier.getTypeName(), qualifierAttributes);
+			}
+			this.nonPublicAccessAllowed = abd.isNonPublicAccessAllowed();
+			this.lenientConstructorResolution = abd.isLenientConstructorResolution();
+			ConstructorArgumentValues cargs = abd.getConstructorArgumentValues();
+			for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry :
+					cargs.getIndexedArgumentValues().entrySet()) {
+				this.indexedArgumentValues.put(entry.getKey(), new ValueHolderData(entry.getValue(), beanName));
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+				this.genericArgumentValues.add(new ValueHolderData(valueHolder, beanName));
+			}
+			for (PropertyValue pv : abd.getPropertyValues().getPropertyValueList()) {
+				this.propertyValues.put(pv.getName(), toData(pv.getValue(), beanName));
+				if (pv.isOptional()) {
+					this.optionalProperties.add(pv.getName());
+				}
+			}
+			for (MethodOverride override : abd.getMethodOverrides().getOverrides()) {
+				this.methodOverrides.add(new MethodOverrideData(override));
+			}
+			this.factoryBeanName = abd.getFactoryBeanName();
+			this.factoryMethodName = abd.getFactoryMethodName();
+			this.initMethodName = abd.getInitMethodName();
+			this.destroyMethodName = abd.getDestroyMethodName();
+			this.enforceInitMethod = abd.isEnforceInitMethod();
+			this.enforceDestroyMethod = abd.isEnforceDestroyMethod();
+			this.synthetic = abd.isSynthetic();
+			this.role = abd.getRole();
+			this.description = abd.getDescription();
+			this.resourceDescription = abd.getResourceDescription();
+			for (String name : abd.attributeNames()) {
+				this.attributes.put(name, toData(abd.getAttribute(name), beanName));
+			}
+		}
+
+		@Override
+		public Object restore() {
+			return toBeanDefinition();
+		}
+
+		public AbstractBeanDefinition toBeanDefinition() {
+			AbstractBeanDefinition abd;
+			if ("root".equals(this.definitionType)) {
+				RootBeanDefinition rbd = new RootBeanDefinition();
+				if (this.decoratedDefinition != null) {
+					rbd.setDecoratedDefinition((BeanDefinitionHolder) this.decoratedDefinition.restore());
+				}
+				rbd.setTargetType(this.targetType);
+				rbd.isFactoryMethodUnique = this.factoryMethodUnique;
+				abd = rbd;
+			}
+			else if ("child".equals(this.definitionType)) {
+				abd = new ChildBeanDefinition(this.parentName);
+			}
+			else {
+				GenericBeanDefinition gbd = new GenericBeanDefinition();
+				gbd.setParentName(this.parentName);
+				abd = gbd;
+			}
+			abd.setBeanClassName(this.beanClassName);
+			abd.setScope(this.scope);
+			abd.setAbstract(this.abstractFlag);
+			abd.setLazyInit(this.lazyInit);
+			abd.setAutowireMode(this.autowireMode);
+			abd.setDependencyCheck(this.dependencyCheck);
+			abd.setDependsOn(this.dependsOn);
+			abd.setAutowireCandidate(this.autowireCandidate);
+			abd.setPrimary(this.primary);
+			for (Map.Entry<String, Map<String, Object>> entry : this.qualifiers.entrySet()) {
+				AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(entry.getKey());
+				for (Map.Entry<String, Object> attribute : entry.getValue().entrySet()) {
+					qualifier.setAttribute(attribute.getKey(), fromData(attribute.getValue()));
+				}
+				abd.addQualifier(qualifier);
+			}
+			abd.setNonPublicAccessAllowed(this.nonPublicAccessAllowed);
+			abd.setLenientConstructorResolution(this.lenientConstructorResolution);
+			ConstructorArgumentValues cargs = abd.getConstructorArgumentValues();
+			for (Map.Entry<Integer, ValueHolderData> entry : this.indexedArgumentValues.entrySet()) {
+				cargs.addIndexedArgumentValue(entry.getKey(), entry.getValue().toValueHolder());
+			}
+			for (ValueHolderData valueHolder : this.genericArgumentValues) {
+				cargs.addGenericArgumentValue(valueHolder.toValueHolder());
+			}
+			for (Map.Entry<String, Object> entry : this.propertyValues.entrySet()) {
+				PropertyValue pv = new PropertyValue(entry.getKey(), fromData(entry.getValue()));
+				pv.setOptional(this.optionalProperties.contains(entry.getKey()));
+				abd.getPropertyValues().addPropertyValue(pv);
+			}
+			for (MethodOverrideData override : this.methodOverrides) {
+				abd.getMethodOverrides().addOverride(override.toMethodOverride());
+			}
+			abd.setFactoryBeanName(this.factoryBeanName);
+			abd.setFactoryMethodName(this.factoryMethodName);
+			abd.setInitMethodName(this.initMethodName);
+			abd.setDestroyMethodName(this.destroyMethodName);
+			abd.setEnforceInitMethod(this.enforceInitMethod);
+			abd.setEnforceDestroyMethod(this.enforceDestroyMethod);
+			abd.setSynthetic(this.synthetic);
+			abd.setRole(this.role);
+			abd.setDescription(this.description);
+			abd.setResourceDescription(this.resourceDescription);
+			for (Map.Entry<String, Object> entry : this.attributes.entrySet()) {
+				abd.setAttribute(entry.getKey(), fromData(entry.getValue()));
+			}
+			return abd;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,15 +32,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -58,7 +62,9 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -145,6 +151,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of singleton-only bean names keyed by dependency type */
 	private final Map<Class<?>, String[]> singletonBeanNamesByType = new ConcurrentHashMap<Class<?>, String[]>(64);
 
+	/** Map of autowire candidate names keyed by dependency, once the configuration is frozen */
+	private final Map<AutowireCandidatesKey, String[]> autowireCandidateNamesCache =
+			new ConcurrentHashMap<AutowireCandidatesKey, String[]>(64);
+
 	/** List of bean definition names, in registration order */
 	private final List<String> beanDefinitionNames = new ArrayList<String>();
 
@@ -154,6 +164,12 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Cached array of bean definition names in case of frozen configuration */
 	private String[] frozenBeanDefinitionNames;
 
+	/** Executor for parallel pre-instantiation of singletons, if any */
+	private Executor preInstantiationExecutor;
+
+	/** Creation times of the singletons pre-instantiated in parallel: bean name --> milliseconds */
+	private volatile Map<String, Long> preInstantiationTimes = Collections.emptyMap();
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -249,6 +265,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 		this.autowireCandidateResolver = autowireCandidateResolver;
+		this.autowireCandidateNamesCache.clear();
 	}
 
 	/**
@@ -258,6 +275,49 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.autowireCandidateResolver;
 	}
 
+	/**
+	 * Set an Executor for pre-instantiating singletons in parallel, e.g. a
+	 * {@link java.util.concurrent.ThreadPoolExecutor} or, on Java 7, a
+	 * {@code ForkJoinPool}.
+	 * <p>Default is none, creating all non-lazy singletons one after the other
+	 * in registration order on the calling thread. With an Executor, singletons
+	 * are scheduled once the beans that they declare a dependency on (through
+	 * "depends-on", bean references in constructor arguments and property values,
+	 * or a factory bean) have been created, and are created concurrently while
+	 * dependencies that are only discovered during creation (e.g. autowiring)
+	 * are waited for. Beans with circular declared dependencies are created
+	 * serially after all others.
+	 * <p>Only use this if the initialization logic of all singletons is
+	 * thread-safe and independent of creation order.
+	 * @since 4.0.3
+	 * @see #preInstantiateSingletons()
+	 * @see #getPreInstantiationTimes()
+	 */
+	public void setPreInstantiationExecutor(Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons in parallel, if any.
+	 * @since 4.0.3
+	 */
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the creation time of each singleton created by the last parallel
+	 * pre-instantiation, in milliseconds and in order of completion. A creation
+	 * time includes the creation of dependencies that had not been created before.
+	 * @return an unmodifiable Map from bean name to creation time
+	 * (empty if singletons have not been pre-instantiated in parallel)
+	 * @since 4.0.3
+	 * @see #setPreInstantiationExecutor
+	 */
+	public Map<String, Long> getPreInstantiationTimes() {
+		return this.preInstantiationTimes;
+	}
+
 
 	@Override
 	public void copyConfigurationFrom(ConfigurableBeanFactory otherFactory) {
@@ -267,6 +327,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.autowireCandidateResolver = otherListableFactory.autowireCandidateResolver;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			this.resolvableDependencies.putAll(otherListableFactory.resolvableDependencies);
 		}
 	}
@@ -674,31 +735,102 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
 			beanNames = new ArrayList<String>(this.beanDefinitionNames);
 		}
+		if (this.preInstantiationExecutor != null) {
+			new ParallelSingletonPreInstantiation(beanNames).run();
+			return;
+		}
 		for (String beanName : beanNames) {
 			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
 			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
-					boolean isEagerInit;
-					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-						isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
-							@Override
-							public Boolean run() {
-								return ((SmartFactoryBean<?>) factory).isEagerInit();
-							}
-						}, getAccessControlContext());
-					}
-					else {
-						isEagerInit = (factory instanceof SmartFactoryBean &&
-								((SmartFactoryBean<?>) factory).isEagerInit());
-					}
-					if (isEagerInit) {
-						getBean(beanName);
+				preInstantiateSingleton(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given non-lazy singleton, respecting the eager-init
+	 * flag in case of a FactoryBean.
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		if (isFactoryBean(beanName)) {
+			final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
+			boolean isEagerInit;
+			if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+				isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+					@Override
+					public Boolean run() {
+						return ((SmartFactoryBean<?>) factory).isEagerInit();
 					}
-				}
-				else {
-					getBean(beanName);
-				}
+				}, getAccessControlContext());
+			}
+			else {
+				isEagerInit = (factory instanceof SmartFactoryBean &&
+						((SmartFactoryBean<?>) factory).isEagerInit());
+			}
+			if (isEagerInit) {
+				getBean(beanName);
+			}
+		}
+		else {
+			getBean(beanName);
+		}
+	}
+
+	/**
+	 * Determine the names of the beans that the given bean declares a dependency
+	 * on in its definition: "depends-on" beans, its factory bean, and beans
+	 * referenced by constructor arguments and property values (including the
+	 * dependencies of inner beans).
+	 */
+	private Set<String> getDeclaredDependencies(BeanDefinition bd) {
+		Set<String> dependencies = new LinkedHashSet<String>();
+		if (bd.getDependsOn() != null) {
+			dependencies.addAll(Arrays.asList(bd.getDependsOn()));
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(bd.getFactoryBeanName());
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			addReferencedBeanNames(valueHolder.getValue(), dependencies);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			addReferencedBeanNames(valueHolder.getValue(), dependencies);
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValueList()) {
+			addReferencedBeanNames(pv.getValue(), dependencies);
+		}
+		Set<String> canonicalNames = new LinkedHashSet<String>(dependencies.size());
+		for (String dependency : dependencies) {
+			canonicalNames.add(transformedBeanName(dependency));
+		}
+		return canonicalNames;
+	}
+
+	private void addReferencedBeanNames(Object value, Set<String> beanNames) {
+		if (value instanceof RuntimeBeanReference) {
+			beanNames.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			beanNames.addAll(getDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition()));
+		}
+		else if (value instanceof BeanDefinition) {
+			beanNames.addAll(getDeclaredDependencies((BeanDefinition) value));
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				addReferencedBeanNames(element, beanNames);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				addReferencedBeanNames(entry.getKey(), beanNames);
+				addReferencedBeanNames(entry.getValue(), beanNames);
+			}
+		}
+		else if (value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				addReferencedBeanNames(element, beanNames);
 			}
 		}
 	}
@@ -831,6 +963,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	private void clearByTypeCache() {
 		this.allBeanNamesByType.clear();
 		this.singletonBeanNamesByType.clear();
+		this.autowireCandidateNamesCache.clear();
 	}
 
 
@@ -983,6 +1116,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/**
 	 * Find bean instances that match the required type.
 	 * Called during autowiring for the specified bean.
+	 * <p>Once the configuration has been frozen, the names of the matching beans
+	 * get cached per wired bean and dependency, with repeated resolution (e.g. for
+	 * prototype or request-scoped beans) skipping the type matching and autowire
+	 * candidate checks. The cache is cleared whenever a bean definition or
+	 * singleton gets registered or removed. Non-eager dependencies are not cached,
+	 * in line with {@link #getBeanNamesForType}, and neither are dependencies in
+	 * a factory with a parent, since changes in the parent do not clear the cache.
 	 * @param beanName the name of the bean that is about to be wired
 	 * @param requiredType the actual type of bean to look for
 	 * (may be an array component type or collection element type)
@@ -996,8 +1136,11 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	protected Map<String, Object> findAutowireCandidates(
 			String beanName, Class<?> requiredType, DependencyDescriptor descriptor) {
 
-		String[] candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
-				this, requiredType, true, descriptor.isEager());
+		AutowireCandidatesKey cacheKey = (this.configurationFrozen && descriptor.isEager() &&
+				getParentBeanFactory() == null ? new AutowireCandidatesKey(beanName, requiredType, descriptor) : null);
+		String[] cachedNames = (cacheKey != null ? this.autowireCandidateNamesCache.get(cacheKey) : null);
+		String[] candidateNames = (cachedNames != null ? cachedNames :
+				BeanFactoryUtils.beanNamesForTypeIncludingAncestors(this, requiredType, true, descriptor.isEager()));
 		Map<String, Object> result = new LinkedHashMap<String, Object>(candidateNames.length);
 		for (Class<?> autowiringType : this.resolvableDependencies.keySet()) {
 			if (autowiringType.isAssignableFrom(requiredType)) {
@@ -1009,9 +1152,18 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				}
 			}
 		}
+		if (cachedNames != null) {
+			// Names determined by a previous resolution of the same dependency...
+			for (String candidateName : cachedNames) {
+				result.put(candidateName, getBean(candidateName));
+			}
+			return result;
+		}
+		List<String> matchingNames = new ArrayList<String>(candidateNames.length);
 		for (String candidateName : candidateNames) {
 			if (!candidateName.equals(beanName) && isAutowireCandidate(candidateName, descriptor)) {
 				result.put(candidateName, getBean(candidateName));
+				matchingNames.add(candidateName);
 			}
 		}
 		if (result.isEmpty()) {
@@ -1019,9 +1171,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			for (String candidateName : candidateNames) {
 				if (!candidateName.equals(beanName) && isAutowireCandidate(candidateName, fallbackDescriptor)) {
 					result.put(candidateName, getBean(candidateName));
+					matchingNames.add(candidateName);
 				}
 			}
 		}
+		if (cacheKey != null) {
+			this.autowireCandidateNamesCache.put(cacheKey, StringUtils.toStringArray(matchingNames));
+		}
 		return result;
 	}
 
@@ -1165,6 +1321,50 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Key for the autowire candidate names cache: the bean being wired,
+	 * the required type and the dependency descriptor.
+	 */
+	private static final class AutowireCandidatesKey {
+
+		private final String beanName;
+
+		private final Class<?> requiredType;
+
+		private final Class<?> descriptorType;
+
+		private final DependencyDescriptor descriptor;
+
+		public AutowireCandidatesKey(String beanName, Class<?> requiredType, DependencyDescriptor descriptor) {
+			this.beanName = beanName;
+			this.requiredType = requiredType;
+			this.descriptorType = descriptor.getClass();
+			// Copy of the identifying state, unaffected by later changes to the given descriptor
+			this.descriptor = new DependencyDescriptor(descriptor);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof AutowireCandidatesKey)) {
+				return false;
+			}
+			AutowireCandidatesKey otherKey = (AutowireCandidatesKey) other;
+			return (ObjectUtils.nullSafeEquals(this.beanName, otherKey.beanName) &&
+					this.requiredType == otherKey.requiredType && this.descriptorType == otherKey.descriptorType &&
+					this.descriptor.equals(otherKey.descriptor));
+		}
+
+		@Override
+		public int hashCode() {
+			return (ObjectUtils.nullSafeHashCode(this.beanName) * 29 + this.requiredType.hashCode()) * 29 +
+					this.descriptor.hashCode();
+		}
+	}
+
+
 	/**
 	 * Serializable ObjectFactory for lazy resolution of a dependency.
 	 */
@@ -1213,4 +1413,165 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+
+	/**
+	 * Pre-instantiates singletons on the configured Executor, following
+	 * the dependency graph derived from their bean definitions.
+	 */
+	private class ParallelSingletonPreInstantiation {
+
+		private final List<String> beanNames = new ArrayList<String>();
+
+		/** Bean name --> number of declared dependencies not created yet */
+		private final Map<String, Integer> pendingDependencies = new HashMap<String, Integer>();
+
+		/** Bean name --> names of the beans that declare a dependency on it */
+		private final Map<String, List<String>> dependentBeans = new HashMap<String, List<String>>();
+
+		private final Map<String, Long> creationTimes = new LinkedHashMap<String, Long>();
+
+		private int tasksInFlight = 0;
+
+		private Throwable failure;
+
+		public ParallelSingletonPreInstantiation(List<String> candidateNames) {
+			for (String beanName : candidateNames) {
+				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+					this.beanNames.add(beanName);
+				}
+			}
+			Set<String> beanNameSet = new HashSet<String>(this.beanNames);
+			for (String beanName : this.beanNames) {
+				int pending = 0;
+				for (String dependency : getDeclaredDependencies(getMergedLocalBeanDefinition(beanName))) {
+					// Dependencies outside of the pre-instantiated singletons get created on demand
+					if (beanNameSet.contains(dependency) && !dependency.equals(beanName)) {
+						List<String> dependents = this.dependentBeans.get(dependency);
+						if (dependents == null) {
+							dependents = new ArrayList<String>(4);
+							this.dependentBeans.put(dependency, dependents);
+						}
+						dependents.add(beanName);
+						pending++;
+					}
+				}
+				this.pendingDependencies.put(beanName, pending);
+			}
+		}
+
+		public void run() {
+			long startTime = System.currentTimeMillis();
+			setParallelSingletonCreation(true);
+			try {
+				List<String> independentBeans = new ArrayList<String>();
+				synchronized (this) {
+					for (String beanName : this.beanNames) {
+						if (this.pendingDependencies.get(beanName) == 0) {
+							independentBeans.add(beanName);
+						}
+					}
+					this.tasksInFlight += independentBeans.size();
+				}
+				submit(independentBeans);
+				synchronized (this) {
+					while (this.tasksInFlight > 0) {
+						try {
+							wait();
+						}
+						catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							throw new FatalBeanException("Interrupted during parallel pre-instantiation of singletons");
+						}
+					}
+				}
+				if (this.failure instanceof RuntimeException) {
+					throw (RuntimeException) this.failure;
+				}
+				if (this.failure instanceof Error) {
+					throw (Error) this.failure;
+				}
+				if (this.failure != null) {
+					throw new FatalBeanException("Parallel pre-instantiation of singletons failed", this.failure);
+				}
+				// Beans with circular declared dependencies, in registration order
+				for (String beanName : this.beanNames) {
+					if (!this.creationTimes.containsKey(beanName)) {
+						long beanStartTime = System.nanoTime();
+						preInstantiateSingleton(beanName);
+						this.creationTimes.put(beanName, (System.nanoTime() - beanStartTime) / 1000000);
+					}
+				}
+			}
+			finally {
+				setParallelSingletonCreation(false);
+				synchronized (this) {
+					preInstantiationTimes = Collections.unmodifiableMap(new LinkedHashMap<String, Long>(this.creationTimes));
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Pre-instantiated " + this.creationTimes.size() + " singletons in parallel in " +
+						(System.currentTimeMillis() - startTime) + " ms; creation times: " + this.creationTimes);
+			}
+		}
+
+		private void submit(List<String> beanNames) {
+			for (final String beanName : beanNames) {
+				try {
+					preInstantiationExecutor.execute(new Runnable() {
+						@Override
+						public void run() {
+							create(beanName);
+						}
+					});
+				}
+				catch (RuntimeException ex) {
+					// e.g. RejectedExecutionException
+					completed(beanName, 0, ex);
+				}
+			}
+		}
+
+		private void create(String beanName) {
+			long startTime = System.nanoTime();
+			Throwable failure = null;
+			try {
+				preInstantiateSingleton(beanName);
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			submit(completed(beanName, (System.nanoTime() - startTime) / 1000000, failure));
+		}
+
+		/**
+		 * Record the completion of the given bean's creation.
+		 * @return the dependent beans that are ready to be created now
+		 */
+		private synchronized List<String> completed(String beanName, long creationTime, Throwable failure) {
+			List<String> readyBeans = new ArrayList<String>();
+			if (failure != null) {
+				if (this.failure == null) {
+					this.failure = failure;
+				}
+			}
+			else {
+				this.creationTimes.put(beanName, creationTime);
+				List<String> dependents = this.dependentBeans.get(beanName);
+				if (dependents != null && this.failure == null) {
+					for (String dependent : dependents) {
+						int pending = this.pendingDependencies.get(dependent) - 1;
+						this.pendingDependencies.put(dependent, pending);
+						if (pending == 0) {
+							readyBeans.add(dependent);
+						}
+					}
+				}
+			}
+			this.tasksInFlight += readyBeans.size() - 1;
+			notifyAll();
+			return readyBeans;
+		}
+	}
+
 }
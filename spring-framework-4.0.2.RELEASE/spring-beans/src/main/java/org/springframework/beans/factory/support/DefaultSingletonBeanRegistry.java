@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,14 @@ package org.springframework.beans.factory.support;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -101,6 +103,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
 
+	/** Singletons that are currently being created in parallel mode: bean name --> SingletonCreation */
+	private final Map<String, SingletonCreation> singletonCreations = new HashMap<String, SingletonCreation>(16);
+
+	/** Creations that threads are waiting for in parallel mode: thread --> SingletonCreation */
+	private final Map<Thread, SingletonCreation> singletonCreationWaits = new HashMap<Thread, SingletonCreation>(16);
+
+	/** Whether different threads may create different singletons concurrently */
+	private volatile boolean parallelSingletonCreation = false;
+
 	/** List of suppressed Exceptions, available for associating related causes */
 	private Set<Exception> suppressedExceptions;
 
@@ -184,6 +195,11 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
 			synchronized (this.singletonObjects) {
+				SingletonCreation creation = (this.parallelSingletonCreation ? this.singletonCreations.get(beanName) : null);
+				if (creation != null && creation.thread != Thread.currentThread()) {
+					// Early references are only exposed to the thread that creates the singleton.
+					return null;
+				}
 				singletonObject = this.earlySingletonObjects.get(beanName);
 				if (singletonObject == null && allowEarlyReference) {
 					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
@@ -208,6 +224,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
+		if (this.parallelSingletonCreation) {
+			return getSingletonInParallel(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
@@ -247,6 +266,177 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for parallel mode:
+	 * instead of holding the registry-wide lock for the entire creation, a thread
+	 * claims the given singleton and creates it while other threads may create
+	 * other singletons. Threads asking for a singleton that is being created
+	 * by another thread wait for its completion on a latch for that singleton,
+	 * outside of the singleton mutex, unless that thread is itself
+	 * (transitively) waiting for the current thread: such a circular reference
+	 * gets resolved through an early singleton reference, just like within a
+	 * single thread. A caller that holds the singleton mutex cannot wait for
+	 * another thread and gets a {@link BeanCurrentlyInCreationException}.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 * @see #setParallelSingletonCreation
+	 */
+	private Object getSingletonInParallel(String beanName, ObjectFactory<?> singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		// Whether the caller is within a critical section on the singleton mutex itself
+		boolean holdsMutex = Thread.holdsLock(this.singletonObjects);
+		SingletonCreation claimedCreation = null;
+		while (true) {
+			SingletonCreation creation;
+			synchronized (this.singletonObjects) {
+				Object singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject != null) {
+					return (singletonObject != NULL_OBJECT ? singletonObject : null);
+				}
+				if (this.singletonsCurrentlyInDestruction) {
+					throw new BeanCreationNotAllowedException(beanName,
+							"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
+							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+				}
+				creation = this.singletonCreations.get(beanName);
+				if (creation == null || creation.thread == currentThread) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+					}
+					// Marked as in creation within the lock, in line with type-checking FactoryBean shortcuts
+					beforeSingletonCreation(beanName);
+					if (creation == null) {
+						claimedCreation = new SingletonCreation(currentThread);
+						this.singletonCreations.put(beanName, claimedCreation);
+					}
+					break;
+				}
+				if (isWaitingForSingletonOf(creation.thread, currentThread)) {
+					singletonObject = this.earlySingletonObjects.get(beanName);
+					if (singletonObject == null) {
+						ObjectFactory<?> earlySingletonFactory = this.singletonFactories.get(beanName);
+						if (earlySingletonFactory == null) {
+							throw new BeanCurrentlyInCreationException(beanName);
+						}
+						singletonObject = earlySingletonFactory.getObject();
+						this.earlySingletonObjects.put(beanName, singletonObject);
+						this.singletonFactories.remove(beanName);
+					}
+					return (singletonObject != NULL_OBJECT ? singletonObject : null);
+				}
+				if (holdsMutex) {
+					// Waiting would either break the caller's critical section or block the
+					// creating thread, which needs the mutex to complete the singleton
+					throw new BeanCurrentlyInCreationException(beanName,
+							"Singleton bean is being created by another thread and cannot be waited for " +
+							"while holding the singleton mutex");
+				}
+				registerCreationWait(currentThread, creation);
+			}
+			awaitCreation(creation, beanName);
+		}
+		try {
+			Object singletonObject;
+			try {
+				singletonObject = singletonFactory.getObject();
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					afterSingletonCreation(beanName);
+				}
+			}
+			addSingleton(beanName, singletonObject);
+			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		}
+		finally {
+			if (claimedCreation != null) {
+				synchronized (this.singletonObjects) {
+					this.singletonCreations.remove(beanName);
+				}
+				claimedCreation.latch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the given creating thread is (transitively) waiting for
+	 * a creation by the given current thread.
+	 * <p>To be called within the singleton lock.
+	 */
+	boolean isWaitingForSingletonOf(Thread creationThread, Thread currentThread) {
+		Set<Thread> visitedThreads = new HashSet<Thread>();
+		Thread thread = creationThread;
+		while (thread != null && visitedThreads.add(thread)) {
+			SingletonCreation awaitedCreation = this.singletonCreationWaits.get(thread);
+			if (awaitedCreation == null || awaitedCreation.latch.getCount() == 0) {
+				return false;
+			}
+			thread = awaitedCreation.thread;
+			if (thread == currentThread) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Record that the given thread is about to wait for the given creation,
+	 * for other threads to detect circular waits.
+	 * <p>To be called within the singleton lock, together with the check
+	 * for the creation.
+	 * @see #awaitCreation
+	 */
+	void registerCreationWait(Thread thread, SingletonCreation creation) {
+		this.singletonCreationWaits.put(thread, creation);
+	}
+
+	/**
+	 * Wait for the given creation by another thread to complete, outside of
+	 * the singleton lock, after {@link #registerCreationWait registering} the wait.
+	 */
+	void awaitCreation(SingletonCreation creation, String beanName) {
+		Thread currentThread = Thread.currentThread();
+		try {
+			creation.latch.await();
+		}
+		catch (InterruptedException ex) {
+			currentThread.interrupt();
+			throw new BeanCreationException(beanName,
+					"Interrupted while waiting for creation of singleton in another thread");
+		}
+		finally {
+			synchronized (this.singletonObjects) {
+				this.singletonCreationWaits.remove(currentThread);
+			}
+		}
+	}
+
+	/**
+	 * Set whether different threads may create different singletons concurrently.
+	 * <p>Default is "false": singleton creation is serialized through a lock for
+	 * the entire registry. Switch this on for phases that deliberately create
+	 * singletons from several threads, e.g. parallel pre-instantiation, and
+	 * switch it off again afterwards. Must not be switched while singletons
+	 * are being created.
+	 * <p>In parallel mode, early singleton references for resolving circular
+	 * references are only exposed to the creating thread, and suppressed
+	 * exceptions are not recorded as related causes.
+	 * @since 4.0.3
+	 */
+	protected void setParallelSingletonCreation(boolean parallelSingletonCreation) {
+		this.parallelSingletonCreation = parallelSingletonCreation;
+	}
+
+	/**
+	 * Return whether different threads may create different singletons concurrently.
+	 * @since 4.0.3
+	 */
+	protected boolean isParallelSingletonCreation() {
+		return this.parallelSingletonCreation;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -579,4 +769,21 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Creation of a singleton, or of the object exposed by a singleton FactoryBean,
+	 * by a specific thread in parallel mode, with a latch for other threads to wait
+	 * on until it is completed.
+	 */
+	static class SingletonCreation {
+
+		public final Thread thread;
+
+		public final CountDownLatch latch = new CountDownLatch(1);
+
+		public SingletonCreation(Thread thread) {
+			this.thread = thread;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +46,9 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 	/** Cache of singleton objects created by FactoryBeans: FactoryBean name --> object */
 	private final Map<String, Object> factoryBeanObjectCache = new ConcurrentHashMap<String, Object>(16);
 
+	/** FactoryBean objects that are currently being obtained in parallel mode: FactoryBean name --> SingletonCreation */
+	private final Map<String, SingletonCreation> factoryBeanObjectCreations = new HashMap<String, SingletonCreation>(16);
+
 
 	/**
 	 * Determine the type for the given FactoryBean.
@@ -97,6 +101,9 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 	 */
 	protected Object getObjectFromFactoryBean(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
 		if (factory.isSingleton() && containsSingleton(beanName)) {
+			if (isParallelSingletonCreation()) {
+				return getObjectFromFactoryBeanInParallel(factory, beanName, shouldPostProcess);
+			}
 			synchronized (getSingletonMutex()) {
 				Object object = this.factoryBeanObjectCache.get(beanName);
 				if (object == null) {
@@ -111,6 +118,70 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
 		}
 	}
 
+	/**
+	 * Variant of {@link #getObjectFromFactoryBean} for parallel singleton creation:
+	 * the object is obtained outside of the singleton mutex, since the FactoryBean
+	 * may depend on singletons that other threads are creating. A thread claims
+	 * the object of the given FactoryBean, and other threads asking for it wait
+	 * until it has been obtained and post-processed, so that it is only created
+	 * once, unless the claiming thread is (transitively) waiting for the current
+	 * thread.
+	 * @see #isParallelSingletonCreation()
+	 */
+	private Object getObjectFromFactoryBeanInParallel(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
+		Thread currentThread = Thread.currentThread();
+		// Whether the caller is within a critical section on the singleton mutex itself
+		boolean holdsMutex = Thread.holdsLock(getSingletonMutex());
+		SingletonCreation claimedCreation = null;
+		while (true) {
+			SingletonCreation creation;
+			synchronized (getSingletonMutex()) {
+				Object object = this.factoryBeanObjectCache.get(beanName);
+				if (object != null) {
+					return (object != NULL_OBJECT ? object : null);
+				}
+				creation = this.factoryBeanObjectCreations.get(beanName);
+				if (creation == null) {
+					claimedCreation = new SingletonCreation(currentThread);
+					this.factoryBeanObjectCreations.put(beanName, claimedCreation);
+					break;
+				}
+				if (creation.thread == currentThread || isWaitingForSingletonOf(creation.thread, currentThread)) {
+					// Recursive request for the object: obtained again, just like within a single thread
+					break;
+				}
+				if (holdsMutex) {
+					throw new BeanCurrentlyInCreationException(beanName,
+							"FactoryBean object is being created by another thread and cannot be waited for " +
+							"while holding the singleton mutex");
+				}
+				registerCreationWait(currentThread, creation);
+			}
+			awaitCreation(creation, beanName);
+		}
+		try {
+			Object object = doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
+			synchronized (getSingletonMutex()) {
+				Object alreadyThere = this.factoryBeanObjectCache.get(beanName);
+				if (alreadyThere != null) {
+					object = alreadyThere;
+				}
+				else {
+					this.factoryBeanObjectCache.put(beanName, (object != null ? object : NULL_OBJECT));
+				}
+			}
+			return (object != NULL_OBJECT ? object : null);
+		}
+		finally {
+			if (claimedCreation != null) {
+				synchronized (getSingletonMutex()) {
+					this.factoryBeanObjectCreations.remove(beanName);
+				}
+				claimedCreation.latch.countDown();
+			}
+		}
+	}
+
 	/**
 	 * Obtain an object to expose from the given FactoryBean.
 	 * @param factory the FactoryBean instance
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -68,6 +68,13 @@ public class ReplaceOverride extends MethodOverride {
 		this.typeIdentifiers.add(identifier);
 	}
 
+	/**
+	 * Return the type identifiers registered for parameter matching.
+	 */
+	List<String> getTypeIdentifiers() {
+		return this.typeIdentifiers;
+	}
+
 
 	@Override
 	public boolean matches(Method method) {
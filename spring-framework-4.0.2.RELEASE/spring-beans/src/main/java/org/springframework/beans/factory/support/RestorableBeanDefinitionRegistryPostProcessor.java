@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.BeansException;
+
+/**
+ * Extension of the {@link BeanDefinitionRegistryPostProcessor} SPI for post-processors
+ * whose registry contributions can be captured in a {@link BeanDefinitionSnapshot}.
+ *
+ * <p>When an application context restores its bean definitions from a snapshot,
+ * {@link #restoreState} gets called <i>instead of</i> {@link #postProcessBeanDefinitionRegistry},
+ * since all bean definitions registered by this post-processor are part of the
+ * snapshot already. Post-processors that do not implement this interface are
+ * invoked as usual against the restored registry.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see BeanDefinitionSnapshot
+ */
+public interface RestorableBeanDefinitionRegistryPostProcessor extends BeanDefinitionRegistryPostProcessor {
+
+	/**
+	 * Store any state beyond bean definitions that this post-processor
+	 * will need in {@link #restoreState}, as attributes of the given snapshot.
+	 * @param snapshot the snapshot being taken after registry post-processing
+	 */
+	void saveState(BeanDefinitionSnapshot snapshot);
+
+	/**
+	 * Restore this post-processor's state from the given snapshot, with all
+	 * bean definitions of the snapshot registered in the given registry already.
+	 * @param registry the bean definition registry used by the application context
+	 * @param snapshot the snapshot that the registry has been populated from
+	 * @throws org.springframework.beans.BeansException in case of errors
+	 */
+	void restoreState(BeanDefinitionRegistry registry, BeanDefinitionSnapshot snapshot) throws BeansException;
+
+}
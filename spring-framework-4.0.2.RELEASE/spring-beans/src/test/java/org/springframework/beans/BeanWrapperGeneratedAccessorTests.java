@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanWrapperImpl} with generated property accessors.
+ *
+ * @author agent
+ */
+public class BeanWrapperGeneratedAccessorTests {
+
+	@Test
+	public void simpleProperties() {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = createBeanWrapper(tb);
+		bw.setPropertyValue("name", "Rod");
+		bw.setPropertyValue("age", "31");
+		bw.setPropertyValue("jedi", Boolean.TRUE);
+		bw.setPropertyValue("myFloat", 1.5f);
+		assertEquals("Rod", tb.getName());
+		assertEquals(31, tb.getAge());
+		assertTrue(tb.isJedi());
+		assertEquals("Rod", bw.getPropertyValue("name"));
+		assertEquals(31, bw.getPropertyValue("age"));
+		assertEquals(Boolean.TRUE, bw.getPropertyValue("jedi"));
+		assertEquals(1.5f, bw.getPropertyValue("myFloat"));
+	}
+
+	@Test
+	public void nestedAndIndexedProperties() {
+		TestBean tb = new TestBean();
+		tb.setSpouse(new TestBean());
+		List<String> list = new ArrayList<String>();
+		list.add("a");
+		tb.setSomeList(list);
+		BeanWrapperImpl bw = createBeanWrapper(tb);
+		bw.setPropertyValue("spouse.name", "Kerry");
+		bw.setPropertyValue("someList[0]", "b");
+		bw.setPropertyValue("stringArray", new String[] {"x", "y"});
+		bw.setPropertyValue("stringArray[1]", "z");
+		assertEquals("Kerry", tb.getSpouse().getName());
+		assertEquals("Kerry", bw.getPropertyValue("spouse.name"));
+		assertEquals("b", bw.getPropertyValue("someList[0]"));
+		assertEquals("z", bw.getPropertyValue("stringArray[1]"));
+	}
+
+	@Test
+	public void sameSemanticsForErrors() {
+		BeanWrapperImpl bw = createBeanWrapper(new TestBean());
+		try {
+			bw.setPropertyValue("age", "not a number");
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			assertEquals("age", ex.getPropertyName());
+		}
+		try {
+			bw.setPropertyValue("age", null);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			assertEquals("age", ex.getPropertyName());
+		}
+		try {
+			bw.setPropertyValue("touchy", "1.2");
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertEquals("touchy", ex.getPropertyName());
+			assertTrue(ex.getCause() instanceof Exception);
+		}
+	}
+
+	@Test
+	public void accessorsGeneratedOncePerClass() throws Exception {
+		PropertyDescriptor[] pds = CachedIntrospectionResults.forClass(TestBean.class).getPropertyDescriptors();
+		GeneratedAccessors accessors = GeneratedAccessors.forClass(TestBean.class, pds);
+		assertSame(accessors, GeneratedAccessors.forClass(TestBean.class, pds));
+		TestBean tb = new TestBean("Rod", 31);
+		Object[] result = new Object[1];
+		assertTrue(accessors.read(TestBean.class.getMethod("getAge"), tb, result));
+		assertEquals(31, result[0]);
+		assertTrue(accessors.write(TestBean.class.getMethod("setName", String.class), tb, "Juergen"));
+		assertEquals("Juergen", tb.getName());
+		assertFalse(accessors.write(TestBean.class.getMethod("setAge", int.class), tb, "not an int"));
+	}
+
+	@Test
+	public void nonPublicBeanClass() {
+		PackagePrivateBean bean = new PackagePrivateBean();
+		BeanWrapperImpl bw = createBeanWrapper(bean);
+		bw.setPropertyValue("value", "42");
+		assertEquals(42, bean.getValue());
+		assertEquals(42, bw.getPropertyValue("value"));
+	}
+
+	@Test
+	public void setterWithReturnValue() {
+		FluentBean bean = new FluentBean();
+		BeanWrapperImpl bw = createBeanWrapper(bean);
+		bw.setPropertyValue("count", 5L);
+		assertEquals(5L, bean.getCount());
+		assertEquals(5L, bw.getPropertyValue("count"));
+	}
+
+	@Test
+	public void switchingWrappedInstance() {
+		BeanWrapperImpl bw = createBeanWrapper(new TestBean());
+		bw.setPropertyValue("name", "Rod");
+		FluentBean bean = new FluentBean();
+		bw.setWrappedInstance(bean);
+		bw.setPropertyValue("count", "3");
+		assertEquals(3L, bean.getCount());
+	}
+
+
+	private static BeanWrapperImpl createBeanWrapper(Object target) {
+		BeanWrapperImpl bw = new BeanWrapperImpl(target);
+		bw.setUseGeneratedAccessors(true);
+		return bw;
+	}
+
+
+	static class PackagePrivateBean {
+
+		private int value;
+
+		public int getValue() {
+			return this.value;
+		}
+
+		public void setValue(int value) {
+			this.value = value;
+		}
+	}
+
+
+	public static class FluentBean {
+
+		private long count;
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public FluentBean setCount(long count) {
+			this.count = count;
+			return this;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.security.Principal;
 import java.security.PrivilegedAction;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -32,6 +33,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.security.auth.Subject;
 
 import org.apache.commons.logging.Log;
@@ -54,6 +60,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.config.TypedStringValue;
@@ -1162,6 +1169,61 @@ public class DefaultListableBeanFactoryTests {
 		assertNull(ab.getResourceArray());
 	}
 
+	@Test
+	public void testAutowireCandidatesCachedOnceConfigurationFrozen() {
+		final List<String> checkedCandidates = new ArrayList<String>();
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory() {
+			@Override
+			public boolean isAutowireCandidate(String beanName, DependencyDescriptor descriptor) {
+				checkedCandidates.add(beanName);
+				return super.isAutowireCandidate(beanName, descriptor);
+			}
+		};
+		bf.registerSingleton("integer1", new Integer(4));
+		bf.registerSingleton("integer2", new Integer(5));
+		RootBeanDefinition rbd = new RootBeanDefinition(ArrayBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		bf.registerBeanDefinition("arrayBean", rbd);
+		bf.freezeConfiguration();
+
+		ArrayBean ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(2, ab.getIntegerArray().length);
+		assertTrue(checkedCandidates.contains("integer1"));
+		checkedCandidates.clear();
+		ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(new Integer(4), ab.getIntegerArray()[0]);
+		assertEquals(new Integer(5), ab.getIntegerArray()[1]);
+		assertFalse(checkedCandidates.contains("integer1"));
+
+		bf.registerSingleton("integer3", new Integer(6));
+		ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(3, ab.getIntegerArray().length);
+		assertEquals(new Integer(6), ab.getIntegerArray()[2]);
+		bf.destroySingleton("integer1");
+		ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(2, ab.getIntegerArray().length);
+	}
+
+	@Test
+	public void testAutowireCandidatesNotCachedWithParentFactory() {
+		DefaultListableBeanFactory parent = new DefaultListableBeanFactory();
+		parent.registerSingleton("integer1", new Integer(4));
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory(parent);
+		bf.registerSingleton("integer2", new Integer(5));
+		RootBeanDefinition rbd = new RootBeanDefinition(ArrayBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		bf.registerBeanDefinition("arrayBean", rbd);
+		bf.freezeConfiguration();
+
+		ArrayBean ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(2, ab.getIntegerArray().length);
+		parent.registerSingleton("integer3", new Integer(6));
+		ab = (ArrayBean) bf.getBean("arrayBean");
+		assertEquals(3, ab.getIntegerArray().length);
+	}
+
 	@Test
 	public void testAutowireWithNoDependencies() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
@@ -1742,6 +1804,189 @@ public class DefaultListableBeanFactoryTests {
 		lbf.preInstantiateSingletons();
 	}
 
+	@Test
+	public void testParallelPreInstantiation() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		for (int i = 0; i < 100; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			if (i % 10 != 0) {
+				bd.getPropertyValues().add("spouse", new RuntimeBeanReference("bean" + (i - 1)));
+			}
+			if (i >= 10) {
+				bd.setDependsOn(new String[] {"bean" + (i - 10)});
+			}
+			lbf.registerBeanDefinition("bean" + i, bd);
+		}
+		RootBeanDefinition lazy = new RootBeanDefinition(TestBean.class);
+		lazy.setLazyInit(true);
+		lbf.registerBeanDefinition("lazy", lazy);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(100, lbf.getSingletonCount());
+		assertFalse(lbf.containsSingleton("lazy"));
+		for (int i = 0; i < 100; i++) {
+			TestBean bean = (TestBean) lbf.getBean("bean" + i);
+			if (i % 10 != 0) {
+				assertSame(lbf.getBean("bean" + (i - 1)), bean.getSpouse());
+			}
+			else {
+				assertNull(bean.getSpouse());
+			}
+		}
+		Map<String, Long> times = lbf.getPreInstantiationTimes();
+		assertEquals(100, times.size());
+		List<String> order = new ArrayList<String>(times.keySet());
+		for (int i = 1; i < 100; i++) {
+			assertTrue(order.indexOf("bean" + i) > order.indexOf("bean" + (i % 10 != 0 ? i - 1 : i - 10)));
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithCircularReferences() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		for (int i = 0; i < 100; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.getPropertyValues().add("spouse", new RuntimeBeanReference("bean" + (i < 99 ? i + 1 : 0)));
+			lbf.registerBeanDefinition("bean" + i, bd);
+		}
+		for (int i = 0; i < 100; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+			lbf.registerBeanDefinition("autowired" + i, bd);
+		}
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+		lbf.registerBeanDefinition("spouse", spouse);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(201, lbf.getPreInstantiationTimes().size());
+		for (int i = 0; i < 100; i++) {
+			TestBean bean = (TestBean) lbf.getBean("bean" + i);
+			assertSame(lbf.getBean("bean" + (i < 99 ? i + 1 : 0)), bean.getSpouse());
+			TestBean autowired = (TestBean) lbf.getBean("autowired" + i);
+			assertSame(lbf.getBean("spouse"), autowired.getSpouse());
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithFailure() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class));
+		lbf.registerBeanDefinition("invalid", new RootBeanDefinition(ITestBean.class));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			lbf.setPreInstantiationExecutor(executor);
+			lbf.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("invalid", ex.getBeanName());
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue(lbf.containsSingleton("test"));
+		assertFalse(lbf.containsSingleton("invalid"));
+	}
+
+	@Test
+	public void testParallelSingletonCreationDoesNotWaitWithinSingletonMutex() throws Exception {
+		final ParallelCreationBeanFactory lbf = new ParallelCreationBeanFactory();
+		lbf.registerBeanDefinition("blocking", new RootBeanDefinition(BlockingBean.class));
+		lbf.enableParallelSingletonCreation();
+		final BlockingBean.Latches latches = BlockingBean.reset();
+		Thread creator = new Thread() {
+			@Override
+			public void run() {
+				lbf.getBean("blocking");
+			}
+		};
+		creator.start();
+		try {
+			assertTrue(latches.started.await(10, TimeUnit.SECONDS));
+			synchronized (lbf.getMutex()) {
+				try {
+					lbf.getBean("blocking");
+					fail("Should have thrown BeanCurrentlyInCreationException");
+				}
+				catch (BeanCurrentlyInCreationException ex) {
+					assertEquals("blocking", ex.getBeanName());
+				}
+			}
+		}
+		finally {
+			latches.proceed.countDown();
+			creator.join(10000);
+		}
+		assertTrue(lbf.containsSingleton("blocking"));
+		assertNotNull(lbf.getBean("blocking"));
+	}
+
+	@Test
+	public void testParallelSingletonCreationObtainsFactoryBeanObjectOnce() throws Exception {
+		final ParallelCreationBeanFactory lbf = new ParallelCreationBeanFactory();
+		lbf.registerBeanDefinition("factory", new RootBeanDefinition(BlockingFactoryBean.class));
+		final AtomicInteger postProcessed = new AtomicInteger();
+		lbf.addBeanPostProcessor(new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				return bean;
+			}
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof TestBean) {
+					postProcessed.incrementAndGet();
+				}
+				return bean;
+			}
+		});
+		lbf.enableParallelSingletonCreation();
+		final BlockingBean.Latches latches = BlockingBean.reset();
+		final Object[] objects = new Object[2];
+		Thread creator = new Thread() {
+			@Override
+			public void run() {
+				objects[0] = lbf.getBean("factory");
+			}
+		};
+		Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				objects[1] = lbf.getBean("factory");
+			}
+		};
+		creator.start();
+		try {
+			assertTrue(latches.started.await(10, TimeUnit.SECONDS));
+			waiter.start();
+			for (int i = 0; i < 1000 && waiter.getState() != Thread.State.WAITING; i++) {
+				Thread.sleep(10);
+			}
+			assertEquals(Thread.State.WAITING, waiter.getState());
+		}
+		finally {
+			latches.proceed.countDown();
+			creator.join(10000);
+			waiter.join(10000);
+		}
+		assertNotNull(objects[0]);
+		assertSame(objects[0], objects[1]);
+		assertEquals(1, BlockingFactoryBean.objectCount.get());
+		assertEquals(1, postProcessed.get());
+	}
+
 	@Test
 	public void testBeanDefinitionWithInterface() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
@@ -2748,6 +2993,68 @@ public class DefaultListableBeanFactoryTests {
 		}
 	}
 
+	private static class ParallelCreationBeanFactory extends DefaultListableBeanFactory {
+
+		public void enableParallelSingletonCreation() {
+			setParallelSingletonCreation(true);
+		}
+
+		public Object getMutex() {
+			return getSingletonMutex();
+		}
+	}
+
+
+	public static class BlockingBean {
+
+		private static Latches latches;
+
+		public static Latches reset() {
+			latches = new Latches();
+			return latches;
+		}
+
+		public BlockingBean() throws InterruptedException {
+			latches.started.countDown();
+			latches.proceed.await(10, TimeUnit.SECONDS);
+		}
+
+		public static class Latches {
+
+			public final CountDownLatch started = new CountDownLatch(1);
+
+			public final CountDownLatch proceed = new CountDownLatch(1);
+		}
+	}
+
+
+	public static class BlockingFactoryBean implements FactoryBean<TestBean> {
+
+		private static final AtomicInteger objectCount = new AtomicInteger();
+
+		public BlockingFactoryBean() {
+			objectCount.set(0);
+		}
+
+		@Override
+		public TestBean getObject() throws InterruptedException {
+			objectCount.incrementAndGet();
+			new BlockingBean();
+			return new TestBean();
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return TestBean.class;
+		}
+
+		@Override
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+
 	@SuppressWarnings("unused")
 	private static class KnowsIfInstantiated {
 
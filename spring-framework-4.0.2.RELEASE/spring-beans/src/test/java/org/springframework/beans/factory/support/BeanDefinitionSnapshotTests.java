@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshot}.
+ *
+ * @author agent
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Test
+	public void roundTrip() throws Exception {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		RootBeanDefinition spouse = new RootBeanDefinition(TestBean.class);
+		spouse.getConstructorArgumentValues().addIndexedArgumentValue(0, "Kerry");
+		spouse.getConstructorArgumentValues().addIndexedArgumentValue(1, new TypedStringValue("35", "int"));
+		spouse.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		spouse.addQualifier(new AutowireCandidateQualifier("myQualifier", "kerry"));
+		original.registerBeanDefinition("spouse", spouse);
+		original.registerAlias("spouse", "wife");
+
+		GenericBeanDefinition inner = new GenericBeanDefinition();
+		inner.setBeanClass(TestBean.class);
+		inner.getPropertyValues().add("name", "inner");
+		ManagedList<Object> friends = new ManagedList<Object>();
+		friends.add(new RuntimeBeanReference("spouse"));
+		friends.add(new BeanDefinitionHolder(inner, "innerBean"));
+		friends.setMergeEnabled(true);
+		ManagedMap<Object, Object> someMap = new ManagedMap<Object, Object>();
+		someMap.put(new TypedStringValue("key"), new TypedStringValue("value"));
+		ManagedProperties someProperties = new ManagedProperties();
+		someProperties.put(new TypedStringValue("prop"), new TypedStringValue("${placeholder}"));
+		GenericBeanDefinition rod = new GenericBeanDefinition();
+		rod.setBeanClassName(TestBean.class.getName());
+		rod.setLazyInit(true);
+		rod.setInitMethodName("toString");
+		rod.setDependsOn(new String[] {"spouse"});
+		rod.setAttribute("custom", 42);
+		rod.getPropertyValues().add("name", "Rod");
+		rod.getPropertyValues().add("spouse", new RuntimeBeanReference("wife"));
+		rod.getPropertyValues().add("friends", friends);
+		rod.getPropertyValues().add("someMap", someMap);
+		rod.getPropertyValues().add("someProperties", someProperties);
+		rod.getMethodOverrides().addOverride(new LookupOverride("getDoctor", "spouse"));
+		original.registerBeanDefinition("rod", rod);
+
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.create("fp", original);
+		snapshot.setAttribute("state", "saved");
+		BeanDefinitionSnapshot restored = roundTrip(snapshot, "fp");
+		assertNotNull(restored);
+		assertEquals("saved", restored.getAttribute("state"));
+		assertEquals(Arrays.asList("spouse", "rod"), Arrays.asList(restored.getBeanDefinitionNames()));
+
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		assertEquals(2, restored.registerBeanDefinitions(bf));
+		assertEquals(Arrays.asList("wife"), Arrays.asList(bf.getAliases("spouse")));
+		assertEquals(spouse, bf.getBeanDefinition("spouse"));
+		assertEquals(rod, bf.getBeanDefinition("rod"));
+		assertEquals(42, bf.getBeanDefinition("rod").getAttribute("custom"));
+
+		TestBean rodBean = (TestBean) bf.getBean("rod");
+		assertEquals("Rod", rodBean.getName());
+		ITestBean kerry = rodBean.getSpouse();
+		assertEquals("Kerry", kerry.getName());
+		assertEquals(35, kerry.getAge());
+		assertEquals(2, rodBean.getFriends().size());
+		assertEquals("value", rodBean.getSomeMap().get("key"));
+		assertEquals("${placeholder}", rodBean.getSomeProperties().getProperty("prop"));
+		assertNotSame(kerry, bf.getBean("wife"));
+	}
+
+	@Test
+	public void fingerprintMismatch() throws Exception {
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot("fp1");
+		snapshot.addBeanDefinition("bean", new RootBeanDefinition(TestBean.class), null);
+		assertNull(roundTrip(snapshot, "fp2"));
+	}
+
+	@Test
+	public void replaceExistingBeanDefinitions() throws Exception {
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot("fp");
+		snapshot.addBeanDefinition("bean", new RootBeanDefinition(TestBean.class), null);
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setAllowBeanDefinitionOverriding(false);
+		bf.registerBeanDefinition("bean", new RootBeanDefinition(Object.class));
+		roundTrip(snapshot, "fp").registerBeanDefinitions(bf);
+		assertTrue(bf.getBean("bean") instanceof TestBean);
+	}
+
+	@Test(expected = NotSerializableException.class)
+	public void nonSerializableValue() throws Exception {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new TestBean());
+		new BeanDefinitionSnapshot("fp").addBeanDefinition("bean", bd, null);
+	}
+
+
+	private static BeanDefinitionSnapshot roundTrip(BeanDefinitionSnapshot snapshot, String fingerprint)
+			throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.writeTo(out);
+		return BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()),
+				BeanDefinitionSnapshotTests.class.getClassLoader(), fingerprint);
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.aop;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.aop.Advice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.interceptor.CacheInterceptor;
+import org.springframework.cache.interceptor.CacheOperation;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.cache.interceptor.NameMatchCacheOperationSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.NameMatchTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Benchmarks for invocations through JDK dynamic proxies created by
+ * {@link ProxyFactory}, with transactional and caching advice applied,
+ * compared against invoking the target directly.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProxyInvocationBenchmark {
+
+	@Param({"true", "false"})
+	public boolean frozen;
+
+	private final Service target = new DefaultService();
+
+	private Service transactionalProxy;
+
+	private Service cachingProxy;
+
+
+	@Setup
+	public void setup() {
+		Properties transactionAttributes = new Properties();
+		transactionAttributes.setProperty("getAge", "PROPAGATION_REQUIRED,readOnly");
+		NameMatchTransactionAttributeSource transactionAttributeSource = new NameMatchTransactionAttributeSource();
+		transactionAttributeSource.setProperties(transactionAttributes);
+		TransactionInterceptor transactionInterceptor =
+				new TransactionInterceptor(new NoOpTransactionManager(), transactionAttributeSource);
+		transactionInterceptor.afterPropertiesSet();
+		this.transactionalProxy = createProxy(transactionInterceptor);
+
+		CacheableOperation cacheableOperation = new CacheableOperation();
+		cacheableOperation.setCacheName("benchmark");
+		NameMatchCacheOperationSource cacheOperationSource = new NameMatchCacheOperationSource();
+		cacheOperationSource.setNameMap(
+				Collections.<String, Collection<CacheOperation>>singletonMap("lookup",
+						Collections.<CacheOperation>singleton(cacheableOperation)));
+		CacheInterceptor cacheInterceptor = new CacheInterceptor();
+		cacheInterceptor.setCacheManager(new ConcurrentMapCacheManager("benchmark"));
+		cacheInterceptor.setCacheOperationSources(cacheOperationSource);
+		cacheInterceptor.afterPropertiesSet();
+		this.cachingProxy = createProxy(cacheInterceptor);
+		this.cachingProxy.lookup("key");
+	}
+
+	private Service createProxy(Advice advice) {
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		proxyFactory.setInterfaces(Service.class);
+		proxyFactory.addAdvice(advice);
+		proxyFactory.setFrozen(this.frozen);
+		return (Service) proxyFactory.getProxy(getClass().getClassLoader());
+	}
+
+
+	@Benchmark
+	public int target() {
+		return this.target.getAge();
+	}
+
+	@Benchmark
+	public int transactionalMethod() {
+		return this.transactionalProxy.getAge();
+	}
+
+	@Benchmark
+	public int nonTransactionalMethod() {
+		return this.transactionalProxy.getCount();
+	}
+
+	@Benchmark
+	public String cachedMethod() {
+		return this.cachingProxy.lookup("key");
+	}
+
+
+	public interface Service {
+
+		int getAge();
+
+		int getCount();
+
+		String lookup(String key);
+	}
+
+
+	public static class DefaultService implements Service {
+
+		@Override
+		public int getAge() {
+			return 42;
+		}
+
+		@Override
+		public int getCount() {
+			return 1;
+		}
+
+		@Override
+		public String lookup(String key) {
+			return key.toUpperCase();
+		}
+	}
+
+
+	/**
+	 * Transaction manager without an underlying resource, so that the
+	 * benchmark measures the interceptor and synchronization overhead only.
+	 */
+	@SuppressWarnings("serial")
+	private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
+
+}
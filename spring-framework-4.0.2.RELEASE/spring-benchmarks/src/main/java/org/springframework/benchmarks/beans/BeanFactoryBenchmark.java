@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.beans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Benchmarks for {@link org.springframework.beans.factory.support.AbstractBeanFactory#getBean}
+ * covering singleton lookups and prototype creation.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BeanFactoryBenchmark {
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Setup
+	public void setup() {
+		this.beanFactory = new DefaultListableBeanFactory();
+
+		RootBeanDefinition singleton = new RootBeanDefinition(SingletonBean.class);
+		this.beanFactory.registerBeanDefinition("singleton", singleton);
+		this.beanFactory.registerAlias("singleton", "singletonAlias");
+
+		RootBeanDefinition prototype = new RootBeanDefinition(PrototypeBean.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		prototype.getPropertyValues().add("name", "Juergen");
+		prototype.getPropertyValues().add("age", "42");
+		this.beanFactory.registerBeanDefinition("prototype", prototype);
+
+		RootBeanDefinition prototypeWithReference = new RootBeanDefinition(PrototypeBean.class);
+		prototypeWithReference.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		prototypeWithReference.getConstructorArgumentValues().addGenericArgumentValue(singleton);
+		this.beanFactory.registerBeanDefinition("prototypeWithConstructor", prototypeWithReference);
+
+		this.beanFactory.preInstantiateSingletons();
+	}
+
+
+	@Benchmark
+	public Object singletonByName() {
+		return this.beanFactory.getBean("singleton");
+	}
+
+	@Benchmark
+	public Object singletonByAlias() {
+		return this.beanFactory.getBean("singletonAlias");
+	}
+
+	@Benchmark
+	public Object singletonByType() {
+		return this.beanFactory.getBean(SingletonBean.class);
+	}
+
+	@Benchmark
+	public Object prototypeWithProperties() {
+		return this.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	public Object prototypeWithConstructorArgument() {
+		return this.beanFactory.getBean("prototypeWithConstructor");
+	}
+
+
+	public static class SingletonBean {
+	}
+
+
+	public static class PrototypeBean {
+
+		private SingletonBean singleton;
+
+		private String name;
+
+		private int age;
+
+		public PrototypeBean() {
+		}
+
+		public PrototypeBean(SingletonBean singleton) {
+			this.singleton = singleton;
+		}
+
+		public SingletonBean getSingleton() {
+			return this.singleton;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+}
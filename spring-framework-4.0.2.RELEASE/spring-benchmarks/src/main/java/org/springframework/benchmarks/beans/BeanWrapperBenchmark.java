@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+/**
+ * Benchmarks for {@link BeanWrapperImpl#setPropertyValue} covering simple, converted,
+ * nested and indexed properties.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BeanWrapperBenchmark {
+
+	private BeanWrapper beanWrapper;
+
+
+	@Setup
+	public void setup() {
+		Person person = new Person();
+		person.setSpouse(new Person());
+		person.getNicknames().add("Joe");
+		this.beanWrapper = new BeanWrapperImpl(person);
+	}
+
+
+	@Benchmark
+	public BeanWrapper simpleProperty() {
+		this.beanWrapper.setPropertyValue("name", "Juergen");
+		return this.beanWrapper;
+	}
+
+	@Benchmark
+	public BeanWrapper propertyWithConversion() {
+		this.beanWrapper.setPropertyValue("age", "42");
+		return this.beanWrapper;
+	}
+
+	@Benchmark
+	public BeanWrapper nestedProperty() {
+		this.beanWrapper.setPropertyValue("spouse.name", "Rod");
+		return this.beanWrapper;
+	}
+
+	@Benchmark
+	public BeanWrapper indexedProperty() {
+		this.beanWrapper.setPropertyValue("nicknames[0]", "Jo");
+		return this.beanWrapper;
+	}
+
+	@Benchmark
+	public BeanWrapper newBeanWrapper() {
+		BeanWrapper beanWrapper = new BeanWrapperImpl(new Person());
+		beanWrapper.setPropertyValue("name", "Juergen");
+		return beanWrapper;
+	}
+
+
+	public static class Person {
+
+		private String name;
+
+		private int age;
+
+		private Person spouse;
+
+		private List<String> nicknames = new ArrayList<String>();
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public Person getSpouse() {
+			return this.spouse;
+		}
+
+		public void setSpouse(Person spouse) {
+			this.spouse = spouse;
+		}
+
+		public List<String> getNicknames() {
+			return this.nicknames;
+		}
+
+		public void setNicknames(List<String> nicknames) {
+			this.nicknames = nicknames;
+		}
+	}
+
+}
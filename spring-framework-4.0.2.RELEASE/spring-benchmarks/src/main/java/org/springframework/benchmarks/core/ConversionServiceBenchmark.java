@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+
+/**
+ * Benchmarks for {@link GenericConversionService#convert} covering scalar, enum,
+ * no-op and collection conversions.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConversionServiceBenchmark {
+
+	private static final TypeDescriptor STRING_ARRAY_TYPE = TypeDescriptor.valueOf(String[].class);
+
+	private static final TypeDescriptor INTEGER_LIST_TYPE =
+			TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(Integer.class));
+
+
+	private final GenericConversionService conversionService = new DefaultConversionService();
+
+	private final String[] numbers = new String[] {"1", "2", "3", "4", "5", "6", "7", "8"};
+
+
+	@Benchmark
+	public Object stringToInteger() {
+		return this.conversionService.convert("42", Integer.class);
+	}
+
+	@Benchmark
+	public Object integerToString() {
+		return this.conversionService.convert(42, String.class);
+	}
+
+	@Benchmark
+	public Object stringToEnum() {
+		return this.conversionService.convert("SECONDS", TimeUnit.class);
+	}
+
+	@Benchmark
+	public Object sameType() {
+		return this.conversionService.convert("42", String.class);
+	}
+
+	@Benchmark
+	public Object stringArrayToIntegerList() {
+		return this.conversionService.convert(this.numbers, STRING_ARRAY_TYPE, INTEGER_LIST_TYPE);
+	}
+
+}
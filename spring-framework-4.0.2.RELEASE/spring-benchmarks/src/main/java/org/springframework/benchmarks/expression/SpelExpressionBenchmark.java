@@ -0,0 +1,130 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.expression;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelCompiler;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for {@link org.springframework.expression.spel.standard.SpelExpression#getValue}
+ * comparing interpreted evaluation against the compiled form of the same expression.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SpelExpressionBenchmark {
+
+	@Param({"name", "name.length() > 3", "age * 2 + 1", "address.city.toUpperCase()"})
+	public String expressionString;
+
+	private final Person person = new Person("Andy", 42, new Address("Southampton"));
+
+	private EvaluationContext context;
+
+	private Expression interpreted;
+
+	private Expression compiled;
+
+
+	@Setup
+	public void setup() {
+		this.context = new StandardEvaluationContext(this.person);
+		this.interpreted = new SpelExpressionParser().parseExpression(this.expressionString);
+
+		SpelParserConfiguration configuration =
+				new SpelParserConfiguration(SpelCompilerMode.OFF, getClass().getClassLoader());
+		this.compiled = new SpelExpressionParser(configuration).parseExpression(this.expressionString);
+		// Exit type descriptors are only known after a first interpreted evaluation
+		this.compiled.getValue(this.context);
+		if (!SpelCompiler.compile(this.compiled)) {
+			throw new IllegalStateException("Expression not compilable: " + this.expressionString);
+		}
+	}
+
+
+	@Benchmark
+	public Object interpreted() {
+		return this.interpreted.getValue(this.context);
+	}
+
+	@Benchmark
+	public Object compiled() {
+		return this.compiled.getValue(this.context);
+	}
+
+
+	public static class Person {
+
+		private final String name;
+
+		private final int age;
+
+		private final Address address;
+
+		public Person(String name, int age, Address address) {
+			this.name = name;
+			this.age = age;
+			this.address = address;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+	}
+
+
+	public static class Address {
+
+		private final String city;
+
+		public Address(String city) {
+			this.city = city;
+		}
+
+		public String getCity() {
+			return this.city;
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Benchmarks for {@link JdbcTemplate#query} against an in-memory HSQL database,
+ * covering custom and reflective row mapping as well as column map results.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JdbcTemplateBenchmark {
+
+	private static final String SELECT_ALL = "select id, first_name, last_name, age from person";
+
+	private static final RowMapper<Person> PERSON_ROW_MAPPER = new RowMapper<Person>() {
+		@Override
+		public Person mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Person person = new Person();
+			person.setId(rs.getLong(1));
+			person.setFirstName(rs.getString(2));
+			person.setLastName(rs.getString(3));
+			person.setAge(rs.getInt(4));
+			return person;
+		}
+	};
+
+
+	@Param({"10", "1000"})
+	public int rowCount;
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+
+	@Setup
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+				.setName("benchmark-" + System.nanoTime()).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("create table person (id bigint primary key, " +
+				"first_name varchar(50), last_name varchar(50), age integer)");
+		List<Object[]> rows = new ArrayList<Object[]>(this.rowCount);
+		for (int i = 0; i < this.rowCount; i++) {
+			rows.add(new Object[] {i, "First" + i, "Last" + i, i % 100});
+		}
+		this.jdbcTemplate.batchUpdate("insert into person values (?, ?, ?, ?)", rows);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.database.shutdown();
+	}
+
+
+	@Benchmark
+	public List<Person> rowMapper() {
+		return this.jdbcTemplate.query(SELECT_ALL, PERSON_ROW_MAPPER);
+	}
+
+	@Benchmark
+	public List<Person> beanPropertyRowMapper() {
+		return this.jdbcTemplate.query(SELECT_ALL, new BeanPropertyRowMapper<Person>(Person.class));
+	}
+
+	@Benchmark
+	public Object queryForList() {
+		return this.jdbcTemplate.queryForList(SELECT_ALL);
+	}
+
+	@Benchmark
+	public Integer queryForObjectWithArgument() {
+		return this.jdbcTemplate.queryForObject(
+				"select count(*) from person where age < ?", Integer.class, 50);
+	}
+
+
+	public static class Person {
+
+		private long id;
+
+		private String firstName;
+
+		private String lastName;
+
+		private int age;
+
+		public long getId() {
+			return this.id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getFirstName() {
+			return this.firstName;
+		}
+
+		public void setFirstName(String firstName) {
+			this.firstName = firstName;
+		}
+
+		public String getLastName() {
+			return this.lastName;
+		}
+
+		public void setLastName(String lastName) {
+			this.lastName = lastName;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+}
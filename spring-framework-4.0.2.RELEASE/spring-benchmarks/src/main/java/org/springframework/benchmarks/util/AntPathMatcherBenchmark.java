@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks for {@link AntPathMatcher#match} and URI template variable extraction,
+ * including matching a request path against a typical set of mapping patterns,
+ * along with the same operations on {@link AntPathMatcher#compile compiled} patterns.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AntPathMatcherBenchmark {
+
+	private static final String[] PATTERNS = new String[] {
+			"/", "/index.html", "/resources/**", "/static/**/*.js", "/persons", "/persons/{id}",
+			"/persons/{id}/addresses", "/persons/{id}/addresses/{addressId}", "/accounts/{id}",
+			"/accounts/{id}/transactions", "/accounts/{id}/transactions/{transactionId}",
+			"/orders/*", "/orders/**/items", "/admin/**", "/api/v?/status", "/*.html"};
+
+	private static final String[] PATHS = new String[] {
+			"/persons/42/addresses/7", "/static/js/lib/jquery.js", "/accounts/7/transactions/1234",
+			"/api/v1/status", "/orders/2014/03/items", "/unknown/path"};
+
+
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+	private final AntPathMatcher.CompiledPattern compiledWildcards = this.pathMatcher.compile("/static/**/*.js");
+
+	private final AntPathMatcher.CompiledPattern compiledUriTemplate =
+			this.pathMatcher.compile("/persons/{id}/addresses/{addressId}");
+
+	private final AntPathMatcher.CompiledPattern[] compiledPatterns = new AntPathMatcher.CompiledPattern[PATTERNS.length];
+
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < PATTERNS.length; i++) {
+			this.compiledPatterns[i] = this.pathMatcher.compile(PATTERNS[i]);
+		}
+	}
+
+
+	@Benchmark
+	public boolean literal() {
+		return this.pathMatcher.match("/persons/addresses", "/persons/addresses");
+	}
+
+	@Benchmark
+	public boolean wildcards() {
+		return this.pathMatcher.match("/static/**/*.js", "/static/js/lib/jquery.js");
+	}
+
+	@Benchmark
+	public boolean uriTemplate() {
+		return this.pathMatcher.match("/persons/{id}/addresses/{addressId}", "/persons/42/addresses/7");
+	}
+
+	@Benchmark
+	public Object extractUriTemplateVariables() {
+		return this.pathMatcher.extractUriTemplateVariables(
+				"/persons/{id}/addresses/{addressId}", "/persons/42/addresses/7");
+	}
+
+	@Benchmark
+	public void matchPathsAgainstPatterns(Blackhole blackhole) {
+		for (String path : PATHS) {
+			for (String pattern : PATTERNS) {
+				blackhole.consume(this.pathMatcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean compiledWildcards() {
+		return this.compiledWildcards.matches("/static/js/lib/jquery.js");
+	}
+
+	@Benchmark
+	public boolean compiledUriTemplate() {
+		return this.compiledUriTemplate.matches("/persons/42/addresses/7");
+	}
+
+	@Benchmark
+	public Object compiledExtractUriTemplateVariables() {
+		return this.compiledUriTemplate.extractUriTemplateVariables("/persons/42/addresses/7");
+	}
+
+	@Benchmark
+	public void matchPathsAgainstCompiledPatterns(Blackhole blackhole) {
+		for (String path : PATHS) {
+			for (AntPathMatcher.CompiledPattern pattern : this.compiledPatterns) {
+				blackhole.consume(pattern.matches(path));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.benchmarks.web;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Benchmarks for request dispatching through {@link DispatcherServlet#service}
+ * to an annotated controller, using mock Servlet API objects.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DispatcherServletBenchmark {
+
+	private DispatcherServlet servlet;
+
+
+	@Setup
+	public void setup() throws Exception {
+		AnnotationConfigWebApplicationContext wac = new AnnotationConfigWebApplicationContext();
+		wac.register(WebConfig.class);
+		this.servlet = new DispatcherServlet(wac);
+		this.servlet.init(new MockServletConfig(new MockServletContext()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.servlet.destroy();
+	}
+
+
+	@Benchmark
+	public MockHttpServletResponse pathVariable() throws Exception {
+		return dispatch(new MockHttpServletRequest("GET", "/persons/42"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse requestParam() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons");
+		request.addParameter("max", "20");
+		return dispatch(request);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse nestedPathVariables() throws Exception {
+		return dispatch(new MockHttpServletRequest("GET", "/accounts/7/transactions/1234"));
+	}
+
+	private MockHttpServletResponse dispatch(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.servlet.service(request, response);
+		if (response.getStatus() != 200) {
+			throw new IllegalStateException("Unexpected status " + response.getStatus() +
+					" for " + request.getRequestURI());
+		}
+		return response;
+	}
+
+
+	@Configuration
+	@EnableWebMvc
+	public static class WebConfig {
+
+		@Bean
+		public PersonController personController() {
+			return new PersonController();
+		}
+
+		@Bean
+		public AccountController accountController() {
+			return new AccountController();
+		}
+	}
+
+
+	@Controller
+	@RequestMapping("/persons")
+	public static class PersonController {
+
+		@RequestMapping(method = RequestMethod.GET)
+		@ResponseBody
+		public String list(@RequestParam(value = "max", defaultValue = "10") int max) {
+			return "persons:" + max;
+		}
+
+		@RequestMapping(value = "/{id}", method = RequestMethod.GET)
+		@ResponseBody
+		public String get(@PathVariable("id") long id) {
+			return "person:" + id;
+		}
+
+		@RequestMapping(value = "/{id}", method = RequestMethod.PUT)
+		@ResponseBody
+		public String update(@PathVariable("id") long id) {
+			return "updated:" + id;
+		}
+
+		@RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+		@ResponseBody
+		public String delete(@PathVariable("id") long id) {
+			return "deleted:" + id;
+		}
+	}
+
+
+	@Controller
+	@RequestMapping("/accounts")
+	public static class AccountController {
+
+		@RequestMapping(value = "/{id}", method = RequestMethod.GET)
+		@ResponseBody
+		public String get(@PathVariable("id") long id) {
+			return "account:" + id;
+		}
+
+		@RequestMapping(value = "/{id}/transactions", method = RequestMethod.GET)
+		@ResponseBody
+		public String transactions(@PathVariable("id") long id) {
+			return "transactions:" + id;
+		}
+
+		@RequestMapping(value = "/{id}/transactions/{transactionId}", method = RequestMethod.GET)
+		@ResponseBody
+		public String transaction(@PathVariable("id") long id, @PathVariable("transactionId") long transactionId) {
+			return "transaction:" + id + ":" + transactionId;
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation {@link javax.annotation.processing.Processor Processor} that writes
+ * an index of the candidate components of a compilation unit set to
+ * {@value #COMPONENTS_RESOURCE_LOCATION}, for use by Spring's classpath scanning
+ * instead of parsing every class file of the enclosing jar at runtime.
+ *
+ * <p>The index maps the binary name of each candidate type to its stereotypes:
+ * {@code org.springframework.stereotype.Component} for types carrying
+ * {@code @Component} or any annotation meta-annotated with it, and the
+ * annotation names for JSR-250's {@code ManagedBean} and JSR-330's {@code Named}.
+ * Stereotypes declared on supertypes are recorded as well, so that the index
+ * holds a superset of the types that type filters may match.
+ *
+ * <p>The processor works on annotation names only and does not require Spring
+ * on the annotation processor path. An index entry is kept across incremental
+ * compilations as long as its type still exists and has not been recompiled.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see org.springframework.context.index.CandidateComponentsIndexLoader
+ */
+@SupportedAnnotationTypes("*")
+public class CandidateComponentsIndexer extends AbstractProcessor {
+
+	/**
+	 * The location of the index within a jar file or classpath root.
+	 */
+	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
+
+	static final String COMPONENT_STEREOTYPE = "org.springframework.stereotype.Component";
+
+	private static final Set<String> JAVAX_STEREOTYPES = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("javax.annotation.ManagedBean", "javax.inject.Named")));
+
+
+	private final Map<String, Set<String>> candidates = new TreeMap<String, Set<String>>();
+
+	private final Set<String> processedTypes = new HashSet<String>();
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			processElement(element);
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private void processElement(Element element) {
+		if (element.getKind().isClass() || element.getKind().isInterface()) {
+			TypeElement type = (TypeElement) element;
+			if (type.getKind() != ElementKind.ANNOTATION_TYPE) {
+				String typeName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+				this.processedTypes.add(typeName);
+				Set<String> stereotypes = new TreeSet<String>();
+				collectStereotypes(type.asType(), stereotypes, new HashSet<String>());
+				if (!stereotypes.isEmpty()) {
+					this.candidates.put(typeName, stereotypes);
+				}
+			}
+			for (Element enclosed : type.getEnclosedElements()) {
+				processElement(enclosed);
+			}
+		}
+	}
+
+	private void collectStereotypes(TypeMirror typeMirror, Set<String> stereotypes, Set<String> visitedTypes) {
+		if (typeMirror.getKind() != TypeKind.DECLARED) {
+			return;
+		}
+		TypeElement type = (TypeElement) ((DeclaredType) typeMirror).asElement();
+		if (!visitedTypes.add(type.getQualifiedName().toString())) {
+			return;
+		}
+		for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			String annotationName = annotationType.getQualifiedName().toString();
+			if (JAVAX_STEREOTYPES.contains(annotationName)) {
+				stereotypes.add(annotationName);
+			}
+			else if (isComponentAnnotation(annotationType, new HashSet<String>())) {
+				stereotypes.add(COMPONENT_STEREOTYPE);
+			}
+		}
+		for (TypeMirror supertype : this.processingEnv.getTypeUtils().directSupertypes(typeMirror)) {
+			collectStereotypes(supertype, stereotypes, visitedTypes);
+		}
+	}
+
+	private boolean isComponentAnnotation(TypeElement annotationType, Set<String> visitedAnnotations) {
+		String annotationName = annotationType.getQualifiedName().toString();
+		if (COMPONENT_STEREOTYPE.equals(annotationName)) {
+			return true;
+		}
+		if (annotationName.startsWith("java.lang.annotation.") || !visitedAnnotations.add(annotationName)) {
+			return false;
+		}
+		for (AnnotationMirror metaAnnotation : annotationType.getAnnotationMirrors()) {
+			if (isComponentAnnotation((TypeElement) metaAnnotation.getAnnotationType().asElement(), visitedAnnotations)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writeIndex() {
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+		for (Map.Entry<String, Set<String>> entry : readPreviousIndex().entrySet()) {
+			String typeName = entry.getKey();
+			if (!this.processedTypes.contains(typeName) &&
+					this.processingEnv.getElementUtils().getTypeElement(typeName.replace('$', '.')) != null) {
+				index.put(typeName, entry.getValue());
+			}
+		}
+		index.putAll(this.candidates);
+		try {
+			FileObject file = this.processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE_LOCATION);
+			Writer writer = new OutputStreamWriter(file.openOutputStream(), "ISO-8859-1");
+			try {
+				for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+					writer.write(entry.getKey());
+					writer.write('=');
+					boolean first = true;
+					for (String stereotype : entry.getValue()) {
+						if (!first) {
+							writer.write(',');
+						}
+						writer.write(stereotype);
+						first = false;
+					}
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException ex) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write " + COMPONENTS_RESOURCE_LOCATION + ": " + ex);
+		}
+	}
+
+	/**
+	 * Read the index written by a previous compilation into the same output
+	 * location, if any, to support incremental compilation.
+	 */
+	private Map<String, Set<String>> readPreviousIndex() {
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+		try {
+			FileObject file = this.processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE_LOCATION);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), "ISO-8859-1"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int separator = line.indexOf('=');
+					if (separator > 0) {
+						index.put(line.substring(0, separator),
+								new TreeSet<String>(Arrays.asList(line.substring(separator + 1).split(","))));
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (IOException ex) {
+			// No previous index - nothing to merge.
+		}
+		catch (IllegalArgumentException ex) {
+			// Compiler does not support reading from the class output location.
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ *
+ * Annotation processor that generates the candidate component index
+ * consulted by classpath scanning.
+ *
+ */
+package org.springframework.context.index.processor;
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexer}.
+ *
+ * @author agent
+ */
+public class CandidateComponentsIndexerTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File sourceDir;
+
+	private File outputDir;
+
+
+	@Before
+	public void setup() throws IOException {
+		this.sourceDir = this.temporaryFolder.newFolder("src");
+		this.outputDir = this.temporaryFolder.newFolder("classes");
+	}
+
+
+	@Test
+	public void indexStereotypes() throws IOException {
+		writeSource("sample.SampleComponent",
+				"@org.springframework.stereotype.Component public class SampleComponent {\n" +
+				"  @org.springframework.stereotype.Service public static class NestedService {}\n" +
+				"}");
+		writeSource("sample.SampleRepository",
+				"@org.springframework.stereotype.Repository public class SampleRepository {}");
+		writeSource("sample.SampleNamed",
+				"@javax.inject.Named public class SampleNamed {}");
+		writeSource("sample.SamplePlain", "public class SamplePlain {}");
+		compile();
+
+		Properties index = readIndex();
+		assertEquals(4, index.size());
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE, index.getProperty("sample.SampleComponent"));
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE,
+				index.getProperty("sample.SampleComponent$NestedService"));
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE, index.getProperty("sample.SampleRepository"));
+		assertEquals("javax.inject.Named", index.getProperty("sample.SampleNamed"));
+	}
+
+	@Test
+	public void indexCustomStereotypes() throws IOException {
+		writeSource("sample.MetaStereotype",
+				"@org.springframework.stereotype.Service public @interface MetaStereotype {}");
+		writeSource("sample.MetaMetaStereotype",
+				"@MetaStereotype public @interface MetaMetaStereotype {}");
+		writeSource("sample.SampleMetaComponent", "@MetaMetaStereotype public class SampleMetaComponent {}");
+		writeSource("sample.SampleAnnotatedInterface",
+				"@org.springframework.stereotype.Component public interface SampleAnnotatedInterface {}");
+		writeSource("sample.SampleImplementation",
+				"public class SampleImplementation extends SampleSuperclass implements SampleAnnotatedInterface {}");
+		writeSource("sample.SampleSuperclass", "@javax.inject.Named public class SampleSuperclass {}");
+		compile();
+
+		Properties index = readIndex();
+		assertEquals(4, index.size());
+		assertNull(index.getProperty("sample.MetaStereotype"));
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE, index.getProperty("sample.SampleMetaComponent"));
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE,
+				index.getProperty("sample.SampleAnnotatedInterface"));
+		assertEquals("javax.inject.Named," + CandidateComponentsIndexer.COMPONENT_STEREOTYPE,
+				index.getProperty("sample.SampleImplementation"));
+	}
+
+	@Test
+	public void emptyIndex() throws IOException {
+		writeSource("sample.SamplePlain", "public class SamplePlain {}");
+		compile();
+		assertTrue(readIndex().isEmpty());
+	}
+
+	@Test
+	public void mergeWithPreviousIndex() throws IOException {
+		writeSource("sample.SampleComponent",
+				"@org.springframework.stereotype.Component public class SampleComponent {}");
+		writeSource("sample.SampleService",
+				"@org.springframework.stereotype.Service public class SampleService {}");
+		compile();
+		assertEquals(2, readIndex().size());
+
+		// Recompile only SampleService, without its stereotype
+		File serviceSource = writeSource("sample.SampleService", "public class SampleService {}");
+		compile(serviceSource);
+
+		Properties index = readIndex();
+		assertEquals(1, index.size());
+		assertEquals(CandidateComponentsIndexer.COMPONENT_STEREOTYPE, index.getProperty("sample.SampleComponent"));
+	}
+
+
+	private File writeSource(String className, String body) throws IOException {
+		int lastDot = className.lastIndexOf('.');
+		File packageDir = new File(this.sourceDir, className.substring(0, lastDot).replace('.', '/'));
+		packageDir.mkdirs();
+		File sourceFile = new File(packageDir, className.substring(lastDot + 1) + ".java");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "UTF-8");
+		try {
+			writer.write("package " + className.substring(0, lastDot) + ";\n" + body + "\n");
+		}
+		finally {
+			writer.close();
+		}
+		return sourceFile;
+	}
+
+	private void compile(File... sourceFiles) throws IOException {
+		List<File> files = new ArrayList<File>(Arrays.asList(sourceFiles));
+		if (files.isEmpty()) {
+			collectSources(this.sourceDir, files);
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(files);
+			List<String> options = Arrays.asList("-d", this.outputDir.getPath(),
+					"-classpath", this.outputDir.getPath() + File.pathSeparator + System.getProperty("java.class.path"));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, compilationUnits);
+			task.setProcessors(Arrays.asList(new CandidateComponentsIndexer()));
+			assertTrue("Compilation failed", task.call());
+		}
+		finally {
+			fileManager.close();
+		}
+	}
+
+	private void collectSources(File dir, List<File> files) {
+		for (File file : dir.listFiles()) {
+			if (file.isDirectory()) {
+				collectSources(file, files);
+			}
+			else if (file.getName().endsWith(".java")) {
+				files.add(file);
+			}
+		}
+	}
+
+	private Properties readIndex() throws IOException {
+		File indexFile = new File(this.outputDir, CandidateComponentsIndexer.COMPONENTS_RESOURCE_LOCATION);
+		assertTrue("Index not written", indexFile.exists());
+		Properties index = new Properties();
+		InputStream is = new FileInputStream(indexFile);
+		try {
+			index.load(is);
+		}
+		finally {
+			is.close();
+		}
+		return index;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,11 @@
 package org.springframework.cache.guava;
 
 import java.io.Serializable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.springframework.cache.Cache;
 import org.springframework.cache.support.SimpleValueWrapper;
@@ -26,6 +31,16 @@ import org.springframework.util.Assert;
  * Spring {@link Cache} adapter implementation on top of a
  * Guava {@link com.google.common.cache.Cache} instance.
  *
+ * <p>If the backing cache is a {@link LoadingCache}, lookups go through its
+ * {@code get} method, loading missing entries through the cache's
+ * {@link com.google.common.cache.CacheLoader} and triggering an asynchronous
+ * reload for entries subject to Guava's "refreshAfterWrite" setting.
+ *
+ * <p>As of 4.0.3, this adapter also exposes the size of the cache and its
+ * {@link CacheStats statistics} through simple bean properties, e.g. for
+ * exporting a cache through Spring's {@link org.springframework.jmx.export.MBeanExporter}.
+ * Note that Guava only records statistics if "recordStats" has been specified.
+ *
  * <p>Requires Google Guava 12.0 or higher.
  *
  * @author Juergen Hoeller
@@ -82,14 +97,14 @@ public class GuavaCache implements Cache {
 
 	@Override
 	public ValueWrapper get(Object key) {
-		Object value = this.cache.getIfPresent(key);
+		Object value = lookup(key);
 		return (value != null ? new SimpleValueWrapper(fromStoreValue(value)) : null);
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T> T get(Object key, Class<T> type) {
-		Object value = fromStoreValue(this.cache.getIfPresent(key));
+		Object value = fromStoreValue(lookup(key));
 		if (type != null && !type.isInstance(value)) {
 			throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
 		}
@@ -112,6 +127,84 @@ public class GuavaCache implements Cache {
 	}
 
 
+	/**
+	 * Return the approximate number of entries in this cache.
+	 * @since 4.0.3
+	 * @see com.google.common.cache.Cache#size()
+	 */
+	public long getSize() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a cached value.
+	 * @since 4.0.3
+	 * @see CacheStats#hitCount()
+	 */
+	public long getHitCount() {
+		return this.cache.stats().hitCount();
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached value.
+	 * @since 4.0.3
+	 * @see CacheStats#missCount()
+	 */
+	public long getMissCount() {
+		return this.cache.stats().missCount();
+	}
+
+	/**
+	 * Return the ratio of lookups that found a cached value
+	 * ({@code 1.0} if there have been no lookups yet).
+	 * @since 4.0.3
+	 * @see CacheStats#hitRate()
+	 */
+	public double getHitRate() {
+		return this.cache.stats().hitRate();
+	}
+
+	/**
+	 * Return the number of entries that have been evicted, due to size
+	 * or weight limits or due to expiration.
+	 * @since 4.0.3
+	 * @see CacheStats#evictionCount()
+	 */
+	public long getEvictionCount() {
+		return this.cache.stats().evictionCount();
+	}
+
+	/**
+	 * Return the number of entries that have been loaded or reloaded
+	 * through the cache's {@code CacheLoader}, successfully or not.
+	 * @since 4.0.3
+	 * @see CacheStats#loadCount()
+	 */
+	public long getLoadCount() {
+		return this.cache.stats().loadCount();
+	}
+
+
+	/**
+	 * Look up the store value for the given key, going through
+	 * {@link LoadingCache#get} in case of a loading cache.
+	 * @param key the key to look up
+	 * @return the store value, or {@code null} if none
+	 */
+	@SuppressWarnings("unchecked")
+	private Object lookup(Object key) {
+		if (this.cache instanceof LoadingCache) {
+			try {
+				return ((LoadingCache<Object, Object>) this.cache).get(key);
+			}
+			catch (ExecutionException ex) {
+				throw new UncheckedExecutionException(ex.getMessage(), ex);
+			}
+		}
+		return this.cache.getIfPresent(key);
+	}
+
+
 	/**
 	 * Convert the given value from the internal store to a user value
 	 * returned from the get method (adapting {@code null}).
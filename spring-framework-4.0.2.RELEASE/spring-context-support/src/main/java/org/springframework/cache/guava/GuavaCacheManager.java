@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.cache.guava;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -41,6 +43,16 @@ import org.springframework.util.Assert;
  * CacheManager through {@link #setCacheBuilder}/{@link #setCacheBuilderSpec}.
  * A {@link CacheBuilderSpec}-compliant expression value can also be applied
  * via the {@link #setCacheSpecification "cacheSpecification"} bean property.
+ * Individual caches may come with a specific configuration of their own, as
+ * specified through {@link #setCacheSpecifications "cacheSpecifications"}.
+ *
+ * <p>Common settings are size-based eviction ("maximumSize"), time-based
+ * expiration ("expireAfterWrite", "expireAfterAccess"), refresh-ahead in
+ * combination with a {@link #setCacheLoader CacheLoader} ("refreshAfterWrite")
+ * and statistics ("recordStats"), with the latter exposed by each
+ * {@link GuavaCache}. Weight-based limits require a custom
+ * {@link com.google.common.cache.Weigher}, to be configured on a
+ * {@link CacheBuilder} passed into {@link #setCacheBuilder}.
  *
  * <p>Requires Google Guava 12.0 or higher.
  *
@@ -56,6 +68,9 @@ public class GuavaCacheManager implements CacheManager {
 
 	private CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
 
+	private final Map<String, CacheBuilder<Object, Object>> cacheBuilders =
+			new HashMap<String, CacheBuilder<Object, Object>>();
+
 	private CacheLoader<Object, Object> cacheLoader;
 
 	private boolean allowNullValues = true;
@@ -100,6 +115,7 @@ public class GuavaCacheManager implements CacheManager {
 	public void setCacheBuilder(CacheBuilder<Object, Object> cacheBuilder) {
 		Assert.notNull(cacheBuilder, "CacheBuilder must not be null");
 		this.cacheBuilder = cacheBuilder;
+		refreshKnownCaches();
 	}
 
 	/**
@@ -110,6 +126,7 @@ public class GuavaCacheManager implements CacheManager {
 	 */
 	public void setCacheBuilderSpec(CacheBuilderSpec cacheBuilderSpec) {
 		this.cacheBuilder = CacheBuilder.from(cacheBuilderSpec);
+		refreshKnownCaches();
 	}
 
 	/**
@@ -121,6 +138,26 @@ public class GuavaCacheManager implements CacheManager {
 	 */
 	public void setCacheSpecification(String cacheSpecification) {
 		this.cacheBuilder = CacheBuilder.from(cacheSpecification);
+		refreshKnownCaches();
+	}
+
+	/**
+	 * Set specific Guava cache specification Strings for individual caches,
+	 * with the cache name as key and a {@link CacheBuilderSpec}-compliant
+	 * expression as value, e.g. "maximumSize=1000,expireAfterWrite=10m,recordStats".
+	 * <p>Caches without a specific entry here will be built according to
+	 * the common {@link #setCacheSpecification "cacheSpecification"}.
+	 * @since 4.0.3
+	 * @see com.google.common.cache.CacheBuilder#from(String)
+	 */
+	public void setCacheSpecifications(Map<String, String> cacheSpecifications) {
+		this.cacheBuilders.clear();
+		if (cacheSpecifications != null) {
+			for (Map.Entry<String, String> entry : cacheSpecifications.entrySet()) {
+				this.cacheBuilders.put(entry.getKey(), CacheBuilder.from(entry.getValue()));
+			}
+		}
+		refreshKnownCaches();
 	}
 
 	/**
@@ -132,6 +169,7 @@ public class GuavaCacheManager implements CacheManager {
 	 */
 	public void setCacheLoader(CacheLoader<Object, Object> cacheLoader) {
 		this.cacheLoader = cacheLoader;
+		refreshKnownCaches();
 	}
 
 	/**
@@ -142,6 +180,7 @@ public class GuavaCacheManager implements CacheManager {
 	 */
 	public void setAllowNullValues(boolean allowNullValues) {
 		this.allowNullValues = allowNullValues;
+		refreshKnownCaches();
 	}
 
 	/**
@@ -183,16 +222,32 @@ public class GuavaCacheManager implements CacheManager {
 	}
 
 	/**
-	 * Create a native Guava Cache instance for the specified cache name.
+	 * Create a native Guava Cache instance for the specified cache name,
+	 * using the cache-specific configuration if any, or the common one otherwise.
 	 * @param name the name of the cache
 	 * @return the native Guava Cache instance
+	 * @see #setCacheSpecifications
 	 */
 	protected com.google.common.cache.Cache<Object, Object> createNativeGuavaCache(String name) {
+		CacheBuilder<Object, Object> builder = this.cacheBuilders.get(name);
+		if (builder == null) {
+			builder = this.cacheBuilder;
+		}
 		if (this.cacheLoader != null) {
-			return this.cacheBuilder.build(this.cacheLoader);
+			return builder.build(this.cacheLoader);
 		}
 		else {
-			return this.cacheBuilder.build();
+			return builder.build();
+		}
+	}
+
+	/**
+	 * Recreate the caches for all known cache names, applying a changed
+	 * configuration in 'static' mode, independent of the order of setter calls.
+	 */
+	private void refreshKnownCaches() {
+		for (Map.Entry<String, Cache> entry : this.cacheMap.entrySet()) {
+			entry.setValue(createGuavaCache(entry.getKey()));
 		}
 	}
 
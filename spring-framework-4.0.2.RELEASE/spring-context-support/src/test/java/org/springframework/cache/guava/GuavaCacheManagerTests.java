@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.guava;
 
+import java.util.Collections;
+
+import com.google.common.cache.CacheLoader;
 import org.junit.Test;
 
 import org.springframework.cache.Cache;
@@ -78,4 +81,47 @@ public class GuavaCacheManagerTests {
 		assertNull(cache1.get("key3"));
 	}
 
+	@Test
+	public void testCacheSpecifications() {
+		GuavaCacheManager cm = new GuavaCacheManager("c1", "c2");
+		cm.setCacheSpecification("recordStats");
+		cm.setCacheSpecifications(Collections.singletonMap("c1", "maximumSize=1,recordStats"));
+		GuavaCache cache1 = (GuavaCache) cm.getCache("c1");
+		GuavaCache cache2 = (GuavaCache) cm.getCache("c2");
+
+		cache1.put("key1", "value1");
+		cache1.put("key2", "value2");
+		assertEquals(1, cache1.getSize());
+		assertEquals(1, cache1.getEvictionCount());
+		cache2.put("key1", "value1");
+		cache2.put("key2", "value2");
+		assertEquals(2, cache2.getSize());
+		assertEquals(0, cache2.getEvictionCount());
+
+		assertEquals("value2", cache1.get("key2").get());
+		assertNull(cache1.get("key1"));
+		assertEquals(1, cache1.getHitCount());
+		assertEquals(1, cache1.getMissCount());
+		assertEquals(0.5, cache1.getHitRate(), 0.0);
+	}
+
+	@Test
+	public void testCacheLoader() {
+		GuavaCacheManager cm = new GuavaCacheManager();
+		cm.setCacheSpecification("refreshAfterWrite=1m,recordStats");
+		cm.setCacheLoader(new CacheLoader<Object, Object>() {
+			@Override
+			public Object load(Object key) {
+				return key + "-loaded";
+			}
+		});
+		GuavaCache cache1 = (GuavaCache) cm.getCache("c1");
+		assertEquals("key1-loaded", cache1.get("key1").get());
+		assertEquals("key1-loaded", cache1.get("key1", String.class));
+		assertEquals(1, cache1.getLoadCount());
+		assertEquals(1, cache1.getHitCount());
+		cache1.put("key2", "value2");
+		assertEquals("value2", cache1.get("key2").get());
+	}
+
 }
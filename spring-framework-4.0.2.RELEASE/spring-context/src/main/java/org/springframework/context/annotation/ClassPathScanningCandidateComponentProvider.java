@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,9 @@ import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
 import org.springframework.core.env.StandardEnvironment;
@@ -59,6 +62,14 @@ import org.springframework.util.ClassUtils;
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.springframework.asm.ClassReader ClassReader}.
  *
+ * <p>Classpath roots that come with a {@link CandidateComponentsIndex}, as generated
+ * at build time by the {@code spring-context-indexer} annotation processor, are not
+ * scanned: only the class files of the indexed candidates are read from such roots,
+ * while all other roots are scanned as usual. The index is only consulted if all
+ * include filters are {@link AnnotationTypeFilter AnnotationTypeFilters} for
+ * {@link Component @Component}-based stereotypes or the JSR-250 / JSR-330
+ * component annotations, and if the default resource pattern is used.
+ *
  * @author Mark Fisher
  * @author Juergen Hoeller
  * @author Ramnivas Laddad
@@ -263,56 +274,137 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	public Set<BeanDefinition> findCandidateComponents(String basePackage) {
 		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
 		try {
-			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-					resolveBasePackage(basePackage) + "/" + this.resourcePattern;
-			Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
+			String packagePath = resolveBasePackage(basePackage);
+			CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getResourceLoader().getClassLoader());
+			Set<String> stereotypes = (index != null ? getIndexedStereotypes(packagePath) : null);
+			if (stereotypes != null) {
+				addCandidateComponentsFromIndex(index, stereotypes, packagePath, candidates);
+			}
+			else {
+				String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+						packagePath + "/" + this.resourcePattern;
+				for (Resource resource : this.resourcePatternResolver.getResources(packageSearchPath)) {
+					addCandidateComponent(resource, candidates);
 				}
-				if (resource.isReadable()) {
-					try {
-						MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setResource(resource);
-							sbd.setSource(resource);
-							if (isCandidateComponent(sbd)) {
-								if (debugEnabled) {
-									logger.debug("Identified candidate component class: " + resource);
-								}
-								candidates.add(sbd);
-							}
-							else {
-								if (debugEnabled) {
-									logger.debug("Ignored because not a concrete top-level class: " + resource);
-								}
-							}
-						}
-						else {
-							if (traceEnabled) {
-								logger.trace("Ignored because not matching any filter: " + resource);
-							}
+			}
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Determine the index stereotypes that cover all include filters,
+	 * or {@code null} if the index cannot be used for the given package.
+	 */
+	private Set<String> getIndexedStereotypes(String packagePath) {
+		if (!DEFAULT_RESOURCE_PATTERN.equals(this.resourcePattern) || packagePath.length() == 0 ||
+				packagePath.indexOf('*') != -1 || packagePath.indexOf('?') != -1) {
+			return null;
+		}
+		Set<String> stereotypes = new LinkedHashSet<String>();
+		for (TypeFilter filter : this.includeFilters) {
+			if (!(filter instanceof AnnotationTypeFilter)) {
+				return null;
+			}
+			Class<? extends Annotation> annotationType = ((AnnotationTypeFilter) filter).getAnnotationType();
+			if (annotationType == Component.class ||
+					AnnotationUtils.findAnnotation(annotationType, Component.class) != null) {
+				stereotypes.add(Component.class.getName());
+			}
+			else if (annotationType.getName().equals("javax.annotation.ManagedBean") ||
+					annotationType.getName().equals("javax.inject.Named")) {
+				stereotypes.add(annotationType.getName());
+			}
+			else {
+				return null;
+			}
+		}
+		return stereotypes;
+	}
+
+	/**
+	 * Add the candidate components of the given package, reading only the indexed
+	 * classes from classpath roots with an index and scanning all other roots.
+	 */
+	private void addCandidateComponentsFromIndex(CandidateComponentsIndex index, Set<String> stereotypes,
+			String packagePath, Set<BeanDefinition> candidates) throws IOException {
+
+		String packageDir = packagePath + "/";
+		String basePackage = ClassUtils.convertResourcePathToClassName(packagePath);
+		Resource[] rootDirResources = this.resourcePatternResolver.getResources(
+				ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + packageDir);
+		for (Resource rootDirResource : rootDirResources) {
+			String rootDirUrl = rootDirResource.getURL().toString();
+			String classpathRoot = (rootDirUrl.endsWith(packageDir) ?
+					rootDirUrl.substring(0, rootDirUrl.length() - packageDir.length()) : null);
+			if (classpathRoot != null && index.isIndexed(classpathRoot)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Using candidate component index for classpath root [" + classpathRoot + "]");
+				}
+				Set<String> types = new LinkedHashSet<String>();
+				for (String stereotype : stereotypes) {
+					types.addAll(index.getCandidateTypes(classpathRoot, basePackage, stereotype));
+				}
+				for (String type : types) {
+					addCandidateComponent(this.resourcePatternResolver.getResource(classpathRoot +
+							ClassUtils.convertClassNameToResourcePath(type) + ClassUtils.CLASS_FILE_SUFFIX), candidates);
+				}
+			}
+			else {
+				for (Resource resource : this.resourcePatternResolver.getResources(rootDirUrl + this.resourcePattern)) {
+					addCandidateComponent(resource, candidates);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add a bean definition for the given class file resource to the given
+	 * candidates if it qualifies as a candidate component.
+	 */
+	private void addCandidateComponent(Resource resource, Set<BeanDefinition> candidates) {
+		boolean traceEnabled = logger.isTraceEnabled();
+		boolean debugEnabled = logger.isDebugEnabled();
+		if (traceEnabled) {
+			logger.trace("Scanning " + resource);
+		}
+		if (resource.isReadable()) {
+			try {
+				MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
+				if (isCandidateComponent(metadataReader)) {
+					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+					sbd.setResource(resource);
+					sbd.setSource(resource);
+					if (isCandidateComponent(sbd)) {
+						if (debugEnabled) {
+							logger.debug("Identified candidate component class: " + resource);
 						}
+						candidates.add(sbd);
 					}
-					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
+					else {
+						if (debugEnabled) {
+							logger.debug("Ignored because not a concrete top-level class: " + resource);
+						}
 					}
 				}
 				else {
 					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
+						logger.trace("Ignored because not matching any filter: " + resource);
 					}
 				}
 			}
+			catch (Throwable ex) {
+				throw new BeanDefinitionStoreException(
+						"Failed to read candidate component class: " + resource, ex);
+			}
 		}
-		catch (IOException ex) {
-			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		else {
+			if (traceEnabled) {
+				logger.trace("Ignored because not readable: " + resource);
+			}
 		}
-		return candidates;
 	}
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.context.annotation;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -59,6 +60,7 @@ import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.MethodMetadata;
 import org.springframework.core.type.StandardAnnotationMetadata;
@@ -118,6 +120,8 @@ class ConfigurationClassParser {
 
 	private final MultiValueMap<String, PropertySource<?>> propertySources = new LinkedMultiValueMap<String, PropertySource<?>>();
 
+	private final List<PropertySourceDeclaration> propertySourceDeclarations = new ArrayList<PropertySourceDeclaration>();
+
 	private final ImportStack importStack = new ImportStack();
 
 	private final List<DeferredImportSelectorHolder> deferredImportSelectors = new LinkedList<DeferredImportSelectorHolder>();
@@ -232,8 +236,17 @@ class ConfigurationClassParser {
 		if (componentScan != null) {
 			// the config class is annotated with @ComponentScan -> perform the scan immediately
 			if (!this.conditionEvaluator.shouldSkip(sourceClass.getMetadata(), ConfigurationPhase.REGISTER_BEAN)) {
-				Set<BeanDefinitionHolder> scannedBeanDefinitions =
-						this.componentScanParser.parse(componentScan, sourceClass.getMetadata().getClassName());
+				StartupStep componentScanStep = ConfigurationClassPostProcessor.getApplicationStartup(this.registry)
+						.start("spring.context.component-scan")
+						.tag("configurationClass", sourceClass.getMetadata().getClassName());
+				Set<BeanDefinitionHolder> scannedBeanDefinitions;
+				try {
+					scannedBeanDefinitions =
+							this.componentScanParser.parse(componentScan, sourceClass.getMetadata().getClassName());
+				}
+				finally {
+					componentScanStep.end();
+				}
 
 				// check the set of scanned definitions for any further config classes and parse recursively if necessary
 				for (BeanDefinitionHolder holder : scannedBeanDefinitions) {
@@ -305,11 +318,23 @@ class ConfigurationClassParser {
 		String name = propertySource.getString("name");
 		String[] locations = propertySource.getStringArray("value");
 		boolean ignoreResourceNotFound = propertySource.getBoolean("ignoreResourceNotFound");
-		int locationCount = locations.length;
-		if (locationCount == 0) {
+		if (locations.length == 0) {
 			throw new IllegalArgumentException("At least one @PropertySource(value) location is required");
 		}
-		for (String location : locations) {
+		processPropertySource(new PropertySourceDeclaration(name, locations, ignoreResourceNotFound));
+	}
+
+	/**
+	 * Process the given property source declaration, resolving its locations
+	 * against the current environment.
+	 * @param declaration the declaration, as found in a {@code @PropertySource}
+	 * annotation or as restored from a previous parser run
+	 * @throws IOException if loading a property source failed
+	 */
+	void processPropertySource(PropertySourceDeclaration declaration) throws IOException {
+		this.propertySourceDeclarations.add(declaration);
+		String name = declaration.getName();
+		for (String location : declaration.getLocations()) {
 			Resource resource = this.resourceLoader.getResource(
 					this.environment.resolveRequiredPlaceholders(location));
 			try {
@@ -324,7 +349,7 @@ class ConfigurationClassParser {
 				}
 			}
 			catch (FileNotFoundException ex) {
-				if (!ignoreResourceNotFound) {
+				if (!declaration.isIgnoreResourceNotFound()) {
 					throw ex;
 				}
 			}
@@ -495,10 +520,29 @@ class ConfigurationClassParser {
 	}
 
 
+	/**
+	 * Return the {@code @PropertySource} declarations processed so far, in order.
+	 */
+	List<PropertySourceDeclaration> getPropertySourceDeclarations() {
+		return this.propertySourceDeclarations;
+	}
+
 	ImportRegistry getImportRegistry() {
 		return this.importStack;
 	}
 
+	/**
+	 * Return the names of all imported classes, mapped to the name of the
+	 * class that imported them.
+	 */
+	Map<String, String> getImportingClassNames() {
+		Map<String, String> importingClassNames = new HashMap<String, String>();
+		for (Map.Entry<String, AnnotationMetadata> entry : this.importStack.imports.entrySet()) {
+			importingClassNames.put(entry.getKey(), entry.getValue().getClassName());
+		}
+		return importingClassNames;
+	}
+
 	/**
 	 * Factory method to obtain a {@link SourceClass} from a {@link ConfigurationClass}.
 	 */
@@ -558,6 +602,38 @@ class ConfigurationClassParser {
 	}
 
 
+	/**
+	 * Serializable representation of a {@code @PropertySource} declaration.
+	 */
+	@SuppressWarnings("serial")
+	static class PropertySourceDeclaration implements Serializable {
+
+		private final String name;
+
+		private final String[] locations;
+
+		private final boolean ignoreResourceNotFound;
+
+		public PropertySourceDeclaration(String name, String[] locations, boolean ignoreResourceNotFound) {
+			this.name = name;
+			this.locations = locations;
+			this.ignoreResourceNotFound = ignoreResourceNotFound;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String[] getLocations() {
+			return this.locations;
+		}
+
+		public boolean isIgnoreResourceNotFound() {
+			return this.ignoreResourceNotFound;
+		}
+	}
+
+
 	@SuppressWarnings("serial")
 	private static class ImportStack extends Stack<ConfigurationClass> implements ImportRegistry {
 
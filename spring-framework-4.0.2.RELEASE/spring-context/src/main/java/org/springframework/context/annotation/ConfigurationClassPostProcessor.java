@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,10 @@
 package org.springframework.context.annotation;
 
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -46,14 +50,17 @@ import org.springframework.beans.factory.parsing.PassThroughSourceExtractor;
 import org.springframework.beans.factory.parsing.ProblemReporter;
 import org.springframework.beans.factory.parsing.SourceExtractor;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
-import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
 import org.springframework.beans.factory.support.BeanNameGenerator;
+import org.springframework.beans.factory.support.RestorableBeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.annotation.ConfigurationClassEnhancer.EnhancedConfiguration;
 import org.springframework.context.annotation.ConfigurationClassParser.ImportRegistry;
+import org.springframework.context.annotation.ConfigurationClassParser.PropertySourceDeclaration;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.env.ConfigurableEnvironment;
@@ -62,6 +69,8 @@ import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
@@ -83,12 +92,17 @@ import static org.springframework.context.annotation.AnnotationConfigUtils.*;
  * respective bean definitions registered before any other BeanFactoryPostProcessor
  * executes.
  *
+ * <p>When restoring bean definitions from a {@link BeanDefinitionSnapshot}, this
+ * post-processor skips parsing altogether: it just re-registers the recorded
+ * {@code @PropertySource} declarations and the import relationships
+ * required for {@link ImportAware} configuration classes.
+ *
  * @author Chris Beams
  * @author Juergen Hoeller
  * @author Phillip Webb
  * @since 3.0
  */
-public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPostProcessor,
+public class ConfigurationClassPostProcessor implements RestorableBeanDefinitionRegistryPostProcessor,
 		PriorityOrdered, ResourceLoaderAware, BeanClassLoaderAware, EnvironmentAware {
 
 	private static final String IMPORT_AWARE_PROCESSOR_BEAN_NAME =
@@ -100,6 +114,12 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 	private static final String ENHANCED_CONFIGURATION_PROCESSOR_BEAN_NAME =
 			ConfigurationClassPostProcessor.class.getName() + ".enhancedConfigurationProcessor";
 
+	private static final String IMPORTING_CLASSES_SNAPSHOT_ATTRIBUTE =
+			ConfigurationClassPostProcessor.class.getName() + ".importingClasses";
+
+	private static final String PROPERTY_SOURCES_SNAPSHOT_ATTRIBUTE =
+			ConfigurationClassPostProcessor.class.getName() + ".propertySources";
+
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -123,6 +143,11 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 
 	private ConfigurationClassBeanDefinitionReader reader;
 
+	private final HashMap<String, String> importingClassNames = new HashMap<String, String>();
+
+	private final ArrayList<PropertySourceDeclaration> propertySourceDeclarations =
+			new ArrayList<PropertySourceDeclaration>();
+
 	private boolean localBeanNameGeneratorSet = false;
 
 	/* using short class names as default bean names */
@@ -296,23 +321,19 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		ConfigurationClassParser parser = new ConfigurationClassParser(
 				this.metadataReaderFactory, this.problemReporter, this.environment,
 				this.resourceLoader, this.componentScanBeanNameGenerator, registry);
-		parser.parse(configCandidates);
-		parser.validate();
+		StartupStep parseConfig = getApplicationStartup(registry).start("spring.context.config-classes.parse")
+				.tag("candidateCount", String.valueOf(configCandidates.size()));
+		try {
+			parser.parse(configCandidates);
+			parser.validate();
+		}
+		finally {
+			parseConfig.end();
+		}
 
 		// Handle any @PropertySource annotations
-		List<PropertySource<?>> parsedPropertySources = parser.getPropertySources();
-		if (!parsedPropertySources.isEmpty()) {
-			if (!(this.environment instanceof ConfigurableEnvironment)) {
-				logger.warn("Ignoring @PropertySource annotations. " +
-						"Reason: Environment must implement ConfigurableEnvironment");
-			}
-			else {
-				MutablePropertySources envPropertySources = ((ConfigurableEnvironment)this.environment).getPropertySources();
-				for (PropertySource<?> propertySource : parsedPropertySources) {
-					envPropertySources.addLast(propertySource);
-				}
-			}
-		}
+		addPropertySources(parser.getPropertySources());
+		this.propertySourceDeclarations.addAll(parser.getPropertySourceDeclarations());
 
 		// Read the model and create bean definitions based on its content
 		if (this.reader == null) {
@@ -330,11 +351,87 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			}
 		}
 
+		this.importingClassNames.putAll(parser.getImportingClassNames());
+
 		if (this.metadataReaderFactory instanceof CachingMetadataReaderFactory) {
 			((CachingMetadataReaderFactory) this.metadataReaderFactory).clearCache();
 		}
 	}
 
+	/**
+	 * Add the given {@code @PropertySource} property sources to the environment.
+	 */
+	private void addPropertySources(List<PropertySource<?>> propertySources) {
+		if (!propertySources.isEmpty()) {
+			if (!(this.environment instanceof ConfigurableEnvironment)) {
+				logger.warn("Ignoring @PropertySource annotations. " +
+						"Reason: Environment must implement ConfigurableEnvironment");
+			}
+			else {
+				MutablePropertySources envPropertySources = ((ConfigurableEnvironment)this.environment).getPropertySources();
+				for (PropertySource<?> propertySource : propertySources) {
+					envPropertySources.addLast(propertySource);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Record the {@code @PropertySource} declarations and import relationships
+	 * found while parsing, for use in {@link #restoreState}.
+	 */
+	@Override
+	public void saveState(BeanDefinitionSnapshot snapshot) {
+		snapshot.setAttribute(IMPORTING_CLASSES_SNAPSHOT_ATTRIBUTE, new HashMap<String, String>(this.importingClassNames));
+		snapshot.setAttribute(PROPERTY_SOURCES_SNAPSHOT_ATTRIBUTE,
+				new ArrayList<PropertySourceDeclaration>(this.propertySourceDeclarations));
+	}
+
+	/**
+	 * Re-register the {@code @PropertySource} declarations and import relationships
+	 * recorded in the given snapshot, instead of parsing the configuration classes.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restoreState(BeanDefinitionRegistry registry, BeanDefinitionSnapshot snapshot) {
+		int registryId = System.identityHashCode(registry);
+		if (this.registriesPostProcessed.contains(registryId)) {
+			throw new IllegalStateException(
+					"postProcessBeanDefinitionRegistry already called for this post-processor against " + registry);
+		}
+		this.registriesPostProcessed.add(registryId);
+
+		List<PropertySourceDeclaration> declarations =
+				(List<PropertySourceDeclaration>) snapshot.getAttribute(PROPERTY_SOURCES_SNAPSHOT_ATTRIBUTE);
+		if (declarations != null && !declarations.isEmpty()) {
+			ConfigurationClassParser parser = new ConfigurationClassParser(
+					this.metadataReaderFactory, this.problemReporter, this.environment,
+					this.resourceLoader, this.componentScanBeanNameGenerator, registry);
+			for (PropertySourceDeclaration declaration : declarations) {
+				try {
+					parser.processPropertySource(declaration);
+				}
+				catch (IOException ex) {
+					throw new BeanDefinitionStoreException("Failed to restore @PropertySource from locations " +
+							Arrays.asList(declaration.getLocations()), ex);
+				}
+			}
+			addPropertySources(parser.getPropertySources());
+			this.propertySourceDeclarations.addAll(declarations);
+		}
+
+		Map<String, String> importingClasses =
+				(Map<String, String>) snapshot.getAttribute(IMPORTING_CLASSES_SNAPSHOT_ATTRIBUTE);
+		if (importingClasses != null && registry instanceof SingletonBeanRegistry) {
+			SingletonBeanRegistry singletonRegistry = (SingletonBeanRegistry) registry;
+			if (!singletonRegistry.containsSingleton(IMPORT_REGISTRY_BEAN_NAME)) {
+				singletonRegistry.registerSingleton(IMPORT_REGISTRY_BEAN_NAME,
+						new RestoredImportRegistry(importingClasses, this.metadataReaderFactory));
+			}
+			this.importingClassNames.putAll(importingClasses);
+		}
+	}
+
 	/**
 	 * Post-processes a BeanFactory in search of Configuration class BeanDefinitions;
 	 * any candidates are then enhanced by a {@link ConfigurationClassEnhancer}.
@@ -357,6 +454,17 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 			// nothing to enhance -> return immediately
 			return;
 		}
+		StartupStep enhanceConfigClasses = getApplicationStartup(beanFactory).start("spring.context.config-classes.enhance")
+				.tag("classCount", String.valueOf(configBeanDefs.size()));
+		try {
+			enhanceConfigurationClasses(configBeanDefs);
+		}
+		finally {
+			enhanceConfigClasses.end();
+		}
+	}
+
+	private void enhanceConfigurationClasses(Map<String, AbstractBeanDefinition> configBeanDefs) {
 		ConfigurationClassEnhancer enhancer = new ConfigurationClassEnhancer();
 		for (Map.Entry<String, AbstractBeanDefinition> entry : configBeanDefs.entrySet()) {
 			AbstractBeanDefinition beanDef = entry.getValue();
@@ -380,6 +488,48 @@ public class ConfigurationClassPostProcessor implements BeanDefinitionRegistryPo
 		}
 	}
 
+	/**
+	 * Determine the ApplicationStartup of the given bean factory, if any.
+	 */
+	static ApplicationStartup getApplicationStartup(Object beanFactory) {
+		return (beanFactory instanceof AbstractBeanFactory ?
+				((AbstractBeanFactory) beanFactory).getApplicationStartup() : ApplicationStartup.DEFAULT);
+	}
+
+
+	/**
+	 * {@link ImportRegistry} restored from a {@link BeanDefinitionSnapshot},
+	 * lazily reading the metadata of importing classes when requested.
+	 */
+	private static class RestoredImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> importingClassNames;
+
+		private final MetadataReaderFactory metadataReaderFactory;
+
+		public RestoredImportRegistry(Map<String, String> importingClassNames,
+				MetadataReaderFactory metadataReaderFactory) {
+
+			this.importingClassNames = importingClassNames;
+			this.metadataReaderFactory = metadataReaderFactory;
+		}
+
+		@Override
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClassName = this.importingClassNames.get(importedClass);
+			if (importingClassName == null) {
+				return null;
+			}
+			try {
+				return this.metadataReaderFactory.getMetadataReader(importingClassName).getAnnotationMetadata();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException("Failed to read metadata of importing class [" +
+						importingClassName + "]", ex);
+			}
+		}
+	}
+
 
 	private static class ImportAwareBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware, PriorityOrdered {
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * Provide access to the candidate components that are defined in
+ * {@code META-INF/spring.components} files, keyed by the classpath root
+ * (directory or jar file) that each index has been found in.
+ *
+ * <p>An index is only authoritative for its own classpath root: callers are
+ * expected to check {@link #isIndexed} and to scan roots without an index.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see CandidateComponentsIndexLoader
+ */
+public class CandidateComponentsIndex {
+
+	private final Map<String, MultiValueMap<String, String>> index;
+
+
+	/**
+	 * Create a new index from the given index file contents.
+	 * @param indexes the index properties (type name to comma-separated
+	 * stereotypes), keyed by the URL of their classpath root
+	 */
+	CandidateComponentsIndex(Map<String, Properties> indexes) {
+		this.index = new HashMap<String, MultiValueMap<String, String>>(indexes.size());
+		for (Map.Entry<String, Properties> entry : indexes.entrySet()) {
+			this.index.put(entry.getKey(), parseIndex(entry.getValue()));
+		}
+	}
+
+	private static MultiValueMap<String, String> parseIndex(Properties content) {
+		MultiValueMap<String, String> index = new LinkedMultiValueMap<String, String>();
+		for (String type : new TreeSet<String>(content.stringPropertyNames())) {
+			for (String stereotype : StringUtils.commaDelimitedListToStringArray(content.getProperty(type))) {
+				index.add(stereotype.trim(), type);
+			}
+		}
+		return index;
+	}
+
+
+	/**
+	 * Determine whether no classpath root comes with an index at all.
+	 */
+	public boolean isEmpty() {
+		return this.index.isEmpty();
+	}
+
+	/**
+	 * Determine whether the given classpath root comes with an index.
+	 * @param classpathRoot the URL of the classpath root, ending with a slash
+	 */
+	public boolean isIndexed(String classpathRoot) {
+		return this.index.containsKey(classpathRoot);
+	}
+
+	/**
+	 * Return the candidate types that are associated with the specified stereotype
+	 * in the index of the given classpath root.
+	 * @param classpathRoot the URL of the classpath root, ending with a slash
+	 * @param basePackage the package to check for candidates
+	 * @param stereotype the stereotype to use
+	 * @return the candidate types associated with the specified {@code stereotype}
+	 * or an empty set if none has been found for the specified {@code basePackage}
+	 */
+	public Set<String> getCandidateTypes(String classpathRoot, String basePackage, String stereotype) {
+		MultiValueMap<String, String> rootIndex = this.index.get(classpathRoot);
+		if (rootIndex == null) {
+			return Collections.emptySet();
+		}
+		return getCandidateTypes(rootIndex, basePackage, stereotype, new TreeSet<String>());
+	}
+
+	/**
+	 * Return the candidate types that are associated with the specified stereotype
+	 * across all indexed classpath roots.
+	 * @param basePackage the package to check for candidates
+	 * @param stereotype the stereotype to use
+	 * @return the candidate types associated with the specified {@code stereotype}
+	 * or an empty set if none has been found for the specified {@code basePackage}
+	 */
+	public Set<String> getCandidateTypes(String basePackage, String stereotype) {
+		Set<String> candidates = new TreeSet<String>();
+		for (MultiValueMap<String, String> rootIndex : this.index.values()) {
+			getCandidateTypes(rootIndex, basePackage, stereotype, candidates);
+		}
+		return candidates;
+	}
+
+	private static Set<String> getCandidateTypes(MultiValueMap<String, String> rootIndex,
+			String basePackage, String stereotype, Set<String> candidates) {
+
+		List<String> types = rootIndex.get(stereotype);
+		if (types != null) {
+			String packagePrefix = basePackage + ".";
+			for (String type : types) {
+				if (type.startsWith(packagePrefix)) {
+					candidates.add(type);
+				}
+			}
+		}
+		return candidates;
+	}
+
+}
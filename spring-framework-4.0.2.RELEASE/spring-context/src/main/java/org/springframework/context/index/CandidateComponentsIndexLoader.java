@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Candidate components index loading mechanism for internal use within the framework.
+ *
+ * <p>Indexes are generated at build time by the annotation processor in the
+ * {@code spring-context-indexer} module and picked up from all
+ * {@value #COMPONENTS_RESOURCE_LOCATION} files on the classpath.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider
+ */
+public abstract class CandidateComponentsIndexLoader {
+
+	/**
+	 * The location to look for components.
+	 * <p>Can be present in multiple JAR files.
+	 */
+	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
+
+	/**
+	 * System property that instructs Spring to ignore the index, i.e.
+	 * to always scan the classpath for candidate components.
+	 * <p>The default is "false", using an index wherever available.
+	 */
+	public static final String IGNORE_INDEX = "spring.index.ignore";
+
+
+	private static final boolean shouldIgnoreIndex = SpringProperties.getFlag(IGNORE_INDEX);
+
+	private static final Log logger = LogFactory.getLog(CandidateComponentsIndexLoader.class);
+
+	private static final ConcurrentMap<ClassLoader, CandidateComponentsIndex> cache =
+			new ConcurrentReferenceHashMap<ClassLoader, CandidateComponentsIndex>();
+
+
+	/**
+	 * Load and instantiate the {@link CandidateComponentsIndex} from
+	 * {@value #COMPONENTS_RESOURCE_LOCATION}, using the given class loader.
+	 * @param classLoader the ClassLoader to use for loading (can be {@code null}
+	 * to use the default)
+	 * @return the index to use or {@code null} if no index has been found
+	 * or the index is to be ignored
+	 * @throws IllegalStateException if any index file could not be loaded
+	 */
+	public static CandidateComponentsIndex loadIndex(ClassLoader classLoader) {
+		if (shouldIgnoreIndex) {
+			return null;
+		}
+		ClassLoader classLoaderToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		CandidateComponentsIndex index = cache.get(classLoaderToUse);
+		if (index == null) {
+			index = doLoadIndex(classLoaderToUse);
+			cache.put(classLoaderToUse, index);
+		}
+		return (index.isEmpty() ? null : index);
+	}
+
+	private static CandidateComponentsIndex doLoadIndex(ClassLoader classLoader) {
+		try {
+			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
+			Map<String, Properties> indexes = new LinkedHashMap<String, Properties>();
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				String location = url.toString();
+				String classpathRoot = location.substring(0, location.length() - COMPONENTS_RESOURCE_LOCATION.length());
+				indexes.put(classpathRoot, PropertiesLoaderUtils.loadProperties(new UrlResource(url)));
+			}
+			if (logger.isDebugEnabled() && !indexes.isEmpty()) {
+				logger.debug("Loaded candidate component index for classpath roots " + indexes.keySet());
+			}
+			return new CandidateComponentsIndex(indexes);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to load indexes from location [" +
+					COMPONENTS_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
+}
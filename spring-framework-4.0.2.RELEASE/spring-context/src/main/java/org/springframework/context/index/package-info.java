@@ -0,0 +1,7 @@
+/**
+ *
+ * Support for reading the candidate component index that is generated at
+ * build time, allowing classpath scanning to skip indexed classpath roots.
+ *
+ */
+package org.springframework.context.index;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,11 @@
 
 package org.springframework.context.support;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashSet;
@@ -37,6 +39,7 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
 import org.springframework.beans.support.ResourceEditorRegistrar;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -64,15 +67,20 @@ import org.springframework.context.weaving.LoadTimeWeaverAware;
 import org.springframework.context.weaving.LoadTimeWeaverAwareProcessor;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * Abstract implementation of the {@link org.springframework.context.ApplicationContext}
@@ -201,6 +209,15 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Environment used by this context; initialized by {@link #createEnvironment()} */
 	private ConfigurableEnvironment environment;
 
+	/** Startup step recorder for this context and its bean factory */
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+	/** File to restore bean definitions from and to save them to, if any */
+	private File beanDefinitionSnapshotFile;
+
+	/** Snapshot handling for the current refresh, if any */
+	private BeanDefinitionSnapshotSupport beanDefinitionSnapshotSupport;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -298,6 +315,67 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		this.environment = environment;
 	}
 
+	/**
+	 * Set the {@link ApplicationStartup} for this application context.
+	 * <p>This allows the application context to record metrics during
+	 * startup, e.g. through a
+	 * {@link org.springframework.core.metrics.RecordingApplicationStartup}.
+	 * The phases of {@link #refresh()}, the invocation of each post-processor,
+	 * configuration class parsing, component scanning and the creation of each
+	 * bean are recorded as nested steps.
+	 * <p>Default is {@link ApplicationStartup#DEFAULT}, recording nothing.
+	 * Needs to be set before {@link #refresh()}.
+	 * @since 4.0.3
+	 */
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "ApplicationStartup must not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
+	/**
+	 * Return the {@link ApplicationStartup} for this application context.
+	 * @since 4.0.3
+	 */
+	public ApplicationStartup getApplicationStartup() {
+		return this.applicationStartup;
+	}
+
+	/**
+	 * Set a file to keep a snapshot of this context's bean definitions in,
+	 * as resolved after the invocation of all
+	 * {@link org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor
+	 * BeanDefinitionRegistryPostProcessors}.
+	 * <p>On {@link #refresh()}, a snapshot taken for the same configuration state
+	 * will be restored instead of loading bean definitions from their sources,
+	 * skipping XML parsing, configuration class processing and classpath scanning.
+	 * Otherwise, a new snapshot will be written once registry post-processing has
+	 * completed. The configuration state is identified by a fingerprint of
+	 * {@link #getBeanDefinitionSnapshotKey()} (including the environment's
+	 * property values), the bean definitions registered before refresh and
+	 * the classpath roots, i.e. jar files and directories with their direct entries.
+	 * If the classpath cannot be fingerprinted, e.g. with a ClassLoader that does not
+	 * expose its URLs, no snapshot is used and a warning is logged.
+	 * <p><b>Note:</b> Conditions and post-processors that depend on any other
+	 * state, e.g. on system time or remote resources, are not covered by the
+	 * fingerprint; do not use snapshots with such configuration, or override
+	 * {@link #getBeanDefinitionSnapshotKey()} to include that state.
+	 * <p>Default is none. Supported by {@link GenericApplicationContext} and
+	 * {@link AbstractRefreshableApplicationContext} and their subclasses.
+	 * @since 4.0.3
+	 * @see org.springframework.beans.factory.support.BeanDefinitionSnapshot
+	 */
+	public void setBeanDefinitionSnapshotFile(File beanDefinitionSnapshotFile) {
+		this.beanDefinitionSnapshotFile = beanDefinitionSnapshotFile;
+	}
+
+	/**
+	 * Return the file to keep a snapshot of this context's bean definitions in, if any.
+	 * @since 4.0.3
+	 */
+	public File getBeanDefinitionSnapshotFile() {
+		return this.beanDefinitionSnapshotFile;
+	}
+
 	/**
 	 * Return this context's internal bean factory as AutowireCapableBeanFactory,
 	 * if already available.
@@ -447,35 +525,52 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Override
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
-			// Prepare this context for refreshing.
-			//设置容器启动开始时间，容器启动状态、初始化环境配置等等
-			prepareRefresh();
-
-			// Tell the subclass to refresh the internal bean factory.
-			//获取beanFactory并触发loadBeanDefinitions，默认是创建DefaultListableBeanFactory
-			ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
-
-			// Prepare the bean factory for use in this context.
-			//准备工作，对beanFactory作基本的配置工作
-			prepareBeanFactory(beanFactory);
+			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
+			ConfigurableListableBeanFactory beanFactory;
+			boolean prepared = false;
+			try {
+				// Prepare this context for refreshing.
+				//设置容器启动开始时间，容器启动状态、初始化环境配置等等
+				prepareRefresh();
+
+				// Tell the subclass to refresh the internal bean factory.
+				//获取beanFactory并触发loadBeanDefinitions，默认是创建DefaultListableBeanFactory
+				beanFactory = obtainFreshBeanFactory();
+
+				// Prepare the bean factory for use in this context.
+				//准备工作，对beanFactory作基本的配置工作
+				prepareBeanFactory(beanFactory);
+				prepared = true;
+			}
+			finally {
+				if (!prepared) {
+					contextRefresh.end();
+				}
+			}
 
 			try {
-				// Allows post-processing of the bean factory in context subclasses.
-				//给子类预留的beanFacotry已准备完毕执行BeanFactoryPostProcessors之前的一个hook
-				postProcessBeanFactory(beanFactory);
+				StartupStep beanPostProcess = this.applicationStartup.start("spring.context.beans.post-process");
+				try {
+					// Allows post-processing of the bean factory in context subclasses.
+					//给子类预留的beanFacotry已准备完毕执行BeanFactoryPostProcessors之前的一个hook
+					postProcessBeanFactory(beanFactory);
 
-				// Invoke factory processors registered as beans in the context.
-				//上面AnnotationConfigUtils注册的PostProcessors实际都会注册到这里的beanFactory中
-				//这里通过PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(beanFactory, getBeanFactoryPostProcessors());
-				//来执行所有关于Factory的Processors
+					// Invoke factory processors registered as beans in the context.
+					//上面AnnotationConfigUtils注册的PostProcessors实际都会注册到这里的beanFactory中
+					//这里通过PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(beanFactory, getBeanFactoryPostProcessors());
+					//来执行所有关于Factory的Processors
 
-				invokeBeanFactoryPostProcessors(beanFactory);
+					invokeBeanFactoryPostProcessors(beanFactory);
 
-				// Register bean processors that intercept bean creation.
-				//这里虽然还没有正式开始实例化对象工厂中的实例，但是BeanDefinition都已准备完毕，因此已经可以通过类型获取
-				//所有对应的实现了BeanPostProcessor的 BeanDefinition，然后将对应的类注册到beanFactory中
+					// Register bean processors that intercept bean creation.
+					//这里虽然还没有正式开始实例化对象工厂中的实例，但是BeanDefinition都已准备完毕，因此已经可以通过类型获取
+					//所有对应的实现了BeanPostProcessor的 BeanDefinition，然后将对应的类注册到beanFactory中
 
-				registerBeanPostProcessors(beanFactory);
+					registerBeanPostProcessors(beanFactory);
+				}
+				finally {
+					beanPostProcess.end();
+				}
 
 				// Initialize message source for this context.
 				//这个是spring容器对国际化的实现，可以处理有本地化需求的信息
@@ -495,11 +590,23 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
 				// Instantiate all remaining (non-lazy-init) singletons.
 				//这里是实现对容器内所有非延迟加载单例对象的实例化
-				finishBeanFactoryInitialization(beanFactory);
+				StartupStep beanInstantiation = this.applicationStartup.start("spring.context.beans.instantiate");
+				try {
+					finishBeanFactoryInitialization(beanFactory);
+				}
+				finally {
+					beanInstantiation.end();
+				}
 
 				// Last step: publish corresponding event.
 				//到这refresh的整个过程就基本完成了，这里主要做容器refresh完毕的事件发布，以及实现容器内对Lifecycle的支持（start）
-				finishRefresh();
+				StartupStep refreshFinish = this.applicationStartup.start("spring.context.refresh.finish");
+				try {
+					finishRefresh();
+				}
+				finally {
+					refreshFinish.end();
+				}
 			}
 
 			catch (BeansException ex) {
@@ -512,6 +619,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				// Propagate exception to caller.
 				throw ex;
 			}
+			finally {
+				contextRefresh.end();
+			}
 		}
 	}
 
@@ -565,6 +675,61 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		return beanFactory;
 	}
 
+	/**
+	 * Restore the bean definitions of the given bean factory from the
+	 * {@link #setBeanDefinitionSnapshotFile bean definition snapshot file},
+	 * if one has been specified and holds a snapshot for the current
+	 * configuration state. To be called by {@link #refreshBeanFactory()}
+	 * implementations before loading bean definitions from their sources.
+	 * @param beanFactory the fresh bean factory, with all bean definitions
+	 * registered that do not stem from configuration sources
+	 * @return {@code true} if the bean definitions have been restored
+	 * (not requiring to be loaded again), {@code false} otherwise
+	 * @since 4.0.3
+	 * @see #getBeanDefinitionSnapshotKey()
+	 */
+	protected boolean restoreBeanDefinitionSnapshot(ConfigurableListableBeanFactory beanFactory) {
+		if (this.beanDefinitionSnapshotFile == null) {
+			return false;
+		}
+		this.beanDefinitionSnapshotSupport =
+				new BeanDefinitionSnapshotSupport(this.beanDefinitionSnapshotFile, getClassLoader());
+		return this.beanDefinitionSnapshotSupport.restore(beanFactory, getBeanDefinitionSnapshotKey());
+	}
+
+	/**
+	 * Return a key for the configuration state of this context, as part of the
+	 * fingerprint that a bean definition snapshot is taken for.
+	 * <p>The default implementation returns the context class name, the active
+	 * and default profiles, and the names and values of all properties in the
+	 * environment's {@link EnumerablePropertySource enumerable property sources},
+	 * so that placeholders and {@code @Conditional} checks against the environment
+	 * do not get replayed from a snapshot taken for different property values.
+	 * Non-enumerable property sources only contribute their name. Subclasses may
+	 * add their configuration locations, or further state that their conditions
+	 * depend on.
+	 * @since 4.0.3
+	 * @see #setBeanDefinitionSnapshotFile
+	 */
+	protected String getBeanDefinitionSnapshotKey() {
+		ConfigurableEnvironment env = getEnvironment();
+		StringBuilder sb = new StringBuilder(getClass().getName());
+		sb.append(";profiles=").append(StringUtils.arrayToCommaDelimitedString(env.getActiveProfiles()));
+		sb.append(";defaultProfiles=").append(StringUtils.arrayToCommaDelimitedString(env.getDefaultProfiles()));
+		for (PropertySource<?> propertySource : env.getPropertySources()) {
+			sb.append(";propertySource=").append(propertySource.getName());
+			if (propertySource instanceof EnumerablePropertySource) {
+				String[] propertyNames = ((EnumerablePropertySource<?>) propertySource).getPropertyNames().clone();
+				Arrays.sort(propertyNames);
+				for (String propertyName : propertyNames) {
+					sb.append(';').append(propertyName).append('=').append(
+							ObjectUtils.nullSafeToString(propertySource.getProperty(propertyName)));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * Configure the factory's standard context characteristics,
 	 * such as the context's ClassLoader and post-processors.
@@ -576,6 +741,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		beanFactory.setBeanClassLoader(getClassLoader());
 		//实现SPEL表达式的解析器
 		beanFactory.setBeanExpressionResolver(new StandardBeanExpressionResolver());
+		if (beanFactory instanceof AbstractBeanFactory) {
+			((AbstractBeanFactory) beanFactory).setApplicationStartup(getApplicationStartup());
+		}
 		//这个添加的是一些基于ResourceLoader的PropertyEditorRegistrar用来注册相关的属性编辑器PropertyEditor，PropertyEditor是java内省中定义的接口
 		//功能就是支持通过string类型来编辑属性值，例如：通过字符串给long类型设置值，可以是输入longEditor.setAsText("1000");
 		//其实实现很简单，就是将string转换为Long进行修改值即可，这里是spring拓展一些的PropertyEditor的拓展
@@ -640,7 +808,13 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	 */
 	protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
 		//执行所有的BeanFactoryPostProcessor    PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors
-		PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(beanFactory, getBeanFactoryPostProcessors());
+		try {
+			PostProcessorRegistrationDelegate.invokeBeanFactoryPostProcessors(
+					beanFactory, getBeanFactoryPostProcessors(), this.beanDefinitionSnapshotSupport);
+		}
+		finally {
+			this.beanDefinitionSnapshotSupport = null;
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -136,7 +136,9 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 			customizeBeanFactory(beanFactory);
 			//这里基于应用上下文给beanFactory进行一次BeanDefinition的加载，
 			//如：ClassPathXmlApplicationContext中构造时指定了xml资源路径会在此触发解析xml中的BeanDefinition
-			loadBeanDefinitions(beanFactory);
+			if (!restoreBeanDefinitionSnapshot(beanFactory)) {
+				loadBeanDefinitions(beanFactory);
+			}
 			synchronized (this.beanFactoryMonitor) {
 				//保持一个引用，供容器做BeanFactory相关操作的委托调用
 				this.beanFactory = beanFactory;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.context.support;
 
+import java.io.IOException;
+
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -122,6 +125,31 @@ public abstract class AbstractRefreshableConfigApplicationContext extends Abstra
 		return getEnvironment().resolveRequiredPlaceholders(path);
 	}
 
+	/**
+	 * This implementation adds the config locations, along with the
+	 * last-modified timestamp of each resource that they resolve to.
+	 * @since 4.0.3
+	 */
+	@Override
+	protected String getBeanDefinitionSnapshotKey() {
+		StringBuilder sb = new StringBuilder(super.getBeanDefinitionSnapshotKey());
+		String[] configLocations = getConfigLocations();
+		if (configLocations != null) {
+			for (String location : configLocations) {
+				sb.append(";location=").append(location);
+				try {
+					for (Resource resource : getResources(location)) {
+						sb.append(';').append(resource.getDescription()).append('@').append(resource.lastModified());
+					}
+				}
+				catch (IOException ex) {
+					// Resource not resolvable or without timestamp: rely on the location itself.
+				}
+			}
+		}
+		return sb.toString();
+	}
+
 
 	@Override
 	public void setId(String id) {
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
+import org.springframework.beans.factory.support.RestorableBeanDefinitionRegistryPostProcessor;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Delegate for AbstractApplicationContext's handling of bean definition snapshots:
+ * computes the fingerprint of the current configuration state, restores a matching
+ * snapshot into the bean factory, and writes a new snapshot once registry
+ * post-processing has completed otherwise.
+ *
+ * <p>The fingerprint covers the context-specific key (typically the configuration
+ * locations, active profiles and environment properties), all bean definitions
+ * registered before refresh, and the size and last-modified timestamp of every
+ * classpath root: of jar files, and of directories along with their direct entries.
+ * Changes to existing files further down a directory root are not detected. If any
+ * classpath root cannot be resolved as a file, e.g. for a nested jar or with a
+ * ClassLoader that does not expose its URLs, no snapshot is used at all.
+ *
+ * <p>Registry post-processors that cannot restore their state from a snapshot
+ * are invoked again after restoring; the bean definitions that they register
+ * are skipped if the snapshot contains them already.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see AbstractApplicationContext#setBeanDefinitionSnapshotFile
+ */
+class BeanDefinitionSnapshotSupport {
+
+	private static final Log logger = LogFactory.getLog(BeanDefinitionSnapshotSupport.class);
+
+	private final File snapshotFile;
+
+	private final ClassLoader classLoader;
+
+	private String fingerprint;
+
+	private BeanDefinitionSnapshot restoredSnapshot;
+
+
+	public BeanDefinitionSnapshotSupport(File snapshotFile, ClassLoader classLoader) {
+		this.snapshotFile = snapshotFile;
+		this.classLoader = classLoader;
+	}
+
+
+	/**
+	 * Restore the bean definitions from the snapshot file, if it exists and
+	 * matches the current configuration state.
+	 * @param beanFactory the bean factory to populate
+	 * @param key the context-specific part of the fingerprint
+	 * @return {@code true} if the bean definitions have been restored,
+	 * {@code false} if they need to be loaded from their sources
+	 */
+	public boolean restore(ConfigurableListableBeanFactory beanFactory, String key) {
+		this.fingerprint = computeFingerprint(beanFactory, key);
+		if (!this.snapshotFile.isFile() || !(beanFactory instanceof BeanDefinitionRegistry)) {
+			return false;
+		}
+		try {
+			BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.readFrom(
+					new FileInputStream(this.snapshotFile), this.classLoader, this.fingerprint);
+			if (snapshot == null) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Ignoring outdated bean definition snapshot [" + this.snapshotFile + "]");
+				}
+				return false;
+			}
+			int count = snapshot.registerBeanDefinitions((BeanDefinitionRegistry) beanFactory);
+			if (logger.isInfoEnabled()) {
+				logger.info("Restored " + count + " bean definitions from snapshot [" + this.snapshotFile + "]");
+			}
+			this.restoredSnapshot = snapshot;
+			return true;
+		}
+		catch (IOException ex) {
+			logger.warn("Failed to read bean definition snapshot [" + this.snapshotFile + "]", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Return the snapshot that the bean definitions have been restored from, if any.
+	 */
+	public BeanDefinitionSnapshot getRestoredSnapshot() {
+		return this.restoredSnapshot;
+	}
+
+	/**
+	 * Invoke the given registry post-processor, or let it restore its state
+	 * from the restored snapshot if it supports that.
+	 */
+	public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistryPostProcessor postProcessor,
+			BeanDefinitionRegistry registry) {
+
+		if (this.restoredSnapshot != null && postProcessor instanceof RestorableBeanDefinitionRegistryPostProcessor) {
+			((RestorableBeanDefinitionRegistryPostProcessor) postProcessor).restoreState(registry, this.restoredSnapshot);
+		}
+		else if (this.restoredSnapshot != null) {
+			// The restored definitions include what it registered before: do not register them twice,
+			// which would fail if bean definition overriding is not allowed.
+			postProcessor.postProcessBeanDefinitionRegistry(createRestoredRegistryProxy(registry));
+		}
+		else {
+			postProcessor.postProcessBeanDefinitionRegistry(registry);
+		}
+	}
+
+	/**
+	 * Write a snapshot of the bean factory's definitions after all registry
+	 * post-processors have been invoked, unless they have been restored from
+	 * a snapshot to begin with. Failures are logged but otherwise ignored.
+	 * @param beanFactory the bean factory to capture
+	 * @param registryPostProcessors the registry post-processors that have been invoked
+	 */
+	public void afterRegistryPostProcessing(ConfigurableListableBeanFactory beanFactory,
+			Collection<? extends BeanDefinitionRegistryPostProcessor> registryPostProcessors) {
+
+		if (this.restoredSnapshot != null || this.fingerprint == null) {
+			return;
+		}
+		File tempFile = new File(this.snapshotFile.getPath() + ".tmp");
+		try {
+			BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.create(this.fingerprint, beanFactory);
+			for (BeanDefinitionRegistryPostProcessor postProcessor : registryPostProcessors) {
+				if (postProcessor instanceof RestorableBeanDefinitionRegistryPostProcessor) {
+					((RestorableBeanDefinitionRegistryPostProcessor) postProcessor).saveState(snapshot);
+				}
+			}
+			File parentDir = this.snapshotFile.getAbsoluteFile().getParentFile();
+			if (parentDir != null) {
+				parentDir.mkdirs();
+			}
+			snapshot.writeTo(new FileOutputStream(tempFile));
+			if (!(tempFile.renameTo(this.snapshotFile) ||
+					(this.snapshotFile.delete() && tempFile.renameTo(this.snapshotFile)))) {
+				throw new IOException("Cannot rename [" + tempFile + "] to [" + this.snapshotFile + "]");
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("Wrote snapshot of " + snapshot.getBeanDefinitionCount() +
+						" bean definitions to [" + this.snapshotFile + "]");
+			}
+		}
+		catch (IOException ex) {
+			tempFile.delete();
+			logger.warn("Failed to write bean definition snapshot [" + this.snapshotFile + "]", ex);
+		}
+	}
+
+
+	/**
+	 * Create a proxy for the given registry that ignores the registration of
+	 * bean definitions which have been restored from the snapshot already.
+	 * The proxy implements all interfaces of the registry, e.g. to be usable as
+	 * ConfigurableListableBeanFactory as well.
+	 */
+	private BeanDefinitionRegistry createRestoredRegistryProxy(final BeanDefinitionRegistry registry) {
+		final Set<String> restoredBeanNames =
+				new HashSet<String>(Arrays.asList(this.restoredSnapshot.getBeanDefinitionNames()));
+		return (BeanDefinitionRegistry) Proxy.newProxyInstance(registry.getClass().getClassLoader(),
+				ClassUtils.getAllInterfaces(registry), new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String methodName = method.getName();
+						if (methodName.equals("registerBeanDefinition") && restoredBeanNames.contains(args[0])) {
+							if (logger.isDebugEnabled()) {
+								logger.debug("Skipping registration of bean definition '" + args[0] +
+										"': restored from snapshot already");
+							}
+							return null;
+						}
+						else if (methodName.equals("equals")) {
+							return (proxy == args[0]);
+						}
+						else if (methodName.equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						try {
+							return method.invoke(registry, args);
+						}
+						catch (InvocationTargetException ex) {
+							throw ex.getTargetException();
+						}
+					}
+				});
+	}
+
+	/**
+	 * Compute the fingerprint of the current configuration state, or return
+	 * {@code null} if the classpath cannot be fingerprinted.
+	 */
+	private String computeFingerprint(ConfigurableListableBeanFactory beanFactory, String key) {
+		Set<File> roots = getClasspathRoots();
+		if (roots == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder(key);
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition bd = beanFactory.getBeanDefinition(beanName);
+			sb.append('\n').append(beanName).append('=').append(bd.getBeanClassName());
+		}
+		for (File root : roots) {
+			appendFileState(root, sb);
+			if (root.isDirectory()) {
+				File[] files = root.listFiles();
+				if (files != null) {
+					Arrays.sort(files);
+					for (File file : files) {
+						appendFileState(file, sb);
+					}
+				}
+			}
+		}
+		try {
+			return DigestUtils.md5DigestAsHex(sb.toString().getBytes("UTF-8"));
+		}
+		catch (UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Determine the classpath roots to fingerprint, or return {@code null}
+	 * (logging the reason) if any of them cannot be resolved as a file.
+	 */
+	private Set<File> getClasspathRoots() {
+		Set<File> roots = new LinkedHashSet<File>();
+		for (ClassLoader cl = this.classLoader; cl != null; cl = cl.getParent()) {
+			if (!(cl instanceof URLClassLoader)) {
+				logger.warn("Not using bean definition snapshot [" + this.snapshotFile +
+						"]: cannot determine classpath roots of ClassLoader [" + cl + "]");
+				return null;
+			}
+			for (URL url : ((URLClassLoader) cl).getURLs()) {
+				if (!ResourceUtils.URL_PROTOCOL_FILE.equals(url.getProtocol())) {
+					logger.warn("Not using bean definition snapshot [" + this.snapshotFile +
+							"]: cannot fingerprint classpath root [" + url + "]");
+					return null;
+				}
+				try {
+					roots.add(ResourceUtils.getFile(url));
+				}
+				catch (IOException ex) {
+					logger.warn("Not using bean definition snapshot [" + this.snapshotFile +
+							"]: cannot fingerprint classpath root [" + url + "]", ex);
+					return null;
+				}
+			}
+		}
+		String classPath = System.getProperty("java.class.path");
+		if (classPath != null) {
+			for (String path : StringUtils.tokenizeToStringArray(classPath, File.pathSeparator)) {
+				roots.add(new File(path));
+			}
+		}
+		return roots;
+	}
+
+	private void appendFileState(File file, StringBuilder sb) {
+		// Skip the snapshot file itself (and its temporary file) if it lives on the classpath
+		if (file.exists() && !file.getAbsolutePath().startsWith(this.snapshotFile.getAbsolutePath())) {
+			sb.append('\n').append(file.getPath()).append(':').append(file.length()).append(':').append(file.lastModified());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -241,6 +241,7 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		}
 		this.beanFactory.setSerializationId(getId());
 		this.refreshed = true;
+		restoreBeanDefinitionSnapshot(this.beanFactory);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.context.support;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
@@ -41,6 +43,8 @@ import org.springframework.context.event.ApplicationEventMulticaster;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 
 /**
  * Delegate for AbstractApplicationContext's post-processor handling.
@@ -54,6 +58,17 @@ class PostProcessorRegistrationDelegate {
 	public static void invokeBeanFactoryPostProcessors(
 			ConfigurableListableBeanFactory beanFactory, List<BeanFactoryPostProcessor> beanFactoryPostProcessors) {
 
+		invokeBeanFactoryPostProcessors(beanFactory, beanFactoryPostProcessors, null);
+	}
+
+	/**
+	 * Invoke the given BeanFactoryPostProcessors as well as all such post-processor beans,
+	 * letting the given snapshot support (if any) restore or save the state of the
+	 * bean definition registry after BeanDefinitionRegistryPostProcessor invocation.
+	 */
+	public static void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory,
+			List<BeanFactoryPostProcessor> beanFactoryPostProcessors, BeanDefinitionSnapshotSupport snapshotSupport) {
+
 		// Invoke BeanDefinitionRegistryPostProcessors first, if any.
 		Set<String> processedBeans = new HashSet<String>();
 
@@ -71,7 +86,8 @@ class PostProcessorRegistrationDelegate {
 
 					BeanDefinitionRegistryPostProcessor registryPostProcessor =
 							(BeanDefinitionRegistryPostProcessor) postProcessor;
-					registryPostProcessor.postProcessBeanDefinitionRegistry(registry);
+					invokeBeanDefinitionRegistryPostProcessors(
+							Collections.singletonList(registryPostProcessor), registry, snapshotSupport);
 					registryPostProcessors.add(registryPostProcessor);
 				}
 				else {
@@ -105,7 +121,7 @@ class PostProcessorRegistrationDelegate {
 			//未实现排序的追到到后面去
 			registryPostProcessors.addAll(priorityOrderedPostProcessors);
 			//这里先执行BeanDefinitionRegistryPostProcessor拓展的postProcessBeanDefinitionRegistry回调。
-			invokeBeanDefinitionRegistryPostProcessors(priorityOrderedPostProcessors, registry);
+			invokeBeanDefinitionRegistryPostProcessors(priorityOrderedPostProcessors, registry, snapshotSupport);
 
 			// Next, invoke the BeanDefinitionRegistryPostProcessors that implement Ordered.
 			//这里处理实现Ordered的BeanDefinitionRegistryPostProcessors，由于PriorityOrdered先于
@@ -119,7 +135,7 @@ class PostProcessorRegistrationDelegate {
 			}
 			OrderComparator.sort(orderedPostProcessors);
 			registryPostProcessors.addAll(orderedPostProcessors);
-			invokeBeanDefinitionRegistryPostProcessors(orderedPostProcessors, registry);
+			invokeBeanDefinitionRegistryPostProcessors(orderedPostProcessors, registry, snapshotSupport);
 
 			// Finally, invoke all other BeanDefinitionRegistryPostProcessors until no further ones appear.
 			//循环处理BeanDefinitionRegistryPostProcessors直到没有类型为BeanDefinitionRegistryPostProcessor的为止
@@ -132,12 +148,17 @@ class PostProcessorRegistrationDelegate {
 						BeanDefinitionRegistryPostProcessor pp = beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class);
 						registryPostProcessors.add(pp);
 						processedBeans.add(ppName);
-						pp.postProcessBeanDefinitionRegistry(registry);
+						invokeBeanDefinitionRegistryPostProcessors(Collections.singletonList(pp), registry, snapshotSupport);
 						reiterate = true;
 					}
 				}
 			}
 
+			// Save the resolved bean definitions for the next start, unless restored from there.
+			if (snapshotSupport != null) {
+				snapshotSupport.afterRegistryPostProcessing(beanFactory, registryPostProcessors);
+			}
+
 			// Now, invoke the postProcessBeanFactory callback of all processors handled so far.
 			//调用BeanPostProcessor中的回调
 			invokeBeanFactoryPostProcessors(registryPostProcessors, beanFactory);
@@ -311,10 +332,24 @@ class PostProcessorRegistrationDelegate {
 	 * Invoke the given BeanDefinitionRegistryPostProcessor beans.
 	 */
 	private static void invokeBeanDefinitionRegistryPostProcessors(
-			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry) {
+			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry,
+			BeanDefinitionSnapshotSupport snapshotSupport) {
 
+		ApplicationStartup applicationStartup = getApplicationStartup(registry);
 		for (BeanDefinitionRegistryPostProcessor postProcessor : postProcessors) {
-			postProcessor.postProcessBeanDefinitionRegistry(registry);
+			StartupStep postProcessBeanDefRegistry = applicationStartup.start("spring.context.beandef-registry.post-process")
+					.tag("postProcessor", postProcessor.getClass().getName());
+			try {
+				if (snapshotSupport != null) {
+					snapshotSupport.postProcessBeanDefinitionRegistry(postProcessor, registry);
+				}
+				else {
+					postProcessor.postProcessBeanDefinitionRegistry(registry);
+				}
+			}
+			finally {
+				postProcessBeanDefRegistry.end();
+			}
 		}
 	}
 
@@ -324,11 +359,27 @@ class PostProcessorRegistrationDelegate {
 	private static void invokeBeanFactoryPostProcessors(
 			Collection<? extends BeanFactoryPostProcessor> postProcessors, ConfigurableListableBeanFactory beanFactory) {
 
+		ApplicationStartup applicationStartup = getApplicationStartup(beanFactory);
 		for (BeanFactoryPostProcessor postProcessor : postProcessors) {
-			postProcessor.postProcessBeanFactory(beanFactory);
+			StartupStep postProcessBeanFactory = applicationStartup.start("spring.context.bean-factory.post-process")
+					.tag("postProcessor", postProcessor.getClass().getName());
+			try {
+				postProcessor.postProcessBeanFactory(beanFactory);
+			}
+			finally {
+				postProcessBeanFactory.end();
+			}
 		}
 	}
 
+	/**
+	 * Determine the ApplicationStartup of the given bean factory, if any.
+	 */
+	private static ApplicationStartup getApplicationStartup(Object beanFactory) {
+		return (beanFactory instanceof AbstractBeanFactory ?
+				((AbstractBeanFactory) beanFactory).getApplicationStartup() : ApplicationStartup.DEFAULT);
+	}
+
 	/**
 	 * Register the given BeanPostProcessor beans.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.validation;
 import java.io.Serializable;
 
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.ConfigurablePropertyAccessor;
 import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.util.Assert;
@@ -49,6 +50,8 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 
 	private final int autoGrowCollectionLimit;
 
+	private boolean useGeneratedAccessors = false;
+
 	private transient BeanWrapper beanWrapper;
 
 
@@ -76,6 +79,17 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 	}
 
 
+	/**
+	 * Set whether the underlying BeanWrapper should use generated property
+	 * accessors instead of reflection. Needs to be set before first access.
+	 * @since 4.0.3
+	 * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+
 	@Override
 	public final Object getTarget() {
 		return this.target;
@@ -93,6 +107,9 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 			this.beanWrapper.setExtractOldValueForEditor(true);
 			this.beanWrapper.setAutoGrowNestedPaths(this.autoGrowNestedPaths);
 			this.beanWrapper.setAutoGrowCollectionLimit(this.autoGrowCollectionLimit);
+			if (this.useGeneratedAccessors && this.beanWrapper instanceof BeanWrapperImpl) {
+				((BeanWrapperImpl) this.beanWrapper).setUseGeneratedAccessors(true);
+			}
 		}
 		return this.beanWrapper;
 	}
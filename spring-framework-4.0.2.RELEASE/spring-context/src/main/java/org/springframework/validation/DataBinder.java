@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -135,6 +135,8 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 
 	private int autoGrowCollectionLimit = DEFAULT_AUTO_GROW_COLLECTION_LIMIT;
 
+	private boolean useGeneratedAccessors = false;
+
 	private String[] allowedFields;
 
 	private String[] disallowedFields;
@@ -223,6 +225,30 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 		return this.autoGrowCollectionLimit;
 	}
 
+	/**
+	 * Set whether bean property access should go through generated accessor
+	 * classes instead of reflection, with parsed property paths cached per
+	 * bean class. Worth activating for binders used at high request rates.
+	 * <p>Default is "false". Note that this feature is only supported for bean
+	 * property access (DataBinder's default mode), not for field access.
+	 * @since 4.0.3
+	 * @see #initBeanPropertyAccess()
+	 * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		Assert.state(this.bindingResult == null,
+				"DataBinder is already initialized - call setUseGeneratedAccessors before other configuration methods");
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether generated property accessors are in use.
+	 * @since 4.0.3
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Initialize standard JavaBean property access for this DataBinder.
 	 * <p>This is the default; an explicit call just leads to eager initialization.
@@ -231,8 +257,10 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	public void initBeanPropertyAccess() {
 		Assert.state(this.bindingResult == null,
 				"DataBinder is already initialized - call initBeanPropertyAccess before other configuration methods");
-		this.bindingResult = new BeanPropertyBindingResult(
+		BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(
 				getTarget(), getObjectName(), isAutoGrowNestedPaths(), getAutoGrowCollectionLimit());
+		bindingResult.setUseGeneratedAccessors(isUseGeneratedAccessors());
+		this.bindingResult = bindingResult;
 		if (this.conversionService != null) {
 			this.bindingResult.initConversion(this.conversionService);
 		}
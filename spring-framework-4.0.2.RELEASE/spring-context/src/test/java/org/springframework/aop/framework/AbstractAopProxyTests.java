@@ -42,6 +42,7 @@ import org.springframework.aop.Advisor;
 import org.springframework.aop.AfterReturningAdvice;
 import org.springframework.aop.DynamicIntroductionAdvice;
 import org.springframework.aop.MethodBeforeAdvice;
+import org.springframework.aop.TargetClassAware;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.ThrowsAdvice;
 import org.springframework.aop.interceptor.DebugInterceptor;
@@ -192,6 +193,16 @@ public abstract class AbstractAopProxyTests {
 		}
 	}
 
+	@Test
+	public void testTargetClassAwareOnProxy() {
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(new NopInterceptor());
+		pf.setFrozen(true);
+		Object proxy = createAopProxy(pf).getProxy();
+		assertEquals(TestBean.class, ((TargetClassAware) proxy).getTargetClass());
+		assertSame(pf.getTargetSource(), ((Advised) proxy).getTargetSource());
+	}
+
 	@Test
 	public void testSerializationAdviceAndTargetNotSerializable() throws Exception {
 		TestBean tb = new TestBean();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,34 @@
 
 package org.springframework.context.annotation;
 
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.junit.Test;
 
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.annotation6.ComponentForScanning;
 import org.springframework.context.annotation6.ConfigForScanning;
 import org.springframework.context.annotation6.Jsr330NamedForScanning;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.metrics.RecordingApplicationStartup;
+import org.springframework.core.metrics.RecordingApplicationStartup.RecordedStep;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
 
 import static java.lang.String.format;
 import static org.hamcrest.Matchers.*;
@@ -186,6 +202,227 @@ public class AnnotationConfigApplicationContextTests {
 		context.refresh();
 	}
 
+	@Test
+	public void recordStartupSteps() throws Exception {
+		RecordingApplicationStartup applicationStartup = new RecordingApplicationStartup();
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(applicationStartup);
+		context.register(ScanningConfig.class);
+		context.refresh();
+		context.getBean(ComponentForScanning.class);
+
+		List<RecordedStep> steps = applicationStartup.getRecordedSteps();
+		RecordedStep refresh = steps.get(steps.size() - 1);
+		assertEquals("spring.context.refresh", refresh.getName());
+		assertNull(refresh.getParentId());
+		Map<String, RecordedStep> stepsByName = new HashMap<String, RecordedStep>();
+		Map<String, RecordedStep> beanCreations = new HashMap<String, RecordedStep>();
+		for (RecordedStep step : steps) {
+			stepsByName.put(step.getName(), step);
+			if (step.getName().equals("spring.beans.instantiate")) {
+				beanCreations.put(step.getTags().get("beanName"), step);
+			}
+		}
+		assertThat(stepsByName.keySet(), hasItems("spring.context.beans.post-process",
+				"spring.context.beandef-registry.post-process", "spring.context.config-classes.parse",
+				"spring.context.component-scan", "spring.context.config-classes.enhance",
+				"spring.context.beans.instantiate", "spring.context.refresh.finish"));
+		assertEquals(ConfigurationClassPostProcessor.class.getName(),
+				stepsByName.get("spring.context.beandef-registry.post-process").getTags().get("postProcessor"));
+		assertEquals(ScanningConfig.class.getName(),
+				stepsByName.get("spring.context.component-scan").getTags().get("configurationClass"));
+		assertEquals(Long.valueOf(stepsByName.get("spring.context.beans.instantiate").getId()),
+				beanCreations.get("testBean").getParentId());
+		assertTrue(beanCreations.containsKey(uncapitalize(ComponentForScanning.class.getSimpleName())));
+
+		StringWriter timeline = new StringWriter();
+		applicationStartup.writeTimeline(timeline);
+		assertThat(timeline.toString(), containsString(
+				"spring.context.refresh;spring.context.beans.instantiate;spring.beans.instantiate[beanName=testBean] "));
+	}
+
+	@Test
+	public void recordStartupStepsWhenRefreshFails() throws Exception {
+		RecordingApplicationStartup applicationStartup = new RecordingApplicationStartup();
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(applicationStartup);
+		context.register(FailingConfig.class);
+		try {
+			context.refresh();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			// expected
+		}
+
+		List<RecordedStep> steps = applicationStartup.getRecordedSteps();
+		RecordedStep refresh = steps.get(steps.size() - 1);
+		assertEquals("spring.context.refresh", refresh.getName());
+		assertEquals("spring.context.beans.instantiate", steps.get(steps.size() - 2).getName());
+		assertEquals(Long.valueOf(refresh.getId()), steps.get(steps.size() - 2).getParentId());
+	}
+
+	@Test
+	public void restoreBeanDefinitionSnapshot() throws Exception {
+		File snapshotFile = File.createTempFile("beans", ".snapshot");
+		snapshotFile.delete();
+		SnapshotImportSelector.invocations = 0;
+		try {
+			for (int i = 0; i < 2; i++) {
+				AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+				context.setBeanDefinitionSnapshotFile(snapshotFile);
+				context.register(SnapshotConfig.class);
+				context.refresh();
+				assertTrue(snapshotFile.exists());
+				assertEquals("Configuration classes parsed once only", 1, SnapshotImportSelector.invocations);
+				assertTrue(ClassUtils.isCglibProxy(context.getBean(SnapshotConfig.class)));
+				assertEquals("p1Value", context.getEnvironment().getProperty("from.p1"));
+				assertEquals("p1TestBean", context.getBean(TestBean.class).name);
+				assertEquals(SnapshotConfig.class.getName(),
+						context.getBean(ImportAwareConfig.class).importMetadata.getClassName());
+				context.close();
+			}
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void restoreBeanDefinitionSnapshotWithOverridingDisallowed() throws Exception {
+		File snapshotFile = File.createTempFile("beans", ".snapshot");
+		snapshotFile.delete();
+		SnapshotImportSelector.invocations = 0;
+		try {
+			for (int i = 0; i < 2; i++) {
+				AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+				context.getDefaultListableBeanFactory().setAllowBeanDefinitionOverriding(false);
+				context.setBeanDefinitionSnapshotFile(snapshotFile);
+				context.register(SnapshotConfig.class);
+				context.addBeanFactoryPostProcessor(new RegisteringPostProcessor());
+				context.refresh();
+				assertEquals("Configuration classes parsed once only", 1, SnapshotImportSelector.invocations);
+				assertNotNull(context.getBean("registeredBean", TestBean.class));
+				context.close();
+			}
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void ignoreBeanDefinitionSnapshotForDifferentProperties() throws Exception {
+		File snapshotFile = File.createTempFile("beans", ".snapshot");
+		snapshotFile.delete();
+		SnapshotImportSelector.invocations = 0;
+		try {
+			String[] values = new String[] {"value1", "value2", "value2"};
+			for (String value : values) {
+				AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+				context.getEnvironment().getPropertySources().addFirst(
+						new MapPropertySource("test", Collections.<String, Object>singletonMap("test.key", value)));
+				context.setBeanDefinitionSnapshotFile(snapshotFile);
+				context.register(SnapshotConfig.class);
+				context.refresh();
+				context.close();
+			}
+			assertEquals("Configuration classes parsed for each property value", 2, SnapshotImportSelector.invocations);
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void ignoreBeanDefinitionSnapshotForUnresolvableClasspath() throws Exception {
+		File snapshotFile = File.createTempFile("beans", ".snapshot");
+		snapshotFile.delete();
+		SnapshotImportSelector.invocations = 0;
+		try {
+			for (int i = 0; i < 2; i++) {
+				AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+				context.setClassLoader(new ClassLoader(getClass().getClassLoader()) {});
+				context.setBeanDefinitionSnapshotFile(snapshotFile);
+				context.register(SnapshotConfig.class);
+				context.refresh();
+				assertFalse(snapshotFile.exists());
+				context.close();
+			}
+			assertEquals("Configuration classes parsed for each refresh", 2, SnapshotImportSelector.invocations);
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+
+	@Configuration
+	@ComponentScan(basePackageClasses = ComponentForScanning.class)
+	static class ScanningConfig {
+		@Bean
+		public TestBean testBean() {
+			return new TestBean();
+		}
+	}
+
+	@Configuration
+	static class FailingConfig {
+		@Bean
+		public TestBean testBean() {
+			throw new IllegalStateException("Cannot create TestBean");
+		}
+	}
+
+	@Configuration
+	@PropertySource("classpath:org/springframework/context/annotation/p1.properties")
+	@Import(SnapshotImportSelector.class)
+	static class SnapshotConfig {
+
+		@Autowired
+		Environment environment;
+
+		@Bean
+		public TestBean testBean() {
+			TestBean testBean = new TestBean();
+			testBean.name = this.environment.getProperty("testbean.name");
+			return testBean;
+		}
+	}
+
+	static class RegisteringPostProcessor implements BeanDefinitionRegistryPostProcessor {
+
+		@Override
+		public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+			registry.registerBeanDefinition("registeredBean", new RootBeanDefinition(TestBean.class));
+		}
+
+		@Override
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+		}
+	}
+
+	static class SnapshotImportSelector implements ImportSelector {
+
+		static int invocations;
+
+		@Override
+		public String[] selectImports(AnnotationMetadata importingClassMetadata) {
+			invocations++;
+			return new String[] {ImportAwareConfig.class.getName()};
+		}
+	}
+
+	@Configuration
+	static class ImportAwareConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+	}
 
 	@Configuration
 	static class Config {
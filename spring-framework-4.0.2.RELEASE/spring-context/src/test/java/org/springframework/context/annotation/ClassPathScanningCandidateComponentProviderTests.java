@@ -16,6 +16,7 @@
 
 package org.springframework.context.annotation;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.Set;
@@ -33,9 +34,13 @@ import example.scannable.NamedStubDao;
 import example.scannable.ServiceInvocationCounter;
 import example.scannable.StubFooDao;
 import org.aspectj.lang.annotation.Aspect;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.index.CandidateComponentsTestClassLoader;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
@@ -60,6 +65,9 @@ public class ClassPathScanningCandidateComponentProviderTests {
 	private static final String TEST_PROFILE_PACKAGE = "example.profilescan";
 	private static final String TEST_DEFAULT_PROFILE_NAME = "testDefault";
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 
 	@Test
 	public void testWithDefaults() {
@@ -304,6 +312,63 @@ public class ClassPathScanningCandidateComponentProviderTests {
 		}
 	}
 
+	@Test
+	public void testWithIndexedAndScannedClasspathRoots() throws Exception {
+		File indexedRoot = this.temporaryFolder.newFolder("indexed");
+		CandidateComponentsTestClassLoader.copyClass(FooServiceImpl.class, indexedRoot);
+		CandidateComponentsTestClassLoader.copyClass(StubFooDao.class, indexedRoot);
+		CandidateComponentsTestClassLoader.copyClass(NamedComponent.class, indexedRoot);
+		// NamedComponent left out of the index: the indexed root must not be scanned
+		CandidateComponentsTestClassLoader.writeIndex(indexedRoot,
+				FooServiceImpl.class.getName() + "=" + Component.class.getName() + "\n" +
+				StubFooDao.class.getName() + "=" + Component.class.getName() + "\n");
+		File scannedRoot = this.temporaryFolder.newFolder("scanned");
+		CandidateComponentsTestClassLoader.copyClass(NamedStubDao.class, scannedRoot);
+		CandidateComponentsTestClassLoader.copyClass(MessageBean.class, scannedRoot);
+
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(
+				new CandidateComponentsTestClassLoader(indexedRoot, scannedRoot)));
+		Set<BeanDefinition> candidates = provider.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(3, candidates.size());
+		assertTrue(containsBeanClass(candidates, FooServiceImpl.class));
+		assertTrue(containsBeanClass(candidates, StubFooDao.class));
+		assertTrue(containsBeanClass(candidates, NamedStubDao.class));
+		assertFalse(containsBeanClass(candidates, NamedComponent.class));
+	}
+
+	@Test
+	public void testWithIndexAndExcludeFilter() throws Exception {
+		File indexedRoot = this.temporaryFolder.newFolder("indexed");
+		CandidateComponentsTestClassLoader.copyClass(FooServiceImpl.class, indexedRoot);
+		CandidateComponentsTestClassLoader.copyClass(StubFooDao.class, indexedRoot);
+		CandidateComponentsTestClassLoader.writeIndex(indexedRoot,
+				FooServiceImpl.class.getName() + "=" + Component.class.getName() + "\n" +
+				StubFooDao.class.getName() + "=" + Component.class.getName() + "\n");
+
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(new CandidateComponentsTestClassLoader(indexedRoot)));
+		provider.addExcludeFilter(new AnnotationTypeFilter(Repository.class));
+		Set<BeanDefinition> candidates = provider.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(1, candidates.size());
+		assertTrue(containsBeanClass(candidates, FooServiceImpl.class));
+	}
+
+	@Test
+	public void testIndexNotUsedWithNonIndexableIncludeFilter() throws Exception {
+		File indexedRoot = this.temporaryFolder.newFolder("indexed");
+		CandidateComponentsTestClassLoader.copyClass(FooService.class, indexedRoot);
+		CandidateComponentsTestClassLoader.copyClass(FooServiceImpl.class, indexedRoot);
+		CandidateComponentsTestClassLoader.writeIndex(indexedRoot, "");
+
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+		provider.setResourceLoader(new DefaultResourceLoader(new CandidateComponentsTestClassLoader(indexedRoot)));
+		provider.addIncludeFilter(new AssignableTypeFilter(FooService.class));
+		Set<BeanDefinition> candidates = provider.findCandidateComponents(TEST_BASE_PACKAGE);
+		assertEquals(1, candidates.size());
+		assertTrue(containsBeanClass(candidates, FooServiceImpl.class));
+	}
+
 	private boolean containsBeanClass(Set<BeanDefinition> candidates, Class<?> beanClass) {
 		for (BeanDefinition candidate : candidates) {
 			ScannedGenericBeanDefinition definition = (ScannedGenericBeanDefinition) candidate;
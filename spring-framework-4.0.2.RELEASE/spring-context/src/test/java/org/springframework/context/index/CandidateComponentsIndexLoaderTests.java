@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.File;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.stereotype.Component;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexLoader}.
+ *
+ * @author agent
+ */
+public class CandidateComponentsIndexLoaderTests {
+
+	private static final String COMPONENT = Component.class.getName();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void noIndex() throws Exception {
+		File root = this.temporaryFolder.newFolder("root");
+		assertNull(CandidateComponentsIndexLoader.loadIndex(new CandidateComponentsTestClassLoader(root)));
+	}
+
+	@Test
+	public void loadIndex() throws Exception {
+		File indexedRoot = this.temporaryFolder.newFolder("indexed");
+		File otherIndexedRoot = this.temporaryFolder.newFolder("otherIndexed");
+		File plainRoot = this.temporaryFolder.newFolder("plain");
+		CandidateComponentsTestClassLoader.writeIndex(indexedRoot,
+				"org.sample.ProductController=" + COMPONENT + "\n" +
+				"org.sample.ProductService=" + COMPONENT + ",javax.inject.Named\n" +
+				"org.samples.Other=" + COMPONENT + "\n");
+		CandidateComponentsTestClassLoader.writeIndex(otherIndexedRoot,
+				"org.sample.sub.AccountService=" + COMPONENT + "\n");
+
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(
+				new CandidateComponentsTestClassLoader(indexedRoot, otherIndexedRoot, plainRoot));
+		assertNotNull(index);
+		String indexedRootUrl = indexedRoot.toURI().toURL().toString();
+		assertTrue(index.isIndexed(indexedRootUrl));
+		assertTrue(index.isIndexed(otherIndexedRoot.toURI().toURL().toString()));
+		assertFalse(index.isIndexed(plainRoot.toURI().toURL().toString()));
+
+		Set<String> components = index.getCandidateTypes(indexedRootUrl, "org.sample", COMPONENT);
+		assertThat(components.size(), is(2));
+		assertThat(components, hasItems("org.sample.ProductController", "org.sample.ProductService"));
+		Set<String> named = index.getCandidateTypes(indexedRootUrl, "org.sample", "javax.inject.Named");
+		assertThat(named.size(), is(1));
+		assertThat(named, hasItem("org.sample.ProductService"));
+
+		Set<String> allComponents = index.getCandidateTypes("org.sample", COMPONENT);
+		assertThat(allComponents.size(), is(3));
+		assertThat(allComponents, hasItem("org.sample.sub.AccountService"));
+		assertTrue(index.getCandidateTypes("org.sample", "javax.annotation.ManagedBean").isEmpty());
+	}
+
+}
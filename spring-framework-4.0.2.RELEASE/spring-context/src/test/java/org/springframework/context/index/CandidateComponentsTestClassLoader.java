@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * A test {@link ClassLoader} that exposes the resources of the given classpath
+ * roots only, while loading classes from the regular test classpath. Allows
+ * for setting up classpath roots with and without a candidate component index.
+ *
+ * @author agent
+ */
+public class CandidateComponentsTestClassLoader extends URLClassLoader {
+
+	public CandidateComponentsTestClassLoader(File... classpathRoots) throws MalformedURLException {
+		super(toUrls(classpathRoots), CandidateComponentsTestClassLoader.class.getClassLoader());
+	}
+
+	private static URL[] toUrls(File... classpathRoots) throws MalformedURLException {
+		URL[] urls = new URL[classpathRoots.length];
+		for (int i = 0; i < classpathRoots.length; i++) {
+			urls[i] = classpathRoots[i].toURI().toURL();
+		}
+		return urls;
+	}
+
+
+	@Override
+	public URL getResource(String name) {
+		return findResource(name);
+	}
+
+	@Override
+	public Enumeration<URL> getResources(String name) throws IOException {
+		return findResources(name);
+	}
+
+
+	/**
+	 * Copy the class file of the given class into the given classpath root.
+	 */
+	public static void copyClass(Class<?> clazz, File classpathRoot) throws IOException {
+		String path = ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+		File target = new File(classpathRoot, path);
+		target.getParentFile().mkdirs();
+		InputStream is = clazz.getClassLoader().getResourceAsStream(path);
+		FileCopyUtils.copy(is, new FileOutputStream(target));
+	}
+
+	/**
+	 * Write the given index content to the index location of the given classpath root.
+	 */
+	public static void writeIndex(File classpathRoot, String content) throws IOException {
+		File target = new File(classpathRoot, CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+		target.getParentFile().mkdirs();
+		OutputStream os = new FileOutputStream(target);
+		FileCopyUtils.copy(content.getBytes("ISO-8859-1"), os);
+	}
+
+}
@@ -99,6 +99,29 @@ public class DataBinderTests extends TestCase {
 		assertTrue(!other.equals(binder.getBindingResult()));
 	}
 
+	public void testBindingWithGeneratedAccessors() throws Exception {
+		TestBean rod = new TestBean();
+		rod.setSpouse(new TestBean());
+		DataBinder binder = new DataBinder(rod, "person");
+		binder.setUseGeneratedAccessors(true);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("name", "Rod");
+		pvs.add("age", "32x");
+		pvs.add("touchy", "m.y");
+		pvs.add("spouse.name", "Kerry");
+		binder.bind(pvs);
+
+		assertTrue(binder.isUseGeneratedAccessors());
+		assertEquals("Rod", rod.getName());
+		assertEquals("Kerry", rod.getSpouse().getName());
+		BindingResult br = binder.getBindingResult();
+		assertEquals(2, br.getErrorCount());
+		assertEquals("typeMismatch", br.getFieldError("age").getCode());
+		assertEquals("32x", br.getFieldValue("age"));
+		assertEquals("methodInvocation", br.getFieldError("touchy").getCode());
+		assertEquals("Kerry", br.getFieldValue("spouse.name"));
+	}
+
 	public void testedBindingWithDefaultConversionNoErrors() throws Exception {
 		TestBean rod = new TestBean();
 		DataBinder binder = new DataBinder(rod, "person");
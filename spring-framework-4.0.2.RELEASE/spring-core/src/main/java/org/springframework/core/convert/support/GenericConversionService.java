@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.convert.ConversionException;
@@ -51,6 +52,12 @@ import org.springframework.util.StringUtils;
  * Indirectly implements {@link ConverterRegistry} as registration API through the
  * {@link ConfigurableConversionService} interface.
  *
+ * <p>{@link #convert(Object, Class)} resolves its converter from a dispatch table
+ * keyed by source and target class and invokes plain {@link Converter Converters}
+ * directly, without creating {@link TypeDescriptor TypeDescriptors} unless a
+ * conversion fails. Once fully configured, the service may be {@link #freeze() frozen},
+ * pre-resolving all registered source/target pairs upfront.
+ *
  * @author Keith Donald
  * @author Juergen Hoeller
  * @author Chris Beams
@@ -76,6 +83,10 @@ public class GenericConversionService implements ConfigurableConversionService {
 	private final Map<ConverterCacheKey, GenericConverter> converterCache =
 			new ConcurrentHashMap<ConverterCacheKey, GenericConverter>(64);
 
+	private final DispatchTable<DirectConversion> directDispatchTable = new DispatchTable<DirectConversion>();
+
+	private volatile boolean frozen = false;
+
 
 	// implementing ConverterRegistry
 
@@ -94,6 +105,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void addConverter(GenericConverter converter) {
+		assertNotFrozen();
 		this.converters.add(converter);
 		invalidateCache();
 	}
@@ -109,10 +121,45 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+		assertNotFrozen();
 		this.converters.remove(sourceType, targetType);
 		invalidateCache();
 	}
 
+	/**
+	 * Freeze the converter registrations of this service, pre-resolving the
+	 * converters for all registered source/target pairs. Converter lookups for
+	 * further pairs (e.g. specific enum or subclass types) are resolved and
+	 * added to the dispatch table on first use.
+	 * <p>Any subsequent attempt to add or remove converters will lead to an
+	 * {@link IllegalStateException}.
+	 * @since 4.0.3
+	 */
+	public void freeze() {
+		this.frozen = true;
+		for (ConvertiblePair convertiblePair : this.converters.getConvertiblePairs()) {
+			Class<?> sourceType = convertiblePair.getSourceType();
+			Class<?> targetType = convertiblePair.getTargetType();
+			if (this.directDispatchTable.get(sourceType, targetType) == null) {
+				try {
+					this.directDispatchTable.put(sourceType, targetType, resolveDirectConversion(sourceType, targetType));
+				}
+				catch (RuntimeException ex) {
+					// Registered for an abstract type (e.g. Enum) only: resolve specific types on first use.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return whether the converter registrations of this service have been frozen.
+	 * @since 4.0.3
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
 	// implementing ConversionService
 
 	@Override
@@ -155,6 +202,17 @@ public class GenericConversionService implements ConfigurableConversionService {
 	@SuppressWarnings("unchecked")
 	public <T> T convert(Object source, Class<T> targetType) {
 		Assert.notNull(targetType,"The targetType to convert to cannot be null");
+		if (source != null) {
+			Class<?> sourceType = source.getClass();
+			DirectConversion conversion = this.directDispatchTable.get(sourceType, targetType);
+			if (conversion == null) {
+				conversion = resolveDirectConversion(sourceType, targetType);
+				this.directDispatchTable.put(sourceType, targetType, conversion);
+			}
+			if (conversion.isDirect()) {
+				return (T) conversion.convert(source, targetType);
+			}
+		}
 		return (T) convert(source, TypeDescriptor.forObject(source), TypeDescriptor.valueOf(targetType));
 	}
 
@@ -262,6 +320,37 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	// internal helpers
 
+	/**
+	 * Resolve the conversion between the given classes, determining whether it
+	 * can be performed through a plain {@link Converter} without type descriptors.
+	 */
+	@SuppressWarnings("unchecked")
+	private DirectConversion resolveDirectConversion(Class<?> sourceType, Class<?> targetType) {
+		GenericConverter converter = getConverter(TypeDescriptor.valueOf(sourceType), TypeDescriptor.valueOf(targetType));
+		if (converter == NO_OP_CONVERTER) {
+			return new DirectConversion(null, true);
+		}
+		if (converter instanceof ConverterAdapter) {
+			return new DirectConversion(((ConverterAdapter) converter).converter, true);
+		}
+		if (converter instanceof ConverterFactoryAdapter) {
+			try {
+				Converter<?, ?> factoryConverter = ((ConverterFactoryAdapter) converter).converterFactory.getConverter(
+						ClassUtils.resolvePrimitiveIfNecessary(targetType));
+				return new DirectConversion((Converter<Object, Object>) factoryConverter, true);
+			}
+			catch (RuntimeException ex) {
+				// Target type not supported by the factory: let the regular
+				// conversion path report the failure for the actual value.
+			}
+		}
+		return new DirectConversion(null, false);
+	}
+
+	private void assertNotFrozen() {
+		Assert.state(!this.frozen, "ConversionService has been frozen - cannot modify converter registrations");
+	}
+
 	private ResolvableType[] getRequiredTypeInfo(Object converter, Class<?> genericIfc) {
 		ResolvableType resolvableType = ResolvableType.forClass(converter.getClass()).as(genericIfc);
 		ResolvableType[] generics = resolvableType.getGenerics();
@@ -278,6 +367,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	private void invalidateCache() {
 		this.converterCache.clear();
+		this.directDispatchTable.clear();
 	}
 
 	private Object handleConverterNotFound(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
@@ -410,6 +500,88 @@ public class GenericConversionService implements ConfigurableConversionService {
 	}
 
 
+	/**
+	 * Conversion between two classes that may be performed through a plain
+	 * {@link Converter}, or without any conversion at all.
+	 */
+	private final class DirectConversion {
+
+		private final Converter<Object, Object> converter;
+
+		private final boolean direct;
+
+		public DirectConversion(Converter<Object, Object> converter, boolean direct) {
+			this.converter = converter;
+			this.direct = direct;
+		}
+
+		/**
+		 * Return whether this conversion can be performed directly; if not,
+		 * the regular TypeDescriptor-based conversion needs to be used.
+		 */
+		public boolean isDirect() {
+			return this.direct;
+		}
+
+		/**
+		 * Convert the given non-null source object, with the same exception
+		 * semantics as the regular TypeDescriptor-based conversion.
+		 */
+		public Object convert(Object source, Class<?> targetType) {
+			if (this.converter == null) {
+				return source;
+			}
+			Object result;
+			try {
+				result = this.converter.convert(source);
+			}
+			catch (ConversionFailedException ex) {
+				throw ex;
+			}
+			catch (Exception ex) {
+				throw new ConversionFailedException(
+						TypeDescriptor.forObject(source), TypeDescriptor.valueOf(targetType), source, ex);
+			}
+			if (result == null && targetType.isPrimitive()) {
+				return handleResult(TypeDescriptor.forObject(source), TypeDescriptor.valueOf(targetType), null);
+			}
+			return result;
+		}
+	}
+
+
+	/**
+	 * Table of values keyed by source and target class,
+	 * with lookups not requiring any key object.
+	 */
+	private static class DispatchTable<V> {
+
+		private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, V>> table =
+				new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, V>>(64);
+
+		public V get(Class<?> sourceType, Class<?> targetType) {
+			Map<Class<?>, V> targets = this.table.get(sourceType);
+			return (targets != null ? targets.get(targetType) : null);
+		}
+
+		public void put(Class<?> sourceType, Class<?> targetType, V value) {
+			ConcurrentMap<Class<?>, V> targets = this.table.get(sourceType);
+			if (targets == null) {
+				targets = new ConcurrentHashMap<Class<?>, V>(16);
+				ConcurrentMap<Class<?>, V> existing = this.table.putIfAbsent(sourceType, targets);
+				if (existing != null) {
+					targets = existing;
+				}
+			}
+			targets.put(targetType, value);
+		}
+
+		public void clear() {
+			this.table.clear();
+		}
+	}
+
+
 	/**
 	 * Key for use with the converter cache.
 	 */
@@ -489,6 +661,10 @@ public class GenericConversionService implements ConfigurableConversionService {
 			this.converters.remove(new ConvertiblePair(sourceType, targetType));
 		}
 
+		public Set<ConvertiblePair> getConvertiblePairs() {
+			return this.converters.keySet();
+		}
+
 		/**
 		 * Find a {@link GenericConverter} given a source and target type.
 		 * <p>This method will attempt to match all possible converters by working
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+/**
+ * Instruments the startup phases of an application context with
+ * {@link StartupStep steps}.
+ *
+ * <p>The core container and its infrastructure components use this contract
+ * to mark the beginning and the end of each phase, e.g. the invocation of a
+ * BeanFactoryPostProcessor or the creation of a bean. Implementations may
+ * record the steps for later analysis; the {@link #DEFAULT} implementation
+ * does not record anything and is designed for minimal overhead.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see RecordingApplicationStartup
+ */
+public interface ApplicationStartup {
+
+	/**
+	 * Default "no op" {@code ApplicationStartup} implementation.
+	 * <p>Returns the same shared {@link StartupStep} instance for every step,
+	 * ignoring all tags.
+	 */
+	ApplicationStartup DEFAULT = new DefaultApplicationStartup();
+
+
+	/**
+	 * Create a new step and mark its beginning.
+	 * <p>A step name describes the current action or phase. This technical
+	 * name should be "." namespaced and can be reused to describe other
+	 * instances of the same step during application startup.
+	 * @param name the step name
+	 * @return the started step, to be {@link StartupStep#end() ended} in
+	 * a {@code finally} block
+	 */
+	StartupStep start(String name);
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that records all steps in memory,
+ * for inspection through {@link #getRecordedSteps()} or for export as a
+ * timeline through {@link #writeTimeline(Writer)}.
+ *
+ * <p>The timeline uses the "folded stacks" format understood by common flame
+ * graph tools such as {@code flamegraph.pl} or speedscope: one line per distinct
+ * stack of nested steps, followed by the time spent in the innermost step itself
+ * (excluding its nested steps) in microseconds. Each frame consists of the step
+ * name and its tags, e.g. {@code spring.beans.instantiate[beanName=dataSource]}.
+ *
+ * <p>Steps are nested per thread: a step started while another step is active
+ * on the same thread becomes a child of that step.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+public class RecordingApplicationStartup implements ApplicationStartup {
+
+	private final AtomicLong idGenerator = new AtomicLong();
+
+	private final ThreadLocal<RecordedStep> currentStep =
+			new NamedThreadLocal<RecordedStep>("Current startup step");
+
+	private final List<RecordedStep> recordedSteps = new ArrayList<RecordedStep>();
+
+
+	@Override
+	public StartupStep start(String name) {
+		Assert.notNull(name, "Step name must not be null");
+		RecordedStep step = new RecordedStep(name, this.idGenerator.incrementAndGet(), this.currentStep.get());
+		this.currentStep.set(step);
+		return step;
+	}
+
+	/**
+	 * Return all steps that have been ended so far, in order of completion.
+	 */
+	public List<RecordedStep> getRecordedSteps() {
+		synchronized (this.recordedSteps) {
+			return new ArrayList<RecordedStep>(this.recordedSteps);
+		}
+	}
+
+	/**
+	 * Write the steps ended so far as a timeline in folded stacks format.
+	 * @param writer the Writer to write to (will not be closed)
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeTimeline(Writer writer) throws IOException {
+		Map<String, Long> stacks = new LinkedHashMap<String, Long>();
+		for (RecordedStep step : getRecordedSteps()) {
+			String stack = step.getStack();
+			Long selfTime = stacks.get(stack);
+			stacks.put(stack, (selfTime != null ? selfTime : 0) + step.getSelfDuration() / 1000);
+		}
+		for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+			writer.write(entry.getKey());
+			writer.write(' ');
+			writer.write(String.valueOf(entry.getValue()));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write the steps ended so far as a timeline in folded stacks format
+	 * to the given file, encoded in UTF-8.
+	 * @param file the file to write to (will be overwritten if it exists)
+	 * @throws IOException in case of I/O errors
+	 * @see #writeTimeline(Writer)
+	 */
+	public void writeTimeline(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writeTimeline(writer);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private void stepEnded(RecordedStep step) {
+		// Also drop nested steps that have not been ended, e.g. due to an exception
+		for (RecordedStep current = this.currentStep.get(); current != null; current = current.parent) {
+			if (current == step) {
+				if (step.parent != null) {
+					this.currentStep.set(step.parent);
+				}
+				else {
+					this.currentStep.remove();
+				}
+				break;
+			}
+		}
+		synchronized (this.recordedSteps) {
+			this.recordedSteps.add(step);
+		}
+	}
+
+
+	/**
+	 * A {@link StartupStep} recorded by a {@link RecordingApplicationStartup},
+	 * exposing its timing once ended.
+	 */
+	public final class RecordedStep implements StartupStep {
+
+		private final String name;
+
+		private final long id;
+
+		private final RecordedStep parent;
+
+		private final String threadName;
+
+		private final Map<String, String> tags = new LinkedHashMap<String, String>();
+
+		private final long startTime;
+
+		private volatile long endTime;
+
+		private volatile boolean ended;
+
+		private long nestedDuration;
+
+		private RecordedStep(String name, long id, RecordedStep parent) {
+			this.name = name;
+			this.id = id;
+			this.parent = parent;
+			this.threadName = Thread.currentThread().getName();
+			this.startTime = System.nanoTime();
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public long getId() {
+			return this.id;
+		}
+
+		@Override
+		public Long getParentId() {
+			return (this.parent != null ? this.parent.id : null);
+		}
+
+		/**
+		 * Return the name of the thread that started this step.
+		 */
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		@Override
+		public StartupStep tag(String key, String value) {
+			Assert.state(!this.ended, "StartupStep has already ended");
+			synchronized (this.tags) {
+				this.tags.put(key, value);
+			}
+			return this;
+		}
+
+		@Override
+		public Map<String, String> getTags() {
+			synchronized (this.tags) {
+				return Collections.unmodifiableMap(new LinkedHashMap<String, String>(this.tags));
+			}
+		}
+
+		@Override
+		public void end() {
+			Assert.state(!this.ended, "StartupStep has already ended");
+			this.endTime = System.nanoTime();
+			this.ended = true;
+			if (this.parent != null) {
+				synchronized (this.parent) {
+					this.parent.nestedDuration += getDuration();
+				}
+			}
+			stepEnded(this);
+		}
+
+		/**
+		 * Return the duration of this step in nanoseconds,
+		 * including the duration of its nested steps.
+		 * @throws IllegalStateException if the step has not ended yet
+		 */
+		public long getDuration() {
+			Assert.state(this.ended, "StartupStep has not ended yet");
+			return this.endTime - this.startTime;
+		}
+
+		/**
+		 * Return the duration of this step in nanoseconds,
+		 * excluding the duration of its nested steps.
+		 * @throws IllegalStateException if the step has not ended yet
+		 */
+		public synchronized long getSelfDuration() {
+			return Math.max(getDuration() - this.nestedDuration, 0);
+		}
+
+		private String getStack() {
+			return (this.parent != null ? this.parent.getStack() + ";" + getFrame() : getFrame());
+		}
+
+		private String getFrame() {
+			StringBuilder frame = new StringBuilder(this.name);
+			Map<String, String> tags = getTags();
+			if (!tags.isEmpty()) {
+				frame.append('[');
+				boolean first = true;
+				for (Map.Entry<String, String> tag : tags.entrySet()) {
+					if (!first) {
+						frame.append(',');
+					}
+					frame.append(tag.getKey()).append('=').append(tag.getValue());
+					first = false;
+				}
+				frame.append(']');
+			}
+			// Semicolons separate frames and whitespace separates the sample value
+			return frame.toString().replaceAll("[;\\s]", "_");
+		}
+
+		@Override
+		public String toString() {
+			return "StartupStep [" + this.name + "] id=" + this.id + ", tags=" + getTags();
+		}
+	}
+
+}
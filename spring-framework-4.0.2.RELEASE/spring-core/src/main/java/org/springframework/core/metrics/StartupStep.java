@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.util.Map;
+
+/**
+ * Step recording metrics about a particular phase or action happening
+ * during the {@link ApplicationStartup}.
+ *
+ * <p>The lifecycle of a {@code StartupStep} goes as follows:
+ * <ol>
+ * <li>the step is created and starts by calling
+ * {@link ApplicationStartup#start(String) the application startup} and is
+ * assigned a unique {@link StartupStep#getId() id}.
+ * <li>we can then attach information with tags during processing
+ * <li>we then need to mark the {@link #end()} of the step
+ * </ol>
+ *
+ * <p>Steps started and not ended on the same thread before a new step starts
+ * are considered the parent of that new step.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+public interface StartupStep {
+
+	/**
+	 * Return the name of the startup step.
+	 */
+	String getName();
+
+	/**
+	 * Return the unique id for this step within the application startup.
+	 */
+	long getId();
+
+	/**
+	 * Return, if available, the id of the parent step.
+	 * <p>The parent step is the step that was most recently started
+	 * on the same thread when the current step was created.
+	 */
+	Long getParentId();
+
+	/**
+	 * Add a tag to the step, e.g. the name of the bean being created.
+	 * @param key tag key
+	 * @param value tag value
+	 * @return this step, for chaining
+	 */
+	StartupStep tag(String key, String value);
+
+	/**
+	 * Return the tags that have been added to this step so far.
+	 * @return an unmodifiable Map of tag keys to tag values (never {@code null})
+	 */
+	Map<String, String> getTags();
+
+	/**
+	 * Record the state of the step and possibly other metrics like execution time.
+	 * <p>Once ended, changes on the step state are not allowed.
+	 */
+	void end();
+
+}
@@ -0,0 +1,8 @@
+/**
+ *
+ * This package defines Spring's startup step abstraction for recording
+ * the phases of an application context refresh, with a no-op default
+ * and an in-memory recording implementation.
+ *
+ */
+package org.springframework.core.metrics;
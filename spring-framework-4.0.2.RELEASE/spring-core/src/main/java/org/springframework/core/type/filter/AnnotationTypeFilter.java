@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -75,6 +75,14 @@ public class AnnotationTypeFilter extends AbstractTypeHierarchyTraversingFilter
 	}
 
 
+	/**
+	 * Return the annotation type that this filter matches.
+	 * @since 4.0.3
+	 */
+	public final Class<? extends Annotation> getAnnotationType() {
+		return this.annotationType;
+	}
+
 	@Override
 	protected boolean matchSelf(MetadataReader metadataReader) {
 		AnnotationMetadata metadata = metadataReader.getAnnotationMetadata();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.util;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -55,8 +56,6 @@ public class AntPathMatcher implements PathMatcher {
 
 	private static final int CACHE_TURNOFF_THRESHOLD = 65536;
 
-	private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^/]+?\\}");
-
 
 	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
 
@@ -390,6 +389,42 @@ public class AntPathMatcher implements PathMatcher {
 		return variables;
 	}
 
+	/**
+	 * Compile the given pattern into an immutable {@link CompiledPattern} that can be
+	 * matched against any number of paths without re-parsing the pattern.
+	 * <p>Unlike {@link #match}, a compiled pattern does not depend on this matcher's
+	 * pattern caches: it scans the path in place rather than tokenizing it, and only
+	 * falls back to regular expressions for URI template variables with a custom regex.
+	 * The path separator and trim tokens settings are captured at compilation time.
+	 * <p>For subclasses of {@code AntPathMatcher}, the returned pattern delegates to
+	 * this matcher's {@link #match}, {@link #matchStart} and
+	 * {@link #extractUriTemplateVariables} methods so that customizations apply.
+	 * @param pattern the pattern to compile
+	 * @return the compiled pattern (never {@code null})
+	 * @since 4.0.3
+	 */
+	public CompiledPattern compile(String pattern) {
+		Assert.notNull(pattern, "Pattern must not be null");
+		return new CompiledPattern(pattern, this);
+	}
+
+	/**
+	 * Given a full path, returns a {@link Comparator} suitable for sorting compiled
+	 * patterns in order of explicitness, consistent with {@link #getPatternComparator}.
+	 * @param path the full path to use for comparison
+	 * @return a comparator capable of sorting compiled patterns in order of explicitness
+	 * @since 4.0.3
+	 * @see CompiledPattern#compareTo(CompiledPattern, String)
+	 */
+	public Comparator<CompiledPattern> getCompiledPatternComparator(final String path) {
+		return new Comparator<CompiledPattern>() {
+			@Override
+			public int compare(CompiledPattern pattern1, CompiledPattern pattern2) {
+				return pattern1.compareTo(pattern2, path);
+			}
+		};
+	}
+
 	/**
 	 * Combines two patterns into a new pattern that is returned.
 	 * <p>This implementation simply concatenates the two patterns, unless the first pattern
@@ -640,17 +675,524 @@ public class AntPathMatcher implements PathMatcher {
 		}
 
 		private int getWildCardCount(String pattern) {
-			if (pattern.endsWith(".*")) {
-				pattern = pattern.substring(0, pattern.length() - 2);
-			}
-			return StringUtils.countOccurrencesOf(pattern, "*");
+			return AntPathMatcher.getWildCardCount(pattern);
 		}
 
 		/**
 		 * Returns the length of the given pattern, where template variables are considered to be 1 long.
 		 */
 		private int getPatternLength(String pattern) {
-			return VARIABLE_PATTERN.matcher(pattern).replaceAll("#").length();
+			return AntPathMatcher.getPatternLength(pattern);
+		}
+	}
+
+
+	/**
+	 * Count the '*' wildcards in the given pattern, ignoring a trailing ".*" extension.
+	 */
+	private static int getWildCardCount(String pattern) {
+		int end = (pattern.endsWith(".*") ? pattern.length() - 2 : pattern.length());
+		int count = 0;
+		for (int i = 0; i < end; i++) {
+			if (pattern.charAt(i) == '*') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the length of the given pattern, where template variables are considered
+	 * to be 1 long: each '{' followed by a '}' without a '/' in between
+	 * (and at least one character inside) counts as a single character.
+	 */
+	private static int getPatternLength(String pattern) {
+		int length = 0;
+		int i = 0;
+		int patternLength = pattern.length();
+		while (i < patternLength) {
+			if (pattern.charAt(i) == '{') {
+				int close = -1;
+				for (int j = i + 1; j < patternLength; j++) {
+					char c = pattern.charAt(j);
+					if (c == '/') {
+						break;
+					}
+					if (c == '}' && j > i + 1) {
+						close = j;
+						break;
+					}
+				}
+				if (close != -1) {
+					length++;
+					i = close + 1;
+					continue;
+				}
+			}
+			length++;
+			i++;
+		}
+		return length;
+	}
+
+
+	/**
+	 * An Ant-style pattern parsed once into its path segments, as returned by
+	 * {@link AntPathMatcher#compile(String)}.
+	 * <p>Paths are matched by scanning them in place, segment by segment, without
+	 * tokenizing them into String arrays. Literal segments are compared directly,
+	 * '?' and '*' wildcards as well as plain URI template variables are matched by
+	 * index scanning; only URI template variables with a custom regex fall back
+	 * to a regular expression. Instances are immutable and thread-safe.
+	 * @since 4.0.3
+	 */
+	public static final class CompiledPattern {
+
+		private static final int LITERAL = 0;
+
+		private static final int GLOB = 1;
+
+		private static final int REGEX = 2;
+
+		private static final int DOUBLE_WILDCARD = 3;
+
+
+		private final String pattern;
+
+		private final AntPathMatcher matcher;
+
+		private final boolean delegating;
+
+		private final String pathSeparator;
+
+		private final boolean trimTokens;
+
+		private final boolean startsWithSeparator;
+
+		private final boolean endsWithSeparator;
+
+		private final Segment[] segments;
+
+		private final boolean captureAll;
+
+		private final int wildCardCount;
+
+		private final int bracketCount;
+
+		private final int patternLength;
+
+
+		private CompiledPattern(String pattern, AntPathMatcher matcher) {
+			this.pattern = pattern;
+			this.matcher = matcher;
+			this.delegating = (matcher.getClass() != AntPathMatcher.class);
+			this.pathSeparator = matcher.pathSeparator;
+			this.trimTokens = matcher.trimTokens;
+			this.startsWithSeparator = pattern.startsWith(this.pathSeparator);
+			this.endsWithSeparator = pattern.endsWith(this.pathSeparator);
+			if (this.delegating) {
+				this.segments = null;
+			}
+			else {
+				String[] tokens = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator, this.trimTokens, true);
+				this.segments = new Segment[tokens.length];
+				for (int i = 0; i < tokens.length; i++) {
+					this.segments[i] = Segment.parse(tokens[i]);
+				}
+			}
+			this.captureAll = "/**".equals(pattern);
+			this.wildCardCount = getWildCardCount(pattern);
+			this.bracketCount = StringUtils.countOccurrencesOf(pattern, "{");
+			this.patternLength = getPatternLength(pattern);
+		}
+
+
+		/**
+		 * Return the original pattern String.
+		 */
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		/**
+		 * Match the given path against this pattern.
+		 * @see AntPathMatcher#match(String, String)
+		 */
+		public boolean matches(String path) {
+			if (this.delegating) {
+				return this.matcher.match(this.pattern, path);
+			}
+			return doMatch(path, true, null);
+		}
+
+		/**
+		 * Match the given path against the corresponding part of this pattern.
+		 * @see AntPathMatcher#matchStart(String, String)
+		 */
+		public boolean matchStart(String path) {
+			if (this.delegating) {
+				return this.matcher.matchStart(this.pattern, path);
+			}
+			return doMatch(path, false, null);
+		}
+
+		/**
+		 * Extract the URI template variables of this pattern from the given path.
+		 * @throws IllegalStateException if the path does not match this pattern
+		 * @see AntPathMatcher#extractUriTemplateVariables(String, String)
+		 */
+		public Map<String, String> extractUriTemplateVariables(String path) {
+			if (this.delegating) {
+				return this.matcher.extractUriTemplateVariables(this.pattern, path);
+			}
+			Map<String, String> variables = new LinkedHashMap<String, String>();
+			boolean result = doMatch(path, true, variables);
+			Assert.state(result, "Pattern \"" + this.pattern + "\" is not a match for \"" + path + "\"");
+			return variables;
+		}
+
+		/**
+		 * Determine the pattern-mapped part of the given path.
+		 * @see AntPathMatcher#extractPathWithinPattern(String, String)
+		 */
+		public String extractPathWithinPattern(String path) {
+			return this.matcher.extractPathWithinPattern(this.pattern, path);
+		}
+
+		/**
+		 * Compare this pattern with another one in terms of explicitness for the
+		 * given path, as {@link AntPathMatcher#getPatternComparator(String)} does,
+		 * but based on metadata computed once at compilation time.
+		 * @param other the pattern to compare with
+		 * @param path the full path to use for comparison
+		 * @return a negative value if this pattern is more specific, a positive
+		 * value if it is less specific, or 0 if both are equally specific
+		 */
+		public int compareTo(CompiledPattern other, String path) {
+			if (this.delegating) {
+				return this.matcher.getPatternComparator(path).compare(this.pattern, other.pattern);
+			}
+			if (this.captureAll && other.captureAll) {
+				return 0;
+			}
+			else if (this.captureAll) {
+				return 1;
+			}
+			else if (other.captureAll) {
+				return -1;
+			}
+
+			boolean pattern1EqualsPath = this.pattern.equals(path);
+			boolean pattern2EqualsPath = other.pattern.equals(path);
+			if (pattern1EqualsPath && pattern2EqualsPath) {
+				return 0;
+			}
+			else if (pattern1EqualsPath) {
+				return -1;
+			}
+			else if (pattern2EqualsPath) {
+				return 1;
+			}
+
+			int totalCount1 = this.wildCardCount + this.bracketCount;
+			int totalCount2 = other.wildCardCount + other.bracketCount;
+			if (totalCount1 != totalCount2) {
+				return totalCount1 - totalCount2;
+			}
+			if (this.patternLength != other.patternLength) {
+				return other.patternLength - this.patternLength;
+			}
+			if (this.wildCardCount != other.wildCardCount) {
+				return (this.wildCardCount < other.wildCardCount ? -1 : 1);
+			}
+			if (this.bracketCount != other.bracketCount) {
+				return (this.bracketCount < other.bracketCount ? -1 : 1);
+			}
+			return 0;
+		}
+
+		private boolean doMatch(String path, boolean fullMatch, Map<String, String> uriTemplateVariables) {
+			if (path.startsWith(this.pathSeparator) != this.startsWithSeparator) {
+				return false;
+			}
+
+			Segment[] segments = this.segments;
+			int pattIdx = 0;
+			long pathSegment = nextPathSegment(path, 0);
+
+			// Match all elements up to the first **
+			while (pattIdx < segments.length && pathSegment != -1) {
+				Segment segment = segments[pattIdx];
+				if (segment.type == DOUBLE_WILDCARD) {
+					break;
+				}
+				if (!segment.matches(path, segmentStart(pathSegment), segmentEnd(pathSegment), uriTemplateVariables)) {
+					return false;
+				}
+				pattIdx++;
+				pathSegment = nextPathSegment(path, segmentEnd(pathSegment));
+			}
+
+			if (pathSegment == -1) {
+				// Path is exhausted, only match if rest of pattern is * or **'s
+				if (pattIdx == segments.length) {
+					return (this.endsWithSeparator ? path.endsWith(this.pathSeparator) :
+							!path.endsWith(this.pathSeparator));
+				}
+				if (!fullMatch) {
+					return true;
+				}
+				if (pattIdx == segments.length - 1 && segments[pattIdx].isSingleWildcard() &&
+						path.endsWith(this.pathSeparator)) {
+					return true;
+				}
+				return onlyDoubleWildcardsFrom(pattIdx);
+			}
+			else if (pattIdx == segments.length) {
+				// String not exhausted, but pattern is. Failure.
+				return false;
+			}
+			else if (!fullMatch) {
+				// Path start definitely matches due to "**" part in pattern.
+				return true;
+			}
+
+			// Match the remaining segments, letting the most recent ** absorb
+			// path segments whenever the segments after it do not match
+			int doubleWildcardIdx = -1;
+			long doubleWildcardSegment = -1;
+			while (pathSegment != -1) {
+				if (pattIdx < segments.length) {
+					Segment segment = segments[pattIdx];
+					if (segment.type == DOUBLE_WILDCARD) {
+						doubleWildcardIdx = pattIdx++;
+						doubleWildcardSegment = pathSegment;
+						continue;
+					}
+					if (segment.matches(path, segmentStart(pathSegment), segmentEnd(pathSegment), uriTemplateVariables)) {
+						pattIdx++;
+						pathSegment = nextPathSegment(path, segmentEnd(pathSegment));
+						continue;
+					}
+				}
+				pattIdx = doubleWildcardIdx + 1;
+				doubleWildcardSegment = nextPathSegment(path, segmentEnd(doubleWildcardSegment));
+				pathSegment = doubleWildcardSegment;
+			}
+			return onlyDoubleWildcardsFrom(pattIdx);
+		}
+
+		private boolean onlyDoubleWildcardsFrom(int pattIdx) {
+			for (int i = pattIdx; i < this.segments.length; i++) {
+				if (this.segments[i].type != DOUBLE_WILDCARD) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Find the next path segment at or after the given index, consistent with
+		 * {@link StringUtils#tokenizeToStringArray}: separator characters delimit
+		 * segments, segments are trimmed if necessary, and empty segments are skipped.
+		 * @return the start and end index of the segment packed into a long,
+		 * or -1 if there are no further segments
+		 */
+		private long nextPathSegment(String path, int index) {
+			int length = path.length();
+			while (index < length) {
+				while (index < length && this.pathSeparator.indexOf(path.charAt(index)) != -1) {
+					index++;
+				}
+				int start = index;
+				while (index < length && this.pathSeparator.indexOf(path.charAt(index)) == -1) {
+					index++;
+				}
+				int end = index;
+				if (this.trimTokens) {
+					while (start < end && path.charAt(start) <= ' ') {
+						start++;
+					}
+					while (end > start && path.charAt(end - 1) <= ' ') {
+						end--;
+					}
+				}
+				if (start < end) {
+					return ((long) start << 32) | end;
+				}
+			}
+			return -1;
+		}
+
+		private static int segmentStart(long segment) {
+			return (int) (segment >>> 32);
+		}
+
+		private static int segmentEnd(long segment) {
+			return (int) segment;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CompiledPattern)) {
+				return false;
+			}
+			CompiledPattern otherPattern = (CompiledPattern) other;
+			return (this.pattern.equals(otherPattern.pattern) && this.matcher == otherPattern.matcher &&
+					this.pathSeparator.equals(otherPattern.pathSeparator) && this.trimTokens == otherPattern.trimTokens);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.pattern.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.pattern;
+		}
+
+
+		/**
+		 * A single parsed segment of a compiled pattern.
+		 */
+		private static final class Segment {
+
+			private final int type;
+
+			/** Literal text, or glob text with '?' and '*' as the only special characters */
+			private final String text;
+
+			/** Regex-based matcher for segments that cannot be handled by scanning alone */
+			private final AntPathStringMatcher stringMatcher;
+
+			/** The name of the single variable in a "prefix{name}suffix" segment */
+			private final String variableName;
+
+			private Segment(int type, String text, AntPathStringMatcher stringMatcher, String variableName) {
+				this.type = type;
+				this.text = text;
+				this.stringMatcher = stringMatcher;
+				this.variableName = variableName;
+			}
+
+			public static Segment parse(String token) {
+				if ("**".equals(token)) {
+					return new Segment(DOUBLE_WILDCARD, token, null, null);
+				}
+				StringBuilder glob = new StringBuilder();
+				List<String> variableNames = new ArrayList<String>();
+				int wildcards = 0;
+				Matcher m = AntPathStringMatcher.GLOB_PATTERN.matcher(token);
+				int end = 0;
+				while (m.find()) {
+					glob.append(token, end, m.start());
+					String match = m.group();
+					if ("?".equals(match) || "*".equals(match)) {
+						glob.append(match);
+						wildcards++;
+					}
+					else if (match.indexOf(':') != -1) {
+						return new Segment(REGEX, token, new AntPathStringMatcher(token), null);
+					}
+					else {
+						glob.append('*');
+						variableNames.add(m.group(1));
+					}
+					end = m.end();
+				}
+				glob.append(token, end, token.length());
+				if (wildcards == 0 && variableNames.isEmpty()) {
+					return new Segment(LITERAL, token, null, null);
+				}
+				else if (variableNames.isEmpty()) {
+					return new Segment(GLOB, glob.toString(), null, null);
+				}
+				else if (wildcards == 0 && variableNames.size() == 1) {
+					return new Segment(GLOB, glob.toString(), null, variableNames.get(0));
+				}
+				else {
+					// Several variables or wildcards next to variables: leave it to the
+					// regex to decide how the matched text is split up between them
+					return new Segment(GLOB, glob.toString(), new AntPathStringMatcher(token), null);
+				}
+			}
+
+			public boolean isSingleWildcard() {
+				return (this.type == GLOB && this.variableName == null && this.stringMatcher == null &&
+						"*".equals(this.text));
+			}
+
+			public boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+				switch (this.type) {
+					case LITERAL:
+						return (end - start == this.text.length() && path.startsWith(this.text, start));
+					case GLOB:
+						if (!matchGlob(this.text, path, start, end)) {
+							return false;
+						}
+						if (uriTemplateVariables != null) {
+							if (this.variableName != null) {
+								int prefixLength = this.text.indexOf('*');
+								int suffixLength = this.text.length() - prefixLength - 1;
+								uriTemplateVariables.put(this.variableName,
+										path.substring(start + prefixLength, end - suffixLength));
+							}
+							else if (this.stringMatcher != null) {
+								return this.stringMatcher.matchStrings(path.substring(start, end), uriTemplateVariables);
+							}
+						}
+						return true;
+					case REGEX:
+						return this.stringMatcher.matchStrings(path.substring(start, end), uriTemplateVariables);
+					default:
+						return false;
+				}
+			}
+
+			/**
+			 * Match a glob with '?' and '*' against the given region of the path,
+			 * with the same semantics as the regex ('.' and ".*") the glob stands for.
+			 */
+			private static boolean matchGlob(String glob, String str, int start, int end) {
+				int globLength = glob.length();
+				int g = 0;
+				int s = start;
+				int starGlobIdx = -1;
+				int starStrIdx = -1;
+				while (s < end) {
+					if (g < globLength) {
+						char gc = glob.charAt(g);
+						if (gc == '*') {
+							starGlobIdx = g++;
+							starStrIdx = s;
+							continue;
+						}
+						char c = str.charAt(s);
+						if (gc == '?' ? !isLineTerminator(c) : gc == c) {
+							g++;
+							s++;
+							continue;
+						}
+					}
+					if (starGlobIdx == -1 || isLineTerminator(str.charAt(starStrIdx))) {
+						return false;
+					}
+					g = starGlobIdx + 1;
+					s = ++starStrIdx;
+				}
+				while (g < globLength && glob.charAt(g) == '*') {
+					g++;
+				}
+				return (g == globLength);
+			}
+
+			private static boolean isLineTerminator(char c) {
+				return (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029');
+			}
 		}
 	}
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} over elements that are produced lazily from an underlying
+ * resource, such as an open database cursor, which needs to be released once
+ * the caller is done with the iteration.
+ *
+ * <p>Implementations release the resource as soon as the iteration is exhausted;
+ * callers that stop iterating early must call {@link #close()} themselves,
+ * typically in a finally block.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @param <T> the element type
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Release the underlying resource. Subsequent calls to {@link #hasNext()}
+	 * return {@code false}; calling {@code close()} more than once has no effect.
+	 * <p>Unlike {@link Closeable#close()}, this method does not throw checked
+	 * exceptions.
+	 */
+	@Override
+	void close();
+
+}
@@ -248,6 +248,63 @@ public class GenericConversionServiceTests {
 		assertEquals(3, three.intValue());
 	}
 
+	@Test
+	public void convertNullResultToPrimitive() {
+		conversionService.addConverter(new Converter<String, Integer>() {
+			@Override
+			public Integer convert(String source) {
+				return null;
+			}
+		});
+		assertNull(conversionService.convert("3", Integer.class));
+		try {
+			conversionService.convert("3", int.class);
+			fail("Should have thrown ConversionFailedException");
+		}
+		catch (ConversionFailedException ex) {
+			assertEquals(TypeDescriptor.valueOf(int.class), ex.getTargetType());
+		}
+	}
+
+	@Test
+	public void convertFailureWithSourceAndTargetType() {
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+		try {
+			conversionService.convert("BOGUS", int.class);
+			fail("Should have thrown ConversionFailedException");
+		}
+		catch (ConversionFailedException ex) {
+			assertEquals(TypeDescriptor.valueOf(String.class), ex.getSourceType());
+			assertEquals(TypeDescriptor.valueOf(int.class), ex.getTargetType());
+			assertEquals("BOGUS", ex.getValue());
+			assertTrue(ex.getCause() instanceof NumberFormatException);
+		}
+	}
+
+	@Test
+	public void freeze() {
+		GenericConversionService conversionService = new DefaultConversionService();
+		conversionService.freeze();
+		assertTrue(conversionService.isFrozen());
+		assertEquals(Integer.valueOf(3), conversionService.convert("3", Integer.class));
+		assertEquals(MyEnum.A, conversionService.convert("A", MyEnum.class));
+		assertEquals("3", conversionService.convert(3, String.class));
+		try {
+			conversionService.addConverter(new ColorConverter());
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		try {
+			conversionService.removeConvertible(String.class, Integer.class);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
 	@Test
 	public void genericConverterDelegatingBackToConversionServiceConverterNotFound() {
 		conversionService.addConverter(new ObjectToArrayConverter(conversionService));
@@ -473,6 +530,33 @@ public class GenericConversionServiceTests {
 
 	public static Map<String, Integer> map;
 
+	@Test
+	public void testPerformance4() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		GenericConversionService conversionService = new DefaultConversionService();
+		StopWatch watch = new StopWatch("string->integer/enum conversionPerformance");
+		watch.start("convert 4,000,000 string->integer with conversion service");
+		for (int i = 0; i < 4000000; i++) {
+			conversionService.convert("3", Integer.class);
+		}
+		watch.stop();
+		watch.start("convert 4,000,000 string->enum with conversion service");
+		for (int i = 0; i < 4000000; i++) {
+			conversionService.convert("A", MyEnum.class);
+		}
+		watch.stop();
+		TypeDescriptor sourceType = TypeDescriptor.valueOf(String.class);
+		TypeDescriptor targetType = new TypeDescriptor(getClass().getField("primitiveInt"));
+		watch.start("convert 4,000,000 string->int field with conversion service");
+		for (int i = 0; i < 4000000; i++) {
+			conversionService.convert("3", sourceType, targetType);
+		}
+		watch.stop();
+		System.out.println(watch.prettyPrint());
+	}
+
+	public static int primitiveInt;
+
 	@Test
 	public void emptyListToArray() {
 		conversionService.addConverter(new CollectionToArrayConverter(conversionService));
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.metrics.RecordingApplicationStartup.RecordedStep;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link RecordingApplicationStartup}.
+ *
+ * @author agent
+ */
+public class RecordingApplicationStartupTests {
+
+	private final RecordingApplicationStartup applicationStartup = new RecordingApplicationStartup();
+
+
+	@Test
+	public void defaultStartupRecordsNothing() {
+		StartupStep step = ApplicationStartup.DEFAULT.start("test.step").tag("key", "value");
+		assertSame(step, ApplicationStartup.DEFAULT.start("other.step"));
+		assertTrue(step.getTags().isEmpty());
+		step.end();
+	}
+
+	@Test
+	public void nestedSteps() {
+		StartupStep outer = this.applicationStartup.start("test.outer");
+		StartupStep inner = this.applicationStartup.start("test.inner").tag("beanName", "foo");
+		inner.end();
+		StartupStep sibling = this.applicationStartup.start("test.inner").tag("beanName", "bar");
+		sibling.end();
+		outer.end();
+		StartupStep next = this.applicationStartup.start("test.next");
+		next.end();
+
+		List<RecordedStep> steps = this.applicationStartup.getRecordedSteps();
+		assertEquals(4, steps.size());
+		assertSame(inner, steps.get(0));
+		assertSame(outer, steps.get(2));
+		assertEquals(Long.valueOf(outer.getId()), inner.getParentId());
+		assertEquals(Long.valueOf(outer.getId()), sibling.getParentId());
+		assertNull(outer.getParentId());
+		assertNull(next.getParentId());
+		assertEquals("foo", inner.getTags().get("beanName"));
+		RecordedStep recordedOuter = steps.get(2);
+		assertTrue(recordedOuter.getDuration() >= steps.get(0).getDuration() + steps.get(1).getDuration());
+		assertEquals(recordedOuter.getDuration() - steps.get(0).getDuration() - steps.get(1).getDuration(),
+				recordedOuter.getSelfDuration());
+	}
+
+	@Test
+	public void unendedNestedStepIsDropped() {
+		StartupStep outer = this.applicationStartup.start("test.outer");
+		this.applicationStartup.start("test.failed");
+		outer.end();
+		StartupStep next = this.applicationStartup.start("test.next");
+		next.end();
+		assertNull(next.getParentId());
+		assertEquals(2, this.applicationStartup.getRecordedSteps().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void endTwice() {
+		StartupStep step = this.applicationStartup.start("test.step");
+		step.end();
+		step.end();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void tagAfterEnd() {
+		StartupStep step = this.applicationStartup.start("test.step");
+		step.end();
+		step.tag("key", "value");
+	}
+
+	@Test
+	public void writeTimeline() throws Exception {
+		StartupStep outer = this.applicationStartup.start("test.outer");
+		for (int i = 0; i < 2; i++) {
+			StartupStep inner = this.applicationStartup.start("test.inner").tag("bean name", "foo;bar");
+			Thread.sleep(2);
+			inner.end();
+		}
+		outer.end();
+
+		StringWriter writer = new StringWriter();
+		this.applicationStartup.writeTimeline(writer);
+		String[] lines = writer.toString().split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("test.outer;test.inner[bean_name=foo_bar] "));
+		assertTrue(Long.parseLong(lines[0].substring(lines[0].lastIndexOf(' ') + 1)) >= 4000);
+		assertTrue(lines[1].startsWith("test.outer "));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -594,4 +594,152 @@ public class AntPathMatcherTests {
 		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
 	}
 
+	@Test
+	public void compiledPatternMatchesLikeMatcher() {
+		RecordingPathMatcher recorder = new RecordingPathMatcher();
+		pathMatcher = recorder;
+		match();
+		withMatchStart();
+		assertCompiledPatternsMatchLikeMatcher(new AntPathMatcher(), recorder);
+	}
+
+	@Test
+	public void compiledPatternWithUniqueDeliminator() {
+		RecordingPathMatcher recorder = new RecordingPathMatcher();
+		pathMatcher = recorder;
+		uniqueDeliminator();
+		AntPathMatcher matcher = new AntPathMatcher();
+		matcher.setPathSeparator(".");
+		assertCompiledPatternsMatchLikeMatcher(matcher, recorder);
+	}
+
+	@Test
+	public void compiledPatternWithTrimTokensOff() {
+		pathMatcher.setTrimTokens(false);
+		assertTrue(pathMatcher.compile("/group/{groupName}/members").matches("/group/  sales/members"));
+		assertEquals("  sales", pathMatcher.compile("/group/{groupName}/members")
+				.extractUriTemplateVariables("/group/  sales/members").get("groupName"));
+
+		pathMatcher.setTrimTokens(true);
+		assertEquals("sales", pathMatcher.compile("/group/{groupName}/members")
+				.extractUriTemplateVariables("/group/  sales/members").get("groupName"));
+	}
+
+	@Test
+	public void compiledPatternExtractUriTemplateVariables() throws Exception {
+		RecordingPathMatcher recorder = new RecordingPathMatcher();
+		pathMatcher = recorder;
+		extractUriTemplateVariables();
+		extractUriTemplateVariablesRegex();
+		extractUriTemplateVarsRegexQualifiers();
+		AntPathMatcher matcher = new AntPathMatcher();
+		for (String[] pair : recorder.extracted) {
+			assertEquals(pair[0] + " / " + pair[1], matcher.extractUriTemplateVariables(pair[0], pair[1]),
+					matcher.compile(pair[0]).extractUriTemplateVariables(pair[1]));
+		}
+
+		Map<String, String> result = matcher.compile("/hotels/{hotel}.*").extractUriTemplateVariables("/hotels/1.html");
+		assertEquals(Collections.singletonMap("hotel", "1"), result);
+
+		try {
+			matcher.compile("/hotels/{hotel}").extractUriTemplateVariables("/bookings/1");
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void compiledPatternComparator() {
+		List<String> patterns = new ArrayList<String>();
+		patterns.add("/**");
+		patterns.add("/hotels/*");
+		patterns.add("/hotels/{hotel}");
+		patterns.add("/hotels/new");
+		patterns.add("/hotels/{hotel}/bookings/{booking}");
+		patterns.add("/hotels/**");
+		patterns.add("/hotels/new.*");
+		patterns.add("/hotel{hotel}");
+		patterns.add("/hotels/{hotel}.*");
+		patterns.add("/hotels/ne?");
+
+		for (String path : new String[] {"/hotels/new", "/hotels/1", "/hotels/new.html"}) {
+			Comparator<String> comparator = pathMatcher.getPatternComparator(path);
+			for (String pattern1 : patterns) {
+				for (String pattern2 : patterns) {
+					assertEquals(pattern1 + " vs " + pattern2, Integer.signum(comparator.compare(pattern1, pattern2)),
+							Integer.signum(pathMatcher.compile(pattern1).compareTo(pathMatcher.compile(pattern2), path)));
+				}
+			}
+		}
+
+		List<AntPathMatcher.CompiledPattern> compiledPatterns = new ArrayList<AntPathMatcher.CompiledPattern>();
+		compiledPatterns.add(pathMatcher.compile("/hotels/*"));
+		compiledPatterns.add(pathMatcher.compile("/hotels/{hotel}"));
+		compiledPatterns.add(pathMatcher.compile("/hotels/new"));
+		Collections.sort(compiledPatterns, pathMatcher.getCompiledPatternComparator("/hotels/new"));
+		assertEquals("/hotels/new", compiledPatterns.get(0).getPattern());
+		assertEquals("/hotels/{hotel}", compiledPatterns.get(1).getPattern());
+		assertEquals("/hotels/*", compiledPatterns.get(2).getPattern());
+	}
+
+	@Test
+	public void compiledPatternDelegatesToCustomMatcher() {
+		AntPathMatcher matcher = new AntPathMatcher() {
+			@Override
+			protected boolean doMatch(String pattern, String path, boolean fullMatch, Map<String, String> variables) {
+				return super.doMatch(pattern.toLowerCase(), path.toLowerCase(), fullMatch, variables);
+			}
+		};
+		AntPathMatcher.CompiledPattern pattern = matcher.compile("/Hotels/{hotel}");
+		assertTrue(pattern.matches("/HOTELS/1"));
+		assertTrue(pattern.matchStart("/HOTELS"));
+		assertEquals(Collections.singletonMap("hotel", "1"), pattern.extractUriTemplateVariables("/HOTELS/1"));
+	}
+
+	private void assertCompiledPatternsMatchLikeMatcher(AntPathMatcher matcher, RecordingPathMatcher recorder) {
+		assertFalse(recorder.matched.isEmpty());
+		for (String[] pair : recorder.matched) {
+			assertEquals("match " + pair[0] + " / " + pair[1],
+					matcher.match(pair[0], pair[1]), matcher.compile(pair[0]).matches(pair[1]));
+		}
+		for (String[] pair : recorder.matchedStart) {
+			assertEquals("matchStart " + pair[0] + " / " + pair[1],
+					matcher.matchStart(pair[0], pair[1]), matcher.compile(pair[0]).matchStart(pair[1]));
+		}
+	}
+
+
+	/**
+	 * Records the patterns and paths it is asked to match, for replaying them
+	 * against compiled patterns.
+	 */
+	private static class RecordingPathMatcher extends AntPathMatcher {
+
+		private final List<String[]> matched = new ArrayList<String[]>();
+
+		private final List<String[]> matchedStart = new ArrayList<String[]>();
+
+		private final List<String[]> extracted = new ArrayList<String[]>();
+
+		@Override
+		public boolean match(String pattern, String path) {
+			this.matched.add(new String[] {pattern, path});
+			return super.match(pattern, path);
+		}
+
+		@Override
+		public boolean matchStart(String pattern, String path) {
+			this.matchedStart.add(new String[] {pattern, path});
+			return super.matchStart(pattern, path);
+		}
+
+		@Override
+		public Map<String, String> extractUriTemplateVariables(String pattern, String path) {
+			this.extracted.add(new String[] {pattern, path});
+			return super.extractUriTemplateVariables(pattern, path);
+		}
+	}
+
 }
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * Records intermediate compilation state as the bytecode is generated for a parsed
+ * expression. Also contains various bytecode generation helper functions.
+ *
+ * <p>Type descriptors used throughout are standard JVM descriptors, e.g. {@code I}
+ * for a primitive int or {@code Ljava/lang/String;} for a String.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+public class CodeFlow implements Opcodes {
+
+	/** Descriptor for {@code java.lang.Object} */
+	public static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+	/** Descriptor for {@code java.lang.Boolean} */
+	public static final String BOOLEAN_DESCRIPTOR = "Ljava/lang/Boolean;";
+
+
+	/**
+	 * Record the type of what is on top of the bytecode stack (i.e. the type of the
+	 * output from the previous expression component). New scopes are used to evaluate
+	 * sub-expressions like the expressions for the argument values in a method invocation
+	 * expression, which are evaluated against the root object again.
+	 */
+	private final LinkedList<List<String>> compilationScopes = new LinkedList<List<String>>();
+
+
+	public CodeFlow() {
+		this.compilationScopes.push(new ArrayList<String>());
+	}
+
+
+	/**
+	 * Push the byte code to load the target (i.e. what was passed as the first argument
+	 * to CompiledExpression.getValue(target, context))
+	 * @param mv the visitor into which the load instruction should be inserted
+	 */
+	public void loadTarget(MethodVisitor mv) {
+		mv.visitVarInsn(ALOAD, 1);
+	}
+
+	/**
+	 * Push the byte code to load the EvaluationContext (i.e. what was passed as the
+	 * second argument to CompiledExpression.getValue(target, context))
+	 * @param mv the visitor into which the load instruction should be inserted
+	 */
+	public void loadEvaluationContext(MethodVisitor mv) {
+		mv.visitVarInsn(ALOAD, 2);
+	}
+
+	/**
+	 * Record the descriptor for the most recently evaluated expression element.
+	 * @param descriptor type descriptor for most recently evaluated element
+	 */
+	public void pushDescriptor(String descriptor) {
+		if (descriptor == null) {
+			throw new IllegalStateException("Cannot record a null descriptor");
+		}
+		this.compilationScopes.peek().add(descriptor);
+	}
+
+	/**
+	 * Enter a new compilation scope, usually due to a nested expression being evaluated.
+	 * For example, the arguments for a method invocation expression are evaluated within
+	 * a new scope.
+	 */
+	public void enterCompilationScope() {
+		this.compilationScopes.push(new ArrayList<String>());
+	}
+
+	/**
+	 * Exit a compilation scope, usually after a nested expression has been evaluated.
+	 * For example, after an argument for a method invocation has been evaluated this
+	 * method returns us to the previous (outer) scope.
+	 */
+	public void exitCompilationScope() {
+		this.compilationScopes.pop();
+	}
+
+	/**
+	 * Return the descriptor for the item currently on top of the stack (in the current scope),
+	 * or {@code null} if nothing has been evaluated in the current scope yet.
+	 */
+	public String lastDescriptor() {
+		List<String> scope = this.compilationScopes.peek();
+		if (scope.isEmpty()) {
+			return null;
+		}
+		return scope.get(scope.size() - 1);
+	}
+
+	/**
+	 * Pop the value described by the given descriptor off the stack, taking into
+	 * account that longs and doubles occupy two stack slots.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param descriptor the descriptor of the value on top of the stack
+	 */
+	public static void insertPop(MethodVisitor mv, String descriptor) {
+		if ("J".equals(descriptor) || "D".equals(descriptor)) {
+			mv.visitInsn(POP2);
+		}
+		else {
+			mv.visitInsn(POP);
+		}
+	}
+
+	/**
+	 * Insert the optimal instruction for loading an int constant onto the stack.
+	 * @param mv the visitor into which the load instruction should be inserted
+	 * @param value the int value to load
+	 */
+	public static void insertOptimalLoad(MethodVisitor mv, int value) {
+		if (value >= -1 && value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		}
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		}
+		else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		}
+		else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	/**
+	 * Determine the descriptor for the specified type. Primitive types map to their
+	 * single character descriptors, e.g. {@code int} to {@code I}.
+	 * @param type the type (may be primitive) for which to determine the descriptor
+	 * @return the JVM type descriptor
+	 */
+	public static String toDescriptor(Class<?> type) {
+		return Type.getDescriptor(type);
+	}
+
+	/**
+	 * Determine the descriptor for an object instance, used for values that are only
+	 * known at runtime (such as variables). If the runtime class of the value is not
+	 * public, the nearest public superclass is used since generated code would not be
+	 * able to refer to it otherwise.
+	 * @param value an object (possibly {@code null})
+	 * @return the type descriptor for the object (descriptor {@code Ljava/lang/Object;}
+	 * for {@code null} values)
+	 */
+	public static String toDescriptorFromObject(Object value) {
+		if (value == null) {
+			return OBJECT_DESCRIPTOR;
+		}
+		Class<?> type = value.getClass();
+		while (!Modifier.isPublic(type.getModifiers())) {
+			type = type.getSuperclass();
+		}
+		return toDescriptor(type);
+	}
+
+	/**
+	 * Determine whether the given descriptor is for a primitive type.
+	 * @param descriptor a type descriptor
+	 * @return {@code true} if the descriptor describes a primitive type (or void)
+	 */
+	public static boolean isPrimitive(String descriptor) {
+		return (descriptor != null && descriptor.length() == 1);
+	}
+
+	/**
+	 * Determine whether the given descriptor is for a boolean or a {@code Boolean}.
+	 * @param descriptor a type descriptor
+	 * @return {@code true} if the descriptor describes a boolean value
+	 */
+	public static boolean isBooleanCompatible(String descriptor) {
+		return ("Z".equals(descriptor) || BOOLEAN_DESCRIPTOR.equals(descriptor));
+	}
+
+	/**
+	 * Determine the numeric kind of the specified descriptor, accepting both primitive
+	 * and boxed descriptors: 'I' for int, 'J' for long, 'F' for float and 'D' for double.
+	 * @param descriptor a type descriptor
+	 * @return the numeric kind, or {@code 0} if the descriptor does not describe
+	 * one of the supported numeric types
+	 */
+	public static char toNumericKind(String descriptor) {
+		if (descriptor == null) {
+			return 0;
+		}
+		if (descriptor.equals("I") || descriptor.equals("Ljava/lang/Integer;")) {
+			return 'I';
+		}
+		if (descriptor.equals("J") || descriptor.equals("Ljava/lang/Long;")) {
+			return 'J';
+		}
+		if (descriptor.equals("F") || descriptor.equals("Ljava/lang/Float;")) {
+			return 'F';
+		}
+		if (descriptor.equals("D") || descriptor.equals("Ljava/lang/Double;")) {
+			return 'D';
+		}
+		return 0;
+	}
+
+	/**
+	 * Determine whether the given descriptor is for a supported numeric type
+	 * (int, long, float or double, primitive or boxed).
+	 * @param descriptor a type descriptor
+	 * @return {@code true} if {@link #toNumericKind} recognizes the descriptor
+	 */
+	public static boolean isNumeric(String descriptor) {
+		return (toNumericKind(descriptor) != 0);
+	}
+
+	/**
+	 * Determine the numeric kind both operands of a binary numeric operation get promoted
+	 * to, following the same rules as the interpreted operators: double wins over float,
+	 * float over long, and long over int.
+	 * @param leftKind the numeric kind of the left operand
+	 * @param rightKind the numeric kind of the right operand
+	 * @return the promoted numeric kind
+	 */
+	public static char promoteNumericKinds(char leftKind, char rightKind) {
+		if (leftKind == 'D' || rightKind == 'D') {
+			return 'D';
+		}
+		if (leftKind == 'F' || rightKind == 'F') {
+			return 'F';
+		}
+		if (leftKind == 'J' || rightKind == 'J') {
+			return 'J';
+		}
+		return 'I';
+	}
+
+	/**
+	 * Insert the instructions required to turn the value on top of the stack (described
+	 * by the given descriptor) into a primitive of the given numeric kind. Boxed values are
+	 * unboxed first, then widening primitive conversion is applied where necessary.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param stackDescriptor the descriptor of the value currently on top of the stack
+	 * @param targetKind the numeric kind ('I', 'J', 'F' or 'D') required
+	 * @throws IllegalStateException if the value cannot be converted
+	 */
+	public static void insertNumericConversion(MethodVisitor mv, String stackDescriptor, char targetKind) {
+		char stackKind = toNumericKind(stackDescriptor);
+		if (stackKind == 0) {
+			throw new IllegalStateException("Cannot convert " + stackDescriptor + " to numeric kind " + targetKind);
+		}
+		if (!isPrimitive(stackDescriptor)) {
+			insertUnboxInsns(mv, stackKind, stackDescriptor);
+		}
+		if (stackKind == targetKind) {
+			return;
+		}
+		switch (stackKind) {
+			case 'I':
+				if (targetKind == 'J') {
+					mv.visitInsn(I2L);
+				}
+				else if (targetKind == 'F') {
+					mv.visitInsn(I2F);
+				}
+				else if (targetKind == 'D') {
+					mv.visitInsn(I2D);
+				}
+				return;
+			case 'J':
+				if (targetKind == 'F') {
+					mv.visitInsn(L2F);
+				}
+				else if (targetKind == 'D') {
+					mv.visitInsn(L2D);
+				}
+				else {
+					break;
+				}
+				return;
+			case 'F':
+				if (targetKind == 'D') {
+					mv.visitInsn(F2D);
+					return;
+				}
+				break;
+		}
+		throw new IllegalStateException("Cannot narrow numeric kind " + stackKind + " to " + targetKind);
+	}
+
+	/**
+	 * Insert the appropriate CHECKCAST and unboxing call for the given primitive kind
+	 * if the value on top of the stack is a boxed value.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param kind the primitive kind to unbox to ('Z', 'I', 'J', 'F', 'D', 'S', 'B' or 'C')
+	 * @param stackDescriptor the descriptor of the value currently on top of the stack
+	 */
+	public static void insertUnboxInsns(MethodVisitor mv, char kind, String stackDescriptor) {
+		if (isPrimitive(stackDescriptor)) {
+			if (stackDescriptor.charAt(0) != kind) {
+				throw new IllegalStateException("Cannot unbox " + stackDescriptor + " to " + kind);
+			}
+			return;
+		}
+		String boxType = toBoxedInternalName(kind);
+		if (!("L" + boxType + ";").equals(stackDescriptor)) {
+			mv.visitTypeInsn(CHECKCAST, boxType);
+		}
+		String unboxMethod;
+		switch (kind) {
+			case 'Z':
+				unboxMethod = "booleanValue";
+				break;
+			case 'I':
+				unboxMethod = "intValue";
+				break;
+			case 'J':
+				unboxMethod = "longValue";
+				break;
+			case 'F':
+				unboxMethod = "floatValue";
+				break;
+			case 'D':
+				unboxMethod = "doubleValue";
+				break;
+			case 'S':
+				unboxMethod = "shortValue";
+				break;
+			case 'B':
+				unboxMethod = "byteValue";
+				break;
+			case 'C':
+				unboxMethod = "charValue";
+				break;
+			default:
+				throw new IllegalArgumentException("Unboxing should not be attempted for descriptor '" + kind + "'");
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, boxType, unboxMethod, "()" + kind);
+	}
+
+	/**
+	 * Box the value on top of the stack if it is a primitive, using the
+	 * {@code valueOf} method of the corresponding wrapper type.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param descriptor the descriptor of the value currently on top of the stack
+	 * @return the descriptor of the value on top of the stack after boxing
+	 */
+	public static String insertBoxIfNecessary(MethodVisitor mv, String descriptor) {
+		if (!isPrimitive(descriptor) || "V".equals(descriptor)) {
+			return descriptor;
+		}
+		char kind = descriptor.charAt(0);
+		String boxType = toBoxedInternalName(kind);
+		mv.visitMethodInsn(INVOKESTATIC, boxType, "valueOf", "(" + kind + ")L" + boxType + ";");
+		return "L" + boxType + ";";
+	}
+
+	/**
+	 * Determine the descriptor of the wrapper type for the given descriptor,
+	 * without inserting any instructions.
+	 * @param descriptor a type descriptor
+	 * @return the descriptor of the corresponding wrapper type if the given descriptor
+	 * describes a primitive, otherwise the given descriptor itself
+	 */
+	public static String toBoxedDescriptor(String descriptor) {
+		if (!isPrimitive(descriptor) || "V".equals(descriptor)) {
+			return descriptor;
+		}
+		return "L" + toBoxedInternalName(descriptor.charAt(0)) + ";";
+	}
+
+	/**
+	 * Insert the instructions required to use the value on top of the stack (described
+	 * by the given descriptor) where a value of the required type is expected, boxing,
+	 * unboxing or casting as necessary.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param stackDescriptor the descriptor of the value currently on top of the stack
+	 * @param requiredDescriptor the descriptor of the type required by the consumer of the value
+	 */
+	public static void insertConversionTo(MethodVisitor mv, String stackDescriptor, String requiredDescriptor) {
+		if (requiredDescriptor.equals(stackDescriptor)) {
+			return;
+		}
+		if (isPrimitive(requiredDescriptor)) {
+			insertUnboxInsns(mv, requiredDescriptor.charAt(0), stackDescriptor);
+		}
+		else {
+			String boxedDescriptor = insertBoxIfNecessary(mv, stackDescriptor);
+			if (!requiredDescriptor.equals(boxedDescriptor)) {
+				insertCheckCast(mv, requiredDescriptor);
+			}
+		}
+	}
+
+	/**
+	 * Insert a CHECKCAST to the type described by the given descriptor, unless the
+	 * descriptor describes {@code java.lang.Object} or a primitive type.
+	 * @param mv the visitor into which new instructions should be inserted
+	 * @param descriptor the descriptor of the type to cast to
+	 */
+	public static void insertCheckCast(MethodVisitor mv, String descriptor) {
+		if (!isPrimitive(descriptor) && !OBJECT_DESCRIPTOR.equals(descriptor)) {
+			mv.visitTypeInsn(CHECKCAST, Type.getType(descriptor).getInternalName());
+		}
+	}
+
+	private static String toBoxedInternalName(char kind) {
+		switch (kind) {
+			case 'Z':
+				return "java/lang/Boolean";
+			case 'I':
+				return "java/lang/Integer";
+			case 'J':
+				return "java/lang/Long";
+			case 'F':
+				return "java/lang/Float";
+			case 'D':
+				return "java/lang/Double";
+			case 'S':
+				return "java/lang/Short";
+			case 'B':
+				return "java/lang/Byte";
+			case 'C':
+				return "java/lang/Character";
+			default:
+				throw new IllegalArgumentException("No boxed type for descriptor '" + kind + "'");
+		}
+	}
+
+}
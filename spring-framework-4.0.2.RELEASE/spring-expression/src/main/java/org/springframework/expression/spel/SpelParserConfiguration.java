@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,16 +16,40 @@
 
 package org.springframework.expression.spel;
 
+import org.springframework.core.SpringProperties;
+
 /**
  * Configuration object for the SpEL expression parser.
  *
  * @author Juergen Hoeller
  * @author Phillip Webb
+ * @author agent
  * @since 3.0
  * @see org.springframework.expression.spel.standard.SpelExpressionParser#SpelExpressionParser(SpelParserConfiguration)
  */
 public class SpelParserConfiguration {
 
+	/**
+	 * System property that instructs Spring to use the given {@link SpelCompilerMode}
+	 * for expressions parsed without an explicitly specified compiler mode:
+	 * "off", "immediate" or "mixed" (case insensitive).
+	 * <p>The default is "off", i.e. expressions are always interpreted.
+	 */
+	public static final String SPRING_EXPRESSION_COMPILER_MODE_PROPERTY_NAME = "spring.expression.compiler.mode";
+
+	private static final SpelCompilerMode defaultCompilerMode;
+
+	static {
+		String compilerMode = SpringProperties.getProperty(SPRING_EXPRESSION_COMPILER_MODE_PROPERTY_NAME);
+		defaultCompilerMode = (compilerMode != null ?
+				SpelCompilerMode.valueOf(compilerMode.trim().toUpperCase()) : SpelCompilerMode.OFF);
+	}
+
+
+	private final SpelCompilerMode compilerMode;
+
+	private final ClassLoader compilerClassLoader;
+
 	private final boolean autoGrowNullReferences;
 
 	private final boolean autoGrowCollections;
@@ -40,7 +64,7 @@ public class SpelParserConfiguration {
 	 * @see #SpelParserConfiguration(boolean, boolean, int)
 	 */
 	public SpelParserConfiguration(boolean autoGrowNullReferences, boolean autoGrowCollections) {
-		this(autoGrowNullReferences, autoGrowCollections, Integer.MAX_VALUE);
+		this(null, null, autoGrowNullReferences, autoGrowCollections, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -50,12 +74,59 @@ public class SpelParserConfiguration {
 	 * @param maximumAutoGrowSize the maximum size that the collection can auto grow
 	 */
 	public SpelParserConfiguration(boolean autoGrowNullReferences, boolean autoGrowCollections, int maximumAutoGrowSize) {
+		this(null, null, autoGrowNullReferences, autoGrowCollections, maximumAutoGrowSize);
+	}
+
+	/**
+	 * Create a new {@link SpelParserConfiguration} instance.
+	 * @param compilerMode the compiler mode for the parser
+	 * @param compilerClassLoader the ClassLoader to use as the basis for expression compilation
+	 * @since 4.0.3
+	 */
+	public SpelParserConfiguration(SpelCompilerMode compilerMode, ClassLoader compilerClassLoader) {
+		this(compilerMode, compilerClassLoader, false, false, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Create a new {@link SpelParserConfiguration} instance.
+	 * @param compilerMode the compiler mode that parsers using this configuration object should use
+	 * (or {@code null} for the default mode as specified through the
+	 * {@link #SPRING_EXPRESSION_COMPILER_MODE_PROPERTY_NAME} property)
+	 * @param compilerClassLoader the ClassLoader to use as the basis for expression compilation
+	 * (or {@code null} for the default ClassLoader)
+	 * @param autoGrowNullReferences if null references should automatically grow
+	 * @param autoGrowCollections if collections should automatically grow
+	 * @param maximumAutoGrowSize the maximum size that the collection can auto grow
+	 * @since 4.0.3
+	 */
+	public SpelParserConfiguration(SpelCompilerMode compilerMode, ClassLoader compilerClassLoader,
+			boolean autoGrowNullReferences, boolean autoGrowCollections, int maximumAutoGrowSize) {
+
+		this.compilerMode = (compilerMode != null ? compilerMode : defaultCompilerMode);
+		this.compilerClassLoader = compilerClassLoader;
 		this.autoGrowNullReferences = autoGrowNullReferences;
 		this.autoGrowCollections = autoGrowCollections;
 		this.maximumAutoGrowSize = maximumAutoGrowSize;
 	}
 
 
+	/**
+	 * @return the configuration mode for parsers using this configuration object
+	 * @since 4.0.3
+	 */
+	public SpelCompilerMode getCompilerMode() {
+		return this.compilerMode;
+	}
+
+	/**
+	 * @return the ClassLoader to use as the basis for expression compilation
+	 * (may be {@code null}, indicating the default ClassLoader)
+	 * @since 4.0.3
+	 */
+	public ClassLoader getCompilerClassLoader() {
+		return this.compilerClassLoader;
+	}
+
 	/**
 	 * @return {@code true} if {@code null} references should be automatically grown
 	 */
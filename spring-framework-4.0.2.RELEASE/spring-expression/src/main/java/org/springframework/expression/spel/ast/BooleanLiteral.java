@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,8 @@
  */
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.support.BooleanTypedValue;
 
 /**
@@ -31,6 +33,7 @@ public class BooleanLiteral extends Literal {
 	public BooleanLiteral(String payload, int pos, boolean value) {
 		super(payload, pos);
 		this.value = BooleanTypedValue.forValue(value);
+		this.exitTypeDescriptor = "Z";
 	}
 
 
@@ -39,4 +42,15 @@ public class BooleanLiteral extends Literal {
 		return this.value;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		mv.visitInsn(this.value == BooleanTypedValue.TRUE ? ICONST_1 : ICONST_0);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
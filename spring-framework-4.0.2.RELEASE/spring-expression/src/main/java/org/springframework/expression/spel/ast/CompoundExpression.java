@@ -16,8 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 
@@ -106,4 +108,27 @@ public class CompoundExpression extends SpelNodeImpl {
 		return sb.toString();
 	}
 
+	@Override
+	public boolean isCompilable() {
+		for (SpelNodeImpl child : this.children) {
+			if (!child.isCompilable()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		// Each component leaves its value on the stack as the target for the next one
+		for (SpelNodeImpl child : this.children) {
+			child.generateCode(mv, cf);
+		}
+	}
+
+	@Override
+	public String getExitDescriptor() {
+		return this.children[this.children.length - 1].getExitDescriptor();
+	}
+
 }
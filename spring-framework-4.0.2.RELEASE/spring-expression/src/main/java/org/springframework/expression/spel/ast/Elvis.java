@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,11 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 
 /**
@@ -53,6 +56,53 @@ public class Elvis extends SpelNodeImpl {
 		}
 	}
 
+	@Override
+	public String getExitDescriptor() {
+		String leftDescriptor = this.children[0].getExitDescriptor();
+		String rightDescriptor = this.children[1].getExitDescriptor();
+		if (leftDescriptor == null || rightDescriptor == null) {
+			return null;
+		}
+		if (CodeFlow.isPrimitive(leftDescriptor) ||
+				leftDescriptor.equals(CodeFlow.toBoxedDescriptor(rightDescriptor))) {
+			return leftDescriptor;
+		}
+		return CodeFlow.OBJECT_DESCRIPTOR;
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return (this.children[0].isCompilable() && this.children[1].isCompilable() &&
+				getExitDescriptor() != null);
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		String exitDescriptor = getExitDescriptor();
+		String leftDescriptor = generateCodeInNewScope(this.children[0], mv, cf);
+		if (CodeFlow.isPrimitive(leftDescriptor)) {
+			// A primitive value can never be null, so the right operand is not needed
+			cf.pushDescriptor(leftDescriptor);
+			return;
+		}
+		Label elseTarget = new Label();
+		Label endOfIf = new Label();
+		mv.visitInsn(DUP);
+		mv.visitJumpInsn(IFNULL, elseTarget);
+		mv.visitInsn(DUP);
+		mv.visitTypeInsn(INSTANCEOF, "java/lang/String");
+		mv.visitJumpInsn(IFEQ, endOfIf);
+		mv.visitInsn(DUP);
+		mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "length", "()I");
+		mv.visitJumpInsn(IFNE, endOfIf);
+		mv.visitLabel(elseTarget);
+		mv.visitInsn(POP);
+		CodeFlow.insertConversionTo(mv, generateCodeInNewScope(this.children[1], mv, cf), exitDescriptor);
+		mv.visitLabel(endOfIf);
+		cf.pushDescriptor(exitDescriptor);
+	}
+
 	@Override
 	public String toStringAST() {
 		return new StringBuilder().append(getChild(0).toStringAST()).append(" ?: ").append(
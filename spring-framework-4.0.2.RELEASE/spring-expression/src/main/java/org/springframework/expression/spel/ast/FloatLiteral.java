@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Expression language AST node that represents a float literal.
@@ -31,6 +33,7 @@ public class FloatLiteral extends Literal {
 	FloatLiteral(String payload, int pos, float value) {
 		super(payload, pos);
 		this.value = new TypedValue(value);
+		this.exitTypeDescriptor = "F";
 	}
 
 
@@ -38,4 +41,22 @@ public class FloatLiteral extends Literal {
 	public TypedValue getLiteralValue() {
 		return this.value;
 	}
+
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		float floatValue = (Float) this.value.getValue();
+		if (floatValue == 0f || floatValue == 1f || floatValue == 2f) {
+			mv.visitInsn(FCONST_0 + (int) floatValue);
+		}
+		else {
+			mv.visitLdcInsn(floatValue);
+		}
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,7 +15,9 @@
  */
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Expression language AST node that represents an integer literal.
@@ -31,6 +33,7 @@ public class IntLiteral extends Literal {
 	IntLiteral(String payload, int pos, int value) {
 		super(payload, pos);
 		this.value = new TypedValue(value);
+		this.exitTypeDescriptor = "I";
 	}
 
 
@@ -39,4 +42,15 @@ public class IntLiteral extends Literal {
 		return this.value;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		CodeFlow.insertOptimalLoad(mv, (Integer) this.value.getValue());
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Expression language AST node that represents a long integer literal.
@@ -32,6 +34,7 @@ public class LongLiteral extends Literal {
 	LongLiteral(String payload, int pos, long value) {
 		super(payload, pos);
 		this.value = new TypedValue(value);
+		this.exitTypeDescriptor = "J";
 	}
 
 
@@ -40,4 +43,21 @@ public class LongLiteral extends Literal {
 		return this.value;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		long longValue = (Long) this.value.getValue();
+		if (longValue == 0L || longValue == 1L) {
+			mv.visitInsn(LCONST_0 + (int) longValue);
+		}
+		else {
+			mv.visitLdcInsn(longValue);
+		}
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,10 +17,14 @@
 package org.springframework.expression.spel.ast;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
@@ -29,9 +33,11 @@ import org.springframework.expression.ExpressionInvocationTargetException;
 import org.springframework.expression.MethodExecutor;
 import org.springframework.expression.MethodResolver;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 import org.springframework.expression.spel.support.ReflectiveMethodResolver;
 
 /**
@@ -92,7 +98,9 @@ public class MethodReference extends SpelNodeImpl {
 		MethodExecutor executorToUse = getCachedExecutor(evaluationContext, value, targetType, argumentTypes);
 		if (executorToUse != null) {
 			try {
-				return executorToUse.execute(evaluationContext, value, arguments);
+				TypedValue result = executorToUse.execute(evaluationContext, value, arguments);
+				updateExitTypeDescriptor(executorToUse);
+				return result;
 			}
 			catch (AccessException ae) {
 				// Two reasons this can occur:
@@ -119,7 +127,9 @@ public class MethodReference extends SpelNodeImpl {
 		this.cachedExecutor = new CachedMethodExecutor(
 				executorToUse, (value instanceof Class ? (Class<?>) value : null), targetType, argumentTypes);
 		try {
-			return executorToUse.execute(evaluationContext, value, arguments);
+			TypedValue result = executorToUse.execute(evaluationContext, value, arguments);
+			updateExitTypeDescriptor(executorToUse);
+			return result;
 		}
 		catch (AccessException ex) {
 			// Same unwrapping exception handling as above in above catch block
@@ -205,6 +215,13 @@ public class MethodReference extends SpelNodeImpl {
 						targetObject instanceof Class ? ((Class<?>) targetObject) : targetObject.getClass()));
 	}
 
+	private void updateExitTypeDescriptor(MethodExecutor executor) {
+		if (executor instanceof ReflectiveMethodExecutor) {
+			Method method = ((ReflectiveMethodExecutor) executor).getMethod();
+			this.exitTypeDescriptor = CodeFlow.toDescriptor(method.getReturnType());
+		}
+	}
+
 	/**
 	 * Decode the AccessException, throwing a lightweight evaluation exception or, if the
 	 * cause was a RuntimeException, throw the RuntimeException directly.
@@ -235,6 +252,82 @@ public class MethodReference extends SpelNodeImpl {
 		return sb.toString();
 	}
 
+	/**
+	 * A method reference is compilable if it has been resolved to a reflectively
+	 * accessible public method, no argument conversion was necessary on the most
+	 * recent invocation, and all the argument expressions are compilable too.
+	 */
+	@Override
+	public boolean isCompilable() {
+		if (this.nullSafe) {
+			return false;
+		}
+		Method method = getCompilableMethod();
+		if (method == null || method.isVarArgs() || !Modifier.isPublic(method.getModifiers()) ||
+				!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!parameterType.isPrimitive() && !Modifier.isPublic(parameterType.getModifiers())) {
+				return false;
+			}
+		}
+		for (SpelNodeImpl child : this.children) {
+			if (!child.isCompilable()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		Method method = getCompilableMethod();
+		if (method == null) {
+			throw new IllegalStateException("No compilable method resolved for " + toStringAST());
+		}
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		String descriptor = cf.lastDescriptor();
+		String declaringClass = Type.getInternalName(method.getDeclaringClass());
+		if (!isStatic) {
+			if (descriptor == null) {
+				cf.loadTarget(mv);
+			}
+			else {
+				descriptor = CodeFlow.insertBoxIfNecessary(mv, descriptor);
+			}
+			if (descriptor == null || !descriptor.equals("L" + declaringClass + ";")) {
+				mv.visitTypeInsn(CHECKCAST, declaringClass);
+			}
+		}
+		else if (descriptor != null) {
+			// A static method does not need the target object on the stack
+			CodeFlow.insertPop(mv, descriptor);
+		}
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			// Arguments are evaluated against the root object, hence the new scope
+			String argumentDescriptor = generateCodeInNewScope(this.children[i], mv, cf);
+			CodeFlow.insertConversionTo(mv, argumentDescriptor, CodeFlow.toDescriptor(parameterTypes[i]));
+		}
+		int opcode = (isStatic ? INVOKESTATIC :
+				method.getDeclaringClass().isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL);
+		mv.visitMethodInsn(opcode, declaringClass, method.getName(), Type.getMethodDescriptor(method));
+		cf.pushDescriptor(CodeFlow.toDescriptor(method.getReturnType()));
+	}
+
+	private Method getCompilableMethod() {
+		CachedMethodExecutor executorToCheck = this.cachedExecutor;
+		if (executorToCheck == null || !(executorToCheck.get() instanceof ReflectiveMethodExecutor)) {
+			return null;
+		}
+		ReflectiveMethodExecutor executor = (ReflectiveMethodExecutor) executorToCheck.get();
+		if (executor.didArgumentConversionOccur()) {
+			return null;
+		}
+		return executor.getMethod();
+	}
+
 
 	private class MethodValueRef implements ValueRef {
 
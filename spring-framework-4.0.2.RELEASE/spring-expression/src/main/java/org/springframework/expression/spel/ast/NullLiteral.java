@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Expression language AST node that represents null.
@@ -28,6 +30,7 @@ public class NullLiteral extends Literal {
 
 	public NullLiteral(int pos) {
 		super(null,pos);
+		this.exitTypeDescriptor = CodeFlow.OBJECT_DESCRIPTOR;
 	}
 
 
@@ -41,4 +44,15 @@ public class NullLiteral extends Literal {
 		return "null";
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		mv.visitInsn(ACONST_NULL);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,11 @@ package org.springframework.expression.spel.ast;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Operation;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.util.NumberUtils;
 
@@ -74,4 +76,20 @@ public class OpDivide extends Operator {
 		return state.operate(Operation.DIVIDE, leftOperand, rightOperand);
 	}
 
+	@Override
+	public String getExitDescriptor() {
+		char kind = getPromotedNumericKind();
+		return (kind != 0 ? String.valueOf(kind) : null);
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return isCompilableOperatorUsingNumerics();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		generateArithmeticCode(mv, cf, IDIV);
+	}
+
 }
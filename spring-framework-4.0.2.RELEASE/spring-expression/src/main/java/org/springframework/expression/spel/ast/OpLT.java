@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,9 @@ package org.springframework.expression.spel.ast;
 
 import java.math.BigDecimal;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.support.BooleanTypedValue;
 import org.springframework.util.NumberUtils;
@@ -35,6 +37,7 @@ public class OpLT extends Operator {
 
 	public OpLT(int pos, SpelNodeImpl... operands) {
 		super("<", pos, operands);
+		this.exitTypeDescriptor = "Z";
 	}
 
 
@@ -71,4 +74,14 @@ public class OpLT extends Operator {
 		return BooleanTypedValue.forValue(state.getTypeComparator().compare(left, right) < 0);
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return isCompilableOperatorUsingNumerics();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		generateComparisonCode(mv, cf, getPromotedNumericKind(), IFGE, IF_ICMPGE);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,9 +18,11 @@ package org.springframework.expression.spel.ast;
 
 import java.math.BigDecimal;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Operation;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.util.NumberUtils;
 
@@ -123,6 +125,32 @@ public class OpMinus extends Operator {
 		return state.operate(Operation.SUBTRACT, left, right);
 	}
 
+	@Override
+	public String getExitDescriptor() {
+		char kind = getPromotedNumericKind();
+		return (kind != 0 ? String.valueOf(kind) : null);
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return isCompilableOperatorUsingNumerics();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		if (getRightOperand() == null) {
+			// Unary minus is implemented as 0 - operand, like the interpreted variant
+			char kind = getPromotedNumericKind();
+			insertZero(mv, kind);
+			generateNumericOperand(getLeftOperand(), kind, mv, cf);
+			mv.visitInsn(ISUB + opcodeOffset(kind));
+			cf.pushDescriptor(String.valueOf(kind));
+		}
+		else {
+			generateArithmeticCode(mv, cf, ISUB);
+		}
+	}
+
 	@Override
 	public String toStringAST() {
 		if (getRightOperand() == null) { // unary minus
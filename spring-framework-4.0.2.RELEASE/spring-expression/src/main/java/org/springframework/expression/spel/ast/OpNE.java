@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.support.BooleanTypedValue;
 
@@ -31,6 +33,7 @@ public class OpNE extends Operator {
 
 	public OpNE(int pos, SpelNodeImpl... operands) {
 		super("!=", pos, operands);
+		this.exitTypeDescriptor = "Z";
 	}
 
 
@@ -41,4 +44,14 @@ public class OpNE extends Operator {
 		return BooleanTypedValue.forValue(!equalityCheck(state, left, right));
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return isCompilableEqualityCheck();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		generateEqualityCheckCode(mv, cf, false);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -34,6 +37,7 @@ public class OpOr extends Operator {
 
 	public OpOr(int pos, SpelNodeImpl... operands) {
 		super("or", pos, operands);
+		this.exitTypeDescriptor = "Z";
 	}
 
 
@@ -46,6 +50,30 @@ public class OpOr extends Operator {
 		return BooleanTypedValue.forValue(getBooleanValue(state, getRightOperand()));
 	}
 
+	@Override
+	public boolean isCompilable() {
+		SpelNodeImpl left = getLeftOperand();
+		SpelNodeImpl right = getRightOperand();
+		return (left.isCompilable() && right.isCompilable() &&
+				CodeFlow.isBooleanCompatible(left.getExitDescriptor()) &&
+				CodeFlow.isBooleanCompatible(right.getExitDescriptor()));
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		// Only evaluate the right operand if the left one does not determine the result
+		Label shortCircuit = new Label();
+		Label endOfIf = new Label();
+		CodeFlow.insertUnboxInsns(mv, 'Z', generateCodeInNewScope(getLeftOperand(), mv, cf));
+		mv.visitJumpInsn(IFNE, shortCircuit);
+		CodeFlow.insertUnboxInsns(mv, 'Z', generateCodeInNewScope(getRightOperand(), mv, cf));
+		mv.visitJumpInsn(GOTO, endOfIf);
+		mv.visitLabel(shortCircuit);
+		mv.visitInsn(ICONST_1);
+		mv.visitLabel(endOfIf);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 	private boolean getBooleanValue(ExpressionState state, SpelNodeImpl operand) {
 		try {
 			Boolean value = operand.getValue(state, Boolean.class);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,10 +19,12 @@ package org.springframework.expression.spel.ast;
 import java.math.BigDecimal;
 
 import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Operation;
 import org.springframework.expression.TypeConverter;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.util.Assert;
 import org.springframework.util.NumberUtils;
@@ -127,6 +129,30 @@ public class OpPlus extends Operator {
 		return state.operate(Operation.ADD, leftOperand, rightOperand);
 	}
 
+	@Override
+	public String getExitDescriptor() {
+		char kind = getPromotedNumericKind();
+		return (kind != 0 ? String.valueOf(kind) : null);
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return isCompilableOperatorUsingNumerics();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		if (getRightOperand() == null) {
+			// Unary plus leaves numbers unchanged
+			char kind = getPromotedNumericKind();
+			generateNumericOperand(getLeftOperand(), kind, mv, cf);
+			cf.pushDescriptor(String.valueOf(kind));
+		}
+		else {
+			generateArithmeticCode(mv, cf, IADD);
+		}
+	}
+
 	@Override
 	public String toStringAST() {
 		if (this.children.length<2) {  // unary plus
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,10 @@ package org.springframework.expression.spel.ast;
 
 import java.math.BigDecimal;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.util.NumberUtils;
 import org.springframework.util.ObjectUtils;
@@ -71,6 +75,18 @@ public abstract class Operator extends SpelNodeImpl {
 	}
 
 	protected boolean equalityCheck(ExpressionState state, Object left, Object right) {
+		return equalityCheck(state.getEvaluationContext(), left, right);
+	}
+
+	/**
+	 * Perform an equality check for the given operand values.
+	 * <p>This method is public since it is also called from compiled expressions.
+	 * @param context the current evaluation context
+	 * @param left the left-hand operand value
+	 * @param right the right-hand operand value
+	 * @since 4.0.3
+	 */
+	public static boolean equalityCheck(EvaluationContext context, Object left, Object right) {
 		if (left instanceof Number && right instanceof Number) {
 			Number leftNumber = (Number) left;
 			Number rightNumber = (Number) right;
@@ -97,10 +113,190 @@ public abstract class Operator extends SpelNodeImpl {
 		}
 
 		if (left != null && (left instanceof Comparable)) {
-			return (state.getTypeComparator().compare(left, right) == 0);
+			return (context.getTypeComparator().compare(left, right) == 0);
 		}
 
 		return ObjectUtils.nullSafeEquals(left, right);
 	}
 
+
+	/**
+	 * Determine the numeric kind ('I', 'J', 'F' or 'D') that the operands of this
+	 * operator get promoted to, based on the exit types recorded for the operands.
+	 * @return the promoted numeric kind, or {@code 0} if any of the operands is not
+	 * known to be of a supported numeric type
+	 */
+	protected char getPromotedNumericKind() {
+		char kind = 0;
+		for (SpelNodeImpl operand : this.children) {
+			char operandKind = CodeFlow.toNumericKind(operand.getExitDescriptor());
+			if (operandKind == 0) {
+				return 0;
+			}
+			kind = (kind == 0 ? operandKind : CodeFlow.promoteNumericKinds(kind, operandKind));
+		}
+		return kind;
+	}
+
+	/**
+	 * Return whether this operator can be compiled as an operation on primitive
+	 * numbers, i.e. whether all operands are compilable and of a supported numeric type.
+	 */
+	protected boolean isCompilableOperatorUsingNumerics() {
+		for (SpelNodeImpl operand : this.children) {
+			if (!operand.isCompilable()) {
+				return false;
+			}
+		}
+		return (getPromotedNumericKind() != 0);
+	}
+
+	/**
+	 * Generate the code for the given operand, leaving a primitive of the given
+	 * numeric kind on the stack.
+	 */
+	protected static void generateNumericOperand(SpelNodeImpl operand, char kind, MethodVisitor mv, CodeFlow cf) {
+		String descriptor = generateCodeInNewScope(operand, mv, cf);
+		if (kind == 'Z') {
+			CodeFlow.insertUnboxInsns(mv, kind, descriptor);
+		}
+		else {
+			CodeFlow.insertNumericConversion(mv, descriptor, kind);
+		}
+	}
+
+	/**
+	 * Generate the code for a binary arithmetic operation on the promoted numeric
+	 * kind of the operands.
+	 * @param intOpcode the int variant of the arithmetic instruction (e.g. {@code IADD});
+	 * the long, float and double variants are expected to follow it directly
+	 */
+	protected void generateArithmeticCode(MethodVisitor mv, CodeFlow cf, int intOpcode) {
+		char kind = getPromotedNumericKind();
+		generateNumericOperand(getLeftOperand(), kind, mv, cf);
+		generateNumericOperand(getRightOperand(), kind, mv, cf);
+		mv.visitInsn(intOpcode + opcodeOffset(kind));
+		cf.pushDescriptor(String.valueOf(kind));
+	}
+
+	/**
+	 * Generate the code for a comparison of the two operands, leaving a boolean on the stack.
+	 * @param kind the kind both operands get converted to ('Z', 'I', 'J', 'F' or 'D')
+	 * @param ifFalseOpcode the jump instruction that branches to the {@code false} result
+	 * after a long, float or double comparison (e.g. {@code IFGE} for less-than)
+	 * @param ifIcmpFalseOpcode the jump instruction that branches to the {@code false}
+	 * result for int and boolean operands (e.g. {@code IF_ICMPGE} for less-than)
+	 */
+	protected void generateComparisonCode(MethodVisitor mv, CodeFlow cf, char kind,
+			int ifFalseOpcode, int ifIcmpFalseOpcode) {
+
+		generateNumericOperand(getLeftOperand(), kind, mv, cf);
+		generateNumericOperand(getRightOperand(), kind, mv, cf);
+		Label elseTarget = new Label();
+		Label endOfIf = new Label();
+		if (kind == 'Z' || kind == 'I') {
+			mv.visitJumpInsn(ifIcmpFalseOpcode, elseTarget);
+		}
+		else {
+			if (kind == 'J') {
+				mv.visitInsn(LCMP);
+			}
+			else {
+				// The G variants yield 1 for NaN, the L variants yield -1: pick the one
+				// that makes ordering comparisons involving NaN evaluate to false
+				boolean nanGreater = (ifFalseOpcode == IFGE || ifFalseOpcode == IFGT);
+				if (kind == 'F') {
+					mv.visitInsn(nanGreater ? FCMPG : FCMPL);
+				}
+				else {
+					mv.visitInsn(nanGreater ? DCMPG : DCMPL);
+				}
+			}
+			mv.visitJumpInsn(ifFalseOpcode, elseTarget);
+		}
+		mv.visitInsn(ICONST_1);
+		mv.visitJumpInsn(GOTO, endOfIf);
+		mv.visitLabel(elseTarget);
+		mv.visitInsn(ICONST_0);
+		mv.visitLabel(endOfIf);
+		cf.pushDescriptor("Z");
+	}
+
+	/**
+	 * Return whether this operator can be compiled as an equality check,
+	 * i.e. whether both operands are compilable and have a known exit type.
+	 */
+	protected boolean isCompilableEqualityCheck() {
+		SpelNodeImpl left = getLeftOperand();
+		SpelNodeImpl right = getRightOperand();
+		return (left.isCompilable() && right.isCompilable() &&
+				left.getExitDescriptor() != null && right.getExitDescriptor() != null);
+	}
+
+	/**
+	 * Generate the code for an equality check of the two operands, comparing primitive
+	 * numbers and booleans directly and delegating to {@link #equalityCheck} otherwise.
+	 * @param equal {@code true} for '==', {@code false} for '!='
+	 */
+	protected void generateEqualityCheckCode(MethodVisitor mv, CodeFlow cf, boolean equal) {
+		String leftDescriptor = getLeftOperand().getExitDescriptor();
+		String rightDescriptor = getRightOperand().getExitDescriptor();
+		if (CodeFlow.isPrimitive(leftDescriptor) && CodeFlow.isPrimitive(rightDescriptor)) {
+			char kind = getPromotedNumericKind();
+			if (kind == 0 && "Z".equals(leftDescriptor) && "Z".equals(rightDescriptor)) {
+				kind = 'Z';
+			}
+			if (kind != 0) {
+				generateComparisonCode(mv, cf, kind, (equal ? IFNE : IFEQ), (equal ? IF_ICMPNE : IF_ICMPEQ));
+				return;
+			}
+		}
+		cf.loadEvaluationContext(mv);
+		CodeFlow.insertBoxIfNecessary(mv, generateCodeInNewScope(getLeftOperand(), mv, cf));
+		CodeFlow.insertBoxIfNecessary(mv, generateCodeInNewScope(getRightOperand(), mv, cf));
+		mv.visitMethodInsn(INVOKESTATIC, "org/springframework/expression/spel/ast/Operator", "equalityCheck",
+				"(Lorg/springframework/expression/EvaluationContext;Ljava/lang/Object;Ljava/lang/Object;)Z");
+		if (!equal) {
+			mv.visitInsn(ICONST_1);
+			mv.visitInsn(IXOR);
+		}
+		cf.pushDescriptor("Z");
+	}
+
+	/**
+	 * Push the zero value of the given numeric kind onto the stack.
+	 */
+	protected static void insertZero(MethodVisitor mv, char kind) {
+		switch (kind) {
+			case 'J':
+				mv.visitInsn(LCONST_0);
+				break;
+			case 'F':
+				mv.visitInsn(FCONST_0);
+				break;
+			case 'D':
+				mv.visitInsn(DCONST_0);
+				break;
+			default:
+				mv.visitInsn(ICONST_0);
+		}
+	}
+
+	/**
+	 * Return the offset of the variant of a typed instruction for the given numeric kind,
+	 * relative to its int variant (e.g. {@code LADD - IADD}).
+	 */
+	protected static int opcodeOffset(char kind) {
+		switch (kind) {
+			case 'J':
+				return 1;
+			case 'F':
+				return 2;
+			case 'D':
+				return 3;
+			default:
+				return 0;
+		}
+	}
+
 }
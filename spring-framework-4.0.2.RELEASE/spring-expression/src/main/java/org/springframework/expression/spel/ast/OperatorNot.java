@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -34,6 +36,7 @@ public class OperatorNot extends SpelNodeImpl { // Not is a unary operator so do
 
 	public OperatorNot(int pos, SpelNodeImpl operand) {
 		super(pos, operand);
+		this.exitTypeDescriptor = "Z";
 	}
 
 
@@ -52,6 +55,20 @@ public class OperatorNot extends SpelNodeImpl { // Not is a unary operator so do
 		}
 	}
 
+	@Override
+	public boolean isCompilable() {
+		SpelNodeImpl operand = this.children[0];
+		return (operand.isCompilable() && CodeFlow.isBooleanCompatible(operand.getExitDescriptor()));
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		CodeFlow.insertUnboxInsns(mv, 'Z', generateCodeInNewScope(this.children[0], mv, cf));
+		mv.visitInsn(ICONST_1);
+		mv.visitInsn(IXOR);
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 	@Override
 	public String toStringAST() {
 		StringBuilder sb = new StringBuilder();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,12 +21,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -163,6 +166,24 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		return this.name;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		PropertyAccessor accessorToUse = this.cachedReadAccessor;
+		return (!this.nullSafe && accessorToUse instanceof CompilablePropertyAccessor &&
+				((CompilablePropertyAccessor) accessorToUse).isCompilable());
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		PropertyAccessor accessorToUse = this.cachedReadAccessor;
+		if (!(accessorToUse instanceof CompilablePropertyAccessor)) {
+			throw new IllegalStateException("Property accessor is not compilable: " + accessorToUse);
+		}
+		CompilablePropertyAccessor compilableAccessor = (CompilablePropertyAccessor) accessorToUse;
+		compilableAccessor.generateCode(this.name, mv, cf);
+		cf.pushDescriptor(CodeFlow.toDescriptor(compilableAccessor.getPropertyType()));
+	}
+
 	/**
 	 * Attempt to read the named property from the current context object.
 	 * @return the value of the property
@@ -201,6 +222,10 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 									eContext, contextObject.getValue(), name);
 						}
 						this.cachedReadAccessor = accessor;
+						if (accessor instanceof CompilablePropertyAccessor) {
+							this.exitTypeDescriptor = CodeFlow.toDescriptor(
+									((CompilablePropertyAccessor) accessor).getPropertyType());
+						}
 						return accessor.read(eContext, contextObject.getValue(), name);
 					}
 				}
@@ -16,9 +16,12 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.common.ExpressionUtils;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -33,7 +36,7 @@ import org.springframework.util.Assert;
  * @author Andy Clement
  * @since 3.0
  */
-public abstract class SpelNodeImpl implements SpelNode {
+public abstract class SpelNodeImpl implements SpelNode, Opcodes {
 
 	private static SpelNodeImpl[] NO_CHILDREN = new SpelNodeImpl[0];
 
@@ -44,6 +47,15 @@ public abstract class SpelNodeImpl implements SpelNode {
 
 	private SpelNodeImpl parent;
 
+	/**
+	 * Indicates the type descriptor for the result of this expression node. This is
+	 * set as soon as it is known. For a literal node it is known immediately. For
+	 * a property access or method invocation it is known after one evaluation of
+	 * that node. The descriptor is only used by the expression compiler.
+	 * @see CodeFlow#toDescriptor(Class)
+	 */
+	protected volatile String exitTypeDescriptor;
+
 
 	public SpelNodeImpl(int pos, SpelNodeImpl... operands) {
 		this.pos = pos;
@@ -167,6 +179,57 @@ public abstract class SpelNodeImpl implements SpelNode {
 		throw new SpelEvaluationException(this.pos, SpelMessage.NOT_ASSIGNABLE, toStringAST());
 	}
 
+	/**
+	 * Check whether a node can be compiled to bytecode. The reasoning in each node may
+	 * be different but will typically involve checking whether the exit type descriptor
+	 * of the node is known and any relevant child nodes are compilable.
+	 * @return {@code true} if this node can be compiled to bytecode
+	 */
+	public boolean isCompilable() {
+		return false;
+	}
+
+	/**
+	 * Generate the bytecode for this node into the supplied visitor. Context info about
+	 * the current expression being compiled is available in the codeflow object. For
+	 * example it will include information about the type of the object currently
+	 * on the stack. Implementations are expected to record the descriptor of the
+	 * value they leave on the stack through {@link CodeFlow#pushDescriptor}.
+	 * @param mv the ASM MethodVisitor into which code should be generated
+	 * @param cf a context object with info about what is on the stack
+	 */
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		throw new IllegalStateException(getClass().getName() + " has no generateCode(..) method");
+	}
+
+	/**
+	 * Return the type descriptor of the value this node produces, as far as it is
+	 * known from previous evaluations, or {@code null} if it is not known yet.
+	 */
+	public String getExitDescriptor() {
+		return this.exitTypeDescriptor;
+	}
+
+	/**
+	 * Generate the code for the given node within a new compilation scope, i.e. with
+	 * nothing on the stack as far as the node is concerned, so that references to the
+	 * active context object resolve to the root object.
+	 * @param node the node to generate code for
+	 * @param mv the ASM MethodVisitor into which code should be generated
+	 * @param cf a context object with info about what is on the stack
+	 * @return the descriptor of the value the node left on the stack
+	 */
+	protected static String generateCodeInNewScope(SpelNodeImpl node, MethodVisitor mv, CodeFlow cf) {
+		cf.enterCompilationScope();
+		try {
+			node.generateCode(mv, cf);
+			return cf.lastDescriptor();
+		}
+		finally {
+			cf.exitCompilationScope();
+		}
+	}
+
 
 	public abstract TypedValue getValueInternal(ExpressionState expressionState) throws EvaluationException;
 
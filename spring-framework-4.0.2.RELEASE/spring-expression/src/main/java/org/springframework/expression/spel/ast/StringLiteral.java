@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Expression language AST node that represents a string literal.
@@ -35,6 +37,7 @@ public class StringLiteral extends Literal {
 		// TODO should these have been skipped being created by the parser rules? or not?
 		value = value.substring(1, value.length() - 1);
 		this.value = new TypedValue(value.replaceAll("''", "'").replaceAll("\"\"", "\""));
+		this.exitTypeDescriptor = "Ljava/lang/String;";
 	}
 
 
@@ -48,4 +51,15 @@ public class StringLiteral extends Literal {
 		return "'" + getLiteralValue().getValue() + "'";
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		mv.visitLdcInsn(this.value.getValue());
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,11 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -58,6 +61,45 @@ public class Ternary extends SpelNodeImpl {
 		}
 	}
 
+	@Override
+	public String getExitDescriptor() {
+		String leftDescriptor = this.children[1].getExitDescriptor();
+		String rightDescriptor = this.children[2].getExitDescriptor();
+		if (leftDescriptor == null || rightDescriptor == null) {
+			return null;
+		}
+		if (leftDescriptor.equals(rightDescriptor)) {
+			return leftDescriptor;
+		}
+		String boxedDescriptor = CodeFlow.toBoxedDescriptor(leftDescriptor);
+		if (boxedDescriptor.equals(CodeFlow.toBoxedDescriptor(rightDescriptor))) {
+			return boxedDescriptor;
+		}
+		return CodeFlow.OBJECT_DESCRIPTOR;
+	}
+
+	@Override
+	public boolean isCompilable() {
+		SpelNodeImpl condition = this.children[0];
+		return (condition.isCompilable() && this.children[1].isCompilable() && this.children[2].isCompilable() &&
+				CodeFlow.isBooleanCompatible(condition.getExitDescriptor()) && getExitDescriptor() != null);
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		String exitDescriptor = getExitDescriptor();
+		CodeFlow.insertUnboxInsns(mv, 'Z', generateCodeInNewScope(this.children[0], mv, cf));
+		Label elseTarget = new Label();
+		Label endOfIf = new Label();
+		mv.visitJumpInsn(IFEQ, elseTarget);
+		CodeFlow.insertConversionTo(mv, generateCodeInNewScope(this.children[1], mv, cf), exitDescriptor);
+		mv.visitJumpInsn(GOTO, endOfIf);
+		mv.visitLabel(elseTarget);
+		CodeFlow.insertConversionTo(mv, generateCodeInNewScope(this.children[2], mv, cf), exitDescriptor);
+		mv.visitLabel(endOfIf);
+		cf.pushDescriptor(exitDescriptor);
+	}
+
 	@Override
 	public String toStringAST() {
 		return new StringBuilder().append(getChild(0).toStringAST()).append(" ? ").append(getChild(1).toStringAST())
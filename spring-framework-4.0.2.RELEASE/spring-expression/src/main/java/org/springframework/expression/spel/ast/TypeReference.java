@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,13 @@
 package org.springframework.expression.spel.ast;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 
 /**
@@ -31,6 +35,8 @@ public class TypeReference extends SpelNodeImpl {
 
 	private final int dimensions;
 
+	private volatile Class<?> type;
+
 
 	public TypeReference(int pos, SpelNodeImpl qualifiedId) {
 		this(pos,qualifiedId,0);
@@ -57,6 +63,8 @@ public class TypeReference extends SpelNodeImpl {
 		}
 		Class<?> clazz = state.findType(typename);
 		clazz = makeArrayIfNecessary(clazz);
+		this.type = clazz;
+		this.exitTypeDescriptor = "Ljava/lang/Class;";
 		return new TypedValue(clazz);
 	}
 
@@ -82,4 +90,20 @@ public class TypeReference extends SpelNodeImpl {
 		return sb.toString();
 	}
 
+	@Override
+	public boolean isCompilable() {
+		Class<?> clazz = this.type;
+		return (clazz != null && Modifier.isPublic(clazz.getModifiers()));
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		String descriptor = cf.lastDescriptor();
+		if (descriptor != null) {
+			CodeFlow.insertPop(mv, descriptor);
+		}
+		mv.visitLdcInsn(Type.getType(this.type));
+		cf.pushDescriptor(this.exitTypeDescriptor);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 
@@ -48,12 +50,12 @@ public class VariableReference extends SpelNodeImpl {
 	@Override
 	public ValueRef getValueRef(ExpressionState state) throws SpelEvaluationException {
 		if (this.name.equals(THIS)) {
-			return new ValueRef.TypedValueHolderValueRef(state.getActiveContextObject(),this);
+			return new ValueRef.TypedValueHolderValueRef(recordExitType(state.getActiveContextObject()),this);
 		}
 		if (this.name.equals(ROOT)) {
-			return new ValueRef.TypedValueHolderValueRef(state.getRootContextObject(),this);
+			return new ValueRef.TypedValueHolderValueRef(recordExitType(state.getRootContextObject()),this);
 		}
-		TypedValue result = state.lookupVariable(this.name);
+		TypedValue result = recordExitType(state.lookupVariable(this.name));
 		// a null value will mean either the value was null or the variable was not found
 		return new VariableRef(this.name,result,state.getEvaluationContext());
 	}
@@ -61,14 +63,19 @@ public class VariableReference extends SpelNodeImpl {
 	@Override
 	public TypedValue getValueInternal(ExpressionState state) throws SpelEvaluationException {
 		if (this.name.equals(THIS)) {
-			return state.getActiveContextObject();
+			return recordExitType(state.getActiveContextObject());
 		}
 		if (this.name.equals(ROOT)) {
-			return state.getRootContextObject();
+			return recordExitType(state.getRootContextObject());
 		}
 		TypedValue result = state.lookupVariable(this.name);
 		// a null value will mean either the value was null or the variable was not found
-		return result;
+		return recordExitType(result);
+	}
+
+	private TypedValue recordExitType(TypedValue value) {
+		this.exitTypeDescriptor = CodeFlow.toDescriptorFromObject(value != null ? value.getValue() : null);
+		return value;
 	}
 
 	@Override
@@ -86,6 +93,41 @@ public class VariableReference extends SpelNodeImpl {
 		return !(this.name.equals(THIS) || this.name.equals(ROOT));
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return (this.exitTypeDescriptor != null);
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		String descriptor = cf.lastDescriptor();
+		if (this.name.equals(THIS)) {
+			if (descriptor != null) {
+				// The active context object is already on top of the stack
+				cf.pushDescriptor(descriptor);
+				return;
+			}
+			cf.loadTarget(mv);
+		}
+		else {
+			if (descriptor != null) {
+				CodeFlow.insertPop(mv, descriptor);
+			}
+			if (this.name.equals(ROOT)) {
+				cf.loadTarget(mv);
+			}
+			else {
+				cf.loadEvaluationContext(mv);
+				mv.visitLdcInsn(this.name);
+				mv.visitMethodInsn(INVOKEINTERFACE, "org/springframework/expression/EvaluationContext",
+						"lookupVariable", "(Ljava/lang/String;)Ljava/lang/Object;");
+			}
+		}
+		String exitDescriptor = this.exitTypeDescriptor;
+		CodeFlow.insertCheckCast(mv, exitDescriptor);
+		cf.pushDescriptor(exitDescriptor);
+	}
+
 
 	class VariableRef implements ValueRef {
 
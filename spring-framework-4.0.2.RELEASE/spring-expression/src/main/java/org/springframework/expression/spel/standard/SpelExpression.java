@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,11 @@ import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.common.ExpressionUtils;
+import org.springframework.expression.spel.CompiledExpression;
 import org.springframework.expression.spel.ExpressionState;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.SpelNode;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.ast.SpelNodeImpl;
@@ -40,6 +44,13 @@ import org.springframework.util.Assert;
  */
 public class SpelExpression implements Expression {
 
+	// Number of times to interpret an expression before compiling it
+	private static final int INTERPRETED_COUNT_THRESHOLD = 100;
+
+	// Number of times to try compiling an expression before giving up
+	private static final int FAILED_ATTEMPTS_THRESHOLD = 100;
+
+
 	private final String expression;
 
 	private final SpelNodeImpl ast;
@@ -49,6 +60,18 @@ public class SpelExpression implements Expression {
 	// the default context is used if no override is supplied by the user
 	private EvaluationContext defaultContext;
 
+	// Holds the compiled form of the expression (if it has been compiled)
+	private volatile CompiledExpression compiledAst;
+
+	// Count of how many times the expression has been interpreted - can trigger compilation
+	// when certain limit reached
+	private volatile int interpretedCount = 0;
+
+	// The number of times compilation was attempted and failed, or the compiled form had to
+	// be abandoned at runtime - enables us to eventually give up trying to compile it when
+	// it just doesn't seem to be possible (every compilation defines a new class).
+	private volatile int failedAttempts = 0;
+
 
 	/**
 	 * Construct an expression, only used by the parser.
@@ -64,51 +87,146 @@ public class SpelExpression implements Expression {
 
 	@Override
 	public Object getValue() throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				return compiledAst.getValue(context.getRootObject().getValue(), context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), this.configuration);
-		return this.ast.getValue(expressionState);
+		Object result = this.ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	@Override
 	public Object getValue(Object rootObject) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(rootObject, getEvaluationContext());
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), toTypedValue(rootObject), this.configuration);
-		return this.ast.getValue(expressionState);
+		Object result = this.ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	@Override
 	public <T> T getValue(Class<T> expectedResultType) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				Object result = compiledAst.getValue(context.getRootObject().getValue(), context);
+				return ExpressionUtils.convertTypedValue(context, new TypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), this.configuration);
 		TypedValue typedResultValue = this.ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(expressionState.getEvaluationContext(), typedResultValue, expectedResultType);
 	}
 
 	@Override
 	public <T> T getValue(Object rootObject, Class<T> expectedResultType) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				Object result = compiledAst.getValue(rootObject, context);
+				return ExpressionUtils.convertTypedValue(context, new TypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), toTypedValue(rootObject), this.configuration);
 		TypedValue typedResultValue = this.ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(expressionState.getEvaluationContext(), typedResultValue, expectedResultType);
 	}
 
 	@Override
 	public Object getValue(EvaluationContext context) throws EvaluationException {
 		Assert.notNull(context, "The EvaluationContext is required");
-		return this.ast.getValue(new ExpressionState(context, this.configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(context.getRootObject().getValue(), context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, this.configuration);
+		Object result = this.ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	@Override
 	public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
 		Assert.notNull(context, "The EvaluationContext is required");
-		return this.ast.getValue(new ExpressionState(context, toTypedValue(rootObject), this.configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(rootObject, context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, toTypedValue(rootObject), this.configuration);
+		Object result = this.ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	@Override
 	public <T> T getValue(EvaluationContext context, Class<T> expectedResultType) throws EvaluationException {
-		TypedValue typedResultValue = this.ast.getTypedValue(new ExpressionState(context, this.configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				Object result = compiledAst.getValue(context.getRootObject().getValue(), context);
+				return ExpressionUtils.convertTypedValue(context, new TypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, this.configuration);
+		TypedValue typedResultValue = this.ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(context, typedResultValue, expectedResultType);
 	}
 
 	@Override
 	public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> expectedResultType) throws EvaluationException {
-		TypedValue typedResultValue = this.ast.getTypedValue(new ExpressionState(context, toTypedValue(rootObject), this.configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				Object result = compiledAst.getValue(rootObject, context);
+				return ExpressionUtils.convertTypedValue(context, new TypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, toTypedValue(rootObject), this.configuration);
+		TypedValue typedResultValue = this.ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(context, typedResultValue, expectedResultType);
 	}
 
@@ -203,6 +321,87 @@ public class SpelExpression implements Expression {
 
 	// impl only
 
+	/**
+	 * Compile the expression if it has been evaluated more than the threshold number
+	 * of times to trigger compilation.
+	 * @param expressionState the expression state used to determine compilation mode
+	 */
+	private void checkCompile(ExpressionState expressionState) {
+		this.interpretedCount++;
+		SpelCompilerMode compilerMode = expressionState.getConfiguration().getCompilerMode();
+		if (compilerMode != SpelCompilerMode.OFF) {
+			if (compilerMode == SpelCompilerMode.IMMEDIATE) {
+				compileExpression();
+			}
+			else if (this.interpretedCount > INTERPRETED_COUNT_THRESHOLD) {
+				// compilerMode = SpelCompilerMode.MIXED
+				compileExpression();
+			}
+		}
+	}
+
+	/**
+	 * Deal with an exception thrown by the compiled form of the expression: in mixed
+	 * mode, silently revert to interpreted evaluation (the caller will continue with
+	 * the interpreter), otherwise propagate the exception to the caller.
+	 * @param ex the exception thrown by the compiled expression
+	 */
+	private void handleCompiledExpressionFailure(Throwable ex) {
+		if (this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
+			// Counts as a failed attempt, so that an expression evaluated against varying
+			// types eventually stays interpreted instead of being recompiled over and over
+			this.failedAttempts++;
+			this.interpretedCount = 0;
+			this.compiledAst = null;
+		}
+		else {
+			// Running in SpelCompilerMode.IMMEDIATE mode - propagate exception to caller
+			throw new SpelEvaluationException(ex, SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION);
+		}
+	}
+
+	/**
+	 * Perform expression compilation. This will only succeed once exit descriptors for all
+	 * nodes have been determined. If the compilation fails, or the compiled form fails at
+	 * runtime in mixed mode, more than 100 times in total, the expression is no longer
+	 * considered suitable for compilation.
+	 * @return {@code true} if the expression was successfully compiled
+	 * @since 4.0.3
+	 */
+	public boolean compileExpression() {
+		if (this.failedAttempts > FAILED_ATTEMPTS_THRESHOLD) {
+			// Don't try again
+			return false;
+		}
+		if (this.compiledAst == null) {
+			synchronized (this) {
+				// Possibly compiled by another thread before this thread got into the sync block
+				if (this.compiledAst != null) {
+					return true;
+				}
+				SpelCompiler compiler = SpelCompiler.getCompiler(this.configuration.getCompilerClassLoader());
+				this.compiledAst = compiler.compile(this.ast);
+				if (this.compiledAst == null) {
+					this.failedAttempts++;
+				}
+			}
+		}
+		return (this.compiledAst != null);
+	}
+
+	/**
+	 * Cause an expression to revert to being interpreted if it has been using its
+	 * compiled form. It also resets the compilation attempt failure count (an expression
+	 * is normally no longer considered compilable if it cannot be compiled after 100 attempts).
+	 * @since 4.0.3
+	 */
+	public void revertToInterpreted() {
+		this.compiledAst = null;
+		this.interpretedCount = 0;
+		this.failedAttempts = 0;
+	}
+
+
 	/**
 	 * @return return the Abstract Syntax Tree for the expression
 	 */
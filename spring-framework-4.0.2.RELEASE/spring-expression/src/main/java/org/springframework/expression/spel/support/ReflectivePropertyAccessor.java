@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.Property;
 import org.springframework.core.convert.TypeDescriptor;
@@ -38,6 +40,8 @@ import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -554,7 +558,7 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 	 * accessor exists because looking up the appropriate reflective object by class/name
 	 * on each read is not cheap.
 	 */
-	private static class OptimalPropertyAccessor implements PropertyAccessor {
+	private static class OptimalPropertyAccessor implements CompilablePropertyAccessor {
 
 		private final Member member;
 
@@ -644,6 +648,56 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 		public void write(EvaluationContext context, Object target, String name, Object newValue) {
 			throw new UnsupportedOperationException("Should not be called on an OptimalPropertyAccessor");
 		}
+
+		@Override
+		public boolean isCompilable() {
+			return (Modifier.isPublic(this.member.getModifiers()) &&
+					Modifier.isPublic(this.member.getDeclaringClass().getModifiers()));
+		}
+
+		@Override
+		public Class<?> getPropertyType() {
+			if (this.member instanceof Field) {
+				return ((Field) this.member).getType();
+			}
+			else {
+				return ((Method) this.member).getReturnType();
+			}
+		}
+
+		@Override
+		public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+			boolean isStatic = Modifier.isStatic(this.member.getModifiers());
+			String descriptor = cf.lastDescriptor();
+			String declaringClass = this.member.getDeclaringClass().getName().replace('.', '/');
+			if (!isStatic) {
+				if (descriptor == null) {
+					cf.loadTarget(mv);
+				}
+				else {
+					descriptor = CodeFlow.insertBoxIfNecessary(mv, descriptor);
+				}
+				if (descriptor == null || !descriptor.equals("L" + declaringClass + ";")) {
+					mv.visitTypeInsn(CHECKCAST, declaringClass);
+				}
+			}
+			else if (descriptor != null) {
+				// A static member does not need the target object on the stack
+				CodeFlow.insertPop(mv, descriptor);
+			}
+			if (this.member instanceof Field) {
+				Field field = (Field) this.member;
+				mv.visitFieldInsn(isStatic ? GETSTATIC : GETFIELD, declaringClass, field.getName(),
+						CodeFlow.toDescriptor(field.getType()));
+			}
+			else {
+				Method method = (Method) this.member;
+				int opcode = (isStatic ? INVOKESTATIC :
+						method.getDeclaringClass().isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL);
+				mv.visitMethodInsn(opcode, declaringClass, method.getName(),
+						Type.getMethodDescriptor(method));
+			}
+		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.expression.spel;
 
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -25,6 +26,7 @@ import org.springframework.tests.TestGroup;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelCompiler;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 ///CLOVER:OFF
@@ -145,4 +147,48 @@ public class PerformanceTests {
 		}
 	}
 
+	@Test
+	public void testPerformanceOfCompiledExpressions() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		checkCompiledFasterThanInterpreted("placeOfBirth.city");
+		checkCompiledFasterThanInterpreted("getPlaceOfBirth().getCity()");
+		checkCompiledFasterThanInterpreted("(counter + 2) * 3 > placeOfBirth.city.length()");
+	}
+
+	private void checkCompiledFasterThanInterpreted(String expression) {
+		Expression expr = parser.parseExpression(expression);
+
+		// warmup
+		for (int i = 0; i < ITERATIONS; i++) {
+			expr.getValue(eContext);
+		}
+
+		long starttime = System.currentTimeMillis();
+		for (int i = 0; i < ITERATIONS; i++) {
+			expr.getValue(eContext);
+		}
+		long interpretedTime = System.currentTimeMillis() - starttime;
+
+		assertTrue("Expected '" + expression + "' to be compilable", SpelCompiler.compile(expr));
+		for (int i = 0; i < ITERATIONS; i++) {
+			expr.getValue(eContext);
+		}
+
+		starttime = System.currentTimeMillis();
+		for (int i = 0; i < ITERATIONS; i++) {
+			expr.getValue(eContext);
+		}
+		long compiledTime = System.currentTimeMillis() - starttime;
+		if (DEBUG) {
+			System.out.println(expression + ": interpreted x 10000: " + interpretedTime + "ms, compiled x 10000: " + compiledTime + "ms");
+		}
+
+		if (compiledTime > interpretedTime) {
+			System.out.println("Interpreted, ITERATIONS iterations = " + interpretedTime + "ms");
+			System.out.println("Compiled, ITERATIONS iterations = " + compiledTime + "ms");
+			fail("Should have been quicker to evaluate the compiled form of '" + expression + "'!");
+		}
+	}
+
 }
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelCompiler;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that expressions produce the same result when evaluated in compiled
+ * form as they do when interpreted.
+ *
+ * @author agent
+ */
+public class SpelCompilationTests {
+
+	private final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final Person person = new Person("Andy", 42);
+
+	private StandardEvaluationContext context;
+
+
+	@Before
+	public void setUp() {
+		this.context = new StandardEvaluationContext(this.person);
+		this.context.setVariable("answer", 42);
+		this.context.setVariable("greeting", "hello");
+	}
+
+
+	@Test
+	public void literals() {
+		assertCompiledValue("42", 42);
+		assertCompiledValue("42L", 42L);
+		assertCompiledValue("3.5d", 3.5d);
+		assertCompiledValue("3.5f", 3.5f);
+		assertCompiledValue("'abc'", "abc");
+		assertCompiledValue("true", true);
+		assertCompiledValue("false", false);
+		assertCompiledValue("null", null);
+	}
+
+	@Test
+	public void propertyAccess() {
+		assertCompiledValue("name", "Andy");
+		assertCompiledValue("age", 42);
+		assertCompiledValue("address.city", "Southampton");
+		assertCompiledValue("publicField", "field");
+	}
+
+	@Test
+	public void methodInvocation() {
+		assertCompiledValue("getName()", "Andy");
+		assertCompiledValue("name.toUpperCase()", "ANDY");
+		assertCompiledValue("name.concat('!')", "Andy!");
+		assertCompiledValue("greet('Hello', 3)", "Hello Andy x3");
+		assertCompiledValue("name.charAt(1)", 'n');
+		assertCompiledValue("T(Math).max(3, 5)", 5);
+		assertCompiledValue("T(String).valueOf(age)", "42");
+	}
+
+	@Test
+	public void typeReference() {
+		assertCompiledValue("T(String)", String.class);
+	}
+
+	@Test
+	public void variables() {
+		assertCompiledValue("#root", this.person);
+		assertCompiledValue("#this.name", "Andy");
+		assertCompiledValue("#root.age", 42);
+		assertCompiledValue("#greeting.length()", 5);
+		assertCompiledValue("#answer", 42);
+	}
+
+	@Test
+	public void arithmeticOperators() {
+		assertCompiledValue("1 + 2 * 3", 7);
+		assertCompiledValue("10 / 4", 2);
+		assertCompiledValue("10 / 4.0d", 2.5d);
+		assertCompiledValue("age - 2", 40);
+		assertCompiledValue("age * 2L", 84L);
+		assertCompiledValue("1.5f + 1", 2.5f);
+		assertCompiledValue("-age", -42);
+		assertCompiledValue("-1.5d", -1.5d);
+		assertCompiledValue("+age", 42);
+		assertCompiledValue("#answer + 1", 43);
+	}
+
+	@Test
+	public void relationalOperators() {
+		assertCompiledValue("age > 40", true);
+		assertCompiledValue("age >= 42", true);
+		assertCompiledValue("age < 42", false);
+		assertCompiledValue("age <= 41", false);
+		assertCompiledValue("3L < 3.5d", true);
+		assertCompiledValue("1.5f > 1.5f", false);
+		assertCompiledValue("age == 42", true);
+		assertCompiledValue("age == 42.0d", true);
+		assertCompiledValue("age != 42", false);
+		assertCompiledValue("name == 'Andy'", true);
+		assertCompiledValue("name != 'Andy'", false);
+		assertCompiledValue("address == null", false);
+		assertCompiledValue("true == false", false);
+		assertCompiledValue("T(Double).NaN < 1.0d", false);
+		assertCompiledValue("T(Double).NaN >= 1.0d", false);
+		assertCompiledValue("T(Double).NaN != T(Double).NaN", true);
+	}
+
+	@Test
+	public void logicalOperators() {
+		assertCompiledValue("age > 40 and name == 'Andy'", true);
+		assertCompiledValue("age > 40 and name == 'Fred'", false);
+		assertCompiledValue("age > 50 or name == 'Andy'", true);
+		assertCompiledValue("age > 50 or name == 'Fred'", false);
+		assertCompiledValue("!(age > 50)", true);
+		assertCompiledValue("!adult", false);
+	}
+
+	@Test
+	public void ternaryAndElvis() {
+		assertCompiledValue("age > 40 ? 'old' : 'young'", "old");
+		assertCompiledValue("age > 50 ? 'old' : 'young'", "young");
+		assertCompiledValue("adult ? age : 0L", 42);
+		assertCompiledValue("nickname ?: 'none'", "none");
+		assertCompiledValue("name ?: 'none'", "Andy");
+		assertCompiledValue("age ?: 0", 42);
+	}
+
+	@Test
+	public void nonCompilableExpression() {
+		SpelExpression expression = (SpelExpression) this.parser.parseExpression("{1, 2, 3}");
+		expression.getValue(this.context);
+		assertFalse(expression.compileExpression());
+		assertFalse(SpelCompiler.compile(expression));
+	}
+
+	@Test
+	public void notCompilableBeforeEvaluation() {
+		SpelExpression expression = (SpelExpression) this.parser.parseExpression("name");
+		assertFalse(expression.compileExpression());
+		assertEquals("Andy", expression.getValue(this.context));
+		assertTrue(expression.compileExpression());
+	}
+
+	@Test
+	public void compilerModeImmediate() {
+		SpelExpressionParser parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, getClass().getClassLoader()));
+		Expression expression = parser.parseExpression("name");
+		assertEquals("Andy", expression.getValue(this.person));
+		assertEquals("Andy", expression.getValue(this.person));
+
+		// The compiled form expects a Person as root object
+		try {
+			expression.getValue(new Address("Winchester"));
+			fail("Should have failed since the compiled expression cannot handle the new root type");
+		}
+		catch (SpelEvaluationException ex) {
+			assertEquals(SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION, ex.getMessageCode());
+			assertTrue(ex.getCause() instanceof ClassCastException);
+		}
+	}
+
+	@Test
+	public void compilerModeMixed() {
+		SpelExpressionParser parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
+		SpelExpression expression = (SpelExpression) parser.parseExpression("name");
+		for (int i = 0; i < 150; i++) {
+			assertEquals("Andy", expression.getValue(this.person));
+		}
+		assertTrue(expression.compileExpression());
+
+		// Mixed mode silently reverts to the interpreter when the type changes
+		assertEquals("Winchester", expression.getValue(new Address("Winchester")));
+		assertEquals("Andy", expression.getValue(this.person));
+	}
+
+	@Test
+	public void compilerModeMixedWithAlternatingTypes() {
+		SpelExpressionParser parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader()));
+		SpelExpression expression = (SpelExpression) parser.parseExpression("name");
+		Address address = new Address("Winchester");
+		for (int i = 0; i < 20000; i++) {
+			assertEquals("Andy", expression.getValue(this.person));
+			assertEquals("Winchester", expression.getValue(address));
+		}
+
+		// Each runtime fallback counts as a failed attempt: no more recompilation
+		assertFalse(expression.compileExpression());
+		assertEquals("Andy", expression.getValue(this.person));
+	}
+
+	@Test
+	public void revertToInterpreted() {
+		SpelExpression expression = (SpelExpression) this.parser.parseExpression("name.length()");
+		assertEquals(4, expression.getValue(this.context));
+		assertTrue(SpelCompiler.compile(expression));
+		assertEquals(4, expression.getValue(this.context));
+		SpelCompiler.revertToInterpreted(expression);
+		assertEquals(4, expression.getValue(this.context));
+	}
+
+
+	private void assertCompiledValue(String expressionString, Object expectedValue) {
+		SpelExpression expression = (SpelExpression) this.parser.parseExpression(expressionString);
+		assertEquals(expectedValue, expression.getValue(this.context));
+		assertTrue("Expected '" + expressionString + "' to be compilable", expression.compileExpression());
+		assertEquals(expectedValue, expression.getValue(this.context));
+	}
+
+
+	public static class Person {
+
+		public String publicField = "field";
+
+		private final String name;
+
+		private final int age;
+
+		private final Address address = new Address("Southampton");
+
+		public Person(String name, int age) {
+			this.name = name;
+			this.age = age;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public boolean isAdult() {
+			return (this.age >= 18);
+		}
+
+		public String getNickname() {
+			return null;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+
+		public String greet(String greeting, int times) {
+			return greeting + " " + this.name + " x" + times;
+		}
+	}
+
+
+	public static class Address {
+
+		private final String city;
+
+		public Address(String city) {
+			this.city = city;
+		}
+
+		public String getCity() {
+			return this.city;
+		}
+
+		public String getName() {
+			return this.city;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,20 +16,29 @@
 
 package org.springframework.jdbc.core;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.MethodInvocationException;
 import org.springframework.beans.NotWritablePropertyException;
 import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.TypeMismatchException;
@@ -37,6 +46,8 @@ import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -62,6 +73,12 @@ import org.springframework.util.StringUtils;
  * Be aware that if you use the values from the generated bean to update the database the primitive value
  * will have been set to the primitive's default value instead of null.
  *
+ * <p>The column-to-property mapping is resolved once per ResultSet and cached per column
+ * label signature, so subsequent rows of the same shape neither access the metadata nor
+ * match column names again. Values that can be assigned to their property as-is are set
+ * through the pre-resolved setter; a BeanWrapper is only created for rows with values
+ * that need type conversion, or for every row if {@link #initBeanWrapper} is overridden.
+ *
  * <p>Please note that this class is designed to provide convenience rather than high performance.
  * For best performance consider using a custom RowMapper.
  *
@@ -71,6 +88,10 @@ import org.springframework.util.StringUtils;
  */
 public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 
+	/** Maximum number of distinct ResultSet shapes to cache mapping plans for */
+	private static final int MAPPING_PLAN_CACHE_LIMIT = 256;
+
+
 	/** Logger available to subclasses */
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -89,6 +110,16 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	/** Set of bean properties we provide mapping for */
 	private Set<String> mappedProperties;
 
+	/** Whether a subclass customizes the BeanWrapper, requiring one for every row */
+	private final boolean beanWrapperRequired = isBeanWrapperCustomized(getClass());
+
+	/** Cache of mapping plans, keyed by the column labels of the ResultSet */
+	private final Map<List<String>, MappingPlan> mappingPlanCache =
+			new ConcurrentHashMap<List<String>, MappingPlan>(4);
+
+	/** The mapping plan for the most recently mapped ResultSet */
+	private volatile ResultSetMappingPlan lastMappingPlan;
+
 
 	/**
 	 * Create a new BeanPropertyRowMapper for bean-style configuration.
@@ -144,6 +175,8 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		this.mappedClass = mappedClass;
 		this.mappedFields = new HashMap<String, PropertyDescriptor>();
 		this.mappedProperties = new HashSet<String>();
+		this.mappingPlanCache.clear();
+		this.lastMappingPlan = null;
 		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
 		for (PropertyDescriptor pd : pds) {
 			if (pd.getWriteMethod() != null) {
@@ -233,50 +266,52 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	@Override
 	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
 		Assert.state(this.mappedClass != null, "Mapped class was not specified");
+		MappingPlan plan = getMappingPlan(rs);
 		T mappedObject = BeanUtils.instantiate(this.mappedClass);
-		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
-		initBeanWrapper(bw);
-
-		ResultSetMetaData rsmd = rs.getMetaData();
-		int columnCount = rsmd.getColumnCount();
-		Set<String> populatedProperties = (isCheckFullyPopulated() ? new HashSet<String>() : null);
+		BeanWrapper bw = null;
+		if (this.beanWrapperRequired) {
+			bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+			initBeanWrapper(bw);
+		}
 
-		for (int index = 1; index <= columnCount; index++) {
-			String column = JdbcUtils.lookupColumnName(rsmd, index);
-			PropertyDescriptor pd = this.mappedFields.get(column.replaceAll(" ", "").toLowerCase());
-			if (pd != null) {
+		for (PropertyMapping mapping : plan.propertyMappings) {
+			PropertyDescriptor pd = mapping.propertyDescriptor;
+			Object value = getColumnValue(rs, mapping.index, pd);
+			if (logger.isDebugEnabled() && rowNumber == 0) {
+				logger.debug("Mapping column '" + mapping.column + "' to property '" +
+						pd.getName() + "' of type " + pd.getPropertyType());
+			}
+			if (bw == null && mapping.isDirectlyAssignable(value)) {
+				mapping.setValue(mappedObject, value);
+				continue;
+			}
+			if (bw == null) {
+				bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+				initBeanWrapper(bw);
+			}
+			try {
 				try {
-					Object value = getColumnValue(rs, index, pd);
-					if (logger.isDebugEnabled() && rowNumber == 0) {
-						logger.debug("Mapping column '" + column + "' to property '" +
-								pd.getName() + "' of type " + pd.getPropertyType());
-					}
-					try {
-						bw.setPropertyValue(pd.getName(), value);
-					}
-					catch (TypeMismatchException e) {
-						if (value == null && primitivesDefaultedForNullValue) {
-							logger.debug("Intercepted TypeMismatchException for row " + rowNumber +
-									" and column '" + column + "' with value " + value +
-									" when setting property '" + pd.getName() + "' of type " + pd.getPropertyType() +
-									" on object: " + mappedObject);
-						}
-						else {
-							throw e;
-						}
+					bw.setPropertyValue(pd.getName(), value);
+				}
+				catch (TypeMismatchException e) {
+					if (value == null && primitivesDefaultedForNullValue) {
+						logger.debug("Intercepted TypeMismatchException for row " + rowNumber +
+								" and column '" + mapping.column + "' with value " + value +
+								" when setting property '" + pd.getName() + "' of type " + pd.getPropertyType() +
+								" on object: " + mappedObject);
 					}
-					if (populatedProperties != null) {
-						populatedProperties.add(pd.getName());
+					else {
+						throw e;
 					}
 				}
-				catch (NotWritablePropertyException ex) {
-					throw new DataRetrievalFailureException(
-							"Unable to map column " + column + " to property " + pd.getName(), ex);
-				}
+			}
+			catch (NotWritablePropertyException ex) {
+				throw new DataRetrievalFailureException(
+						"Unable to map column " + mapping.column + " to property " + pd.getName(), ex);
 			}
 		}
 
-		if (populatedProperties != null && !populatedProperties.equals(this.mappedProperties)) {
+		if (isCheckFullyPopulated() && !plan.fullyPopulating) {
 			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
 					"necessary to populate object of class [" + this.mappedClass + "]: " + this.mappedProperties);
 		}
@@ -284,6 +319,34 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return mappedObject;
 	}
 
+	/**
+	 * Return the mapping plan for the given ResultSet, resolving it from the
+	 * metadata only if the ResultSet has not been seen before and no plan for
+	 * the same column labels has been cached yet.
+	 */
+	private MappingPlan getMappingPlan(ResultSet rs) throws SQLException {
+		ResultSetMappingPlan last = this.lastMappingPlan;
+		if (last != null && last.resultSet.get() == rs) {
+			return last.plan;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columns = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columns[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		List<String> signature = Arrays.asList(columns);
+		MappingPlan plan = this.mappingPlanCache.get(signature);
+		if (plan == null) {
+			plan = new MappingPlan(columns, this.mappedFields, this.mappedProperties);
+			if (this.mappingPlanCache.size() < MAPPING_PLAN_CACHE_LIMIT) {
+				this.mappingPlanCache.put(signature, plan);
+			}
+		}
+		this.lastMappingPlan = new ResultSetMappingPlan(rs, plan);
+		return plan;
+	}
+
 	/**
 	 * Initialize the given BeanWrapper to be used for row mapping.
 	 * To be called for each row.
@@ -312,6 +375,15 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	}
 
 
+	/**
+	 * Determine whether the given mapper class overrides {@link #initBeanWrapper},
+	 * in which case every value needs to go through a BeanWrapper.
+	 */
+	private static boolean isBeanWrapperCustomized(Class<?> mapperClass) {
+		Method method = ReflectionUtils.findMethod(mapperClass, "initBeanWrapper", BeanWrapper.class);
+		return (method != null && method.getDeclaringClass() != BeanPropertyRowMapper.class);
+	}
+
 	/**
 	 * Static factory method to create a new BeanPropertyRowMapper
 	 * (with the mapped class specified only once).
@@ -323,4 +395,100 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return newInstance;
 	}
 
+
+
+	/**
+	 * The resolved mapping from the columns of a ResultSet shape to bean properties.
+	 */
+	private static class MappingPlan {
+
+		private final PropertyMapping[] propertyMappings;
+
+		private final boolean fullyPopulating;
+
+		public MappingPlan(String[] columns, Map<String, PropertyDescriptor> mappedFields,
+				Set<String> mappedProperties) {
+
+			List<PropertyMapping> mappings = new ArrayList<PropertyMapping>(columns.length);
+			Set<String> populatedProperties = new HashSet<String>();
+			for (int i = 0; i < columns.length; i++) {
+				PropertyDescriptor pd = mappedFields.get(columns[i].replaceAll(" ", "").toLowerCase());
+				if (pd != null) {
+					mappings.add(new PropertyMapping(i + 1, columns[i], pd));
+					populatedProperties.add(pd.getName());
+				}
+			}
+			this.propertyMappings = mappings.toArray(new PropertyMapping[mappings.size()]);
+			this.fullyPopulating = populatedProperties.equals(mappedProperties);
+		}
+	}
+
+
+	/**
+	 * A single column mapped to a bean property, with its pre-resolved setter.
+	 */
+	private static class PropertyMapping {
+
+		private final int index;
+
+		private final String column;
+
+		private final PropertyDescriptor propertyDescriptor;
+
+		private final Method writeMethod;
+
+		private final Class<?> propertyType;
+
+		public PropertyMapping(int index, String column, PropertyDescriptor pd) {
+			this.index = index;
+			this.column = column;
+			this.propertyDescriptor = pd;
+			this.writeMethod = pd.getWriteMethod();
+			this.propertyType = pd.getPropertyType();
+			ReflectionUtils.makeAccessible(this.writeMethod);
+		}
+
+		/**
+		 * Whether the given value can be passed to the setter without conversion.
+		 * {@code null} values for primitive properties are left to the BeanWrapper.
+		 */
+		public boolean isDirectlyAssignable(Object value) {
+			return (value != null ? ClassUtils.isAssignableValue(this.propertyType, value) :
+					!this.propertyType.isPrimitive());
+		}
+
+		public void setValue(Object target, Object value) {
+			try {
+				this.writeMethod.invoke(target, value);
+			}
+			catch (InvocationTargetException ex) {
+				throw new MethodInvocationException(createPropertyChangeEvent(target, value), ex.getTargetException());
+			}
+			catch (Exception ex) {
+				throw new MethodInvocationException(createPropertyChangeEvent(target, value), ex);
+			}
+		}
+
+		private PropertyChangeEvent createPropertyChangeEvent(Object target, Object value) {
+			return new PropertyChangeEvent(target, this.propertyDescriptor.getName(), null, value);
+		}
+	}
+
+
+	/**
+	 * Associates a mapping plan with the ResultSet it was resolved for,
+	 * without keeping the ResultSet itself reachable.
+	 */
+	private static class ResultSetMappingPlan {
+
+		private final WeakReference<ResultSet> resultSet;
+
+		private final MappingPlan plan;
+
+		public ResultSetMappingPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<ResultSet>(resultSet);
+			this.plan = plan;
+		}
+	}
+
 }
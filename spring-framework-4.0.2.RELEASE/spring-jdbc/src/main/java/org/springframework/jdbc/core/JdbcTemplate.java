@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -49,6 +50,7 @@ import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.util.Assert;
+import org.springframework.util.CloseableIterator;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
 
@@ -790,6 +792,132 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return query(sql, args, new RowMapperResultSetExtractor<T>(rowMapper));
 	}
 
+	/**
+	 * Query using a prepared statement, mapping each row to a result object via a
+	 * RowMapper, with the rows read from the ResultSet lazily as the returned
+	 * iterator is advanced rather than all being collected into a List upfront.
+	 * <p>The returned iterator holds on to the JDBC Connection, PreparedStatement
+	 * and ResultSet until it is exhausted or {@link CloseableIterator#close() closed},
+	 * so callers that may stop iterating early need to close it in a finally block.
+	 * Unless running within a transaction, a Connection is obtained for the iterator
+	 * alone and returned to the DataSource on close. Within a transaction, the
+	 * iteration needs to complete before the transaction ends.
+	 * <p>The number of rows fetched from the database at once is determined by the
+	 * {@link #setFetchSize fetch size} of this template, which should typically be
+	 * set for large results since some JDBC drivers read all rows by default.
+	 * @param psc Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return an iterator over the mapped objects, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.0.3
+	 * @see #setFetchSize
+	 */
+	public <T> CloseableIterator<T> queryForIterator(
+			PreparedStatementCreator psc, PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		Assert.notNull(psc, "PreparedStatementCreator must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		String sql = getSql(psc);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing prepared SQL query for iteration" + (sql != null ? " [" + sql + "]" : ""));
+		}
+
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		boolean opened = false;
+		try {
+			Connection conToUse = con;
+			if (this.nativeJdbcExtractor != null &&
+					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
+				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
+			}
+			ps = psc.createPreparedStatement(conToUse);
+			applyStatementSettings(ps);
+			PreparedStatement psToUse = ps;
+			if (this.nativeJdbcExtractor != null) {
+				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
+			}
+			if (pss != null) {
+				pss.setValues(psToUse);
+			}
+			rs = psToUse.executeQuery();
+			ResultSet rsToUse = rs;
+			if (this.nativeJdbcExtractor != null) {
+				rsToUse = this.nativeJdbcExtractor.getNativeResultSet(rs);
+			}
+			CloseableIterator<T> iterator = new ResultSetIterator<T>(con, ps, rs, rsToUse, rowMapper, sql);
+			opened = true;
+			return iterator;
+		}
+		catch (SQLException ex) {
+			// Release Connection early, to avoid potential connection pool deadlock
+			// in the case when the exception translator hasn't been initialized yet.
+			JdbcUtils.closeResultSet(rs);
+			rs = null;
+			JdbcUtils.closeStatement(ps);
+			ps = null;
+			DataSourceUtils.releaseConnection(con, getDataSource());
+			con = null;
+			throw getExceptionTranslator().translate("PreparedStatementCallback", sql, ex);
+		}
+		finally {
+			if (psc instanceof ParameterDisposer) {
+				((ParameterDisposer) psc).cleanupParameters();
+			}
+			if (pss instanceof ParameterDisposer) {
+				((ParameterDisposer) pss).cleanupParameters();
+			}
+			if (!opened) {
+				JdbcUtils.closeResultSet(rs);
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
+		}
+	}
+
+	/**
+	 * Query using a prepared statement, reading the rows lazily as the
+	 * returned iterator is advanced.
+	 * @param psc Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param rowMapper object that will map one object per row
+	 * @return an iterator over the mapped objects, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.0.3
+	 * @see #queryForIterator(PreparedStatementCreator, PreparedStatementSetter, RowMapper)
+	 */
+	public <T> CloseableIterator<T> queryForIterator(PreparedStatementCreator psc, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForIterator(psc, null, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, reading the rows lazily as the returned
+	 * iterator is advanced.
+	 * @param sql SQL query to execute
+	 * @param rowMapper object that will map one object per row
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @return an iterator over the mapped objects, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.0.3
+	 * @see #queryForIterator(PreparedStatementCreator, PreparedStatementSetter, RowMapper)
+	 */
+	public <T> CloseableIterator<T> queryForIterator(String sql, RowMapper<T> rowMapper, Object... args)
+			throws DataAccessException {
+
+		return queryForIterator(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
 			throws DataAccessException {
@@ -1471,6 +1599,104 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Iterator over the rows of an open ResultSet, mapping each row on access
+	 * and releasing all JDBC resources once exhausted or closed.
+	 */
+	private class ResultSetIterator<T> implements CloseableIterator<T> {
+
+		private final Connection con;
+
+		private final PreparedStatement ps;
+
+		private final ResultSet rs;
+
+		private final ResultSet rsToUse;
+
+		private final RowMapper<T> rowMapper;
+
+		private final String sql;
+
+		private int rowNum = 0;
+
+		private Boolean hasNext;
+
+		private boolean closed;
+
+		public ResultSetIterator(Connection con, PreparedStatement ps, ResultSet rs, ResultSet rsToUse,
+				RowMapper<T> rowMapper, String sql) {
+
+			this.con = con;
+			this.ps = ps;
+			this.rs = rs;
+			this.rsToUse = rsToUse;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.closed) {
+				return false;
+			}
+			if (this.hasNext == null) {
+				try {
+					this.hasNext = this.rsToUse.next();
+					if (!this.hasNext) {
+						handleWarnings(this.ps);
+					}
+				}
+				catch (SQLException ex) {
+					close();
+					throw getExceptionTranslator().translate("ResultSetIterator", this.sql, ex);
+				}
+				catch (RuntimeException ex) {
+					close();
+					throw ex;
+				}
+				if (!this.hasNext) {
+					close();
+				}
+			}
+			return this.hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more rows in ResultSet");
+			}
+			this.hasNext = null;
+			try {
+				return this.rowMapper.mapRow(this.rsToUse, this.rowNum++);
+			}
+			catch (SQLException ex) {
+				close();
+				throw getExceptionTranslator().translate("ResultSetIterator", this.sql, ex);
+			}
+			catch (RuntimeException ex) {
+				close();
+				throw ex;
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Cannot remove rows from a ResultSetIterator");
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				JdbcUtils.closeResultSet(this.rs);
+				JdbcUtils.closeStatement(this.ps);
+				DataSourceUtils.releaseConnection(this.con, getDataSource());
+			}
+		}
+	}
+
+
 	/**
 	 * Invocation handler that suppresses close calls on JDBC Connections.
 	 * Also prepares returned Statement (Prepared/CallbackStatement) objects.
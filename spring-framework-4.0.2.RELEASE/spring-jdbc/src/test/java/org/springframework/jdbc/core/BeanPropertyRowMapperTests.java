@@ -17,13 +17,22 @@
 package org.springframework.jdbc.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.*;
 
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.propertyeditors.StringTrimmerEditor;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.test.ConcretePerson;
 import org.springframework.jdbc.core.test.ExtendedPerson;
@@ -126,4 +135,74 @@ public class BeanPropertyRowMapperTests extends AbstractRowMapperTests {
 		verifySpacePerson(result.get(0));
 		mock.verifyClosed();
 	}
+
+	@Test
+	public void testMappingPlanResolvedOncePerResultSet() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		ResultSet rs = mockPersonResultSet("Bubba");
+		for (int i = 0; i < 3; i++) {
+			verifyPerson(mapper.mapRow(rs, i));
+		}
+		verify(rs, times(1)).getMetaData();
+
+		ResultSet otherRs = mockPersonResultSet("Bubba");
+		verifyPerson(mapper.mapRow(otherRs, 0));
+		verifyPerson(mapper.mapRow(otherRs, 1));
+		verify(otherRs, times(1)).getMetaData();
+		verify(otherRs.getMetaData(), times(1)).getColumnLabel(1);
+	}
+
+	@Test
+	public void testMappingWithDifferentResultSetShapes() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class, true);
+		verifyPerson(mapper.mapRow(mockPersonResultSet("Bubba"), 0));
+
+		ResultSet rs = mockPersonResultSet("Bubba");
+		given(rs.getMetaData().getColumnCount()).willReturn(2);
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		mapper.mapRow(rs, 0);
+	}
+
+	@Test
+	public void testMappingWithTypeConversion() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class) {
+			@Override
+			protected Object getColumnValue(ResultSet rs, int index, PropertyDescriptor pd) throws SQLException {
+				Object value = super.getColumnValue(rs, index, pd);
+				return ("age".equals(pd.getName()) ? String.valueOf(value) : value);
+			}
+		};
+		verifyPerson(mapper.mapRow(mockPersonResultSet("Bubba"), 0));
+	}
+
+	@Test
+	public void testMappingWithCustomizedBeanWrapper() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class) {
+			@Override
+			protected void initBeanWrapper(BeanWrapper bw) {
+				bw.registerCustomEditor(String.class, new StringTrimmerEditor(false));
+			}
+		};
+		ResultSet rs = mockPersonResultSet("  Bubba ");
+		verifyPerson(mapper.mapRow(rs, 0));
+		verifyPerson(mapper.mapRow(rs, 1));
+	}
+
+
+	private ResultSet mockPersonResultSet(String name) throws Exception {
+		ResultSet resultSet = mock(ResultSet.class);
+		ResultSetMetaData resultSetMetaData = mock(ResultSetMetaData.class);
+		given(resultSet.getMetaData()).willReturn(resultSetMetaData);
+		given(resultSet.getString(1)).willReturn(name);
+		given(resultSet.getLong(2)).willReturn(22L);
+		given(resultSet.getTimestamp(3)).willReturn(new Timestamp(1221222L));
+		given(resultSet.getBigDecimal(4)).willReturn(new BigDecimal("1234.56"));
+		given(resultSetMetaData.getColumnCount()).willReturn(4);
+		given(resultSetMetaData.getColumnLabel(1)).willReturn("name");
+		given(resultSetMetaData.getColumnLabel(2)).willReturn("age");
+		given(resultSetMetaData.getColumnLabel(3)).willReturn("birth_date");
+		given(resultSetMetaData.getColumnLabel(4)).willReturn("balance");
+		return resultSet;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.sql.DataSource;
 
@@ -50,6 +51,7 @@ import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractorAdapter;
+import org.springframework.util.CloseableIterator;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 
 import static org.hamcrest.Matchers.*;
@@ -276,6 +278,95 @@ public class JdbcTemplateTests {
 		verify(this.connection).close();
 	}
 
+	@Test
+	public void testQueryForIterator() throws Exception {
+		String sql = "SELECT FORENAME FROM CUSTMR WHERE ID > ?";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getString(1)).willReturn("rod", "gary");
+		this.template.setFetchSize(50);
+
+		CloseableIterator<String> iterator = this.template.queryForIterator(sql, new ForenameRowMapper(), 3);
+
+		verify(this.preparedStatement).setFetchSize(50);
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.resultSet, never()).next();
+		verify(this.connection, never()).close();
+
+		assertTrue(iterator.hasNext());
+		assertTrue(iterator.hasNext());
+		assertEquals("rod", iterator.next());
+		assertEquals("gary", iterator.next());
+		assertFalse(iterator.hasNext());
+
+		verify(this.resultSet, times(3)).next();
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+
+		iterator.close();
+		verify(this.connection).close();
+		try {
+			iterator.next();
+			fail("Should have thrown NoSuchElementException");
+		}
+		catch (NoSuchElementException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testQueryForIteratorClosedBeforeExhausted() throws Exception {
+		given(this.resultSet.next()).willReturn(true);
+		given(this.resultSet.getString(1)).willReturn("rod");
+
+		CloseableIterator<String> iterator =
+				this.template.queryForIterator("SELECT FORENAME FROM CUSTMR", new ForenameRowMapper());
+		assertEquals("rod", iterator.next());
+		iterator.close();
+
+		assertFalse(iterator.hasNext());
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForIteratorWithSqlExceptionWhileIterating() throws Exception {
+		SQLException sqlException = new SQLException("Connection reset");
+		given(this.resultSet.next()).willReturn(true).willThrow(sqlException);
+		given(this.resultSet.getString(1)).willReturn("rod");
+
+		CloseableIterator<String> iterator =
+				this.template.queryForIterator("SELECT FORENAME FROM CUSTMR", new ForenameRowMapper());
+		assertEquals("rod", iterator.next());
+		this.thrown.expect(UncategorizedSQLException.class);
+		this.thrown.expect(exceptionCause(equalTo(sqlException)));
+		try {
+			iterator.hasNext();
+		}
+		finally {
+			verify(this.resultSet).close();
+			verify(this.preparedStatement).close();
+			verify(this.connection, atLeastOnce()).close();
+		}
+	}
+
+	@Test
+	public void testQueryForIteratorWithSqlExceptionOnExecute() throws Exception {
+		SQLException sqlException = new SQLException("Bad SQL");
+		given(this.preparedStatement.executeQuery()).willThrow(sqlException);
+
+		this.thrown.expect(UncategorizedSQLException.class);
+		this.thrown.expect(exceptionCause(equalTo(sqlException)));
+		try {
+			this.template.queryForIterator("SELECT FORENAME FROM CUSTMR", new ForenameRowMapper());
+		}
+		finally {
+			verify(this.preparedStatement).close();
+			verify(this.connection, atLeastOnce()).close();
+		}
+	}
+
 	@Test
 	public void testLeaveConnectionOpenOnRequest() throws Exception {
 		String sql = "SELECT ID, FORENAME FROM CUSTMR WHERE ID < 3";
@@ -1348,4 +1439,13 @@ public class JdbcTemplateTests {
 			return this.sql;
 		}
 	}
+
+	private static class ForenameRowMapper implements RowMapper<String> {
+
+		@Override
+		public String mapRow(ResultSet rs, int rowNum) throws SQLException {
+			return rs.getString(1);
+		}
+	}
+
 }
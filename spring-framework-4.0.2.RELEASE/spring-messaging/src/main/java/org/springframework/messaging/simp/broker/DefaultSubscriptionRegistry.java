@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,11 @@
 
 package org.springframework.messaging.simp.broker;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,17 +36,31 @@ import org.springframework.util.MultiValueMap;
 /**
  * A default, simple in-memory implementation of {@link SubscriptionRegistry}.
  *
+ * <p>Subscriptions are indexed in a trie keyed by destination segment, so that
+ * resolving the subscriptions for a destination only has to consider the
+ * subscriptions along the path of that destination rather than all subscriptions
+ * of all sessions. Resolved destinations are kept in a bounded cache that is
+ * updated in place as subscriptions are added or removed.
+ *
  * @author Rossen Stoyanchev
  * @since 4.0
  */
 public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
+	/** Default maximum number of entries for the destination cache: 1024 */
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+
 	private final DestinationCache destinationCache = new DestinationCache();
 
+	private final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
+
 	private final SessionSubscriptionRegistry subscriptionRegistry = new SessionSubscriptionRegistry();
 
 	private AntPathMatcher pathMatcher = new AntPathMatcher();
 
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
 
 	/**
 	 * @param pathMatcher the pathMatcher to set
@@ -56,12 +73,30 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Specify the maximum number of entries for the resolved destination cache.
+	 * Default is 1024.
+	 * @since 4.0.3
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the resolved destination cache.
+	 * @since 4.0.3
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
 	@Override
 	protected void addSubscriptionInternal(String sessionId, String subsId, String destination, Message<?> message) {
 		SessionSubscriptionInfo info = this.subscriptionRegistry.addSubscription(sessionId, subsId, destination);
-		if (!this.pathMatcher.isPattern(destination)) {
-			this.destinationCache.mapToDestination(destination, info);
-		}
+		AntPathMatcher.CompiledPattern compiledDestination = this.pathMatcher.compile(destination);
+		this.subscriptionIndex.addSubscription(destination,
+				(isPattern(destination) ? compiledDestination : null), info);
+		this.destinationCache.updateAfterNewSubscription(compiledDestination, sessionId, subsId);
 	}
 
 	@Override
@@ -69,8 +104,11 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		SessionSubscriptionInfo info = this.subscriptionRegistry.getSubscriptions(sessionId);
 		if (info != null) {
 			String destination = info.removeSubscription(subscriptionId);
-			if (info.getSubscriptions(destination) == null) {
-				this.destinationCache.unmapFromDestination(destination, info);
+			if (destination != null) {
+				if (info.getSubscriptions(destination) == null) {
+					this.subscriptionIndex.removeSubscription(destination, info);
+				}
+				this.destinationCache.updateAfterRemovedSubscription(sessionId, subscriptionId);
 			}
 		}
 	}
@@ -82,26 +120,16 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Unregistering subscriptions for sessionId=" + sessionId);
 			}
-			this.destinationCache.removeSessionSubscriptions(info);
+			for (String destination : info.getDestinations()) {
+				this.subscriptionIndex.removeSubscription(destination, info);
+			}
+			this.destinationCache.updateAfterRemovedSession(sessionId);
 		}
 	}
 
 	@Override
 	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
-		MultiValueMap<String,String> result = this.destinationCache.getSubscriptions(destination);
-		if (result.isEmpty()) {
-			result = new LinkedMultiValueMap<String, String>();
-			for (SessionSubscriptionInfo info : this.subscriptionRegistry.getAllSubscriptions()) {
-				for (String destinationPattern : info.getDestinations()) {
-					if (this.pathMatcher.match(destinationPattern, destination)) {
-						for (String subscriptionId : info.getSubscriptions(destinationPattern)) {
-							result.add(info.sessionId, subscriptionId);
-						}
-					}
-				}
-			}
-		}
-		return result;
+		return this.destinationCache.getSubscriptions(destination);
 	}
 
 	@Override
@@ -111,68 +139,364 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	}
 
 
+	/**
+	 * Split the given destination into its segments, ignoring empty segments and
+	 * whitespace around segments in line with the default {@link AntPathMatcher}
+	 * tokenization. Since candidates are always verified against the path matcher,
+	 * the split only needs to be as lenient as the path matcher itself.
+	 */
+	private static List<String> getSegments(String destination) {
+		List<String> segments = new ArrayList<String>();
+		int start = 0;
+		while (start <= destination.length()) {
+			int end = destination.indexOf(AntPathMatcher.DEFAULT_PATH_SEPARATOR, start);
+			if (end == -1) {
+				end = destination.length();
+			}
+			String segment = destination.substring(start, end).trim();
+			if (segment.length() > 0) {
+				segments.add(segment);
+			}
+			start = end + 1;
+		}
+		return segments;
+	}
+
+	/**
+	 * Whether the given destination or destination segment needs to be matched
+	 * as a pattern: in addition to the wildcards recognized by
+	 * {@link AntPathMatcher#isPattern}, this includes URI template variables
+	 * such as "{id}", which the path matcher matches against any segment value.
+	 * Used for classifying subscriptions as well as for indexing them.
+	 */
+	private static boolean isPattern(String destination) {
+		return (destination.indexOf('*') != -1 || destination.indexOf('?') != -1 || destination.indexOf('{') != -1);
+	}
 
 
 	/**
-	 * Provide direct lookup of session subscriptions by destination (for non-pattern destinations).
+	 * A bounded cache of resolved destinations. Lookups are lock-free; on a miss
+	 * the subscriptions are resolved through the {@link SubscriptionIndex}.
+	 * Cached entries are updated in place (copy-on-write) when subscriptions are
+	 * added or removed, and the least recently used destination is evicted
+	 * once the cache limit is reached. Since hits are served without locking,
+	 * the usage order is only refreshed on a sample of the hits, which keeps
+	 * frequently used destinations in the cache (approximate LRU).
 	 */
-	private static class DestinationCache {
+	private class DestinationCache {
+
+		/** Every n-th cache hit refreshes the position of its entry in the eviction order */
+		private static final int LRU_REFRESH_INTERVAL = 16;
+
+		/** Map from destination -> <sessionId, subscriptionId> for fast access */
+		private final Map<String, MultiValueMap<String, String>> accessCache =
+				new ConcurrentHashMap<String, MultiValueMap<String, String>>(DEFAULT_CACHE_LIMIT);
+
+		/** Map from destination -> <sessionId, subscriptionId> with locking and eviction */
+		@SuppressWarnings("serial")
+		private final Map<String, MultiValueMap<String, String>> updateCache =
+				new LinkedHashMap<String, MultiValueMap<String, String>>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, MultiValueMap<String, String>> eldest) {
+						if (size() > getCacheLimit()) {
+							accessCache.remove(eldest.getKey());
+							return true;
+						}
+						else {
+							return false;
+						}
+					}
+				};
 
-		// destination -> ..
-		private final Map<String, Set<SessionSubscriptionInfo>> subscriptionsByDestination =
-				new ConcurrentHashMap<String, Set<SessionSubscriptionInfo>>();
+		/** Incremented on every subscription change, guards against caching stale results */
+		private volatile int generation;
 
-		private final Object monitor = new Object();
+		/** Number of cache hits, not synchronized on purpose: only used for sampling */
+		private int hits;
 
 
-		public void mapToDestination(String destination, SessionSubscriptionInfo info) {
-			synchronized(this.monitor) {
-				Set<SessionSubscriptionInfo> registrations = this.subscriptionsByDestination.get(destination);
-				if (registrations == null) {
-					registrations = new CopyOnWriteArraySet<SessionSubscriptionInfo>();
-					this.subscriptionsByDestination.put(destination, registrations);
+		public MultiValueMap<String, String> getSubscriptions(String destination) {
+			MultiValueMap<String, String> result = this.accessCache.get(destination);
+			if (result == null) {
+				int generation = this.generation;
+				result = subscriptionIndex.findSubscriptions(destination, getPathMatcher());
+				synchronized (this.updateCache) {
+					if (generation == this.generation) {
+						this.accessCache.put(destination, result);
+						this.updateCache.put(destination, result);
+					}
+				}
+			}
+			else if (++this.hits % LRU_REFRESH_INTERVAL == 0) {
+				synchronized (this.updateCache) {
+					// Access-ordered map: moves the entry to the most recently used end
+					this.updateCache.get(destination);
 				}
-				registrations.add(info);
 			}
+			return result;
 		}
 
-		public void unmapFromDestination(String destination, SessionSubscriptionInfo info) {
-			synchronized(this.monitor) {
-				Set<SessionSubscriptionInfo> infos = this.subscriptionsByDestination.get(destination);
-				if (infos != null) {
-					infos.remove(info);
-					if (infos.isEmpty()) {
-						this.subscriptionsByDestination.remove(destination);
+		public void updateAfterNewSubscription(AntPathMatcher.CompiledPattern destination, String sessionId, String subsId) {
+			synchronized (this.updateCache) {
+				this.generation++;
+				for (Map.Entry<String, MultiValueMap<String, String>> entry : this.updateCache.entrySet()) {
+					String cachedDestination = entry.getKey();
+					if (cachedDestination.equals(destination.getPattern()) || destination.matches(cachedDestination)) {
+						MultiValueMap<String, String> subs = copy(entry.getValue());
+						List<String> subsIds = subs.get(sessionId);
+						if (subsIds == null || !subsIds.contains(subsId)) {
+							subs.add(sessionId, subsId);
+						}
+						entry.setValue(subs);
+						this.accessCache.put(cachedDestination, subs);
 					}
 				}
 			}
 		}
 
-		public void removeSessionSubscriptions(SessionSubscriptionInfo info) {
-			for (String destination : info.getDestinations()) {
-				unmapFromDestination(destination, info);
+		public void updateAfterRemovedSubscription(String sessionId, String subsId) {
+			synchronized (this.updateCache) {
+				this.generation++;
+				for (Iterator<Map.Entry<String, MultiValueMap<String, String>>> iterator =
+						this.updateCache.entrySet().iterator(); iterator.hasNext();) {
+					Map.Entry<String, MultiValueMap<String, String>> entry = iterator.next();
+					List<String> subsIds = entry.getValue().get(sessionId);
+					if (subsIds != null && subsIds.contains(subsId)) {
+						MultiValueMap<String, String> subs = copy(entry.getValue());
+						subsIds = subs.get(sessionId);
+						subsIds.remove(subsId);
+						if (subsIds.isEmpty()) {
+							subs.remove(sessionId);
+						}
+						updateEntry(entry, subs, iterator);
+					}
+				}
 			}
 		}
 
-		public MultiValueMap<String, String> getSubscriptions(String destination) {
-			MultiValueMap<String, String> result = new LinkedMultiValueMap<String, String>();
-			Set<SessionSubscriptionInfo> infos = this.subscriptionsByDestination.get(destination);
-			if (infos != null) {
-				for (SessionSubscriptionInfo info : infos) {
-					Set<String> subscriptions = info.getSubscriptions(destination);
-					if (subscriptions != null) {
-						for (String subscription : subscriptions) {
-							result.add(info.getSessionId(), subscription);
+		public void updateAfterRemovedSession(String sessionId) {
+			synchronized (this.updateCache) {
+				this.generation++;
+				for (Iterator<Map.Entry<String, MultiValueMap<String, String>>> iterator =
+						this.updateCache.entrySet().iterator(); iterator.hasNext();) {
+					Map.Entry<String, MultiValueMap<String, String>> entry = iterator.next();
+					if (entry.getValue().containsKey(sessionId)) {
+						MultiValueMap<String, String> subs = copy(entry.getValue());
+						subs.remove(sessionId);
+						updateEntry(entry, subs, iterator);
+					}
+				}
+			}
+		}
+
+		private void updateEntry(Map.Entry<String, MultiValueMap<String, String>> entry,
+				MultiValueMap<String, String> subs, Iterator<Map.Entry<String, MultiValueMap<String, String>>> iterator) {
+
+			if (subs.isEmpty()) {
+				iterator.remove();
+				this.accessCache.remove(entry.getKey());
+			}
+			else {
+				entry.setValue(subs);
+				this.accessCache.put(entry.getKey(), subs);
+			}
+		}
+
+		private MultiValueMap<String, String> copy(MultiValueMap<String, String> source) {
+			MultiValueMap<String, String> copy = new LinkedMultiValueMap<String, String>(source.size());
+			for (Map.Entry<String, List<String>> entry : source.entrySet()) {
+				copy.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+			}
+			return copy;
+		}
+
+		@Override
+		public String toString() {
+			return "[cache=" + this.accessCache + "]";
+		}
+	}
+
+
+	/**
+	 * Index of session subscriptions by destination, organized as a trie of
+	 * destination segments. A subscription to a non-pattern destination is held by
+	 * the node for its last segment; a subscription to a destination pattern is held
+	 * by the node for the last segment before the first segment with a wildcard.
+	 * Reads do not lock; modifications are serialized.
+	 */
+	private static class SubscriptionIndex {
+
+		private final Node root = new Node();
+
+		private final Object monitor = new Object();
+
+
+		/**
+		 * Add a subscription to the given destination, passing the compiled form
+		 * of the destination if it is a pattern, or {@code null} otherwise.
+		 */
+		public void addSubscription(String destination, AntPathMatcher.CompiledPattern compiledPattern,
+				SessionSubscriptionInfo info) {
+
+			boolean pattern = (compiledPattern != null);
+			synchronized (this.monitor) {
+				Node node = this.root;
+				for (String segment : getSegments(destination)) {
+					if (pattern && isPattern(segment)) {
+						break;
+					}
+					Node child = node.children.get(segment);
+					if (child == null) {
+						child = new Node();
+						node.children.put(segment, child);
+					}
+					node = child;
+				}
+				Map<String, Set<SessionSubscriptionInfo>> subscriptions =
+						(pattern ? node.patternSubscriptions : node.subscriptions);
+				Set<SessionSubscriptionInfo> infos = subscriptions.get(destination);
+				if (infos == null) {
+					if (pattern) {
+						node.compiledPatterns.put(destination, compiledPattern);
+					}
+					infos = new CopyOnWriteArraySet<SessionSubscriptionInfo>();
+					subscriptions.put(destination, infos);
+				}
+				infos.add(info);
+			}
+		}
+
+		public void removeSubscription(String destination, SessionSubscriptionInfo info) {
+			synchronized (this.monitor) {
+				List<Node> path = new ArrayList<Node>();
+				List<String> segments = new ArrayList<String>();
+				Node node = this.root;
+				for (String segment : getSegments(destination)) {
+					Node child = node.children.get(segment);
+					if (child == null) {
+						break;
+					}
+					path.add(node);
+					segments.add(segment);
+					node = child;
+				}
+				// The destination is held by the deepest node or one of its ancestors
+				while (true) {
+					if (removeFrom(node.subscriptions, destination, info)) {
+						break;
+					}
+					if (removeFrom(node.patternSubscriptions, destination, info)) {
+						if (!node.patternSubscriptions.containsKey(destination)) {
+							node.compiledPatterns.remove(destination);
 						}
+						break;
+					}
+					if (path.isEmpty()) {
+						return;
 					}
+					node = path.remove(path.size() - 1);
+					segments.remove(segments.size() - 1);
+				}
+				// Prune nodes that no longer hold any subscriptions
+				while (!path.isEmpty() && node.isEmpty()) {
+					Node parent = path.remove(path.size() - 1);
+					parent.children.remove(segments.remove(segments.size() - 1));
+					node = parent;
+				}
+			}
+		}
+
+		private boolean removeFrom(Map<String, Set<SessionSubscriptionInfo>> subscriptions,
+				String destination, SessionSubscriptionInfo info) {
+
+			Set<SessionSubscriptionInfo> infos = subscriptions.get(destination);
+			if (infos == null || !infos.remove(info)) {
+				return false;
+			}
+			if (infos.isEmpty()) {
+				subscriptions.remove(destination);
+			}
+			return true;
+		}
+
+		public MultiValueMap<String, String> findSubscriptions(String destination, AntPathMatcher pathMatcher) {
+			MultiValueMap<String, String> result = new LinkedMultiValueMap<String, String>();
+			List<String> segments = getSegments(destination);
+			Node node = this.root;
+			addMatchingPatterns(node, destination, pathMatcher, result);
+			for (String segment : segments) {
+				node = node.children.get(segment);
+				if (node == null) {
+					return result;
+				}
+				addMatchingPatterns(node, destination, pathMatcher, result);
+			}
+			for (Map.Entry<String, Set<SessionSubscriptionInfo>> entry : node.subscriptions.entrySet()) {
+				String subscribedDestination = entry.getKey();
+				if (subscribedDestination.equals(destination) || pathMatcher.match(subscribedDestination, destination)) {
+					addSubscriptions(subscribedDestination, entry.getValue(), result);
 				}
 			}
 			return result;
 		}
 
+		private void addMatchingPatterns(Node node, String destination, AntPathMatcher pathMatcher,
+				MultiValueMap<String, String> result) {
+
+			for (Map.Entry<String, Set<SessionSubscriptionInfo>> entry : node.patternSubscriptions.entrySet()) {
+				String destinationPattern = entry.getKey();
+				AntPathMatcher.CompiledPattern compiledPattern = node.compiledPatterns.get(destinationPattern);
+				if (compiledPattern != null ? compiledPattern.matches(destination) :
+						pathMatcher.match(destinationPattern, destination)) {
+					addSubscriptions(destinationPattern, entry.getValue(), result);
+				}
+			}
+		}
+
+		private void addSubscriptions(String subscribedDestination, Set<SessionSubscriptionInfo> infos,
+				MultiValueMap<String, String> result) {
+
+			for (SessionSubscriptionInfo info : infos) {
+				Set<String> subscriptions = info.getSubscriptions(subscribedDestination);
+				if (subscriptions != null) {
+					for (String subscription : subscriptions) {
+						result.add(info.getSessionId(), subscription);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * A node in the {@link SubscriptionIndex} trie.
+	 */
+	private static class Node {
+
+		// segment -> child node
+		private final ConcurrentMap<String, Node> children = new ConcurrentHashMap<String, Node>(4);
+
+		// destination -> sessions subscribed to exactly that destination
+		private final ConcurrentMap<String, Set<SessionSubscriptionInfo>> subscriptions =
+				new ConcurrentHashMap<String, Set<SessionSubscriptionInfo>>(4);
+
+		// destination pattern -> sessions subscribed to that pattern
+		private final ConcurrentMap<String, Set<SessionSubscriptionInfo>> patternSubscriptions =
+				new ConcurrentHashMap<String, Set<SessionSubscriptionInfo>>(4);
+
+		// destination pattern -> compiled form of that pattern
+		private final ConcurrentMap<String, AntPathMatcher.CompiledPattern> compiledPatterns =
+				new ConcurrentHashMap<String, AntPathMatcher.CompiledPattern>(4);
+
+
+		public boolean isEmpty() {
+			return (this.children.isEmpty() && this.subscriptions.isEmpty() && this.patternSubscriptions.isEmpty());
+		}
+
 		@Override
 		public String toString() {
-			return "[subscriptionsByDestination=" + this.subscriptionsByDestination + "]";
+			return "[children=" + this.children.keySet() + ", subscriptions=" + this.subscriptions.keySet() +
+					", patternSubscriptions=" + this.patternSubscriptions.keySet() + "]";
 		}
 	}
 
@@ -189,10 +513,6 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.sessions.get(sessionId);
 		}
 
-		public Collection<SessionSubscriptionInfo> getAllSubscriptions() {
-			return this.sessions.values();
-		}
-
 		public SessionSubscriptionInfo addSubscription(String sessionId, String subscriptionId, String destination) {
 			SessionSubscriptionInfo info = this.sessions.get(sessionId);
 			if (info == null) {
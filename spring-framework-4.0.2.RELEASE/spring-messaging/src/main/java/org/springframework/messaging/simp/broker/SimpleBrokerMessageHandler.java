@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,12 +17,21 @@
 package org.springframework.messaging.simp.broker;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.GenericMessage;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
@@ -37,6 +46,9 @@ import org.springframework.util.MultiValueMap;
  */
 public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
+	/** The maximum number of destinations for which fan-out statistics are kept */
+	public static final int FAN_OUT_STATS_LIMIT = 1024;
+
 	private static final byte[] EMPTY_PAYLOAD = new byte[0];
 
 	private final SubscribableChannel clientInboundChannel;
@@ -47,6 +59,10 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	private SubscriptionRegistry subscriptionRegistry = new DefaultSubscriptionRegistry();
 
+	private volatile boolean fanOutStatsEnabled = false;
+
+	private final ConcurrentMap<String, FanOutStats> fanOutStats = new ConcurrentHashMap<String, FanOutStats>();
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -93,6 +109,34 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.subscriptionRegistry;
 	}
 
+	/**
+	 * Whether to keep track of the time taken to send messages to the subscribers
+	 * of each destination, see {@link #getFanOutStats()}. Statistics are kept for
+	 * at most {@link #FAN_OUT_STATS_LIMIT} destinations.
+	 * <p>By default this is set to "false".
+	 * @since 4.0.3
+	 */
+	public void setFanOutStatsEnabled(boolean fanOutStatsEnabled) {
+		this.fanOutStatsEnabled = fanOutStatsEnabled;
+	}
+
+	/**
+	 * Whether fan-out statistics are kept.
+	 * @since 4.0.3
+	 */
+	public boolean isFanOutStatsEnabled() {
+		return this.fanOutStatsEnabled;
+	}
+
+	/**
+	 * Return the fan-out statistics by destination, if enabled.
+	 * @since 4.0.3
+	 * @see #setFanOutStatsEnabled(boolean)
+	 */
+	public Map<String, FanOutStats> getFanOutStats() {
+		return Collections.<String, FanOutStats>unmodifiableMap(this.fanOutStats);
+	}
+
 
 	@Override
 	public void startInternal() {
@@ -147,19 +191,30 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	protected void sendMessageToSubscribers(String destination, Message<?> message) {
 		MultiValueMap<String,String> subscriptions = this.subscriptionRegistry.findSubscriptions(message);
-		if ((subscriptions.size() > 0) && logger.isDebugEnabled()) {
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+		if (logger.isDebugEnabled()) {
 			logger.debug("Sending message with destination=" + destination
 					+ " to " + subscriptions.size() + " subscriber(s)");
 		}
-		for (String sessionId : subscriptions.keySet()) {
-			for (String subscriptionId : subscriptions.get(sessionId)) {
-				SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
-				headers.setSessionId(sessionId);
-				headers.setSubscriptionId(subscriptionId);
-				Object payload = message.getPayload();
-				Message<?> clientMessage = MessageBuilder.withPayload(payload).setHeaders(headers).build();
+		long startTime = (this.fanOutStatsEnabled ? System.nanoTime() : 0);
+		int sendCount = 0;
+
+		// All subscribers share the payload and the original headers, only the session
+		// and subscription id vary. The map is copied by each new message's headers.
+		Object payload = message.getPayload();
+		Map<String, Object> headers = new HashMap<String, Object>(message.getHeaders());
+		for (Map.Entry<String, List<String>> entry : subscriptions.entrySet()) {
+			String sessionId = entry.getKey();
+			headers.put(SimpMessageHeaderAccessor.SESSION_ID_HEADER, sessionId);
+			for (String subscriptionId : entry.getValue()) {
+				headers.put(SimpMessageHeaderAccessor.SUBSCRIPTION_ID_HEADER, subscriptionId);
+				Message<?> clientMessage = (payload instanceof Throwable ?
+						new ErrorMessage((Throwable) payload, headers) : new GenericMessage<Object>(payload, headers));
 				try {
 					this.clientOutboundChannel.send(clientMessage);
+					sendCount++;
 				}
 				catch (Throwable ex) {
 					logger.error("Failed to send message to destination=" + destination +
@@ -167,6 +222,96 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				}
 			}
 		}
+
+		if (this.fanOutStatsEnabled) {
+			recordFanOut(destination, sendCount, System.nanoTime() - startTime);
+		}
+	}
+
+	private void recordFanOut(String destination, int sendCount, long elapsedNanos) {
+		FanOutStats stats = this.fanOutStats.get(destination);
+		if (stats == null) {
+			if (this.fanOutStats.size() >= FAN_OUT_STATS_LIMIT) {
+				return;
+			}
+			stats = new FanOutStats();
+			FanOutStats existing = this.fanOutStats.putIfAbsent(destination, stats);
+			if (existing != null) {
+				stats = existing;
+			}
+		}
+		stats.record(sendCount, elapsedNanos);
+	}
+
+
+	/**
+	 * Statistics on messages sent to the subscribers of a destination.
+	 * @since 4.0.3
+	 */
+	public static class FanOutStats {
+
+		private final AtomicLong messageCount = new AtomicLong();
+
+		private final AtomicLong sendCount = new AtomicLong();
+
+		private final AtomicLong totalTimeNanos = new AtomicLong();
+
+		private final AtomicLong maxTimeNanos = new AtomicLong();
+
+
+		private void record(int sendCount, long elapsedNanos) {
+			this.messageCount.incrementAndGet();
+			this.sendCount.addAndGet(sendCount);
+			this.totalTimeNanos.addAndGet(elapsedNanos);
+			long max = this.maxTimeNanos.get();
+			while (elapsedNanos > max && !this.maxTimeNanos.compareAndSet(max, elapsedNanos)) {
+				max = this.maxTimeNanos.get();
+			}
+		}
+
+		/**
+		 * Return the number of messages that were sent to subscribers of the destination.
+		 */
+		public long getMessageCount() {
+			return this.messageCount.get();
+		}
+
+		/**
+		 * Return the total number of messages sent to individual subscriptions.
+		 */
+		public long getSendCount() {
+			return this.sendCount.get();
+		}
+
+		/**
+		 * Return the total time spent sending to subscribers, in nanoseconds.
+		 */
+		public long getTotalTimeNanos() {
+			return this.totalTimeNanos.get();
+		}
+
+		/**
+		 * Return the longest time spent sending a single message to all its
+		 * subscribers, in nanoseconds.
+		 */
+		public long getMaxTimeNanos() {
+			return this.maxTimeNanos.get();
+		}
+
+		/**
+		 * Return the average time spent sending a single message to all its
+		 * subscribers, in nanoseconds.
+		 */
+		public long getAverageTimeNanos() {
+			long count = this.messageCount.get();
+			return (count > 0 ? this.totalTimeNanos.get() / count : 0);
+		}
+
+		@Override
+		public String toString() {
+			return "[messageCount=" + getMessageCount() + ", sendCount=" + getSendCount() +
+					", averageTimeNanos=" + getAverageTimeNanos() + ", maxTimeNanos=" + getMaxTimeNanos() + "]";
+		}
 	}
 
 }
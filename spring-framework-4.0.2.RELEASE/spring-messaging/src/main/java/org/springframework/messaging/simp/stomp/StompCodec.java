@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import org.springframework.messaging.Message;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 import reactor.function.Consumer;
 import reactor.function.Function;
@@ -26,6 +31,12 @@ import reactor.tcp.encoding.Codec;
 /**
  * A Reactor TCP {@link Codec} for sending and receiving STOMP messages
  *
+ * <p>A decoder function is created for each connection. When a read ends with a
+ * partial frame, the remaining bytes are left in the buffer (and are retained by
+ * Reactor for the next read) while the decoder remembers the content length of
+ * the partial frame, if known, so that it is not parsed again until at least
+ * that many bytes are available.
+ *
  * @author Andy Wilkinson
  * @since 4.0
  */
@@ -45,22 +56,7 @@ public class StompCodec implements Codec<Buffer, Message<byte[]>, Message<byte[]
 
 	@Override
 	public Function<Buffer, Message<byte[]>> decoder(final Consumer<Message<byte[]>> next) {
-		return new Function<Buffer, Message<byte[]>>() {
-
-			@Override
-			public Message<byte[]> apply(Buffer buffer) {
-				while (buffer.remaining() > 0) {
-					Message<byte[]> message = DECODER.decode(buffer.byteBuffer());
-					if (message != null) {
-						next.accept(message);
-					}
-					else {
-						break;
-					}
-				}
-				return null;
-			}
-		};
+		return new DecodingFunction(next);
 	}
 
 	@Override
@@ -68,4 +64,40 @@ public class StompCodec implements Codec<Buffer, Message<byte[]>, Message<byte[]
 		return ENCODER_FUNCTION;
 	}
 
+
+	/**
+	 * Per-connection decoding function.
+	 */
+	private static class DecodingFunction implements Function<Buffer, Message<byte[]>> {
+
+		private final Consumer<Message<byte[]>> next;
+
+		private int expectedContentLength = -1;
+
+
+		public DecodingFunction(Consumer<Message<byte[]>> next) {
+			this.next = next;
+		}
+
+		@Override
+		public Message<byte[]> apply(Buffer buffer) {
+			ByteBuffer byteBuffer = buffer.byteBuffer();
+			if (byteBuffer.remaining() < this.expectedContentLength) {
+				return null;
+			}
+			MultiValueMap<String, String> partialHeaders = new LinkedMultiValueMap<String, String>();
+			List<Message<byte[]>> messages = DECODER.decode(byteBuffer, partialHeaders);
+			this.expectedContentLength = getContentLength(partialHeaders);
+			for (Message<byte[]> message : messages) {
+				this.next.accept(message);
+			}
+			return null;
+		}
+
+		private int getContentLength(MultiValueMap<String, String> headers) {
+			String contentLength = headers.getFirst(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER);
+			return (contentLength != null ? Integer.valueOf(contentLength) : -1);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,10 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,9 +31,17 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 /**
- * Decodes STOMP frames from a {@link ByteBuffer}. If the buffer does not contain
- * enough data to form a complete STOMP frame, the buffer is reset and the value
- * returned is {@code null} indicating that no message could be read.
+ * Decodes one or more STOMP frames from a {@link ByteBuffer}. If the buffer
+ * ends with a partial STOMP frame, the position of the buffer is left at the
+ * start of that frame so that decoding can be resumed once more data has been
+ * appended to it.
+ *
+ * <p>Frames are parsed in a single pass directly over the buffer. Header names
+ * commonly used in STOMP are matched against a table of known names rather than
+ * being decoded into new Strings, and the frame body is copied out of the buffer
+ * with a single bulk read.
+ *
+ * <p>This class is stateless and thread-safe.
  *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
@@ -44,114 +53,219 @@ public class StompDecoder {
 
 	private static final byte[] HEARTBEAT_PAYLOAD = new byte[] {'\n'};
 
-	private final Log logger = LogFactory.getLog(StompDecoder.class);
+	private static final StompCommand[] COMMANDS = StompCommand.values();
 
+	private static final String[][] KNOWN_HEADER_NAMES;
 
-	/**
-	 * Decodes a STOMP frame in the given {@code buffer} into a {@link Message}.
-	 * If the given ByteBuffer contains partial STOMP frame content, the method
-	 * resets the buffer and returns {@code null}.
-	 *
-	 * @param buffer The buffer to decode the frame from
-	 *
-	 * @return The decoded message or {@code null}
-	 */
-	public Message<byte[]> decode(ByteBuffer buffer) {
+	static {
+		String[] names = new String[] {
+				StompHeaderAccessor.STOMP_ID_HEADER, StompHeaderAccessor.STOMP_HOST_HEADER,
+				StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER,
+				StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_RECEIPT_ID_HEADER,
+				StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, StompHeaderAccessor.STOMP_VERSION_HEADER,
+				StompHeaderAccessor.STOMP_MESSAGE_HEADER, StompHeaderAccessor.STOMP_ACK_HEADER,
+				StompHeaderAccessor.STOMP_NACK_HEADER, StompHeaderAccessor.STOMP_LOGIN_HEADER,
+				StompHeaderAccessor.STOMP_PASSCODE_HEADER, StompHeaderAccessor.STOMP_DESTINATION_HEADER,
+				StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER,
+				StompHeaderAccessor.STOMP_HEARTBEAT_HEADER, "session", "server", "transaction"};
+		int maxLength = 0;
+		for (String name : names) {
+			maxLength = Math.max(maxLength, name.length());
+		}
+		List<List<String>> namesByLength = new ArrayList<List<String>>(maxLength + 1);
+		for (int i = 0; i <= maxLength; i++) {
+			namesByLength.add(new ArrayList<String>());
+		}
+		for (String name : names) {
+			namesByLength.get(name.length()).add(name);
+		}
+		KNOWN_HEADER_NAMES = new String[maxLength + 1][];
+		for (int i = 0; i <= maxLength; i++) {
+			KNOWN_HEADER_NAMES[i] = namesByLength.get(i).toArray(new String[namesByLength.get(i).size()]);
+		}
+	}
 
-		Message<byte[]> decodedMessage = null;
 
-		skipLeadingEol(buffer);
-		buffer.mark();
+	private final Log logger = LogFactory.getLog(StompDecoder.class);
 
-		String command = readCommand(buffer);
 
-		if (command.length() > 0) {
-			MultiValueMap<String, String> headers = readHeaders(buffer);
-			byte[] payload = readPayload(buffer, headers);
+	/**
+	 * Decodes one or more STOMP frames from the given {@code ByteBuffer} into a
+	 * list of {@link Message}s.
+	 * <p>If the given ByteBuffer contains partial STOMP frame content at the end,
+	 * the buffer position is left at the start of the partial frame.
+	 * @param buffer the buffer to decode the STOMP frame from
+	 * @return the decoded messages or an empty list
+	 */
+	public List<Message<byte[]>> decode(ByteBuffer buffer) {
+		return decode(buffer, null);
+	}
 
-			if (payload != null) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
-				if ((payload.length > 0) && (!stompCommand.isBodyAllowed())) {
-					throw new StompConversionException(stompCommand + " shouldn't have but " +
-							"has a payload with length=" + payload.length + ", headers=" + headers);
-				}
-				decodedMessage = MessageBuilder.withPayload(payload)
-						.setHeaders(StompHeaderAccessor.create(stompCommand, headers)).build();
-				if (logger.isDebugEnabled()) {
-					logger.debug("Decoded " + decodedMessage);
-				}
+	/**
+	 * Decodes one or more STOMP frames from the given {@code buffer} and returns
+	 * a list of {@link Message}s.
+	 * <p>If the given ByteBuffer contains partial STOMP frame content at the end,
+	 * the buffer position is left at the start of the partial frame and, if a
+	 * {@code partialMessageHeaders} map is provided, it is populated with the
+	 * headers read so far, e.g. to find out the expected content length.
+	 * @param buffer the buffer to decode the STOMP frame from
+	 * @param partialMessageHeaders an empty output map that will store the last
+	 * partial message headers in case of partial message content in cases where
+	 * the partial buffer ended with a partial STOMP frame
+	 * @return the decoded messages or an empty list
+	 * @since 4.0.3
+	 */
+	public List<Message<byte[]>> decode(ByteBuffer buffer, MultiValueMap<String, String> partialMessageHeaders) {
+		List<Message<byte[]>> messages = new ArrayList<Message<byte[]>>();
+		while (buffer.hasRemaining()) {
+			Message<byte[]> message = decodeMessage(buffer, partialMessageHeaders);
+			if (message != null) {
+				messages.add(message);
 			}
 			else {
-				if (logger.isTraceEnabled()) {
-					logger.trace("Received incomplete frame. Resetting buffer");
-				}
-				buffer.reset();
+				break;
 			}
 		}
-		else {
+		return messages;
+	}
+
+	/**
+	 * Decode a single STOMP frame from the given {@code buffer} into a {@link Message}.
+	 */
+	private Message<byte[]> decodeMessage(ByteBuffer buffer, MultiValueMap<String, String> partialHeaders) {
+		skipLeadingEol(buffer);
+		int frameStart = buffer.position();
+
+		if (!buffer.hasRemaining()) {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Decoded heartbeat");
 			}
-			decodedMessage = MessageBuilder.withPayload(HEARTBEAT_PAYLOAD).setHeaders(
+			return MessageBuilder.withPayload(HEARTBEAT_PAYLOAD).setHeaders(
 					StompHeaderAccessor.create(SimpMessageType.HEARTBEAT)).build();
 		}
+
+		int eol = findEol(buffer, frameStart);
+		if (eol == -1) {
+			return incompleteFrame(buffer, frameStart, null, partialHeaders);
+		}
+		StompCommand command = readCommand(buffer, frameStart, lineEnd(buffer, frameStart, eol));
+		buffer.position(eol + 1);
+
+		MultiValueMap<String, String> headers = new LinkedMultiValueMap<String, String>();
+		if (!readHeaders(buffer, headers)) {
+			return incompleteFrame(buffer, frameStart, headers, partialHeaders);
+		}
+
+		byte[] payload = readPayload(buffer, headers);
+		if (payload == null) {
+			return incompleteFrame(buffer, frameStart, headers, partialHeaders);
+		}
+		if ((payload.length > 0) && (!command.isBodyAllowed())) {
+			throw new StompConversionException(command + " shouldn't have but " +
+					"has a payload with length=" + payload.length + ", headers=" + headers);
+		}
+
+		Message<byte[]> decodedMessage = MessageBuilder.withPayload(payload)
+				.setHeaders(StompHeaderAccessor.create(command, headers)).build();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Decoded " + decodedMessage);
+		}
 		return decodedMessage;
 	}
 
+	private Message<byte[]> incompleteFrame(ByteBuffer buffer, int frameStart,
+			MultiValueMap<String, String> headers, MultiValueMap<String, String> partialHeaders) {
+
+		if (logger.isTraceEnabled()) {
+			logger.trace("Received incomplete frame. Resetting buffer");
+		}
+		if (headers != null && partialHeaders != null) {
+			partialHeaders.putAll(headers);
+		}
+		buffer.position(frameStart);
+		return null;
+	}
+
 	private void skipLeadingEol(ByteBuffer buffer) {
-		while (true) {
-			if (!isEol(buffer)) {
+		while (buffer.hasRemaining()) {
+			int position = buffer.position();
+			byte b = buffer.get(position);
+			if (b == '\n') {
+				buffer.position(position + 1);
+			}
+			else if (b == '\r' && position + 1 < buffer.limit()) {
+				if (buffer.get(position + 1) != '\n') {
+					throw new StompConversionException("'\\r' must be followed by '\\n'");
+				}
+				buffer.position(position + 2);
+			}
+			else {
 				break;
 			}
 		}
 	}
 
-	private String readCommand(ByteBuffer buffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream();
-		while (buffer.remaining() > 0 && !isEol(buffer)) {
-			command.write(buffer.get());
+	private StompCommand readCommand(ByteBuffer buffer, int start, int end) {
+		int length = end - start;
+		for (StompCommand command : COMMANDS) {
+			if (matches(buffer, start, length, command.name())) {
+				return command;
+			}
 		}
-		return new String(command.toByteArray(), UTF8_CHARSET);
+		return StompCommand.valueOf(readString(buffer, start, end));
 	}
 
-	private MultiValueMap<String, String> readHeaders(ByteBuffer buffer) {
-		MultiValueMap<String, String> headers = new LinkedMultiValueMap<String, String>();
+	/**
+	 * Read header lines up to and including the blank line that ends the headers.
+	 * @return {@code false} if the buffer ended before the end of the headers
+	 */
+	private boolean readHeaders(ByteBuffer buffer, MultiValueMap<String, String> headers) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream();
-			while (buffer.remaining() > 0 && !isEol(buffer)) {
-				headerStream.write(buffer.get());
-			}
-			if (headerStream.size() > 0) {
-				String header = new String(headerStream.toByteArray(), UTF8_CHARSET);
-				int colonIndex = header.indexOf(':');
-				if ((colonIndex <= 0) || (colonIndex == header.length() - 1)) {
-					if (buffer.remaining() > 0) {
-						throw new StompConversionException(
-								"Illegal header: '" + header + "'. A header must be of the form <name>:<value>");
-					}
-				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					headers.add(headerName,  headerValue);
+			int start = buffer.position();
+			int eol = findEol(buffer, start);
+			if (eol == -1) {
+				return false;
+			}
+			int end = lineEnd(buffer, start, eol);
+			buffer.position(eol + 1);
+			if (end == start) {
+				return true;
+			}
+			int colonIndex = -1;
+			for (int i = start; i < end; i++) {
+				if (buffer.get(i) == ':') {
+					colonIndex = i;
+					break;
 				}
 			}
-			else {
-				break;
+			if ((colonIndex <= start) || (colonIndex == end - 1)) {
+				throw new StompConversionException("Illegal header: '" + readString(buffer, start, end) +
+						"'. A header must be of the form <name>:<value>");
 			}
+			String headerName = readHeaderName(buffer, start, colonIndex);
+			String headerValue = unescape(readString(buffer, colonIndex + 1, end));
+			headers.add(headerName, headerValue);
 		}
-		return headers;
 	}
 
-	private String unescape(String input) {
-		return input.replaceAll("\\\\n", "\n")
-				.replaceAll("\\\\r", "\r")
-				.replaceAll("\\\\c", ":")
-				.replaceAll("\\\\\\\\", "\\\\");
+	private String readHeaderName(ByteBuffer buffer, int start, int end) {
+		int length = end - start;
+		if (length < KNOWN_HEADER_NAMES.length) {
+			for (String name : KNOWN_HEADER_NAMES[length]) {
+				if (matches(buffer, start, length, name)) {
+					return name;
+				}
+			}
+		}
+		return unescape(readString(buffer, start, end));
 	}
 
+	/**
+	 * Read the frame body including the terminating null octet.
+	 * @return the payload or {@code null} if the buffer does not contain the full body
+	 */
 	private byte[] readPayload(ByteBuffer buffer, MultiValueMap<String, String> headers) {
-		String contentLengthString = headers.getFirst("content-length");
+		String contentLengthString = headers.getFirst(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER);
 		if (contentLengthString != null) {
 			int contentLength = Integer.valueOf(contentLengthString);
 			if (buffer.remaining() > contentLength) {
@@ -162,41 +276,103 @@ public class StompDecoder {
 				}
 				return payload;
 			}
-			else {
-				return null;
-			}
+			return null;
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream();
-			while (buffer.remaining() > 0) {
-				byte b = buffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
+			int start = buffer.position();
+			for (int i = start; i < buffer.limit(); i++) {
+				if (buffer.get(i) == 0) {
+					byte[] payload = new byte[i - start];
+					buffer.get(payload);
+					buffer.get();
+					return payload;
 				}
 			}
+			return null;
 		}
-		return null;
 	}
 
-	private boolean isEol(ByteBuffer buffer) {
-		if (buffer.remaining() > 0) {
-			byte b = buffer.get();
+	/**
+	 * Find the index of the next LF starting from the given index.
+	 * @return the index or -1 if the buffer ends before the end of the line
+	 */
+	private int findEol(ByteBuffer buffer, int from) {
+		int limit = buffer.limit();
+		for (int i = from; i < limit; i++) {
+			byte b = buffer.get(i);
 			if (b == '\n') {
-				return true;
+				return i;
 			}
-			else if (b == '\r') {
-				if (buffer.remaining() > 0 && buffer.get() == '\n') {
-					return true;
-				}
-				else {
-					throw new StompConversionException("'\\r' must be followed by '\\n'");
-				}
+			if (b == '\r' && i + 1 < limit && buffer.get(i + 1) != '\n') {
+				throw new StompConversionException("'\\r' must be followed by '\\n'");
 			}
-			buffer.position(buffer.position() - 1);
 		}
-		return false;
+		return -1;
 	}
-}
\ No newline at end of file
+
+	private int lineEnd(ByteBuffer buffer, int lineStart, int eol) {
+		return (eol > lineStart && buffer.get(eol - 1) == '\r' ? eol - 1 : eol);
+	}
+
+	private boolean matches(ByteBuffer buffer, int start, int length, String name) {
+		if (name.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(start + i) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String readString(ByteBuffer buffer, int start, int end) {
+		int length = end - start;
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, UTF8_CHARSET);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, UTF8_CHARSET);
+	}
+
+	/**
+	 * See STOMP Spec 1.2:
+	 * <a href="http://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
+	 */
+	private String unescape(String input) {
+		int index = input.indexOf('\\');
+		if (index == -1) {
+			return input;
+		}
+		StringBuilder sb = new StringBuilder(input.length());
+		int start = 0;
+		while (index >= 0 && index + 1 < input.length()) {
+			sb.append(input, start, index);
+			char c = input.charAt(index + 1);
+			if (c == 'r') {
+				sb.append('\r');
+			}
+			else if (c == 'n') {
+				sb.append('\n');
+			}
+			else if (c == 'c') {
+				sb.append(':');
+			}
+			else if (c == '\\') {
+				sb.append('\\');
+			}
+			else {
+				// Not a STOMP escape sequence, keep as is
+				sb.append('\\').append(c);
+			}
+			start = index + 2;
+			index = input.indexOf('\\', start);
+		}
+		sb.append(input, start, input.length());
+		return sb.toString();
+	}
+
+}
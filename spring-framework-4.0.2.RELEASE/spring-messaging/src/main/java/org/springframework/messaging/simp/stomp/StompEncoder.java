@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,13 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,6 +32,11 @@ import org.springframework.messaging.simp.SimpMessageType;
 /**
  * An encoder for STOMP frames.
  *
+ * <p>The size of the encoded frame is computed up front so that the frame is
+ * written into a single, exactly sized byte array. The bytes of commands and of
+ * header names are cached, and header values are only escaped when they contain
+ * characters that require it.
+ *
  * @author Andy Wilkinson
  * @since 4.0
  */
@@ -43,8 +48,25 @@ public final class StompEncoder  {
 
 	private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
 
+	private static final byte[] CONTENT_LENGTH_PREFIX =
+			(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER + ":").getBytes(UTF8_CHARSET);
+
+	private static final int HEADER_NAME_CACHE_LIMIT = 256;
+
+	private static final Map<StompCommand, byte[]> commandBytes = new EnumMap<StompCommand, byte[]>(StompCommand.class);
+
+	static {
+		for (StompCommand command : StompCommand.values()) {
+			commandBytes.put(command, command.name().getBytes(UTF8_CHARSET));
+		}
+	}
+
+
 	private final Log logger = LogFactory.getLog(StompEncoder.class);
 
+	private final Map<String, byte[]> headerNameBytes = new ConcurrentHashMap<String, byte[]>(64);
+
+
 	/**
 	 * Encodes the given STOMP {@code message} into a {@code byte[]}
 	 *
@@ -53,83 +75,129 @@ public final class StompEncoder  {
 	 * @return The encoded message
 	 */
 	public byte[] encode(Message<byte[]> message) {
-		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			DataOutputStream output = new DataOutputStream(baos);
-
-			StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
-
-			if (isHeartbeat(headers)) {
-				output.write(message.getPayload());
-			} else {
-				writeCommand(headers, output);
-				writeHeaders(headers, message, output);
-				output.write(LF);
-				writeBody(message, output);
-				output.write((byte)0);
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
+
+		if (isHeartbeat(headers)) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Encoded heartbeat");
 			}
+			return message.getPayload();
+		}
+
+		StompCommand command = headers.getCommand();
+		byte[] commandName = commandBytes.get(command);
+		byte[] payload = message.getPayload();
+
+		Map<String, List<String>> stompHeaders = headers.toStompHeaderMap();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Encoded STOMP command=" + command + " headers=" + stompHeaders);
+		}
+
+		boolean escape = (command != StompCommand.CONNECT && command != StompCommand.CONNECTED);
+		List<byte[]> headerLines = new ArrayList<byte[]>(stompHeaders.size() * 2);
+		int size = commandName.length + 1;
+		for (Entry<String, List<String>> entry : stompHeaders.entrySet()) {
+			byte[] key = getHeaderNameBytes(entry.getKey(), escape);
+			for (String value : entry.getValue()) {
+				byte[] valueBytes = getUtf8Bytes(value, escape);
+				headerLines.add(key);
+				headerLines.add(valueBytes);
+				size += key.length + 1 + valueBytes.length + 1;
+			}
+		}
 
-			return baos.toByteArray();
+		byte[] contentLength = null;
+		if ((command == StompCommand.SEND) || (command == StompCommand.MESSAGE) || (command == StompCommand.ERROR)) {
+			contentLength = Integer.toString(payload.length).getBytes(UTF8_CHARSET);
+			size += CONTENT_LENGTH_PREFIX.length + contentLength.length + 1;
+		}
+		size += 1 + payload.length + 1;
+
+		byte[] frame = new byte[size];
+		int index = write(commandName, frame, 0);
+		frame[index++] = LF;
+		for (int i = 0; i < headerLines.size(); i += 2) {
+			index = write(headerLines.get(i), frame, index);
+			frame[index++] = COLON;
+			index = write(headerLines.get(i + 1), frame, index);
+			frame[index++] = LF;
 		}
-		catch (IOException e) {
-			throw new StompConversionException("Failed to encode STOMP frame",  e);
+		if (contentLength != null) {
+			index = write(CONTENT_LENGTH_PREFIX, frame, index);
+			index = write(contentLength, frame, index);
+			frame[index++] = LF;
 		}
+		frame[index++] = LF;
+		index = write(payload, frame, index);
+		frame[index] = 0;
+		return frame;
 	}
 
 	private boolean isHeartbeat(StompHeaderAccessor headers) {
 		return headers.getMessageType() == SimpMessageType.HEARTBEAT;
 	}
 
-	private void writeCommand(StompHeaderAccessor headers, DataOutputStream output) throws IOException {
-		output.write(headers.getCommand().toString().getBytes(UTF8_CHARSET));
-		output.write(LF);
+	private int write(byte[] source, byte[] target, int index) {
+		System.arraycopy(source, 0, target, index, source.length);
+		return index + source.length;
 	}
 
-	private void writeHeaders(StompHeaderAccessor headers, Message<byte[]> message, DataOutputStream output)
-			throws IOException {
-
-		Map<String,List<String>> stompHeaders = headers.toStompHeaderMap();
-		if (SimpMessageType.HEARTBEAT.equals(headers.getMessageType())) {
-			logger.trace("Encoded heartbeat");
-		}
-		else if (logger.isDebugEnabled()) {
-			logger.debug("Encoded STOMP command=" + headers.getCommand() + " headers=" + stompHeaders);
+	private byte[] getHeaderNameBytes(String name, boolean escape) {
+		if (escape && requiresEscaping(name)) {
+			return escape(name).getBytes(UTF8_CHARSET);
 		}
-		for (Entry<String, List<String>> entry : stompHeaders.entrySet()) {
-			byte[] key = getUtf8BytesEscapingIfNecessary(entry.getKey(), headers);
-			for (String value : entry.getValue()) {
-				output.write(key);
-				output.write(COLON);
-				output.write(getUtf8BytesEscapingIfNecessary(value, headers));
-				output.write(LF);
+		byte[] bytes = this.headerNameBytes.get(name);
+		if (bytes == null) {
+			bytes = name.getBytes(UTF8_CHARSET);
+			if (this.headerNameBytes.size() < HEADER_NAME_CACHE_LIMIT) {
+				this.headerNameBytes.put(name, bytes);
 			}
 		}
-		if ((headers.getCommand() == StompCommand.SEND) || (headers.getCommand() == StompCommand.MESSAGE) ||
-				(headers.getCommand() == StompCommand.ERROR)) {
-
-			output.write("content-length:".getBytes(UTF8_CHARSET));
-			output.write(Integer.toString(message.getPayload().length).getBytes(UTF8_CHARSET));
-			output.write(LF);
-		}
-	}
-
-	private void writeBody(Message<byte[]> message, DataOutputStream output) throws IOException {
-		output.write(message.getPayload());
+		return bytes;
 	}
 
-	private byte[] getUtf8BytesEscapingIfNecessary(String input, StompHeaderAccessor headers) {
-		if (headers.getCommand() != StompCommand.CONNECT && headers.getCommand() != StompCommand.CONNECTED) {
+	private byte[] getUtf8Bytes(String input, boolean escape) {
+		if (escape && requiresEscaping(input)) {
 			return escape(input).getBytes(UTF8_CHARSET);
 		}
-		else {
-			return input.getBytes(UTF8_CHARSET);
+		return input.getBytes(UTF8_CHARSET);
+	}
+
+	private boolean requiresEscaping(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '\\' || c == ':' || c == '\n' || c == '\r') {
+				return true;
+			}
 		}
+		return false;
 	}
 
+	/**
+	 * See STOMP Spec 1.2:
+	 * <a href="http://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
+	 */
 	private String escape(String input) {
-		return input.replaceAll("\\\\", "\\\\\\\\")
-				.replaceAll(":", "\\\\c")
-				.replaceAll("\n", "\\\\n")
-				.replaceAll("\r", "\\\\r");
+		StringBuilder sb = new StringBuilder(input.length() + 8);
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '\\') {
+				sb.append("\\\\");
+			}
+			else if (c == ':') {
+				sb.append("\\c");
+			}
+			else if (c == '\n') {
+				sb.append("\\n");
+			}
+			else if (c == '\r') {
+				sb.append("\\r");
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
 	}
-}
\ No newline at end of file
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -157,6 +157,102 @@ public class DefaultSubscriptionRegistryTests {
 		assertEquals("Expected no elements " + actual, 0, actual.size());
 	}
 
+	@Test
+	public void registerSubscriptionWithDestinationTemplate() {
+
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/{id}"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs02", "/topic/{id}/price"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(message("/topic/123"));
+
+		assertEquals("Expected one element " + actual, 1, actual.size());
+		assertEquals(Arrays.asList("subs01"), actual.get("sess01"));
+
+		actual = this.registry.findSubscriptions(message("/topic/123/price"));
+
+		assertEquals("Expected one element " + actual, 1, actual.size());
+		assertEquals(Arrays.asList("subs02"), actual.get("sess02"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs01"));
+		actual = this.registry.findSubscriptions(message("/topic/456"));
+
+		assertEquals("Expected no elements " + actual, 0, actual.size());
+	}
+
+	@Test
+	public void registerSubscriptionWithDestinationAndPattern() {
+
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/PRICE.STOCK.NASDAQ.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs02", "/topic/PRICE.STOCK.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess03", "subs03", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess04", "subs04", "/queue/**"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(message("/topic/PRICE.STOCK.NASDAQ.IBM"));
+
+		assertEquals("Expected three elements " + actual, 3, actual.size());
+		assertEquals(Arrays.asList("subs01"), actual.get("sess01"));
+		assertEquals(Arrays.asList("subs02"), actual.get("sess02"));
+		assertEquals(Arrays.asList("subs03"), actual.get("sess03"));
+	}
+
+	@Test
+	public void registerSubscriptionAfterDestinationCached() {
+
+		String dest = "/topic/PRICE.STOCK.NASDAQ.IBM";
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", dest));
+		assertEquals(1, this.registry.findSubscriptions(message(dest)).size());
+
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs02", "/topic/PRICE.STOCK.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess03", "subs03", "/topic/PRICE.STOCK.*.MSFT"));
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(message(dest));
+
+		assertEquals("Expected two elements " + actual, 2, actual.size());
+		assertEquals(Arrays.asList("subs02"), actual.get("sess02"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs01"));
+		actual = this.registry.findSubscriptions(message(dest));
+
+		assertEquals("Expected one element " + actual, 1, actual.size());
+		assertEquals(Arrays.asList("subs02"), actual.get("sess02"));
+
+		this.registry.unregisterAllSubscriptions("sess02");
+		actual = this.registry.findSubscriptions(message(dest));
+
+		assertEquals("Expected no elements " + actual, 0, actual.size());
+	}
+
+	@Test
+	public void cacheLimitExceeded() {
+
+		this.registry.setCacheLimit(1);
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/bar"));
+
+		assertEquals(1, this.registry.findSubscriptions(message("/foo")).size());
+		assertEquals(1, this.registry.findSubscriptions(message("/bar")).size());
+		assertEquals(1, this.registry.findSubscriptions(message("/foo")).size());
+		assertEquals(1, this.registry.findSubscriptions(message("/bar")).size());
+	}
+
+	@Test
+	public void cacheLimitExceededEvictsLeastRecentlyUsed() {
+
+		this.registry.setCacheLimit(2);
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/foo"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/bar"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs03", "/baz"));
+
+		MultiValueMap<String, String> foo = this.registry.findSubscriptions(message("/foo"));
+		MultiValueMap<String, String> bar = this.registry.findSubscriptions(message("/bar"));
+		for (int i = 0; i < 32; i++) {
+			assertSame(foo, this.registry.findSubscriptions(message("/foo")));
+		}
+		this.registry.findSubscriptions(message("/baz"));
+
+		assertSame("Frequently used destination evicted", foo, this.registry.findSubscriptions(message("/foo")));
+		assertNotSame(bar, this.registry.findSubscriptions(message("/bar")));
+	}
+
 	@Test
 	public void unregisterSubscription() {
 
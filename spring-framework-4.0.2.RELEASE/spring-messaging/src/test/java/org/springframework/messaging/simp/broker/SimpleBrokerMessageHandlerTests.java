@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -120,6 +120,37 @@ public class SimpleBrokerMessageHandlerTests {
 		assertCapturedMessage(sess2, "sub3", "/bar");
 	}
 
+	@Test
+	public void publishSharesPayloadAcrossSubscribers() {
+
+		this.messageHandler.setFanOutStatsEnabled(true);
+		this.messageHandler.start();
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub2", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub1", "/foo"));
+
+		Message<String> message = createMessage("/foo", "message1");
+		this.messageHandler.handleMessage(message);
+		this.messageHandler.handleMessage(createMessage("/bar", "message2"));
+
+		verify(this.clientOutboundChannel, times(3)).send(this.messageCaptor.capture());
+		assertTrue(assertCapturedMessage("sess1", "sub1", "/foo"));
+		assertTrue(assertCapturedMessage("sess1", "sub2", "/foo"));
+		assertTrue(assertCapturedMessage("sess2", "sub1", "/foo"));
+		for (Message<?> captured : this.messageCaptor.getAllValues()) {
+			assertSame(message.getPayload(), captured.getPayload());
+			assertNotEquals(message.getHeaders().getId(), captured.getHeaders().getId());
+		}
+
+		SimpleBrokerMessageHandler.FanOutStats stats = this.messageHandler.getFanOutStats().get("/foo");
+		assertNotNull(stats);
+		assertEquals(1, stats.getMessageCount());
+		assertEquals(3, stats.getSendCount());
+		assertTrue(stats.getMaxTimeNanos() >= stats.getAverageTimeNanos());
+		assertNull(this.messageHandler.getFanOutStats().get("/bar"));
+	}
+
 	@Test
 	public void connect() {
 
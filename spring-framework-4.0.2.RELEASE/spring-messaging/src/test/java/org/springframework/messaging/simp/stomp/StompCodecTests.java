@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,6 +26,8 @@ import org.junit.Test;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 import reactor.function.Consumer;
 import reactor.function.Function;
@@ -38,6 +42,8 @@ import static org.junit.Assert.*;
  */
 public class StompCodecTests {
 
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
 	private final ArgumentCapturingConsumer<Message<byte[]>> consumer = new ArgumentCapturingConsumer<Message<byte[]>>();
 
 	private final Function<Buffer, Message<byte[]>> decoder = new StompCodec().decoder(consumer);
@@ -181,6 +187,57 @@ public class StompCodecTests {
 		decode("SEND\ncontent-length:23\n\nThe body of the message*");
 	}
 
+	@Test
+	public void decodeFrameSplitAcrossReads() {
+		String frame = "SEND\ndestination:test\ncontent-length:23\n\nThe body of the message\0";
+
+		Buffer buffer = Buffer.wrap(frame.substring(0, 30));
+		assertNull(decode(buffer));
+		assertEquals(0, buffer.position());
+
+		// A read shorter than the known content-length is not parsed again
+		buffer = Buffer.wrap(frame.substring(0, 50));
+		assertNull(decode(buffer));
+		assertEquals(0, buffer.position());
+
+		Message<byte[]> message = decode(Buffer.wrap(frame));
+		assertNotNull(message);
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
+		assertEquals(StompCommand.SEND, headers.getCommand());
+		assertEquals("test", headers.getDestination());
+		assertEquals("The body of the message", new String(message.getPayload()));
+	}
+
+	@Test
+	public void decodeMultipleFramesWithPartialFrameAtEnd() {
+		String frame1 = "DISCONNECT\n\n\0";
+		String frame2 = "SEND\ncontent-length:23\n\nThe bo";
+		ByteBuffer buffer = ByteBuffer.wrap((frame1 + frame2).getBytes());
+
+		MultiValueMap<String, String> partialHeaders = new LinkedMultiValueMap<String, String>();
+		List<Message<byte[]>> messages = new StompDecoder().decode(buffer, partialHeaders);
+
+		assertEquals(1, messages.size());
+		assertEquals(StompCommand.DISCONNECT, StompHeaderAccessor.wrap(messages.get(0)).getCommand());
+		assertEquals(frame1.length(), buffer.position());
+		assertEquals("23", partialHeaders.getFirst("content-length"));
+	}
+
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = "SEND\ndestination:/topic/f\u00f6\u00f6\n\nThe body\0".getBytes(UTF8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+
+		List<Message<byte[]>> messages = new StompDecoder().decode(buffer);
+
+		assertEquals(1, messages.size());
+		assertEquals("/topic/f\u00f6\u00f6", StompHeaderAccessor.wrap(messages.get(0)).getDestination());
+		assertEquals("The body", new String(messages.get(0).getPayload()));
+		assertFalse(buffer.hasRemaining());
+	}
+
 	@Test
 	public void decodeHeartbeat() {
 		String frame = "\n";
@@ -232,6 +289,28 @@ public class StompCodecTests {
 		assertEquals("DISCONNECT\na\\c\\r\\n\\\\b:alpha\\cbravo\\r\\n\\\\\n\n\0", new StompCodec().encoder().apply(frame).asString());
 	}
 
+	@Test
+	public void encodeAndDecodeRoundTrip() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		headers.setDestination("/topic/foo");
+		headers.setSubscriptionId("sub-1");
+		headers.setMessageId("msg-1");
+		headers.addNativeHeader("a:b", "c\\d");
+
+		Message<byte[]> frame = MessageBuilder.withPayload("Message body".getBytes()).setHeaders(headers).build();
+		byte[] bytes = new StompEncoder().encode(frame);
+
+		Message<byte[]> decoded = decode(Buffer.wrap(bytes));
+		StompHeaderAccessor decodedHeaders = StompHeaderAccessor.wrap(decoded);
+		assertEquals(StompCommand.MESSAGE, decodedHeaders.getCommand());
+		assertEquals("/topic/foo", decodedHeaders.getDestination());
+		assertEquals("sub-1", decodedHeaders.getSubscriptionId());
+		assertEquals("msg-1", decodedHeaders.getMessageId());
+		assertEquals("c\\d", decodedHeaders.getFirstNativeHeader("a:b"));
+		assertEquals("12", decodedHeaders.getFirstNativeHeader("content-length"));
+		assertEquals("Message body", new String(decoded.getPayload()));
+	}
+
 	@Test
 	public void encodeFrameWithHeadersBody() {
 		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
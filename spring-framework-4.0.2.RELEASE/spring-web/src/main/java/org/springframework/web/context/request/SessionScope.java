@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,10 @@ import org.springframework.beans.factory.ObjectFactory;
  * (as exposed out-of-the-box by Spring's
  * {@link org.springframework.web.portlet.DispatcherPortlet}.
  *
+ * <p>As of 4.0.3, existing scoped objects are obtained from the session without
+ * synchronizing on the session mutex; the mutex is only acquired for creating
+ * (or removing) a scoped object.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -88,7 +92,12 @@ public class SessionScope extends AbstractRequestAttributesScope {
 
 	@Override
 	public Object get(String name, ObjectFactory<?> objectFactory) {
-		Object mutex = RequestContextHolder.currentRequestAttributes().getSessionMutex();
+		RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+		Object scopedObject = attributes.getAttribute(name, getScope());
+		if (scopedObject != null) {
+			return scopedObject;
+		}
+		Object mutex = attributes.getSessionMutex();
 		synchronized (mutex) {
 			return super.get(name, objectFactory);
 		}
@@ -16,11 +16,16 @@
 
 package org.springframework.web.filter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -30,8 +35,6 @@ import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.springframework.http.HttpMethod;
 import org.springframework.util.Assert;
-import org.springframework.util.DigestUtils;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.util.WebUtils;
 
 /**
@@ -42,6 +45,12 @@ import org.springframework.web.util.WebUtils;
  * <p>Since the ETag is based on the response content, the response (or {@link org.springframework.web.servlet.View})
  * is still rendered. As such, this filter only saves bandwidth, not server performance.
  *
+ * <p>The response content is buffered in a chain of chunks rather than in a single growing array.
+ * With {@linkplain #setIncrementalDigest incremental digest} mode, the ETag is computed while the
+ * content is being written, avoiding a further copy of the buffered content. Responses exceeding
+ * the {@linkplain #setMaxETagContentLength maximum content length} as well as responses that are
+ * explicitly flushed by the application are streamed through to the client without an ETag.
+ *
  * @author Arjen Poutsma
  * @author Rossen Stoyanchev
  * @since 3.0
@@ -56,6 +65,79 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 	private static final String DIRECTIVE_NO_STORE = "no-store";
 
+	/** Name of the non-cryptographic CRC-32 checksum, as an alternative hash algorithm */
+	public static final String CRC32_ALGORITHM = "CRC32";
+
+	private static final char[] HEX_CHARS =
+			{'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+
+	private String hashAlgorithm = "MD5";
+
+	private boolean incrementalDigest = false;
+
+	private int maxETagContentLength = -1;
+
+
+	/**
+	 * Set the name of the hash algorithm to generate ETag values with:
+	 * any {@link MessageDigest} algorithm, or {@link #CRC32_ALGORITHM "CRC32"}
+	 * for a cheaper non-cryptographic checksum.
+	 * <p>Default is "MD5".
+	 * @since 4.0.3
+	 */
+	public void setHashAlgorithm(String hashAlgorithm) {
+		Assert.hasText(hashAlgorithm, "Hash algorithm must not be empty");
+		this.hashAlgorithm = hashAlgorithm;
+	}
+
+	/**
+	 * Return the name of the hash algorithm to generate ETag values with.
+	 * @since 4.0.3
+	 */
+	public String getHashAlgorithm() {
+		return this.hashAlgorithm;
+	}
+
+	/**
+	 * Set whether to compute the ETag digest incrementally while the response
+	 * content is being written, rather than from a copy of the complete content.
+	 * <p>Note that {@link #generateETagHeaderValue(byte[])} is not called in this
+	 * mode, and {@link #isEligibleForEtag} receives a {@code null} response body.
+	 * <p>Default is "false".
+	 * @since 4.0.3
+	 */
+	public void setIncrementalDigest(boolean incrementalDigest) {
+		this.incrementalDigest = incrementalDigest;
+	}
+
+	/**
+	 * Return whether to compute the ETag digest incrementally.
+	 * @since 4.0.3
+	 */
+	public boolean isIncrementalDigest() {
+		return this.incrementalDigest;
+	}
+
+	/**
+	 * Set the maximum content length (in bytes) to generate an ETag for.
+	 * Once a response exceeds this length, its content is no longer buffered
+	 * but streamed through to the client, without an ETag header.
+	 * <p>Default is -1, indicating no limit.
+	 * @since 4.0.3
+	 */
+	public void setMaxETagContentLength(int maxETagContentLength) {
+		this.maxETagContentLength = maxETagContentLength;
+	}
+
+	/**
+	 * Return the maximum content length to generate an ETag for.
+	 * @since 4.0.3
+	 */
+	public int getMaxETagContentLength() {
+		return this.maxETagContentLength;
+	}
+
 
 	/**
 	 * The default value is "false" so that the filter may delay the generation of
@@ -71,7 +153,8 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 			throws ServletException, IOException {
 
 		if (!isAsyncDispatch(request)) {
-			response = new ShallowEtagResponseWrapper(response);
+			response = new ShallowEtagResponseWrapper(response,
+					(this.incrementalDigest ? createDigest() : null), this.maxETagContentLength);
 		}
 
 		filterChain.doFilter(request, response);
@@ -88,11 +171,19 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 		response = (HttpServletResponse) responseWrapper.getResponse();
 
-		byte[] body = responseWrapper.toByteArray();
 		int statusCode = responseWrapper.getStatusCode();
+		if (responseWrapper.isStreaming()) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Response with status code [" + statusCode + "] streamed - not eligible for ETag");
+			}
+			return;
+		}
+
+		MessageDigest digest = responseWrapper.getDigest();
+		byte[] body = (digest == null ? responseWrapper.toByteArray() : null);
 
 		if (isEligibleForEtag(request, responseWrapper, statusCode, body)) {
-			String responseETag = generateETagHeaderValue(body);
+			String responseETag = (digest != null ? formatETagHeaderValue(digest) : generateETagHeaderValue(body));
 			response.setHeader(HEADER_ETAG, responseETag);
 
 			String requestETag = request.getHeader(HEADER_IF_NONE_MATCH);
@@ -107,21 +198,24 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 					logger.trace("ETag [" + responseETag + "] not equal to If-None-Match [" + requestETag +
 							"], sending normal response");
 				}
-				copyBodyToResponse(body, response);
+				copyBodyToResponse(responseWrapper, response);
 			}
 		}
 		else {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Response with status code [" + statusCode + "] not eligible for ETag");
 			}
-			copyBodyToResponse(body, response);
+			copyBodyToResponse(responseWrapper, response);
 		}
 	}
 
-	private void copyBodyToResponse(byte[] body, HttpServletResponse response) throws IOException {
-		if (body.length > 0) {
-			response.setContentLength(body.length);
-			StreamUtils.copy(body, response.getOutputStream());
+	private void copyBodyToResponse(ShallowEtagResponseWrapper responseWrapper, HttpServletResponse response)
+			throws IOException {
+
+		int contentLength = responseWrapper.getContentSize();
+		if (contentLength > 0) {
+			response.setContentLength(contentLength);
+			responseWrapper.flushContent();
 		}
 	}
 
@@ -137,7 +231,8 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 	 * @param request the HTTP request
 	 * @param response the HTTP response
 	 * @param responseStatusCode the HTTP response status code
-	 * @param responseBody the response body
+	 * @param responseBody the response body, or {@code null} in
+	 * {@linkplain #setIncrementalDigest incremental digest} mode
 	 * @return {@code true} if eligible for ETag generation; {@code false} otherwise
 	 */
 	protected boolean isEligibleForEtag(HttpServletRequest request, HttpServletResponse response,
@@ -151,27 +246,54 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 	/**
 	 * Generate the ETag header value from the given response body byte array.
-	 * <p>The default implementation generates an MD5 hash.
+	 * <p>The default implementation generates a hash with the configured
+	 * {@linkplain #setHashAlgorithm hash algorithm}, MD5 by default.
 	 * @param bytes the response body as byte array
 	 * @return the ETag header value
 	 * @see org.springframework.util.DigestUtils
 	 */
 	protected String generateETagHeaderValue(byte[] bytes) {
-		StringBuilder builder = new StringBuilder("\"0");
-		DigestUtils.appendMd5DigestAsHex(bytes, builder);
+		MessageDigest digest = createDigest();
+		digest.update(bytes);
+		return formatETagHeaderValue(digest);
+	}
+
+	private MessageDigest createDigest() {
+		if (CRC32_ALGORITHM.equals(this.hashAlgorithm)) {
+			return new Crc32MessageDigest();
+		}
+		try {
+			return MessageDigest.getInstance(this.hashAlgorithm);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("Could not find MessageDigest with algorithm \"" + this.hashAlgorithm + "\"", ex);
+		}
+	}
+
+	private static String formatETagHeaderValue(MessageDigest digest) {
+		byte[] hash = digest.digest();
+		StringBuilder builder = new StringBuilder(hash.length * 2 + 3);
+		builder.append("\"0");
+		for (byte b : hash) {
+			builder.append(HEX_CHARS[(b >> 4) & 0xF]).append(HEX_CHARS[b & 0xF]);
+		}
 		builder.append('"');
 		return builder.toString();
 	}
 
-
 	/**
 	 * {@link HttpServletRequest} wrapper that buffers all content written to the
 	 * {@linkplain #getOutputStream() output stream} and {@linkplain #getWriter() writer},
-	 * and allows this content to be retrieved via a {@link #toByteArray() byte array}.
+	 * optionally updating a digest along the way, and switches to streaming the content
+	 * through once the maximum content length is exceeded or the buffer gets flushed.
 	 */
 	private static class ShallowEtagResponseWrapper extends HttpServletResponseWrapper {
 
-		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		private final ContentBuffer content = new ContentBuffer();
+
+		private final MessageDigest digest;
+
+		private final int maxContentLength;
 
 		private final ServletOutputStream outputStream = new ResponseServletOutputStream();
 
@@ -179,8 +301,12 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 		private int statusCode = HttpServletResponse.SC_OK;
 
-		public ShallowEtagResponseWrapper(HttpServletResponse response) {
+		private boolean streaming = false;
+
+		public ShallowEtagResponseWrapper(HttpServletResponse response, MessageDigest digest, int maxContentLength) {
 			super(response);
+			this.digest = digest;
+			this.maxContentLength = maxContentLength;
 		}
 
 		@Override
@@ -227,9 +353,19 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 			return this.writer;
 		}
 
+		@Override
+		public void flushBuffer() throws IOException {
+			// explicit flushing indicates a streamed response: no ETag then
+			startStreaming();
+			super.flushBuffer();
+		}
+
 		@Override
 		public void resetBuffer() {
 			this.content.reset();
+			if (this.digest != null) {
+				this.digest.reset();
+			}
 		}
 
 		@Override
@@ -239,24 +375,67 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		}
 
 		private int getStatusCode() {
-			return statusCode;
+			return this.statusCode;
+		}
+
+		private MessageDigest getDigest() {
+			return this.digest;
+		}
+
+		private boolean isStreaming() {
+			return this.streaming;
+		}
+
+		private int getContentSize() {
+			return this.content.size();
 		}
 
 		private byte[] toByteArray() {
 			return this.content.toByteArray();
 		}
 
+		private void flushContent() throws IOException {
+			if (this.content.size() > 0) {
+				this.content.writeTo(getResponse().getOutputStream());
+				this.content.reset();
+			}
+		}
+
+		private void startStreaming() throws IOException {
+			if (!this.streaming) {
+				this.streaming = true;
+				flushContent();
+			}
+		}
+
+		private void writeContent(byte[] b, int off, int len) throws IOException {
+			if (this.streaming) {
+				getResponse().getOutputStream().write(b, off, len);
+				return;
+			}
+			this.content.write(b, off, len);
+			if (this.digest != null) {
+				this.digest.update(b, off, len);
+			}
+			if (this.maxContentLength >= 0 && this.content.size() > this.maxContentLength) {
+				startStreaming();
+			}
+		}
+
 
 		private class ResponseServletOutputStream extends ServletOutputStream {
 
+			private final byte[] singleByte = new byte[1];
+
 			@Override
 			public void write(int b) throws IOException {
-				content.write(b);
+				this.singleByte[0] = (byte) b;
+				writeContent(this.singleByte, 0, 1);
 			}
 
 			@Override
 			public void write(byte[] b, int off, int len) throws IOException {
-				content.write(b, off, len);
+				writeContent(b, off, len);
 			}
 		}
 
@@ -264,7 +443,7 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		private class ResponsePrintWriter extends PrintWriter {
 
 			public ResponsePrintWriter(String characterEncoding) throws UnsupportedEncodingException {
-				super(new OutputStreamWriter(content, characterEncoding));
+				super(new OutputStreamWriter(outputStream, characterEncoding));
 			}
 
 			@Override
@@ -287,4 +466,105 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		}
 	}
 
+
+	/**
+	 * Chain of byte array chunks for buffering response content,
+	 * avoiding the reallocation and copying of a single growing array.
+	 */
+	private static class ContentBuffer {
+
+		private static final int INITIAL_CHUNK_SIZE = 256;
+
+		private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+		private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+		private byte[] currentChunk;
+
+		private int currentChunkIndex;
+
+		private int size;
+
+		public void write(byte[] b, int off, int len) {
+			while (len > 0) {
+				if (this.currentChunk == null || this.currentChunkIndex == this.currentChunk.length) {
+					int chunkSize = (this.currentChunk == null ? INITIAL_CHUNK_SIZE :
+							Math.min(this.currentChunk.length * 2, MAX_CHUNK_SIZE));
+					this.currentChunk = new byte[Math.max(chunkSize, Math.min(len, MAX_CHUNK_SIZE))];
+					this.currentChunkIndex = 0;
+					this.chunks.add(this.currentChunk);
+				}
+				int count = Math.min(len, this.currentChunk.length - this.currentChunkIndex);
+				System.arraycopy(b, off, this.currentChunk, this.currentChunkIndex, count);
+				this.currentChunkIndex += count;
+				this.size += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public void writeTo(OutputStream out) throws IOException {
+			for (byte[] chunk : this.chunks) {
+				out.write(chunk, 0, (chunk == this.currentChunk ? this.currentChunkIndex : chunk.length));
+			}
+		}
+
+		public byte[] toByteArray() {
+			byte[] result = new byte[this.size];
+			int pos = 0;
+			for (byte[] chunk : this.chunks) {
+				int count = (chunk == this.currentChunk ? this.currentChunkIndex : chunk.length);
+				System.arraycopy(chunk, 0, result, pos, count);
+				pos += count;
+			}
+			return result;
+		}
+
+		public void reset() {
+			this.chunks.clear();
+			this.currentChunk = null;
+			this.currentChunkIndex = 0;
+			this.size = 0;
+		}
+	}
+
+
+	/**
+	 * {@link MessageDigest} adapter for a CRC-32 checksum.
+	 */
+	private static class Crc32MessageDigest extends MessageDigest {
+
+		private final CRC32 checksum = new CRC32();
+
+		public Crc32MessageDigest() {
+			super(CRC32_ALGORITHM);
+		}
+
+		@Override
+		protected void engineUpdate(byte input) {
+			this.checksum.update(input);
+		}
+
+		@Override
+		protected void engineUpdate(byte[] input, int offset, int len) {
+			this.checksum.update(input, offset, len);
+		}
+
+		@Override
+		protected byte[] engineDigest() {
+			long value = this.checksum.getValue();
+			this.checksum.reset();
+			return new byte[] {(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value};
+		}
+
+		@Override
+		protected void engineReset() {
+			this.checksum.reset();
+		}
+	}
+
 }
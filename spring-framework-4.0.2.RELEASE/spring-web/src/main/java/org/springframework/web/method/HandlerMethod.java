@@ -57,6 +57,8 @@ public class HandlerMethod {
 
 	private final MethodParameter[] parameters;
 
+	private final HandlerMethod resolvedFromHandlerMethod;
+
 
 	/**
 	 * Create an instance from a bean instance and a method.
@@ -69,6 +71,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.resolvedFromHandlerMethod = null;
 	}
 
 	/**
@@ -83,6 +86,7 @@ public class HandlerMethod {
 		this.method = bean.getClass().getMethod(methodName, parameterTypes);
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(this.method);
 		this.parameters = initMethodParameters();
+		this.resolvedFromHandlerMethod = null;
 	}
 
 	/**
@@ -101,6 +105,7 @@ public class HandlerMethod {
 		this.method = method;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 		this.parameters = initMethodParameters();
+		this.resolvedFromHandlerMethod = null;
 	}
 
 	/**
@@ -113,6 +118,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.resolvedFromHandlerMethod = handlerMethod.resolvedFromHandlerMethod;
 	}
 
 	/**
@@ -126,6 +132,7 @@ public class HandlerMethod {
 		this.method = handlerMethod.method;
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
+		this.resolvedFromHandlerMethod = handlerMethod;
 	}
 
 
@@ -191,6 +198,17 @@ public class HandlerMethod {
 		return new ReturnValueMethodParameter(returnValue);
 	}
 
+	/**
+	 * Return the HandlerMethod from which this HandlerMethod instance was
+	 * resolved via {@link #createWithResolvedBean()}, if any. Serves as a
+	 * stable key for the handler method across individual requests.
+	 * @return the original HandlerMethod, or {@code null} if not resolved from one
+	 * @since 4.0.3
+	 */
+	public HandlerMethod getResolvedFromHandlerMethod() {
+		return this.resolvedFromHandlerMethod;
+	}
+
 	/**
 	 * Returns {@code true} if the method return type is void, {@code false} otherwise.
 	 */
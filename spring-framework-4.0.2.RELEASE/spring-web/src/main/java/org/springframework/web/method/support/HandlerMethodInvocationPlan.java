@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.method.support;
+
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.util.Assert;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Invocation details for a {@link HandlerMethod}, determined once and shared by
+ * the {@link InvocableHandlerMethod} instances created for individual requests:
+ * the {@link HandlerMethodArgumentResolver} for each method parameter, with
+ * parameter names and generic types resolved upfront, and the most recently
+ * used {@link HandlerMethodReturnValueHandler} for the type of return value.
+ *
+ * @author agent
+ * @since 4.0.3
+ * @see InvocableHandlerMethod#setInvocationPlan
+ */
+public class HandlerMethodInvocationPlan {
+
+	private final HandlerMethodArgumentResolver[] argumentResolvers;
+
+	private final HandlerMethodReturnValueHandlerComposite returnValueHandlers;
+
+	private volatile ReturnValueHandlerEntry lastReturnValueHandler;
+
+
+	/**
+	 * Create a new invocation plan for the given handler method.
+	 * @param handlerMethod the handler method
+	 * @param argumentResolvers the resolvers to select an argument resolver from for each parameter
+	 * @param returnValueHandlers the handlers to select a return value handler from (may be {@code null})
+	 * @param parameterNameDiscoverer the ParameterNameDiscoverer to initialize the parameters with
+	 */
+	public HandlerMethodInvocationPlan(HandlerMethod handlerMethod,
+			HandlerMethodArgumentResolverComposite argumentResolvers,
+			HandlerMethodReturnValueHandlerComposite returnValueHandlers,
+			ParameterNameDiscoverer parameterNameDiscoverer) {
+
+		Assert.notNull(handlerMethod, "HandlerMethod is required");
+		Assert.notNull(argumentResolvers, "HandlerMethodArgumentResolverComposite is required");
+		MethodParameter[] parameters = handlerMethod.getMethodParameters();
+		this.argumentResolvers = new HandlerMethodArgumentResolver[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			MethodParameter parameter = parameters[i];
+			parameter.initParameterNameDiscovery(parameterNameDiscoverer);
+			GenericTypeResolver.resolveParameterType(parameter, handlerMethod.getBeanType());
+			this.argumentResolvers[i] = argumentResolvers.getArgumentResolver(parameter);
+		}
+		this.returnValueHandlers = returnValueHandlers;
+	}
+
+
+	/**
+	 * Return the argument resolver for the parameter at the given index.
+	 * @return the resolver, or {@code null} if none supports the parameter
+	 */
+	public HandlerMethodArgumentResolver getArgumentResolver(int parameterIndex) {
+		return this.argumentResolvers[parameterIndex];
+	}
+
+	/**
+	 * Return the return value handler for the given return value, reusing the
+	 * handler selected for the previous return value if of the same type.
+	 * @param returnValue the value returned from the handler method
+	 * @param returnType the return type for the given value
+	 * @return the handler, or {@code null} if none supports the return type
+	 */
+	public HandlerMethodReturnValueHandler getReturnValueHandler(Object returnValue, MethodParameter returnType) {
+		Class<?> returnValueClass = (returnValue != null ? returnValue.getClass() : null);
+		ReturnValueHandlerEntry entry = this.lastReturnValueHandler;
+		if (entry != null && entry.returnValueClass == returnValueClass) {
+			return entry.handler;
+		}
+		HandlerMethodReturnValueHandler handler = null;
+		if (this.returnValueHandlers != null) {
+			handler = this.returnValueHandlers.getReturnValueHandler(returnType);
+			if (handler != null) {
+				this.lastReturnValueHandler = new ReturnValueHandlerEntry(returnValueClass, handler);
+			}
+		}
+		return handler;
+	}
+
+
+	/**
+	 * Return value handler for a specific type of return value.
+	 */
+	private static class ReturnValueHandlerEntry {
+
+		public final Class<?> returnValueClass;
+
+		public final HandlerMethodReturnValueHandler handler;
+
+		public ReturnValueHandlerEntry(Class<?> returnValueClass, HandlerMethodReturnValueHandler handler) {
+			this.returnValueClass = returnValueClass;
+			this.handler = handler;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -73,8 +73,10 @@ public class HandlerMethodReturnValueHandlerComposite implements HandlerMethodRe
 
 	/**
 	 * Find a registered {@link HandlerMethodReturnValueHandler} that supports the given return type.
+	 * @return the matching handler, or {@code null} if none found
+	 * @since 4.0.3
 	 */
-	private HandlerMethodReturnValueHandler getReturnValueHandler(MethodParameter returnType) {
+	public HandlerMethodReturnValueHandler getReturnValueHandler(MethodParameter returnType) {
 		for (HandlerMethodReturnValueHandler returnValueHandler : returnValueHandlers) {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Testing if return value handler [" + returnValueHandler + "] supports [" +
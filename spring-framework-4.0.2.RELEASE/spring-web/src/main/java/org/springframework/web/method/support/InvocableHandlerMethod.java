@@ -53,6 +53,8 @@ public class InvocableHandlerMethod extends HandlerMethod {
 
 	private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	private HandlerMethodInvocationPlan invocationPlan;
+
 
 	/**
 	 * Create an instance from the given handler and method.
@@ -105,6 +107,26 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
 	}
 
+	/**
+	 * Set a precomputed {@link HandlerMethodInvocationPlan} for this handler method,
+	 * typically shared with other instances for the same handler method. The plan
+	 * then takes the place of selecting an argument resolver for each parameter on
+	 * every invocation; it needs to be based on the same argument resolvers and
+	 * ParameterNameDiscoverer as set on this instance.
+	 * @since 4.0.3
+	 */
+	public void setInvocationPlan(HandlerMethodInvocationPlan invocationPlan) {
+		this.invocationPlan = invocationPlan;
+	}
+
+	/**
+	 * Return the {@link HandlerMethodInvocationPlan} for this handler method, if any.
+	 * @since 4.0.3
+	 */
+	public HandlerMethodInvocationPlan getInvocationPlan() {
+		return this.invocationPlan;
+	}
+
 
 	/**
 	 * Invoke the method after resolving its argument values in the context of the given request. <p>Argument
@@ -143,6 +165,9 @@ public class InvocableHandlerMethod extends HandlerMethod {
 			Object... providedArgs) throws Exception {
 
 		MethodParameter[] parameters = getMethodParameters();
+		if (this.invocationPlan != null) {
+			return getMethodArgumentValues(this.invocationPlan, parameters, request, mavContainer, providedArgs);
+		}
 		Object[] args = new Object[parameters.length];
 		for (int i = 0; i < parameters.length; i++) {
 			MethodParameter parameter = parameters[i];
@@ -173,6 +198,38 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		return args;
 	}
 
+	/**
+	 * Get the method argument values for the current request, using the
+	 * argument resolvers determined upfront by the given invocation plan.
+	 */
+	private Object[] getMethodArgumentValues(HandlerMethodInvocationPlan plan, MethodParameter[] parameters,
+			NativeWebRequest request, ModelAndViewContainer mavContainer, Object... providedArgs) throws Exception {
+
+		Object[] args = new Object[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			MethodParameter parameter = parameters[i];
+			args[i] = resolveProvidedArgument(parameter, providedArgs);
+			if (args[i] != null) {
+				continue;
+			}
+			HandlerMethodArgumentResolver resolver = plan.getArgumentResolver(i);
+			if (resolver == null) {
+				String msg = getArgumentResolutionErrorMessage("No suitable resolver for argument", i);
+				throw new IllegalStateException(msg);
+			}
+			try {
+				args[i] = resolver.resolveArgument(parameter, mavContainer, request, this.dataBinderFactory);
+			}
+			catch (Exception ex) {
+				if (logger.isTraceEnabled()) {
+					logger.trace(getArgumentResolutionErrorMessage("Error resolving argument", i), ex);
+				}
+				throw ex;
+			}
+		}
+		return args;
+	}
+
 	private String getArgumentResolutionErrorMessage(String message, int index) {
 		MethodParameter param = getMethodParameters()[index];
 		message += " [" + index + "] [type=" + param.getParameterType().getName() + "]";
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -67,6 +67,33 @@ public class SessionScopeTests extends TestCase {
 		}
 	}
 
+	public void testGetExistingFromScopeWithoutSessionMutex() throws Exception {
+		MockHttpSession session = new MockHttpSession();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(session);
+		final int[] mutexAccesses = new int[1];
+		ServletRequestAttributes requestAttributes = new ServletRequestAttributes(request) {
+			@Override
+			public Object getSessionMutex() {
+				mutexAccesses[0]++;
+				return super.getSessionMutex();
+			}
+		};
+
+		RequestContextHolder.setRequestAttributes(requestAttributes);
+		try {
+			String name = "sessionScopedObject";
+			TestBean bean = (TestBean) this.beanFactory.getBean(name);
+			assertEquals(1, mutexAccesses[0]);
+			assertSame(bean, this.beanFactory.getBean(name));
+			assertSame(bean, this.beanFactory.getBean(name));
+			assertEquals(1, mutexAccesses[0]);
+		}
+		finally {
+			RequestContextHolder.setRequestAttributes(null);
+		}
+	}
+
 	public void testDestructionAtSessionTermination() throws Exception {
 		MockHttpSession session = new MockHttpSession();
 		MockHttpServletRequest request = new MockHttpServletRequest();
@@ -136,4 +136,99 @@ public class ShallowEtagHeaderFilterTests {
 		assertArrayEquals("Invalid content", new byte[0], response.getContentAsByteArray());
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void filterIncrementalDigest() throws Exception {
+		filter.setIncrementalDigest(true);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes("UTF-8");
+		FilterChain filterChain = new FilterChain() {
+
+			@Override
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				filterResponse.getOutputStream().write(responseBody, 0, 5);
+				filterResponse.getOutputStream().write(responseBody, 5, responseBody.length - 5);
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 200, response.getStatus());
+		assertEquals("Invalid ETag header", "\"0b10a8db164e0754105b7a99be72e3fe5\"", response.getHeader("ETag"));
+		assertEquals("Invalid Content-Length header", responseBody.length, response.getContentLength());
+		assertArrayEquals("Invalid content", responseBody, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterWithCrc32() throws Exception {
+		filter.setHashAlgorithm(ShallowEtagHeaderFilter.CRC32_ALGORITHM);
+		filter.setIncrementalDigest(true);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		FilterChain filterChain = new FilterChain() {
+
+			@Override
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				FileCopyUtils.copy("Hello World", filterResponse.getWriter());
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid ETag header", "\"04a17b156\"", response.getHeader("ETag"));
+		assertEquals("Invalid content", "Hello World", response.getContentAsString());
+	}
+
+	@Test
+	public void filterStreamsLargeContent() throws Exception {
+		filter.setMaxETagContentLength(5);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		final MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes("UTF-8");
+		FilterChain filterChain = new FilterChain() {
+
+			@Override
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				filterResponse.getOutputStream().write(responseBody, 0, 4);
+				assertEquals(0, response.getContentAsByteArray().length);
+				filterResponse.getOutputStream().write(responseBody, 4, responseBody.length - 4);
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 200, response.getStatus());
+		assertNull("Unexpected ETag header", response.getHeader("ETag"));
+		assertArrayEquals("Invalid content", responseBody, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterStreamsFlushedContent() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		FilterChain filterChain = new FilterChain() {
+
+			@Override
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				filterResponse.getOutputStream().write("Hello ".getBytes("UTF-8"));
+				filterResponse.flushBuffer();
+				filterResponse.getOutputStream().write("World".getBytes("UTF-8"));
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertTrue("Response not committed", response.isCommitted());
+		assertNull("Unexpected ETag header", response.getHeader("ETag"));
+		assertEquals("Invalid content", "Hello World", response.getContentAsString());
+	}
+
+}
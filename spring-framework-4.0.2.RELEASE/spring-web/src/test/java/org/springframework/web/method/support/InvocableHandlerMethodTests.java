@@ -18,6 +18,7 @@ package org.springframework.web.method.support;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -26,6 +27,7 @@ import java.lang.reflect.Method;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.mock.web.test.MockHttpServletRequest;
@@ -121,6 +123,60 @@ public class InvocableHandlerMethodTests {
 		assertEquals("2-value2", returnValue);
 	}
 
+	@Test
+	public void resolveArgWithInvocationPlan() throws Exception {
+		StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, 99);
+		StubArgumentResolver stringResolver = new StubArgumentResolver(String.class, "value");
+
+		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
+		composite.addResolver(intResolver);
+		composite.addResolver(stringResolver);
+		HandlerMethodInvocationPlan plan = new HandlerMethodInvocationPlan(handlerMethod, composite, null,
+				new DefaultParameterNameDiscoverer());
+		assertSame(intResolver, plan.getArgumentResolver(0));
+		assertSame(stringResolver, plan.getArgumentResolver(1));
+
+		for (int i = 0; i < 2; i++) {
+			InvocableHandlerMethod requestMethod = new InvocableHandlerMethod(handlerMethod);
+			requestMethod.setHandlerMethodArgumentResolvers(composite);
+			requestMethod.setInvocationPlan(plan);
+			assertEquals("99-value", requestMethod.invokeForRequest(webRequest, null));
+			assertEquals("2-value", requestMethod.invokeForRequest(webRequest, null, 2));
+		}
+		assertEquals(2, intResolver.getResolvedParameters().size());
+		assertEquals("intArg", intResolver.getResolvedParameters().get(0).getParameterName());
+	}
+
+	@Test
+	public void cannotResolveArgWithInvocationPlan() throws Exception {
+		HandlerMethodInvocationPlan plan = new HandlerMethodInvocationPlan(handlerMethod,
+				new HandlerMethodArgumentResolverComposite(), null, new DefaultParameterNameDiscoverer());
+		handlerMethod.setInvocationPlan(plan);
+		try {
+			handlerMethod.invokeForRequest(webRequest, null);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("No suitable resolver for argument [0] [type=java.lang.Integer]"));
+		}
+	}
+
+	@Test
+	public void returnValueHandlerWithInvocationPlan() throws Exception {
+		StubReturnValueHandler stringHandler = new StubReturnValueHandler(String.class);
+		StubReturnValueHandler integerHandler = new StubReturnValueHandler(Integer.class);
+		HandlerMethodReturnValueHandlerComposite composite = new HandlerMethodReturnValueHandlerComposite();
+		composite.addHandler(stringHandler);
+		composite.addHandler(integerHandler);
+		HandlerMethodInvocationPlan plan = new HandlerMethodInvocationPlan(handlerMethod,
+				new HandlerMethodArgumentResolverComposite(), composite, new DefaultParameterNameDiscoverer());
+
+		assertSame(stringHandler, plan.getReturnValueHandler("value", handlerMethod.getReturnValueType("value")));
+		assertSame(stringHandler, plan.getReturnValueHandler("other", handlerMethod.getReturnValueType("other")));
+		assertSame(integerHandler, plan.getReturnValueHandler(1, handlerMethod.getReturnValueType(1)));
+		assertNull(plan.getReturnValueHandler(1L, handlerMethod.getReturnValueType(1L)));
+	}
+
 	@Test
 	public void exceptionInResolvingArg() throws Exception {
 		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
@@ -18,23 +18,29 @@ package org.springframework.web.servlet.handler;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.util.ReflectionUtils.MethodFilter;
+import org.springframework.util.StringUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.HandlerMethodSelector;
 import org.springframework.web.servlet.HandlerMapping;
@@ -46,6 +52,12 @@ import org.springframework.web.servlet.HandlerMapping;
  * <p>For each registered handler method, a unique mapping is maintained with
  * subclasses defining the details of the mapping type {@code <T>}.
  *
+ * <p>Mappings that cannot be matched by a direct URL lookup are narrowed down
+ * through an index of their URL path patterns, built from literal path segments
+ * and partitioned by HTTP request method, before their conditions are evaluated.
+ * Lookup results for direct URL matches that depend on the lookup path and the
+ * HTTP method only are additionally cached (see {@link #setLookupCacheLimit}).
+ *
  * @param <T> The mapping for a {@link HandlerMethod} containing the conditions
  * needed to match the handler method to incoming request.
  *
@@ -55,12 +67,45 @@ import org.springframework.web.servlet.HandlerMapping;
  */
 public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMapping implements InitializingBean {
 
+	/** Default maximum number of entries for the lookup cache: 1024 */
+	public static final int DEFAULT_LOOKUP_CACHE_LIMIT = 1024;
+
+	/** Every n-th lookup cache hit refreshes the entry's position in the eviction order */
+	private static final int LOOKUP_CACHE_REFRESH_INTERVAL = 16;
+
+
 	private boolean detectHandlerMethodsInAncestorContexts = false;
 
 	private final Map<T, HandlerMethod> handlerMethods = new LinkedHashMap<T, HandlerMethod>();
 
 	private final MultiValueMap<String, T> urlMap = new LinkedMultiValueMap<String, T>();
 
+	private volatile MappingIndex mappingIndex;
+
+	private volatile int lookupCacheLimit = DEFAULT_LOOKUP_CACHE_LIMIT;
+
+	/** Fast access cache for lookup results, returning immediately without a global lock */
+	private final Map<String, Match> lookupAccessCache = new ConcurrentHashMap<String, Match>(DEFAULT_LOOKUP_CACHE_LIMIT);
+
+	/** Write cache for lookup results, with the least recently used entries being evicted once the limit is reached */
+	@SuppressWarnings("serial")
+	private final Map<String, Match> lookupUpdateCache =
+			new LinkedHashMap<String, Match>(DEFAULT_LOOKUP_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Match> eldest) {
+					if (size() > getLookupCacheLimit()) {
+						lookupAccessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
+	/** Number of lookup cache hits, deliberately not synchronized since it only drives sampling */
+	private int lookupCacheHits;
+
 
 	/**
 	 * Whether to detect handler methods in beans in ancestor ApplicationContexts.
@@ -74,6 +119,31 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		this.detectHandlerMethodsInAncestorContexts = detectHandlerMethodsInAncestorContexts;
 	}
 
+	/**
+	 * Specify the maximum number of entries for the cache of lookup results,
+	 * keyed by HTTP method and lookup path.
+	 * <p>Only lookups resolved through a direct URL match, where all evaluated
+	 * mappings depend on the lookup path and the HTTP method alone, are cached
+	 * (see {@link #isCacheableMapping}). Lookups resolved through URL patterns
+	 * are not, since their lookup paths are typically unbounded (e.g. one per id
+	 * for "/persons/{id}") and would push the frequently used entries out.
+	 * Once the limit is reached, approximately the least recently used entries
+	 * are evicted. Default is 1024. A value of 0 turns the cache off.
+	 * @since 4.0.3
+	 */
+	public void setLookupCacheLimit(int lookupCacheLimit) {
+		this.lookupCacheLimit = lookupCacheLimit;
+		clearLookupCache();
+	}
+
+	/**
+	 * Return the maximum number of entries for the cache of lookup results.
+	 * @since 4.0.3
+	 */
+	public int getLookupCacheLimit() {
+		return this.lookupCacheLimit;
+	}
+
 	/**
 	 * Return a map with all handler methods and their mappings.
 	 */
@@ -109,6 +179,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				detectHandlerMethods(beanName);
 			}
 		}
+		getMappingIndex();
 		handlerMethodsInitialized(getHandlerMethods());
 	}
 
@@ -188,6 +259,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				this.urlMap.add(pattern, mapping);
 			}
 		}
+
+		// Rebuilt on next lookup
+		this.mappingIndex = null;
+		clearLookupCache();
 	}
 
 	/**
@@ -213,6 +288,33 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Set<String> getMappingPathPatterns(T mapping);
 
+	/**
+	 * Extract and return the HTTP request methods a mapping is restricted to,
+	 * used to partition the lookup index by HTTP method.
+	 * <p>The default implementation returns an empty set, i.e. the mapping is
+	 * considered a candidate for any HTTP method.
+	 * @param mapping the mapping to introspect
+	 * @return the names of the HTTP methods, or an empty set if not restricted
+	 * @since 4.0.3
+	 */
+	protected Set<String> getMappingRequestMethods(T mapping) {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Whether the outcome of {@link #getMatchingMapping} and of comparing the
+	 * matches for the given mapping depends on the lookup path and the HTTP
+	 * method of the request only. Lookup results are cached only if this is the
+	 * case for all mappings evaluated for a request.
+	 * <p>The default implementation returns {@code false}.
+	 * @param mapping the mapping to introspect
+	 * @since 4.0.3
+	 * @see #setLookupCacheLimit
+	 */
+	protected boolean isCacheableMapping(T mapping) {
+		return false;
+	}
+
 	/**
 	 * Invoked after all handler methods have been detected.
 	 * @param handlerMethods a read-only map with handler methods and mappings.
@@ -252,14 +354,33 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 * @see #handleNoMatch(Set, String, HttpServletRequest)
 	 */
 	protected HandlerMethod lookupHandlerMethod(String lookupPath, HttpServletRequest request) throws Exception {
+		String cacheKey = (getLookupCacheLimit() > 0 ? request.getMethod() + " " + lookupPath : null);
+		if (cacheKey != null) {
+			Match cachedMatch = this.lookupAccessCache.get(cacheKey);
+			if (cachedMatch != null) {
+				if (++this.lookupCacheHits % LOOKUP_CACHE_REFRESH_INTERVAL == 0) {
+					synchronized (this.lookupUpdateCache) {
+						// Access-ordered map: moves the entry to the most recently used end
+						this.lookupUpdateCache.get(cacheKey);
+					}
+				}
+				handleMatch(cachedMatch.mapping, lookupPath, request);
+				return cachedMatch.handlerMethod;
+			}
+		}
+
 		List<Match> matches = new ArrayList<Match>();
+		boolean cacheable = (cacheKey != null);
 		List<T> directPathMatches = this.urlMap.get(lookupPath);
 		if (directPathMatches != null) {
-			addMatchingMappings(directPathMatches, matches, request);
+			cacheable &= addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.handlerMethods.keySet(), matches, request);
+			// Go through all mappings that may match according to the lookup index...
+			// Pattern matches are not cached: their lookup paths would mostly be one-off keys.
+			Collection<T> candidates = getMappingIndex().getCandidateMappings(request.getMethod(), lookupPath);
+			addMatchingMappings(candidates, matches, request);
+			cacheable = false;
 		}
 
 		if (!matches.isEmpty()) {
@@ -279,6 +400,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 							m1 + ", " + m2 + "}");
 				}
 			}
+			if (cacheable) {
+				synchronized (this.lookupUpdateCache) {
+					this.lookupAccessCache.put(cacheKey, bestMatch);
+					this.lookupUpdateCache.put(cacheKey, bestMatch);
+				}
+			}
 			handleMatch(bestMatch.mapping, lookupPath, request);
 			return bestMatch.handlerMethod;
 		}
@@ -287,12 +414,35 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		}
 	}
 
-	private void addMatchingMappings(Collection<T> mappings, List<Match> matches, HttpServletRequest request) {
+	/**
+	 * Add the matches for the given mappings and return whether all
+	 * of them are {@link #isCacheableMapping cacheable}.
+	 */
+	private boolean addMatchingMappings(Collection<T> mappings, List<Match> matches, HttpServletRequest request) {
+		boolean cacheable = true;
 		for (T mapping : mappings) {
 			T match = getMatchingMapping(mapping, request);
 			if (match != null) {
 				matches.add(new Match(match, this.handlerMethods.get(mapping)));
 			}
+			cacheable &= isCacheableMapping(mapping);
+		}
+		return cacheable;
+	}
+
+	private MappingIndex getMappingIndex() {
+		MappingIndex index = this.mappingIndex;
+		if (index == null) {
+			index = new MappingIndex(this.handlerMethods.keySet());
+			this.mappingIndex = index;
+		}
+		return index;
+	}
+
+	private void clearLookupCache() {
+		synchronized (this.lookupUpdateCache) {
+			this.lookupAccessCache.clear();
+			this.lookupUpdateCache.clear();
 		}
 	}
 
@@ -359,6 +509,186 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	}
 
 
+	/**
+	 * An index of all registered mappings by the literal segments of their URL path
+	 * patterns, with one tree per HTTP method plus one for mappings not restricted to
+	 * specific HTTP methods. Pattern segments (e.g. "*", "{id}", "*.html") share one
+	 * child per node and "**" makes a mapping a candidate for all paths below its node.
+	 * The candidates returned for a lookup path are a superset of the mappings whose
+	 * patterns may match it, preserving the registration order of the mappings.
+	 * <p>The index assumes "/" separated patterns as used with {@link AntPathMatcher};
+	 * for any other {@link PathMatcher} all mappings are returned as candidates.
+	 */
+	private class MappingIndex {
+
+		private final List<T> mappings;
+
+		private final boolean enabled;
+
+		private final PathNode anyMethodRoot = new PathNode();
+
+		private final Map<String, PathNode> methodRoots = new HashMap<String, PathNode>(8);
+
+		public MappingIndex(Collection<T> mappings) {
+			this.mappings = new ArrayList<T>(mappings);
+			this.enabled = isIndexablePathMatcher(getPathMatcher());
+			if (!this.enabled) {
+				return;
+			}
+			for (int i = 0; i < this.mappings.size(); i++) {
+				T mapping = this.mappings.get(i);
+				Set<String> methods = getMappingRequestMethods(mapping);
+				if (methods.isEmpty()) {
+					addMapping(this.anyMethodRoot, mapping, i);
+				}
+				for (String method : methods) {
+					PathNode root = this.methodRoots.get(method);
+					if (root == null) {
+						root = new PathNode();
+						this.methodRoots.put(method, root);
+					}
+					addMapping(root, mapping, i);
+				}
+			}
+		}
+
+		private boolean isIndexablePathMatcher(PathMatcher pathMatcher) {
+			// Subclasses of AntPathMatcher may use different matching rules, and so
+			// does AntPathMatcher itself with a path separator other than "/"
+			return (pathMatcher != null && pathMatcher.getClass() == AntPathMatcher.class &&
+					pathMatcher.match("/a/*", "/a/b") && !pathMatcher.match("/*", "/a/b"));
+		}
+
+		private void addMapping(PathNode root, T mapping, int index) {
+			Set<String> patterns = getMappingPathPatterns(mapping);
+			if (patterns.isEmpty()) {
+				// Matches any path
+				root.multiSegmentMappings.set(index);
+				return;
+			}
+			for (String pattern : patterns) {
+				PathNode node = root;
+				boolean multiSegment = false;
+				for (String segment : tokenize(pattern)) {
+					if (segment.contains("**")) {
+						multiSegment = true;
+						break;
+					}
+					node = (isLiteral(segment) ? node.getOrCreateLiteralChild(segment) : node.getOrCreatePatternChild());
+				}
+				if (multiSegment) {
+					node.multiSegmentMappings.set(index);
+				}
+				else {
+					node.mappings.set(index);
+				}
+			}
+		}
+
+		private boolean isLiteral(String segment) {
+			for (int i = 0; i < segment.length(); i++) {
+				char c = segment.charAt(i);
+				if (c == '*' || c == '?' || c == '{' || c == '}') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String[] tokenize(String path) {
+			// Trimmed like AntPathMatcher does by default; trimming regardless only widens the candidates
+			return StringUtils.tokenizeToStringArray(path, "/", true, true);
+		}
+
+		public Collection<T> getCandidateMappings(String method, String lookupPath) {
+			if (!this.enabled) {
+				return this.mappings;
+			}
+			BitSet candidates = new BitSet(this.mappings.size());
+			String[] segments = tokenize(lookupPath);
+			boolean trailingSlash = lookupPath.endsWith("/");
+			this.anyMethodRoot.collect(segments, 0, trailingSlash, candidates);
+			PathNode methodRoot = (method != null ? this.methodRoots.get(method) : null);
+			if (methodRoot != null) {
+				methodRoot.collect(segments, 0, trailingSlash, candidates);
+			}
+			List<T> result = new ArrayList<T>(candidates.cardinality());
+			for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+				result.add(this.mappings.get(i));
+			}
+			return result;
+		}
+	}
+
+
+	/**
+	 * A node in the {@link MappingIndex}, holding the indexes of the mappings
+	 * with a pattern ending at this node or continuing with "**".
+	 */
+	private static class PathNode {
+
+		private final BitSet mappings = new BitSet();
+
+		private final BitSet multiSegmentMappings = new BitSet();
+
+		private Map<String, PathNode> literalChildren;
+
+		private PathNode patternChild;
+
+		public PathNode getOrCreateLiteralChild(String segment) {
+			if (this.literalChildren == null) {
+				this.literalChildren = new HashMap<String, PathNode>(4);
+			}
+			PathNode child = this.literalChildren.get(segment);
+			if (child == null) {
+				child = new PathNode();
+				this.literalChildren.put(segment, child);
+			}
+			return child;
+		}
+
+		public PathNode getOrCreatePatternChild() {
+			if (this.patternChild == null) {
+				this.patternChild = new PathNode();
+			}
+			return this.patternChild;
+		}
+
+		public void collect(String[] segments, int index, boolean trailingSlash, BitSet result) {
+			result.or(this.multiSegmentMappings);
+			if (index == segments.length) {
+				result.or(this.mappings);
+				if (trailingSlash && this.patternChild != null) {
+					// "/path/*" matches "/path/"
+					result.or(this.patternChild.mappings);
+				}
+				return;
+			}
+			String segment = segments[index];
+			if (this.patternChild != null) {
+				this.patternChild.collect(segments, index + 1, trailingSlash, result);
+			}
+			if (this.literalChildren != null) {
+				PathNode child = this.literalChildren.get(segment);
+				if (child != null) {
+					child.collect(segments, index + 1, trailingSlash, result);
+				}
+				if (index == segments.length - 1) {
+					// Suffix pattern match, e.g. "/path.json" against "/path"
+					int dotIndex = segment.indexOf('.');
+					while (dotIndex != -1) {
+						child = this.literalChildren.get(segment.substring(0, dotIndex));
+						if (child != null) {
+							result.or(child.mappings);
+						}
+						dotIndex = segment.indexOf('.', dotIndex + 1);
+					}
+				}
+			}
+		}
+	}
+
+
 	private class MatchComparator implements Comparator<Match> {
 
 		private final Comparator<T> comparator;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.web.servlet.handler;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -27,8 +28,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.BeansException;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerMapping;
 
@@ -59,6 +62,8 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
 	private final Map<String, Object> handlerMap = new LinkedHashMap<String, Object>();
 
+	private volatile CompiledPatterns compiledPatterns;
+
 
 	/**
 	 * Set the root handler for this handler mapping, that is,
@@ -156,9 +161,19 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		}
 		// Pattern match?
 		List<String> matchingPatterns = new ArrayList<String>();
-		for (String registeredPattern : this.handlerMap.keySet()) {
-			if (getPathMatcher().match(registeredPattern, urlPath)) {
-				matchingPatterns.add(registeredPattern);
+		Map<String, AntPathMatcher.CompiledPattern> compiledPatterns = getCompiledPatterns();
+		if (compiledPatterns != null) {
+			for (AntPathMatcher.CompiledPattern compiledPattern : compiledPatterns.values()) {
+				if (compiledPattern.matches(urlPath)) {
+					matchingPatterns.add(compiledPattern.getPattern());
+				}
+			}
+		}
+		else {
+			for (String registeredPattern : this.handlerMap.keySet()) {
+				if (getPathMatcher().match(registeredPattern, urlPath)) {
+					matchingPatterns.add(registeredPattern);
+				}
 			}
 		}
 		String bestPatternMatch = null;
@@ -185,7 +200,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 			Map<String, String> uriTemplateVariables = new LinkedHashMap<String, String>();
 			for (String matchingPattern : matchingPatterns) {
 				if (patternComparator.compare(bestPatternMatch, matchingPattern) == 0) {
-					Map<String, String> vars = getPathMatcher().extractUriTemplateVariables(matchingPattern, urlPath);
+					Map<String, String> vars = (compiledPatterns != null ?
+							compiledPatterns.get(matchingPattern).extractUriTemplateVariables(urlPath) :
+							getPathMatcher().extractUriTemplateVariables(matchingPattern, urlPath));
 					Map<String, String> decodedVars = getUrlPathHelper().decodePathVariables(request, vars);
 					uriTemplateVariables.putAll(decodedVars);
 				}
@@ -199,6 +216,25 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		return null;
 	}
 
+	/**
+	 * Return the registered URL paths compiled by the current {@link AntPathMatcher},
+	 * keyed by URL path, or {@code null} if a different {@link PathMatcher} is in use.
+	 * The compiled patterns are built on first use and rebuilt after the registration
+	 * of further handlers or a change of path matcher.
+	 */
+	private Map<String, AntPathMatcher.CompiledPattern> getCompiledPatterns() {
+		PathMatcher pathMatcher = getPathMatcher();
+		if (!(pathMatcher instanceof AntPathMatcher)) {
+			return null;
+		}
+		CompiledPatterns compiledPatterns = this.compiledPatterns;
+		if (compiledPatterns == null || compiledPatterns.pathMatcher != pathMatcher) {
+			compiledPatterns = new CompiledPatterns((AntPathMatcher) pathMatcher, this.handlerMap.keySet());
+			this.compiledPatterns = compiledPatterns;
+		}
+		return compiledPatterns.patterns;
+	}
+
 	/**
 	 * Validate the given handler against the current request.
 	 * <p>The default implementation is empty. Can be overridden in subclasses,
@@ -311,6 +347,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 			}
 			else {
 				this.handlerMap.put(urlPath, resolvedHandler);
+				this.compiledPatterns = null;
 				if (logger.isInfoEnabled()) {
 					logger.info("Mapped URL path [" + urlPath + "] onto " + getHandlerDescription(handler));
 				}
@@ -386,4 +423,23 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		}
 	}
 
+
+	/**
+	 * The registered URL paths, compiled by a specific {@link AntPathMatcher}.
+	 */
+	private static class CompiledPatterns {
+
+		private final AntPathMatcher pathMatcher;
+
+		private final Map<String, AntPathMatcher.CompiledPattern> patterns;
+
+		public CompiledPatterns(AntPathMatcher pathMatcher, Collection<String> urlPaths) {
+			this.pathMatcher = pathMatcher;
+			this.patterns = new LinkedHashMap<String, AntPathMatcher.CompiledPattern>(urlPaths.size());
+			for (String urlPath : urlPaths) {
+				this.patterns.put(urlPath, pathMatcher.compile(urlPath));
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.web.servlet.handler;
 
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
 import org.springframework.web.context.request.WebRequestInterceptor;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -38,6 +39,8 @@ public final class MappedInterceptor {
 
 	private PathMatcher pathMatcher;
 
+	private volatile CompiledPatterns compiledPatterns;
+
 
 	/**
 	 * Create a new MappedInterceptor instance.
@@ -121,6 +124,9 @@ public final class MappedInterceptor {
 	 */
 	public boolean matches(String lookupPath, PathMatcher pathMatcher) {
 		PathMatcher pathMatcherToUse = (this.pathMatcher != null) ? this.pathMatcher : pathMatcher;
+		if (pathMatcherToUse instanceof AntPathMatcher) {
+			return getCompiledPatterns((AntPathMatcher) pathMatcherToUse).matches(lookupPath);
+		}
 		if (this.excludePatterns != null) {
 			for (String pattern : this.excludePatterns) {
 				if (pathMatcherToUse.match(pattern, lookupPath)) {
@@ -140,4 +146,67 @@ public final class MappedInterceptor {
 			return false;
 		}
 	}
+
+	/**
+	 * Return the include and exclude patterns compiled by the given path matcher,
+	 * re-compiling them only if a different path matcher is passed in.
+	 */
+	private CompiledPatterns getCompiledPatterns(AntPathMatcher pathMatcher) {
+		CompiledPatterns compiledPatterns = this.compiledPatterns;
+		if (compiledPatterns == null || compiledPatterns.pathMatcher != pathMatcher) {
+			compiledPatterns = new CompiledPatterns(pathMatcher, this.includePatterns, this.excludePatterns);
+			this.compiledPatterns = compiledPatterns;
+		}
+		return compiledPatterns;
+	}
+
+
+	/**
+	 * The include and exclude patterns, compiled by a specific {@link AntPathMatcher}.
+	 */
+	private static class CompiledPatterns {
+
+		private final AntPathMatcher pathMatcher;
+
+		private final AntPathMatcher.CompiledPattern[] includePatterns;
+
+		private final AntPathMatcher.CompiledPattern[] excludePatterns;
+
+		public CompiledPatterns(AntPathMatcher pathMatcher, String[] includePatterns, String[] excludePatterns) {
+			this.pathMatcher = pathMatcher;
+			this.includePatterns = compile(pathMatcher, includePatterns);
+			this.excludePatterns = compile(pathMatcher, excludePatterns);
+		}
+
+		private static AntPathMatcher.CompiledPattern[] compile(AntPathMatcher pathMatcher, String[] patterns) {
+			if (patterns == null) {
+				return null;
+			}
+			AntPathMatcher.CompiledPattern[] result = new AntPathMatcher.CompiledPattern[patterns.length];
+			for (int i = 0; i < patterns.length; i++) {
+				result[i] = pathMatcher.compile(patterns[i]);
+			}
+			return result;
+		}
+
+		public boolean matches(String lookupPath) {
+			if (this.excludePatterns != null) {
+				for (AntPathMatcher.CompiledPattern pattern : this.excludePatterns) {
+					if (pattern.matches(lookupPath)) {
+						return false;
+					}
+				}
+			}
+			if (this.includePatterns == null) {
+				return true;
+			}
+			for (AntPathMatcher.CompiledPattern pattern : this.includePatterns) {
+				if (pattern.matches(lookupPath)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 }
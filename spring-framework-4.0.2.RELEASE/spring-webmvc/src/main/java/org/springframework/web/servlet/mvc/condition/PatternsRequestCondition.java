@@ -53,6 +53,8 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 
 	private final List<String> fileExtensions = new ArrayList<String>();
 
+	private volatile CompiledPatternVariants[] compiledPatterns;
+
 
 	/**
 	 * Creates a new instance with the given URL patterns.
@@ -207,10 +209,21 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 
 		String lookupPath = this.pathHelper.getLookupPathForRequest(request);
 		List<String> matches = new ArrayList<String>();
-		for (String pattern : this.patterns) {
-			String match = getMatchingPattern(pattern, lookupPath);
-			if (match != null) {
-				matches.add(match);
+		CompiledPatternVariants[] compiledPatterns = getCompiledPatterns();
+		if (compiledPatterns != null) {
+			for (CompiledPatternVariants variants : compiledPatterns) {
+				String match = getMatchingPattern(variants, lookupPath);
+				if (match != null) {
+					matches.add(match);
+				}
+			}
+		}
+		else {
+			for (String pattern : this.patterns) {
+				String match = getMatchingPattern(pattern, lookupPath);
+				if (match != null) {
+					matches.add(match);
+				}
 			}
 		}
 		Collections.sort(matches, this.pathMatcher.getPatternComparator(lookupPath));
@@ -249,6 +262,62 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 		return null;
 	}
 
+	/**
+	 * Return the patterns of this condition compiled along with their suffix,
+	 * file extension and trailing slash variants, or {@code null} if the
+	 * {@link PathMatcher} in use is not an {@link AntPathMatcher}.
+	 * <p>Compiled lazily so that the conditions created for each match in
+	 * {@link #getMatchingCondition} do not pay for it.
+	 */
+	private CompiledPatternVariants[] getCompiledPatterns() {
+		if (!(this.pathMatcher instanceof AntPathMatcher)) {
+			return null;
+		}
+		CompiledPatternVariants[] compiledPatterns = this.compiledPatterns;
+		if (compiledPatterns == null) {
+			AntPathMatcher antPathMatcher = (AntPathMatcher) this.pathMatcher;
+			compiledPatterns = new CompiledPatternVariants[this.patterns.size()];
+			int i = 0;
+			for (String pattern : this.patterns) {
+				compiledPatterns[i++] = new CompiledPatternVariants(pattern, antPathMatcher,
+						this.useSuffixPatternMatch, this.useTrailingSlashMatch, this.fileExtensions);
+			}
+			this.compiledPatterns = compiledPatterns;
+		}
+		return compiledPatterns;
+	}
+
+	/**
+	 * Variant of {@link #getMatchingPattern(String, String)} based on pre-compiled
+	 * patterns, avoiding the concatenation and re-parsing of pattern variants.
+	 */
+	private String getMatchingPattern(CompiledPatternVariants variants, String lookupPath) {
+		if (variants.pattern.getPattern().equals(lookupPath)) {
+			return variants.pattern.getPattern();
+		}
+		if (this.useSuffixPatternMatch) {
+			if (!this.fileExtensions.isEmpty() && lookupPath.indexOf('.') != -1) {
+				for (AntPathMatcher.CompiledPattern extensionPattern : variants.extensionPatterns) {
+					if (extensionPattern.matches(lookupPath)) {
+						return extensionPattern.getPattern();
+					}
+				}
+			}
+			else if (variants.suffixPattern != null && variants.suffixPattern.matches(lookupPath)) {
+				return variants.suffixPattern.getPattern();
+			}
+		}
+		if (variants.pattern.matches(lookupPath)) {
+			return variants.pattern.getPattern();
+		}
+		if (this.useTrailingSlashMatch) {
+			if (variants.trailingSlashPattern != null && variants.trailingSlashPattern.matches(lookupPath)) {
+				return variants.trailingSlashPattern.getPattern();
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Compare the two conditions based on the URL patterns they contain.
 	 * Patterns are compared one at a time, from top to bottom via
@@ -283,4 +352,35 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 		}
 	}
 
+
+
+	/**
+	 * A pattern compiled along with the variants of it that
+	 * {@link #getMatchingCondition} may try.
+	 */
+	private static class CompiledPatternVariants {
+
+		private final AntPathMatcher.CompiledPattern pattern;
+
+		private final AntPathMatcher.CompiledPattern suffixPattern;
+
+		private final AntPathMatcher.CompiledPattern[] extensionPatterns;
+
+		private final AntPathMatcher.CompiledPattern trailingSlashPattern;
+
+		public CompiledPatternVariants(String pattern, AntPathMatcher pathMatcher,
+				boolean useSuffixPatternMatch, boolean useTrailingSlashMatch, List<String> fileExtensions) {
+
+			this.pattern = pathMatcher.compile(pattern);
+			this.suffixPattern = (useSuffixPatternMatch && pattern.indexOf('.') == -1 ?
+					pathMatcher.compile(pattern + ".*") : null);
+			this.extensionPatterns = new AntPathMatcher.CompiledPattern[useSuffixPatternMatch ? fileExtensions.size() : 0];
+			for (int i = 0; i < this.extensionPatterns.length; i++) {
+				this.extensionPatterns[i] = pathMatcher.compile(pattern + fileExtensions.get(i));
+			}
+			this.trailingSlashPattern = (useTrailingSlashMatch && !pattern.endsWith("/") ?
+					pathMatcher.compile(pattern + "/") : null);
+		}
+	}
+
 }
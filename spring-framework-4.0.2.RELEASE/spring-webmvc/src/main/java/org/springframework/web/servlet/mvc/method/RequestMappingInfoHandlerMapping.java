@@ -63,6 +63,36 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getPatternsCondition().getPatterns();
 	}
 
+	/**
+	 * Get the HTTP request methods associated with this {@link RequestMappingInfo}.
+	 */
+	@Override
+	protected Set<String> getMappingRequestMethods(RequestMappingInfo info) {
+		Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+		if (methods.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<String> methodNames = new LinkedHashSet<String>(methods.size());
+		for (RequestMethod method : methods) {
+			methodNames.add(method.name());
+		}
+		return methodNames;
+	}
+
+	/**
+	 * Whether this {@link RequestMappingInfo} has URL patterns and HTTP request
+	 * methods as its only conditions, in which case the lookup result for a
+	 * request depends on nothing but its lookup path and HTTP method.
+	 */
+	@Override
+	protected boolean isCacheableMapping(RequestMappingInfo info) {
+		return (info.getParamsCondition().getExpressions().isEmpty() &&
+				info.getHeadersCondition().getExpressions().isEmpty() &&
+				info.getConsumesCondition().getExpressions().isEmpty() &&
+				info.getProducesCondition().getExpressions().isEmpty() &&
+				info.getCustomCondition() == null);
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,6 +55,10 @@ public abstract class AbstractMessageConverterMethodProcessor extends AbstractMe
 
 	private final ContentNegotiationManager contentNegotiationManager;
 
+	private boolean nonBlockingWrites = false;
+
+	private Long nonBlockingWriteTimeout;
+
 	protected AbstractMessageConverterMethodProcessor(List<HttpMessageConverter<?>> messageConverters) {
 		this(messageConverters, null);
 	}
@@ -66,6 +70,54 @@ public abstract class AbstractMessageConverterMethodProcessor extends AbstractMe
 		this.contentNegotiationManager = (manager != null) ? manager : new ContentNegotiationManager();
 	}
 
+	/**
+	 * Whether to write response bodies with Servlet 3.1 non-blocking I/O.
+	 * <p>When enabled, the message converter serializes the body into an
+	 * in-memory buffer on the request thread, async processing is started,
+	 * and the buffer is drained through a {@code WriteListener} as the
+	 * container signals that the response is writable. This releases the
+	 * request thread early for slow clients, at the expense of holding the
+	 * full body in memory. It only applies if the Servlet 3.1 API is present,
+	 * the request is async-supported and the response is not wrapped; the
+	 * body is written directly to the response otherwise.
+	 * <p>The default is "false".
+	 * @since 4.0.3
+	 */
+	public void setNonBlockingWrites(boolean nonBlockingWrites) {
+		this.nonBlockingWrites = nonBlockingWrites;
+	}
+
+	/**
+	 * Whether to write response bodies with Servlet 3.1 non-blocking I/O.
+	 * @since 4.0.3
+	 */
+	public boolean isNonBlockingWrites() {
+		return this.nonBlockingWrites;
+	}
+
+	/**
+	 * Specify the time in milliseconds that a client has to accept a response
+	 * body written with {@link #setNonBlockingWrites non-blocking writes}.
+	 * If the body has not been written by then, the response is aborted and
+	 * the client sees a truncated response.
+	 * <p>By default, the container's default timeout for async requests applies.
+	 * A value of 0 or less means no timeout, in which case a stalled client
+	 * keeps the buffered body in memory until the container reports an error.
+	 * @since 4.0.3
+	 */
+	public void setNonBlockingWriteTimeout(Long nonBlockingWriteTimeout) {
+		this.nonBlockingWriteTimeout = nonBlockingWriteTimeout;
+	}
+
+	/**
+	 * Return the time in milliseconds that a client has to accept a response
+	 * body written with non-blocking writes.
+	 * @since 4.0.3
+	 */
+	public Long getNonBlockingWriteTimeout() {
+		return this.nonBlockingWriteTimeout;
+	}
+
 	/**
 	 * Creates a new {@link HttpOutputMessage} from the given {@link NativeWebRequest}.
 	 *
@@ -79,7 +131,7 @@ public abstract class AbstractMessageConverterMethodProcessor extends AbstractMe
 
 	/**
 	 * Writes the given return value to the given web request. Delegates to
-	 * {@link #writeWithMessageConverters(Object, MethodParameter, ServletServerHttpRequest, ServletServerHttpResponse)}
+	 * {@link #writeResponseBody(Object, MethodParameter, ServletServerHttpRequest, ServletServerHttpResponse)}
 	 */
 	protected <T> void writeWithMessageConverters(T returnValue,
 												MethodParameter returnType,
@@ -87,7 +139,31 @@ public abstract class AbstractMessageConverterMethodProcessor extends AbstractMe
 			throws IOException, HttpMediaTypeNotAcceptableException {
 		ServletServerHttpRequest inputMessage = createInputMessage(webRequest);
 		ServletServerHttpResponse outputMessage = createOutputMessage(webRequest);
-		writeWithMessageConverters(returnValue, returnType, inputMessage, outputMessage);
+		writeResponseBody(returnValue, returnType, inputMessage, outputMessage);
+	}
+
+	/**
+	 * Writes the given return value to the given output message, either
+	 * directly or, if {@link #setNonBlockingWrites non-blocking writes} are
+	 * enabled and supported for the current request, by buffering it and
+	 * draining the buffer with Servlet 3.1 non-blocking I/O.
+	 * @since 4.0.3
+	 * @see #writeWithMessageConverters(Object, MethodParameter, ServletServerHttpRequest, ServletServerHttpResponse)
+	 */
+	protected <T> void writeResponseBody(T returnValue, MethodParameter returnType,
+			ServletServerHttpRequest inputMessage, ServletServerHttpResponse outputMessage)
+			throws IOException, HttpMediaTypeNotAcceptableException {
+
+		HttpServletRequest servletRequest = inputMessage.getServletRequest();
+		if (this.nonBlockingWrites &&
+				NonBlockingResponseBodyWriter.isSupported(servletRequest, outputMessage.getServletResponse())) {
+			NonBlockingResponseBodyWriter bodyWriter = new NonBlockingResponseBodyWriter(outputMessage, this.nonBlockingWriteTimeout);
+			writeWithMessageConverters(returnValue, returnType, inputMessage, bodyWriter.getOutputMessage());
+			bodyWriter.startWriting(servletRequest);
+		}
+		else {
+			writeWithMessageConverters(returnValue, returnType, inputMessage, outputMessage);
+		}
 	}
 
 	/**
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.CloseableIterator;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Handles return values of type {@link CloseableIterator} by writing the elements
+ * to the response body as a JSON array while they are being iterated, using the
+ * {@link ObjectMapper} of a {@link MappingJackson2HttpMessageConverter}.
+ *
+ * <p>The content type is negotiated against the requested media types and the
+ * {@link HandlerMapping#PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE producible media types}
+ * of the handler method, in the same way as for {@code @ResponseBody} methods.
+ * If none of the media types supported by the converter is acceptable, an
+ * {@link HttpMediaTypeNotAcceptableException} is raised.
+ *
+ * <p>Elements are never collected in memory: each one is serialized as soon as it
+ * is obtained from the iterator, and the response is flushed after every
+ * {@link #setFlushInterval flush interval} elements, which results in a chunked
+ * response. The iterator is closed once it is exhausted or if writing fails,
+ * e.g. because the client disconnected.
+ *
+ * <p>Typically used with {@code JdbcTemplate.queryForIterator} from {@code spring-jdbc}
+ * to export large query results without holding them in memory.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+public class CloseableIteratorMethodReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	/** Default number of elements written between flushes of the response */
+	public static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+	private static final MediaType DEFAULT_CONTENT_TYPE = new MediaType("application", "json",
+			MappingJackson2HttpMessageConverter.DEFAULT_CHARSET);
+
+	private static final MediaType MEDIA_TYPE_APPLICATION = new MediaType("application");
+
+
+	private final MappingJackson2HttpMessageConverter messageConverter;
+
+	private final ContentNegotiationManager contentNegotiationManager;
+
+	private int flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+
+	/**
+	 * Create a new handler using the {@link ObjectMapper} of the given converter.
+	 */
+	public CloseableIteratorMethodReturnValueHandler(MappingJackson2HttpMessageConverter messageConverter) {
+		this(messageConverter, null);
+	}
+
+	/**
+	 * Create a new handler using the {@link ObjectMapper} of the given converter
+	 * and the given {@link ContentNegotiationManager} to determine the requested
+	 * media types.
+	 */
+	public CloseableIteratorMethodReturnValueHandler(MappingJackson2HttpMessageConverter messageConverter,
+			ContentNegotiationManager contentNegotiationManager) {
+
+		Assert.notNull(messageConverter, "MappingJackson2HttpMessageConverter must not be null");
+		this.messageConverter = messageConverter;
+		this.contentNegotiationManager = (contentNegotiationManager != null ?
+				contentNegotiationManager : new ContentNegotiationManager());
+	}
+
+
+	/**
+	 * Set the number of elements to write before flushing the response.
+	 * <p>Default is {@value #DEFAULT_FLUSH_INTERVAL}.
+	 */
+	public void setFlushInterval(int flushInterval) {
+		Assert.isTrue(flushInterval > 0, "Flush interval must be greater than 0");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Return the number of elements written before flushing the response.
+	 */
+	public int getFlushInterval() {
+		return this.flushInterval;
+	}
+
+
+	@Override
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return CloseableIterator.class.isAssignableFrom(returnType.getParameterType());
+	}
+
+	@Override
+	public void handleReturnValue(Object returnValue, MethodParameter returnType,
+			ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+
+		mavContainer.setRequestHandled(true);
+		if (returnValue == null) {
+			return;
+		}
+
+		CloseableIterator<?> iterator = (CloseableIterator<?>) returnValue;
+		try {
+			HttpServletResponse servletResponse = webRequest.getNativeResponse(HttpServletResponse.class);
+			ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(servletResponse);
+			outputMessage.getHeaders().setContentType(getContentType(webRequest));
+
+			ObjectMapper objectMapper = this.messageConverter.getObjectMapper();
+			// Flushing is controlled here rather than after every element
+			ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+			JsonGenerator generator =
+					objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+			if (objectMapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+				generator.useDefaultPrettyPrinter();
+			}
+
+			generator.writeStartArray();
+			int count = 0;
+			while (iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				if (++count % this.flushInterval == 0) {
+					generator.flush();
+				}
+			}
+			generator.writeEndArray();
+			generator.flush();
+		}
+		finally {
+			iterator.close();
+		}
+	}
+
+	/**
+	 * Select the content type to write, based on the requested media types
+	 * and the producible media types of the handler method.
+	 * @throws HttpMediaTypeNotAcceptableException if no JSON media type is acceptable
+	 */
+	@SuppressWarnings("unchecked")
+	private MediaType getContentType(NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+		List<MediaType> requestedMediaTypes = this.contentNegotiationManager.resolveMediaTypes(webRequest);
+		if (requestedMediaTypes.isEmpty()) {
+			requestedMediaTypes = Collections.singletonList(MediaType.ALL);
+		}
+		HttpServletRequest servletRequest = webRequest.getNativeRequest(HttpServletRequest.class);
+		Set<MediaType> producibleMediaTypes =
+				(Set<MediaType>) servletRequest.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+		List<MediaType> supportedMediaTypes = this.messageConverter.getSupportedMediaTypes();
+
+		Set<MediaType> compatibleMediaTypes = new LinkedHashSet<MediaType>();
+		for (MediaType requested : requestedMediaTypes) {
+			for (MediaType supported : supportedMediaTypes) {
+				if (!requested.isCompatibleWith(supported)) {
+					continue;
+				}
+				MediaType mediaType = getMostSpecificMediaType(requested, supported);
+				if (CollectionUtils.isEmpty(producibleMediaTypes)) {
+					compatibleMediaTypes.add(mediaType);
+				}
+				else {
+					for (MediaType producible : producibleMediaTypes) {
+						if (mediaType.isCompatibleWith(producible)) {
+							compatibleMediaTypes.add(getMostSpecificMediaType(mediaType, producible));
+						}
+					}
+				}
+			}
+		}
+
+		List<MediaType> mediaTypes = new ArrayList<MediaType>(compatibleMediaTypes);
+		MediaType.sortBySpecificityAndQuality(mediaTypes);
+		for (MediaType mediaType : mediaTypes) {
+			if (mediaType.isConcrete()) {
+				// Elements are always written as UTF-8
+				return new MediaType(mediaType.getType(), mediaType.getSubtype(),
+						MappingJackson2HttpMessageConverter.DEFAULT_CHARSET);
+			}
+			else if (mediaType.equals(MediaType.ALL) || mediaType.equals(MEDIA_TYPE_APPLICATION)) {
+				return DEFAULT_CONTENT_TYPE;
+			}
+		}
+		throw new HttpMediaTypeNotAcceptableException(supportedMediaTypes);
+	}
+
+	private MediaType getMostSpecificMediaType(MediaType acceptType, MediaType produceType) {
+		produceType = produceType.copyQualityValue(acceptType);
+		return (MediaType.SPECIFICITY_COMPARATOR.compare(acceptType, produceType) <= 0 ? acceptType : produceType);
+	}
+
+}
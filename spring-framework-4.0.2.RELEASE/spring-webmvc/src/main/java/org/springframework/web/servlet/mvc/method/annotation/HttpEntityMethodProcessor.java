@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -122,7 +122,7 @@ public class HttpEntityMethodProcessor extends AbstractMessageConverterMethodPro
 
 		Object body = responseEntity.getBody();
 		if (body != null) {
-			writeWithMessageConverters(body, returnType, inputMessage, outputMessage);
+			writeResponseBody(body, returnType, inputMessage, outputMessage);
 		}
 		else {
 			// Flush headers to the HttpServletResponse
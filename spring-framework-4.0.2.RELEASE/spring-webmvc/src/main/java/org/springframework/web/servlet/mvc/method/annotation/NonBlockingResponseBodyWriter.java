@@ -0,0 +1,380 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Buffers a response body written by an {@code HttpMessageConverter} and
+ * then drains the buffer to the client through a Servlet 3.1
+ * {@code WriteListener}, so that the request thread is released as soon as
+ * the body is serialized rather than waiting on a slow client.
+ *
+ * <p>Async processing is started through the request's
+ * {@link org.springframework.web.context.request.async.WebAsyncManager}, so
+ * that the {@code DispatcherServlet} and its interceptors treat the request
+ * as concurrently handled, just like for other async return values.
+ *
+ * <p>The Servlet 3.1 API is accessed reflectively since this module is
+ * built against Servlet 3.0. Use {@link #isSupported} to check whether the
+ * given request and response can be written to this way.
+ *
+ * <p>If the client does not accept the body within the configured timeout,
+ * or the container reports an error, the response is aborted rather than
+ * completed: the remaining chunks are dropped and the output stream is
+ * closed short of the declared Content-Length, so that the client sees a
+ * truncated response instead of what looks like a complete body.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+class NonBlockingResponseBodyWriter {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private static final Log logger = LogFactory.getLog(NonBlockingResponseBodyWriter.class);
+
+	private static final Class<?> writeListenerClass;
+
+	private static final Method isReadyMethod;
+
+	private static final Method setWriteListenerMethod;
+
+	static {
+		ClassLoader classLoader = NonBlockingResponseBodyWriter.class.getClassLoader();
+		if (ClassUtils.isPresent("javax.servlet.WriteListener", classLoader)) {
+			writeListenerClass = ClassUtils.resolveClassName("javax.servlet.WriteListener", classLoader);
+			isReadyMethod = ReflectionUtils.findMethod(ServletOutputStream.class, "isReady");
+			setWriteListenerMethod = ReflectionUtils.findMethod(ServletOutputStream.class,
+					"setWriteListener", writeListenerClass);
+		}
+		else {
+			writeListenerClass = null;
+			isReadyMethod = null;
+			setWriteListenerMethod = null;
+		}
+	}
+
+
+	private final ServletServerHttpResponse outputMessage;
+
+	private final Long timeout;
+
+	private final ChunkedOutputStream buffer = new ChunkedOutputStream();
+
+	private List<byte[]> chunks;
+
+	private int chunkIndex;
+
+	private AsyncContext asyncContext;
+
+	private ServletOutputStream outputStream;
+
+	private volatile boolean aborted;
+
+
+	/**
+	 * Create a new writer for the given output message.
+	 * @param outputMessage the output message to write status and headers to
+	 * @param timeout the time in milliseconds that the client has to accept
+	 * the entire body, or {@code null} for the container's default async timeout
+	 */
+	public NonBlockingResponseBodyWriter(ServletServerHttpResponse outputMessage, Long timeout) {
+		this.outputMessage = outputMessage;
+		this.timeout = timeout;
+	}
+
+
+	/**
+	 * Whether the response for the given request can be written with
+	 * non-blocking I/O: the Servlet 3.1 API must be present, the request
+	 * must support async processing and must not be an include, and the
+	 * response must not be wrapped, e.g. by a filter that post-processes
+	 * the content written to it.
+	 */
+	public static boolean isSupported(HttpServletRequest request, HttpServletResponse response) {
+		return (writeListenerClass != null && request.isAsyncSupported() && !request.isAsyncStarted() &&
+				!WebUtils.isIncludeRequest(request) && !(response instanceof ServletResponseWrapper));
+	}
+
+
+	/**
+	 * Return the output message to pass to the message converter: status and
+	 * headers go to the actual response while the body is buffered.
+	 */
+	public ServletServerHttpResponse getOutputMessage() {
+		return new BufferingServletServerHttpResponse();
+	}
+
+	/**
+	 * Start async processing for the given request and write the buffered
+	 * body whenever the container signals that the response is writable.
+	 * @param request the current request
+	 */
+	public void startWriting(HttpServletRequest request) {
+		this.outputMessage.close();
+		HttpServletResponse response = this.outputMessage.getServletResponse();
+		if (this.outputMessage.getHeaders().getContentLength() < 0) {
+			response.setContentLength(this.buffer.size());
+		}
+		this.chunks = this.buffer.getChunks();
+		AsyncWebRequest asyncWebRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+		asyncWebRequest.setTimeout(this.timeout);
+		WebAsyncUtils.getAsyncManager(request).setAsyncWebRequest(asyncWebRequest);
+		asyncWebRequest.startAsync();
+		this.asyncContext = request.getAsyncContext();
+		this.asyncContext.addListener(new AbortingAsyncListener());
+		try {
+			Object listener = Proxy.newProxyInstance(writeListenerClass.getClassLoader(),
+					new Class<?>[] {writeListenerClass}, new WriteListenerHandler());
+			this.outputStream = response.getOutputStream();
+			ReflectionUtils.invokeMethod(setWriteListenerMethod, this.outputStream, listener);
+		}
+		catch (Throwable ex) {
+			logger.error("Failed to register WriteListener", ex);
+			if (!response.isCommitted()) {
+				response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+			}
+			this.asyncContext.complete();
+		}
+	}
+
+	private void onWritePossible() throws IOException {
+		while (!this.aborted && (Boolean) ReflectionUtils.invokeMethod(isReadyMethod, this.outputStream)) {
+			if (this.chunkIndex == this.chunks.size()) {
+				this.asyncContext.complete();
+				return;
+			}
+			byte[] chunk = this.chunks.get(this.chunkIndex);
+			this.chunks.set(this.chunkIndex++, null);
+			this.outputStream.write(chunk);
+		}
+	}
+
+	private void onError(Throwable ex) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Failed to write response body: " + ex.getMessage());
+		}
+		abort();
+	}
+
+	private void abort() {
+		if (this.aborted) {
+			return;
+		}
+		this.aborted = true;
+		HttpServletResponse response = this.outputMessage.getServletResponse();
+		if (!response.isCommitted()) {
+			response.reset();
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		}
+		else {
+			try {
+				this.outputStream.close();
+			}
+			catch (Exception ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to close response output stream: " + ex.getMessage());
+				}
+			}
+		}
+		this.asyncContext.complete();
+	}
+
+
+	/**
+	 * ServletServerHttpResponse that passes status and headers on to the
+	 * actual output message but writes the body to the buffer.
+	 */
+	private class BufferingServletServerHttpResponse extends ServletServerHttpResponse {
+
+		public BufferingServletServerHttpResponse() {
+			super(outputMessage.getServletResponse());
+		}
+
+		@Override
+		public void setStatusCode(HttpStatus status) {
+			outputMessage.setStatusCode(status);
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return outputMessage.getHeaders();
+		}
+
+		@Override
+		public OutputStream getBody() {
+			outputMessage.close();
+			return buffer;
+		}
+
+		@Override
+		public void flush() {
+			outputMessage.close();
+		}
+
+		@Override
+		public void close() {
+			outputMessage.close();
+		}
+	}
+
+
+	/**
+	 * InvocationHandler for a {@code javax.servlet.WriteListener} proxy.
+	 */
+	private class WriteListenerHandler implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("onWritePossible")) {
+				onWritePossible();
+				return null;
+			}
+			else if (methodName.equals("onError")) {
+				onError((Throwable) args[0]);
+				return null;
+			}
+			else if (methodName.equals("equals")) {
+				return (proxy == args[0]);
+			}
+			else if (methodName.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			else if (methodName.equals("toString")) {
+				return "WriteListener for " + NonBlockingResponseBodyWriter.this.outputMessage.getServletResponse();
+			}
+			throw new UnsupportedOperationException(method.toString());
+		}
+	}
+
+
+	/**
+	 * AsyncListener that aborts the response if the container reports a
+	 * timeout or an error before the body was written.
+	 */
+	private class AbortingAsyncListener implements AsyncListener {
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Timed out writing response body, " +
+						(chunks.size() - chunkIndex) + " buffered chunks not written");
+			}
+			abort();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			abort();
+		}
+	}
+
+
+	/**
+	 * OutputStream that collects content in fixed-size chunks, avoiding the
+	 * array copies of a growing {@code ByteArrayOutputStream}.
+	 */
+	private static class ChunkedOutputStream extends OutputStream {
+
+		private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+		private byte[] current = new byte[CHUNK_SIZE];
+
+		private int position;
+
+		private int size;
+
+		@Override
+		public void write(int b) {
+			if (this.position == this.current.length) {
+				nextChunk();
+			}
+			this.current[this.position++] = (byte) b;
+			this.size++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			while (length > 0) {
+				if (this.position == this.current.length) {
+					nextChunk();
+				}
+				int count = Math.min(length, this.current.length - this.position);
+				System.arraycopy(bytes, offset, this.current, this.position, count);
+				this.position += count;
+				this.size += count;
+				offset += count;
+				length -= count;
+			}
+		}
+
+		private void nextChunk() {
+			this.chunks.add(this.current);
+			this.current = new byte[CHUNK_SIZE];
+			this.position = 0;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public List<byte[]> getChunks() {
+			List<byte[]> result = new ArrayList<byte[]>(this.chunks);
+			if (this.position > 0) {
+				result.add(Arrays.copyOf(this.current, this.position));
+			}
+			return result;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -45,10 +45,12 @@ import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.http.converter.support.AllEncompassingFormHttpMessageConverter;
 import org.springframework.http.converter.xml.SourceHttpMessageConverter;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ReflectionUtils.MethodFilter;
 import org.springframework.web.accept.ContentNegotiationManager;
@@ -87,6 +89,7 @@ import org.springframework.web.method.annotation.SessionAttributesHandler;
 import org.springframework.web.method.annotation.SessionStatusMethodArgumentResolver;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.HandlerMethodArgumentResolverComposite;
+import org.springframework.web.method.support.HandlerMethodInvocationPlan;
 import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
 import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
 import org.springframework.web.method.support.InvocableHandlerMethod;
@@ -117,6 +120,11 @@ import org.springframework.web.util.WebUtils;
 public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter implements BeanFactoryAware,
 		InitializingBean {
 
+	private static final boolean jackson2Present =
+			ClassUtils.isPresent("com.fasterxml.jackson.databind.ObjectMapper", RequestMappingHandlerAdapter.class.getClassLoader()) &&
+					ClassUtils.isPresent("com.fasterxml.jackson.core.JsonGenerator", RequestMappingHandlerAdapter.class.getClassLoader());
+
+
 	private List<HandlerMethodArgumentResolver> customArgumentResolvers;
 
 	private HandlerMethodArgumentResolverComposite argumentResolvers;
@@ -145,6 +153,10 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 
 	private boolean ignoreDefaultModelOnRedirect = false;
 
+	private boolean nonBlockingWrites = false;
+
+	private Long nonBlockingWriteTimeout;
+
 	private int cacheSecondsForSessionAttributeHandlers = 0;
 
 	private boolean synchronizeOnSession = false;
@@ -169,6 +181,9 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 	private final Map<ControllerAdviceBean, Set<Method>> modelAttributeAdviceCache =
 			new LinkedHashMap<ControllerAdviceBean, Set<Method>>();
 
+	private final Map<HandlerMethod, HandlerMethodInvocationPlan> invocationPlanCache =
+			new ConcurrentHashMap<HandlerMethod, HandlerMethodInvocationPlan>(64);
+
 
 	/**
 	 * Default constructor.
@@ -407,6 +422,35 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 		this.ignoreDefaultModelOnRedirect = ignoreDefaultModelOnRedirect;
 	}
 
+	/**
+	 * Whether {@code @ResponseBody} and {@code HttpEntity} return values
+	 * should be written with Servlet 3.1 non-blocking I/O, releasing the
+	 * request thread once the body is serialized instead of waiting for a
+	 * slow client to accept it.
+	 * <p>The default is "false". Only applies to the built-in return value
+	 * handlers and only to requests that are async-supported, falling back
+	 * on regular blocking writes otherwise.
+	 * @since 4.0.3
+	 * @see AbstractMessageConverterMethodProcessor#setNonBlockingWrites
+	 */
+	public void setNonBlockingWrites(boolean nonBlockingWrites) {
+		this.nonBlockingWrites = nonBlockingWrites;
+	}
+
+	/**
+	 * Specify the time in milliseconds that a client has to accept a response
+	 * body written with {@link #setNonBlockingWrites non-blocking writes},
+	 * after which the response is aborted.
+	 * <p>If this value is not set, the {@link #setAsyncRequestTimeout async
+	 * request timeout} applies, or else the default timeout of the underlying
+	 * implementation. A value of 0 or less means no timeout.
+	 * @since 4.0.3
+	 * @see AbstractMessageConverterMethodProcessor#setNonBlockingWriteTimeout
+	 */
+	public void setNonBlockingWriteTimeout(long nonBlockingWriteTimeout) {
+		this.nonBlockingWriteTimeout = nonBlockingWriteTimeout;
+	}
+
 	/**
 	 * Specify the strategy to store session attributes with. The default is
 	 * {@link org.springframework.web.bind.support.DefaultSessionAttributeStore},
@@ -579,20 +623,39 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 	 */
 	private List<HandlerMethodReturnValueHandler> getDefaultReturnValueHandlers() {
 		List<HandlerMethodReturnValueHandler> handlers = new ArrayList<HandlerMethodReturnValueHandler>();
+		Long nonBlockingWriteTimeout =
+				(this.nonBlockingWriteTimeout != null ? this.nonBlockingWriteTimeout : this.asyncRequestTimeout);
 
 		// Single-purpose return value types
 		handlers.add(new ModelAndViewMethodReturnValueHandler());
 		handlers.add(new ModelMethodProcessor());
 		handlers.add(new ViewMethodReturnValueHandler());
-		handlers.add(new HttpEntityMethodProcessor(getMessageConverters(), this.contentNegotiationManager));
+		HttpEntityMethodProcessor httpEntityProcessor =
+				new HttpEntityMethodProcessor(getMessageConverters(), this.contentNegotiationManager);
+		httpEntityProcessor.setNonBlockingWrites(this.nonBlockingWrites);
+		httpEntityProcessor.setNonBlockingWriteTimeout(nonBlockingWriteTimeout);
+		handlers.add(httpEntityProcessor);
 		handlers.add(new HttpHeadersReturnValueHandler());
 		handlers.add(new CallableMethodReturnValueHandler());
 		handlers.add(new DeferredResultMethodReturnValueHandler());
 		handlers.add(new AsyncTaskMethodReturnValueHandler(this.beanFactory));
+		if (jackson2Present) {
+			for (HttpMessageConverter<?> converter : getMessageConverters()) {
+				if (converter instanceof MappingJackson2HttpMessageConverter) {
+					handlers.add(new CloseableIteratorMethodReturnValueHandler(
+							(MappingJackson2HttpMessageConverter) converter, this.contentNegotiationManager));
+					break;
+				}
+			}
+		}
 
 		// Annotation-based return value types
 		handlers.add(new ModelAttributeMethodProcessor(false));
-		handlers.add(new RequestResponseBodyMethodProcessor(getMessageConverters(), this.contentNegotiationManager));
+		RequestResponseBodyMethodProcessor responseBodyProcessor =
+				new RequestResponseBodyMethodProcessor(getMessageConverters(), this.contentNegotiationManager);
+		responseBodyProcessor.setNonBlockingWrites(this.nonBlockingWrites);
+		responseBodyProcessor.setNonBlockingWriteTimeout(nonBlockingWriteTimeout);
+		handlers.add(responseBodyProcessor);
 
 		// Multi-purpose return value types
 		handlers.add(new ViewNameMethodReturnValueHandler());
@@ -764,9 +827,28 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 		requestMethod.setHandlerMethodReturnValueHandlers(this.returnValueHandlers);
 		requestMethod.setDataBinderFactory(binderFactory);
 		requestMethod.setParameterNameDiscoverer(this.parameterNameDiscoverer);
+		requestMethod.setInvocationPlan(getInvocationPlan(handlerMethod));
 		return requestMethod;
 	}
 
+	/**
+	 * Return the {@link HandlerMethodInvocationPlan} for the given handler method,
+	 * shared across requests for the HandlerMethod it was resolved from.
+	 */
+	private HandlerMethodInvocationPlan getInvocationPlan(HandlerMethod handlerMethod) {
+		HandlerMethod key = handlerMethod.getResolvedFromHandlerMethod();
+		if (key == null) {
+			key = handlerMethod;
+		}
+		HandlerMethodInvocationPlan plan = this.invocationPlanCache.get(key);
+		if (plan == null) {
+			plan = new HandlerMethodInvocationPlan(key, this.argumentResolvers, this.returnValueHandlers,
+					this.parameterNameDiscoverer);
+			this.invocationPlanCache.put(key, plan);
+		}
+		return plan;
+	}
+
 	private ModelFactory getModelFactory(HandlerMethod handlerMethod, WebDataBinderFactory binderFactory) {
 		SessionAttributesHandler sessionAttrHandler = getSessionAttributesHandler(handlerMethod);
 		Class<?> handlerType = handlerMethod.getBeanType();
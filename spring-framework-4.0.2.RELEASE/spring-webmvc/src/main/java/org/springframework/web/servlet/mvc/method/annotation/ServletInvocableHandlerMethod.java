@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,12 +21,15 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.concurrent.Callable;
 
+import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpStatus;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodInvocationPlan;
 import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
 import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
 import org.springframework.web.method.support.InvocableHandlerMethod;
@@ -119,7 +122,16 @@ public class ServletInvocableHandlerMethod extends InvocableHandlerMethod {
 		mavContainer.setRequestHandled(false);
 
 		try {
-			this.returnValueHandlers.handleReturnValue(returnValue, getReturnValueType(returnValue), mavContainer, webRequest);
+			MethodParameter returnType = getReturnValueType(returnValue);
+			HandlerMethodInvocationPlan invocationPlan = getInvocationPlan();
+			if (invocationPlan != null) {
+				HandlerMethodReturnValueHandler handler = invocationPlan.getReturnValueHandler(returnValue, returnType);
+				Assert.notNull(handler, "Unknown return value type [" + returnType.getParameterType().getName() + "]");
+				handler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+			}
+			else {
+				this.returnValueHandlers.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+			}
 		}
 		catch (Exception ex) {
 			if (logger.isTraceEnabled()) {
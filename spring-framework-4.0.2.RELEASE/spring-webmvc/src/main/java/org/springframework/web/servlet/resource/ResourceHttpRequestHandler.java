@@ -16,12 +16,21 @@
 
 package org.springframework.web.servlet.resource;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.activation.FileTypeMap;
 import javax.activation.MimetypesFileTypeMap;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -29,12 +38,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
 import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.HttpRequestHandler;
@@ -63,6 +74,13 @@ import org.springframework.web.servlet.support.WebContentGenerator;
  * is used in the URL  mapping pattern that selects this handler. Such patterns can be easily parameterized
  * using Spring EL. See the reference manual for further examples of this approach.
  *
+ * <p>Beyond that, the handler supports single byte-range requests ({@code Range} and {@code If-Range}
+ * headers), can serve precompressed ".gz" variants of resources to clients accepting gzip encoding
+ * ({@linkplain #setServeGzippedResources "serveGzippedResources" property}), can hand file-based
+ * resources over to the container's sendfile support ({@linkplain #setUseSendfile "useSendfile"
+ * property}) and can keep the content of small resources in memory, serving them with an
+ * {@code ETag} header ({@linkplain #setResourceCacheLimit "resourceCacheLimit" property}).
+ *
  * <p>Rather than being directly configured as a bean, this handler will typically be configured
  * through use of the {@code <mvc:resources/>} XML configuration element.
  *
@@ -78,8 +96,66 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 	private static final boolean jafPresent =
 			ClassUtils.isPresent("javax.activation.FileTypeMap", ResourceHttpRequestHandler.class.getClassLoader());
 
+	/** Default maximum content length for resources kept in memory: 64 KB */
+	public static final int DEFAULT_MAX_CACHED_RESOURCE_LENGTH = 64 * 1024;
+
+	/** Minimum content length for handing resources over to sendfile support: 48 KB */
+	private static final long SENDFILE_MIN_LENGTH = 48 * 1024;
+
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+	private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+	private static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+
+	private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+
+	private static final String HEADER_IF_RANGE = "If-Range";
+
+	private static final String HEADER_RANGE = "Range";
+
+	private static final String HEADER_VARY = "Vary";
+
+	private static final String GZIP_FILE_EXTENSION = ".gz";
+
+
 	private List<Resource> locations;
 
+	private boolean serveGzippedResources = false;
+
+	private boolean useSendfile = false;
+
+	private volatile int resourceCacheLimit = 0;
+
+	private int maxCachedResourceLength = DEFAULT_MAX_CACHED_RESOURCE_LENGTH;
+
+	/** Fast access cache for in-memory resources, returning already cached instances without a global lock */
+	private final Map<String, CachedResource> resourceAccessCache = new ConcurrentHashMap<String, CachedResource>(64);
+
+	/** Map from resource path to in-memory resource, synchronized for resource creation */
+	@SuppressWarnings("serial")
+	private final Map<String, CachedResource> resourceCreationCache =
+			new LinkedHashMap<String, CachedResource>(64, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedResource> eldest) {
+					if (size() > getResourceCacheLimit()) {
+						resourceAccessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
 
 	public ResourceHttpRequestHandler() {
 		super(METHOD_GET, METHOD_HEAD);
@@ -94,6 +170,85 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 		this.locations = locations;
 	}
 
+	/**
+	 * Set whether to serve a precompressed variant of a resource, i.e. a sibling
+	 * resource with an additional ".gz" extension, to clients that accept gzip
+	 * encoding. Such responses carry a {@code Content-Encoding: gzip} header.
+	 * <p>Default is "false".
+	 * @since 4.0.3
+	 */
+	public void setServeGzippedResources(boolean serveGzippedResources) {
+		this.serveGzippedResources = serveGzippedResources;
+	}
+
+	/**
+	 * Return whether to serve precompressed variants of resources.
+	 * @since 4.0.3
+	 */
+	public boolean isServeGzippedResources() {
+		return this.serveGzippedResources;
+	}
+
+	/**
+	 * Set whether to hand large file-based resources over to the servlet container's
+	 * sendfile support, if available (currently Tomcat's "org.apache.tomcat.sendfile"
+	 * request attributes), letting the container transfer the file content without
+	 * copying it through the response stream.
+	 * <p>Default is "false".
+	 * @since 4.0.3
+	 */
+	public void setUseSendfile(boolean useSendfile) {
+		this.useSendfile = useSendfile;
+	}
+
+	/**
+	 * Return whether to use the servlet container's sendfile support.
+	 * @since 4.0.3
+	 */
+	public boolean isUseSendfile() {
+		return this.useSendfile;
+	}
+
+	/**
+	 * Specify the maximum number of resources to keep in memory, along with
+	 * an {@code ETag} calculated from their content. Only resources up to the
+	 * {@linkplain #setMaxCachedResourceLength maximum cached resource length}
+	 * are kept in memory.
+	 * <p>Default is 0, i.e. resource content is read on every request.
+	 * Note that cached content will not reflect subsequent changes to the
+	 * underlying resources.
+	 * @since 4.0.3
+	 */
+	public void setResourceCacheLimit(int resourceCacheLimit) {
+		this.resourceCacheLimit = resourceCacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of resources to keep in memory.
+	 * @since 4.0.3
+	 */
+	public int getResourceCacheLimit() {
+		return this.resourceCacheLimit;
+	}
+
+	/**
+	 * Specify the maximum content length of resources to keep in memory.
+	 * <p>Default is 64 KB.
+	 * @since 4.0.3
+	 * @see #setResourceCacheLimit
+	 */
+	public void setMaxCachedResourceLength(int maxCachedResourceLength) {
+		this.maxCachedResourceLength = maxCachedResourceLength;
+	}
+
+	/**
+	 * Return the maximum content length of resources to keep in memory.
+	 * @since 4.0.3
+	 */
+	public int getMaxCachedResourceLength() {
+		return this.maxCachedResourceLength;
+	}
+
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		if (logger.isWarnEnabled() && CollectionUtils.isEmpty(this.locations)) {
@@ -112,6 +267,8 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 	 * {@code Last-Modified} value, or the header is not present, the content resource
 	 * of the resource will be written to the response with caching headers
 	 * set to expire one year in the future.
+	 * <p>A single byte range given by a {@code Range} header will be answered with
+	 * a {@code 206} partial response, or with {@code 416} if it cannot be satisfied.
 	 */
 	@Override
 	public void handleRequest(HttpServletRequest request, HttpServletResponse response)
@@ -120,7 +277,7 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 		checkAndPrepare(request, response, true);
 
 		// check whether a matching resource exists
-		Resource resource = getResource(request);
+		Resource resource = resolveResource(request);
 		if (resource == null) {
 			logger.debug("No matching resource found - returning 404");
 			response.sendError(HttpServletResponse.SC_NOT_FOUND);
@@ -140,21 +297,127 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 			}
 		}
 
+		// check for a precompressed variant of the resource
+		Resource content = resource;
+		if (this.serveGzippedResources) {
+			Resource gzipped = getGzippedResource(resource);
+			if (gzipped != null) {
+				response.addHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+				if (isGzipAccepted(request)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Serving precompressed variant " + gzipped);
+					}
+					content = gzipped;
+				}
+			}
+		}
+		String eTag = (content instanceof CachedResource ? ((CachedResource) content).getETag() : null);
+
 		// header phase
-		if (new ServletWebRequest(request, response).checkNotModified(resource.lastModified())) {
+		ServletWebRequest webRequest = new ServletWebRequest(request, response);
+		if (webRequest.checkNotModified(resource.lastModified()) ||
+				(eTag != null && webRequest.checkNotModified(eTag))) {
 			logger.debug("Resource not modified - returning 304");
 			return;
 		}
-		setHeaders(response, resource, mediaType);
+		setHeaders(response, content, mediaType);
+		if (content != resource) {
+			response.setHeader(HEADER_CONTENT_ENCODING, "gzip");
+		}
+		response.setHeader(HEADER_ACCEPT_RANGES, "bytes");
+
+		long length = content.contentLength();
+		ByteRange range = getRequestedRange(request, length, resource.lastModified(), eTag);
+		if (range == ByteRange.UNSATISFIABLE) {
+			logger.debug("Requested range not satisfiable - returning 416");
+			response.setHeader(HEADER_CONTENT_RANGE, "bytes */" + length);
+			response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+		if (range != null) {
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader(HEADER_CONTENT_RANGE, "bytes " + range.start + "-" + range.end + "/" + length);
+			response.setContentLength((int) range.getLength());
+		}
 
 		// content phase
 		if (METHOD_HEAD.equals(request.getMethod())) {
 			logger.trace("HEAD request - skipping content");
 			return;
 		}
-		writeContent(response, resource);
+		long start = (range != null ? range.start : 0);
+		long end = (range != null ? range.end : length - 1);
+		if (prepareSendfile(request, response, content, start, end)) {
+			logger.trace("Resource content handed over to sendfile support");
+			return;
+		}
+		if (range != null) {
+			writePartialContent(response, content, range.start, range.end);
+		}
+		else {
+			writeContent(response, content);
+		}
 	}
 
+	/**
+	 * Resolve the resource for the given request, keeping its content in memory
+	 * if a {@linkplain #setResourceCacheLimit resource cache limit} has been set.
+	 */
+	private Resource resolveResource(HttpServletRequest request) throws IOException {
+		if (getResourceCacheLimit() <= 0) {
+			return getResource(request);
+		}
+		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+		CachedResource cachedResource = (path != null ? this.resourceAccessCache.get(path) : null);
+		if (cachedResource != null) {
+			return cachedResource;
+		}
+		Resource resource = getResource(request);
+		if (resource == null) {
+			return null;
+		}
+		cachedResource = createCachedResource(resource);
+		if (cachedResource == null) {
+			return resource;
+		}
+		if (this.serveGzippedResources) {
+			Resource gzipped = findGzippedResource(resource);
+			if (gzipped != null) {
+				CachedResource cachedGzipped = createCachedResource(gzipped);
+				cachedResource.gzipped = (cachedGzipped != null ? cachedGzipped : gzipped);
+			}
+		}
+		synchronized (this.resourceCreationCache) {
+			this.resourceAccessCache.put(path, cachedResource);
+			this.resourceCreationCache.put(path, cachedResource);
+		}
+		return cachedResource;
+	}
+
+	private CachedResource createCachedResource(Resource resource) throws IOException {
+		long length = resource.contentLength();
+		if (length > getMaxCachedResourceLength()) {
+			return null;
+		}
+		InputStream in = resource.getInputStream();
+		try {
+			return new CachedResource(resource, StreamUtils.copyToByteArray(in), resource.lastModified());
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Find the resource for the given request within the configured locations.
+	 * @param request current servlet request
+	 * @return the matching resource, or {@code null} if none found
+	 */
 	protected Resource getResource(HttpServletRequest request) {
 		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
 		if (path == null) {
@@ -251,7 +514,292 @@ public class ResourceHttpRequestHandler extends WebContentGenerator implements H
 	 * @throws IOException in case of errors while writing the content
 	 */
 	protected void writeContent(HttpServletResponse response, Resource resource) throws IOException {
-		StreamUtils.copy(resource.getInputStream(), response.getOutputStream());
+		if (resource instanceof CachedResource) {
+			response.getOutputStream().write(((CachedResource) resource).getContent());
+			return;
+		}
+		InputStream in = resource.getInputStream();
+		try {
+			StreamUtils.copy(in, response.getOutputStream());
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Write the given byte range of the resource's content out to the given servlet response.
+	 * @param response current servlet response
+	 * @param resource the identified resource (never {@code null})
+	 * @param start the index of the first byte to write
+	 * @param end the index of the last byte to write (inclusive)
+	 * @throws IOException in case of errors while writing the content
+	 * @since 4.0.3
+	 */
+	protected void writePartialContent(HttpServletResponse response, Resource resource, long start, long end)
+			throws IOException {
+
+		OutputStream out = response.getOutputStream();
+		if (resource instanceof CachedResource) {
+			out.write(((CachedResource) resource).getContent(), (int) start, (int) (end - start + 1));
+			return;
+		}
+		InputStream in = resource.getInputStream();
+		try {
+			long skipped = 0;
+			while (skipped < start) {
+				long count = in.skip(start - skipped);
+				if (count <= 0) {
+					if (in.read() == -1) {
+						throw new IOException("Resource content shorter than expected: " + resource);
+					}
+					count = 1;
+				}
+				skipped += count;
+			}
+			byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+			long remaining = end - start + 1;
+			while (remaining > 0) {
+				int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (bytesRead == -1) {
+					throw new IOException("Resource content shorter than expected: " + resource);
+				}
+				out.write(buffer, 0, bytesRead);
+				remaining -= bytesRead;
+			}
+			out.flush();
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Find a precompressed variant of the given resource, if any.
+	 */
+	private Resource getGzippedResource(Resource resource) {
+		if (resource instanceof CachedResource) {
+			return ((CachedResource) resource).gzipped;
+		}
+		return findGzippedResource(resource);
+	}
+
+	private Resource findGzippedResource(Resource resource) {
+		try {
+			Resource gzipped = resource.createRelative(resource.getFilename() + GZIP_FILE_EXTENSION);
+			if (gzipped.exists() && gzipped.isReadable()) {
+				return gzipped;
+			}
+		}
+		catch (IOException ex) {
+			logger.trace("Failed to create relative resource for precompressed variant", ex);
+		}
+		return null;
+	}
+
+	private boolean isGzipAccepted(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(HEADER_ACCEPT_ENCODING);
+		return (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip"));
+	}
+
+	/**
+	 * Determine the single byte range requested through the {@code Range} header, if any.
+	 * Multiple ranges, invalid syntax as well as a non-matching {@code If-Range} condition
+	 * lead to the full content being served.
+	 * @return the requested range, {@link ByteRange#UNSATISFIABLE}, or {@code null} for the full content
+	 */
+	private ByteRange getRequestedRange(HttpServletRequest request, long length, long lastModified, String eTag) {
+		String rangeHeader = request.getHeader(HEADER_RANGE);
+		if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || length <= 0) {
+			return null;
+		}
+		String ifRange = request.getHeader(HEADER_IF_RANGE);
+		if (ifRange != null) {
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				if (!ifRange.equals(eTag)) {
+					return null;
+				}
+			}
+			else {
+				try {
+					if (request.getDateHeader(HEADER_IF_RANGE) != (lastModified / 1000 * 1000)) {
+						return null;
+					}
+				}
+				catch (IllegalArgumentException ex) {
+					return null;
+				}
+			}
+		}
+		String rangeSpec = rangeHeader.substring(6).trim();
+		int dashIndex = rangeSpec.indexOf('-');
+		if (rangeSpec.contains(",") || dashIndex == -1) {
+			return null;
+		}
+		try {
+			String startValue = rangeSpec.substring(0, dashIndex).trim();
+			String endValue = rangeSpec.substring(dashIndex + 1).trim();
+			if (startValue.length() == 0) {
+				long suffixLength = Long.parseLong(endValue);
+				if (suffixLength <= 0) {
+					return ByteRange.UNSATISFIABLE;
+				}
+				return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+			}
+			long start = Long.parseLong(startValue);
+			long end = (endValue.length() > 0 ? Long.parseLong(endValue) : length - 1);
+			if (start < 0 || end < start) {
+				return null;
+			}
+			if (start >= length) {
+				return ByteRange.UNSATISFIABLE;
+			}
+			return new ByteRange(start, Math.min(end, length - 1));
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Hand the given byte range of a file-based resource over to the container's
+	 * sendfile support, if enabled and applicable.
+	 * @return {@code true} if the container is going to write the content
+	 */
+	private boolean prepareSendfile(HttpServletRequest request, HttpServletResponse response,
+			Resource resource, long start, long end) {
+
+		if (!this.useSendfile || resource instanceof CachedResource || end - start + 1 < SENDFILE_MIN_LENGTH ||
+				!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE)) ||
+				request instanceof ServletRequestWrapper || response instanceof ServletResponseWrapper) {
+			return false;
+		}
+		String path;
+		try {
+			path = resource.getFile().getCanonicalPath();
+		}
+		catch (IOException ex) {
+			// not resolvable to a file in the file system
+			return false;
+		}
+		request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path);
+		request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+		request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+		return true;
+	}
+
+
+	/**
+	 * A single byte range within a resource's content, with an inclusive end index.
+	 */
+	private static class ByteRange {
+
+		public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+		public final long start;
+
+		public final long end;
+
+		public ByteRange(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		public long getLength() {
+			return (this.end - this.start + 1);
+		}
+	}
+
+
+	/**
+	 * Resource whose content is kept in memory, along with an ETag
+	 * calculated from that content and its precompressed variant, if any.
+	 */
+	private static class CachedResource extends AbstractResource {
+
+		private final Resource resource;
+
+		private final byte[] content;
+
+		private final long lastModified;
+
+		private final String eTag;
+
+		private Resource gzipped;
+
+		public CachedResource(Resource resource, byte[] content, long lastModified) {
+			this.resource = resource;
+			this.content = content;
+			this.lastModified = lastModified;
+			StringBuilder builder = new StringBuilder(37);
+			builder.append("\"0");
+			DigestUtils.appendMd5DigestAsHex(content, builder);
+			builder.append('"');
+			this.eTag = builder.toString();
+		}
+
+		public byte[] getContent() {
+			return this.content;
+		}
+
+		public String getETag() {
+			return this.eTag;
+		}
+
+		@Override
+		public boolean exists() {
+			return true;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(this.content);
+		}
+
+		@Override
+		public long contentLength() {
+			return this.content.length;
+		}
+
+		@Override
+		public long lastModified() {
+			return this.lastModified;
+		}
+
+		@Override
+		public URL getURL() throws IOException {
+			return this.resource.getURL();
+		}
+
+		@Override
+		public File getFile() throws IOException {
+			return this.resource.getFile();
+		}
+
+		@Override
+		public Resource createRelative(String relativePath) throws IOException {
+			return this.resource.createRelative(relativePath);
+		}
+
+		@Override
+		public String getFilename() {
+			return this.resource.getFilename();
+		}
+
+		@Override
+		public String getDescription() {
+			return this.resource.getDescription();
+		}
 	}
 
 
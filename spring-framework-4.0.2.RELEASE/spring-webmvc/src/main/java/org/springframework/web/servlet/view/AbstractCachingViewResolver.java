@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,10 @@ import org.springframework.web.servlet.ViewResolver;
  * once resolved: This means that view resolution won't be a performance problem,
  * no matter how costly initial view retrieval is.
  *
+ * <p>Views are created under a lock for their specific cache key (striped across
+ * a fixed number of locks), so that concurrent requests for the same view wait
+ * for a single creation attempt while other views can be created in parallel.
+ *
  * <p>Subclasses need to implement the {@link #loadView} template method,
  * building the View object for a specific view name and locale.
  *
@@ -45,6 +49,9 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 	/** Default maximum number of entries for the view cache: 1024 */
 	public static final int DEFAULT_CACHE_LIMIT = 1024;
 
+	/** Number of locks to stripe View creation across */
+	private static final int VIEW_CREATION_LOCK_COUNT = 32;
+
 	/** Dummy marker object for unresolved views in the cache Maps */
 	private static final View UNRESOLVED_VIEW = new View() {
 		@Override
@@ -82,6 +89,9 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 				}
 			};
 
+	/** Locks for View creation, selected by cache key */
+	private final Object[] viewCreationLocks = createViewCreationLocks();
+
 
 	/**
 	 * Specify the maximum number of entries for the view cache.
@@ -149,8 +159,8 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 			Object cacheKey = getCacheKey(viewName, locale);
 			View view = this.viewAccessCache.get(cacheKey);
 			if (view == null) {
-				synchronized (this.viewCreationCache) {
-					view = this.viewCreationCache.get(cacheKey);
+				synchronized (getViewCreationLock(cacheKey)) {
+					view = this.viewAccessCache.get(cacheKey);
 					if (view == null) {
 						// Ask the subclass to create the View object.
 						view = createView(viewName, locale);
@@ -158,8 +168,10 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 							view = UNRESOLVED_VIEW;
 						}
 						if (view != null) {
-							this.viewAccessCache.put(cacheKey, view);
-							this.viewCreationCache.put(cacheKey, view);
+							synchronized (this.viewCreationCache) {
+								this.viewAccessCache.put(cacheKey, view);
+								this.viewCreationCache.put(cacheKey, view);
+							}
 							if (logger.isTraceEnabled()) {
 								logger.trace("Cached view [" + cacheKey + "]");
 							}
@@ -171,6 +183,23 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 		}
 	}
 
+	private static Object[] createViewCreationLocks() {
+		Object[] locks = new Object[VIEW_CREATION_LOCK_COUNT];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+		return locks;
+	}
+
+	/**
+	 * Return the lock to synchronize on for creating the View for the given cache key.
+	 */
+	private Object getViewCreationLock(Object cacheKey) {
+		int hash = cacheKey.hashCode();
+		hash ^= (hash >>> 16);
+		return this.viewCreationLocks[(hash & Integer.MAX_VALUE) % this.viewCreationLocks.length];
+	}
+
 	/**
 	 * Return the cache key for the given view name and the given locale.
 	 * <p>Default is a String consisting of view name and locale suffix.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,12 +19,14 @@ package org.springframework.web.servlet.view;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.activation.FileTypeMap;
 import javax.servlet.ServletContext;
@@ -79,6 +81,10 @@ import org.springframework.web.servlet.ViewResolver;
  * {@code text/html} content type (based on the {@code html} file extension). A request for {@code /view} with a {@code
  * text/html} request {@code Accept} header has the same result.
  *
+ * <p>If the delegate view resolvers consistently return the same views for the same view name and locale,
+ * the {@linkplain #setCacheViewDecisions "cacheViewDecisions"} property can be switched on in order to
+ * memoize the selected view per view name, locale and requested media types.
+ *
  * @author Arjen Poutsma
  * @author Juergen Hoeller
  * @author Rossen Stoyanchev
@@ -103,6 +109,28 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 
 	private List<ViewResolver> viewResolvers;
 
+	private boolean cacheViewDecisions = false;
+
+	/** Fast access cache for view decisions, returning already cached instances without a global lock */
+	private final Map<String, ViewDecision> viewDecisionAccessCache =
+			new ConcurrentHashMap<String, ViewDecision>(AbstractCachingViewResolver.DEFAULT_CACHE_LIMIT);
+
+	/** Map from decision key to view decision, synchronized for limiting the cache size */
+	@SuppressWarnings("serial")
+	private final Map<String, ViewDecision> viewDecisionCreationCache =
+			new LinkedHashMap<String, ViewDecision>(AbstractCachingViewResolver.DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, ViewDecision> eldest) {
+					if (size() > AbstractCachingViewResolver.DEFAULT_CACHE_LIMIT) {
+						viewDecisionAccessCache.remove(eldest.getKey());
+						return true;
+					}
+					else {
+						return false;
+					}
+				}
+			};
+
 
 	public void setOrder(int order) {
 		this.order = order;
@@ -236,6 +264,29 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 		this.viewResolvers = viewResolvers;
 	}
 
+	/**
+	 * Set whether to cache the view selected for a combination of view name, locale
+	 * and requested media types, rather than consulting all delegate view resolvers
+	 * for every candidate view name on every request. The number of cached decisions
+	 * is limited to {@link AbstractCachingViewResolver#DEFAULT_CACHE_LIMIT}.
+	 * <p>Default is "false". Only switch this on if the delegate view resolvers
+	 * return the same views for the same view names and locales, e.g. caching
+	 * {@link AbstractCachingViewResolver} subclasses.
+	 * @since 4.0.3
+	 */
+	public void setCacheViewDecisions(boolean cacheViewDecisions) {
+		this.cacheViewDecisions = cacheViewDecisions;
+	}
+
+	/**
+	 * Return whether to cache the view selected for a combination of view name,
+	 * locale and requested media types.
+	 * @since 4.0.3
+	 */
+	public boolean isCacheViewDecisions() {
+		return this.cacheViewDecisions;
+	}
+
 
 	@Override
 	protected void initServletContext(ServletContext servletContext) {
@@ -281,10 +332,13 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 		Assert.isInstanceOf(ServletRequestAttributes.class, attrs);
 		List<MediaType> requestedMediaTypes = getMediaTypes(((ServletRequestAttributes) attrs).getRequest());
 		if (requestedMediaTypes != null) {
-			List<View> candidateViews = getCandidateViews(viewName, locale, requestedMediaTypes);
-			View bestView = getBestView(candidateViews, requestedMediaTypes, attrs);
-			if (bestView != null) {
-				return bestView;
+			ViewDecision decision = getViewDecision(viewName, locale, requestedMediaTypes);
+			if (decision.view != null) {
+				if (decision.selectedContentType != null) {
+					attrs.setAttribute(View.SELECTED_CONTENT_TYPE, decision.selectedContentType,
+							RequestAttributes.SCOPE_REQUEST);
+				}
+				return decision.view;
 			}
 		}
 		if (this.useNotAcceptableStatusCode) {
@@ -355,6 +409,28 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 		return MediaType.SPECIFICITY_COMPARATOR.compare(acceptType, produceType) < 0 ? acceptType : produceType;
 	}
 
+	/**
+	 * Determine the view decision for the given view name, locale and requested media
+	 * types, from the cache if {@linkplain #setCacheViewDecisions enabled}.
+	 */
+	private ViewDecision getViewDecision(String viewName, Locale locale, List<MediaType> requestedMediaTypes)
+			throws Exception {
+
+		if (!this.cacheViewDecisions) {
+			return getBestView(getCandidateViews(viewName, locale, requestedMediaTypes), requestedMediaTypes);
+		}
+		String cacheKey = viewName + "_" + locale + "_" + requestedMediaTypes;
+		ViewDecision decision = this.viewDecisionAccessCache.get(cacheKey);
+		if (decision == null) {
+			decision = getBestView(getCandidateViews(viewName, locale, requestedMediaTypes), requestedMediaTypes);
+			synchronized (this.viewDecisionCreationCache) {
+				this.viewDecisionAccessCache.put(cacheKey, decision);
+				this.viewDecisionCreationCache.put(cacheKey, decision);
+			}
+		}
+		return decision;
+	}
+
 	private List<View> getCandidateViews(String viewName, Locale locale, List<MediaType> requestedMediaTypes)
 			throws Exception {
 
@@ -381,7 +457,7 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 		return candidateViews;
 	}
 
-	private View getBestView(List<View> candidateViews, List<MediaType> requestedMediaTypes, RequestAttributes attrs) {
+	private ViewDecision getBestView(List<View> candidateViews, List<MediaType> requestedMediaTypes) {
 		for (View candidateView : candidateViews) {
 			if (candidateView instanceof SmartView) {
 				SmartView smartView = (SmartView) candidateView;
@@ -389,7 +465,7 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 					if (logger.isDebugEnabled()) {
 						logger.debug("Returning redirect view [" + candidateView + "]");
 					}
-					return candidateView;
+					return new ViewDecision(candidateView, null);
 				}
 			}
 		}
@@ -402,13 +478,12 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 							logger.debug("Returning [" + candidateView + "] based on requested media type '"
 									+ mediaType + "'");
 						}
-						attrs.setAttribute(View.SELECTED_CONTENT_TYPE, mediaType, RequestAttributes.SCOPE_REQUEST);
-						return candidateView;
+						return new ViewDecision(candidateView, mediaType);
 					}
 				}
 			}
 		}
-		return null;
+		return NO_VIEW_DECISION;
 	}
 
 
@@ -425,4 +500,22 @@ public class ContentNegotiatingViewResolver extends WebApplicationObjectSupport
 		}
 	};
 
+	private static final ViewDecision NO_VIEW_DECISION = new ViewDecision(null, null);
+
+
+	/**
+	 * The view selected for a request, along with the media type it was selected for.
+	 */
+	private static class ViewDecision {
+
+		public final View view;
+
+		public final MediaType selectedContentType;
+
+		public ViewDecision(View view, MediaType selectedContentType) {
+			this.view = view;
+			this.selectedContentType = selectedContentType;
+		}
+	}
+
 }
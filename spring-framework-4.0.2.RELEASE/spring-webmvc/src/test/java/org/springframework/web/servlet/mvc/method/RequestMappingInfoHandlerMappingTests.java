@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -388,6 +388,113 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertEquals(";mvar=a/b", uriVariables.get("filter"));
 	}
 
+	@Test
+	public void indexedPatternMatches() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.registerHandler(new IndexedController());
+
+		assertEquals("person", getHandlerMethodName(hm, "GET", "/persons/42"));
+		assertEquals("addresses", getHandlerMethodName(hm, "GET", "/persons/42/addresses/home"));
+		assertEquals("addresses", getHandlerMethodName(hm, "GET", "/persons/42/addresses/"));
+		assertEquals("files", getHandlerMethodName(hm, "GET", "/files"));
+		assertEquals("files", getHandlerMethodName(hm, "GET", "/files/a/b/c.txt"));
+		assertEquals("summary", getHandlerMethodName(hm, "GET", "/reports/summary.pdf"));
+		assertEquals("summary", getHandlerMethodName(hm, "GET", "/reports/summary/"));
+		assertEquals("report", getHandlerMethodName(hm, "GET", "/reports/yearly.pdf"));
+		assertEquals("createReport", getHandlerMethodName(hm, "POST", "/reports/yearly"));
+		assertEquals("anyPath", getHandlerMethodName(hm, "GET", "/other/path"));
+	}
+
+	@Test
+	public void indexedRequestMethodNotAllowed() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.registerHandler(new IndexedController());
+		try {
+			hm.getHandler(new MockHttpServletRequest("DELETE", "/persons/42"));
+			fail("HttpRequestMethodNotSupportedException expected");
+		}
+		catch (HttpRequestMethodNotSupportedException ex) {
+			assertArrayEquals(new String[] {"GET"}, ex.getSupportedMethods());
+		}
+	}
+
+	@Test
+	public void cachedLookupExposesUriTemplateVariables() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.registerHandler(new IndexedController());
+
+		for (String id : new String[] {"1", "2", "1"}) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons/" + id);
+			HandlerMethod handlerMethod = (HandlerMethod) hm.getHandler(request).getHandler();
+			assertEquals("person", handlerMethod.getMethod().getName());
+			assertEquals(id, getUriTemplateVariables(request).get("id"));
+			assertEquals("/persons/{id}", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+		}
+	}
+
+	@Test
+	public void lookupNotCachedForConditionalMappings() throws Exception {
+		assertEquals("foo", getHandlerMethodName(this.handlerMapping, "GET", "/foo"));
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		request.setParameter("p", "anything");
+		HandlerMethod hm = (HandlerMethod) this.handlerMapping.getHandler(request).getHandler();
+		assertEquals(this.fooParamMethod.getMethod(), hm.getMethod());
+	}
+
+	@Test
+	public void lookupCacheDisabled() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.setLookupCacheLimit(0);
+		hm.registerHandler(new IndexedController());
+
+		assertEquals("person", getHandlerMethodName(hm, "GET", "/persons/42"));
+		assertEquals("person", getHandlerMethodName(hm, "GET", "/persons/42"));
+	}
+
+	@Test
+	public void lookupCacheSkipsPatternMatches() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.registerHandler(new IndexedController());
+
+		assertEquals("summary", getHandlerMethodName(hm, "GET", "/reports/summary"));
+		int count = hm.matchingMappingCount;
+		assertEquals("summary", getHandlerMethodName(hm, "GET", "/reports/summary"));
+		assertEquals("Direct match not cached", count, hm.matchingMappingCount);
+
+		assertEquals("person", getHandlerMethodName(hm, "GET", "/persons/42"));
+		count = hm.matchingMappingCount;
+		assertEquals("person", getHandlerMethodName(hm, "GET", "/persons/42"));
+		assertTrue("Pattern match cached", hm.matchingMappingCount > count);
+	}
+
+	@Test
+	public void lookupCacheLimitExceededEvictsLeastRecentlyUsed() throws Exception {
+		TestRequestMappingInfoHandlerMapping hm = new TestRequestMappingInfoHandlerMapping();
+		hm.setLookupCacheLimit(2);
+		hm.registerHandler(new DirectController());
+
+		assertEquals("a", getHandlerMethodName(hm, "GET", "/a"));
+		assertEquals("b", getHandlerMethodName(hm, "GET", "/b"));
+		for (int i = 0; i < 32; i++) {
+			assertEquals("a", getHandlerMethodName(hm, "GET", "/a"));
+		}
+		assertEquals("c", getHandlerMethodName(hm, "GET", "/c"));
+
+		int count = hm.matchingMappingCount;
+		assertEquals("a", getHandlerMethodName(hm, "GET", "/a"));
+		assertEquals("Recently used entry evicted", count, hm.matchingMappingCount);
+		assertEquals("b", getHandlerMethodName(hm, "GET", "/b"));
+		assertTrue("Least recently used entry not evicted", hm.matchingMappingCount > count);
+	}
+
+
+	private String getHandlerMethodName(RequestMappingInfoHandlerMapping hm, String method, String path)
+			throws Exception {
+
+		HandlerExecutionChain chain = hm.getHandler(new MockHttpServletRequest(method, path));
+		return (chain != null ? ((HandlerMethod) chain.getHandler()).getMethod().getName() : null);
+	}
 
 	private void testHandleMatch(MockHttpServletRequest request, String pattern, String lookupPath) {
 		PatternsRequestCondition patterns = new PatternsRequestCondition(pattern);
@@ -464,12 +571,68 @@ public class RequestMappingInfoHandlerMappingTests {
 		}
 	}
 
+	@Controller
+	private static class IndexedController {
+
+		@RequestMapping(value = "/persons/{id}", method = RequestMethod.GET)
+		public void person() {
+		}
+
+		@RequestMapping(value = "/persons/{id}/addresses/*", method = RequestMethod.GET)
+		public void addresses() {
+		}
+
+		@RequestMapping("/files/**")
+		public void files() {
+		}
+
+		@RequestMapping(value = "/reports/summary", method = RequestMethod.GET)
+		public void summary() {
+		}
+
+		@RequestMapping(value = "/reports/{name}", method = RequestMethod.GET)
+		public void report() {
+		}
+
+		@RequestMapping(value = "/reports/{name}", method = RequestMethod.POST)
+		public void createReport() {
+		}
+
+		@RequestMapping("/**/path")
+		public void anyPath() {
+		}
+	}
+
+	@Controller
+	private static class DirectController {
+
+		@RequestMapping(value = "/a", method = RequestMethod.GET)
+		public void a() {
+		}
+
+		@RequestMapping(value = "/b", method = RequestMethod.GET)
+		public void b() {
+		}
+
+		@RequestMapping(value = "/c", method = RequestMethod.GET)
+		public void c() {
+		}
+	}
+
 	private static class TestRequestMappingInfoHandlerMapping extends RequestMappingInfoHandlerMapping {
 
+		private int matchingMappingCount;
+
 		public void registerHandler(Object handler) {
 			super.detectHandlerMethods(handler);
 		}
 
+		@Override
+		protected RequestMappingInfo getMatchingMapping(RequestMappingInfo info, HttpServletRequest request) {
+			this.matchingMappingCount++;
+			return super.getMatchingMapping(info, request);
+		}
+
 		@Override
 		protected boolean isHandler(Class<?> beanType) {
 			return AnnotationUtils.findAnnotation(beanType, RequestMapping.class) != null;
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.util.CloseableIterator;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test fixture with {@link CloseableIteratorMethodReturnValueHandler}.
+ *
+ * @author agent
+ */
+public class CloseableIteratorMethodReturnValueHandlerTests {
+
+	private CloseableIteratorMethodReturnValueHandler handler;
+
+	private ModelAndViewContainer mavContainer;
+
+	private MockHttpServletRequest servletRequest;
+
+	private MockHttpServletResponse servletResponse;
+
+	private ServletWebRequest webRequest;
+
+
+	@Before
+	public void setUp() {
+		this.handler = new CloseableIteratorMethodReturnValueHandler(new MappingJackson2HttpMessageConverter());
+		this.mavContainer = new ModelAndViewContainer();
+		this.servletRequest = new MockHttpServletRequest();
+		this.servletResponse = new MockHttpServletResponse();
+		this.webRequest = new ServletWebRequest(this.servletRequest, this.servletResponse);
+	}
+
+
+	@Test
+	public void supportsReturnType() throws Exception {
+		assertTrue(this.handler.supportsReturnType(createReturnValueParam("persons")));
+		assertFalse(this.handler.supportsReturnType(createReturnValueParam("iterator")));
+	}
+
+	@Test
+	public void writeElements() throws Exception {
+		TestIterator<Person> iterator = new TestIterator<Person>(
+				Arrays.asList(new Person("Juergen", 42), new Person("Arjen", 41), new Person("Rossen", 40)));
+		this.handler.setFlushInterval(2);
+		this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+
+		assertTrue(this.mavContainer.isRequestHandled());
+		assertTrue(iterator.closed);
+		assertEquals("application/json;charset=UTF-8", this.servletResponse.getContentType());
+		assertTrue(this.servletResponse.isCommitted());
+		assertEquals("[{\"name\":\"Juergen\",\"age\":42},{\"name\":\"Arjen\",\"age\":41}," +
+				"{\"name\":\"Rossen\",\"age\":40}]", this.servletResponse.getContentAsString());
+	}
+
+	@Test
+	public void writeNoElements() throws Exception {
+		TestIterator<Person> iterator = new TestIterator<Person>(Arrays.<Person>asList());
+		this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+
+		assertTrue(iterator.closed);
+		assertEquals("[]", this.servletResponse.getContentAsString());
+	}
+
+	@Test
+	public void writeRequestedMediaType() throws Exception {
+		this.servletRequest.addHeader("Accept", "text/html, application/vnd.example+json");
+		TestIterator<Person> iterator = new TestIterator<Person>(Arrays.asList(new Person("Juergen", 42)));
+		this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+
+		assertEquals("application/vnd.example+json;charset=UTF-8", this.servletResponse.getContentType());
+		assertEquals("[{\"name\":\"Juergen\",\"age\":42}]", this.servletResponse.getContentAsString());
+	}
+
+	@Test
+	public void notAcceptable() throws Exception {
+		this.servletRequest.addHeader("Accept", "text/html");
+		TestIterator<Person> iterator = new TestIterator<Person>(Arrays.asList(new Person("Juergen", 42)));
+		try {
+			this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+			fail("HttpMediaTypeNotAcceptableException expected");
+		}
+		catch (HttpMediaTypeNotAcceptableException ex) {
+			// expected
+		}
+		assertTrue(iterator.closed);
+		assertEquals("", this.servletResponse.getContentAsString());
+	}
+
+	@Test
+	public void notAcceptableByProducibleMediaTypes() throws Exception {
+		this.servletRequest.setAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE,
+				Collections.singleton(MediaType.TEXT_PLAIN));
+		TestIterator<Person> iterator = new TestIterator<Person>(Arrays.asList(new Person("Juergen", 42)));
+		try {
+			this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+			fail("HttpMediaTypeNotAcceptableException expected");
+		}
+		catch (HttpMediaTypeNotAcceptableException ex) {
+			// expected
+		}
+		assertTrue(iterator.closed);
+	}
+
+	@Test
+	public void nullReturnValue() throws Exception {
+		this.handler.handleReturnValue(null, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+
+		assertTrue(this.mavContainer.isRequestHandled());
+		assertEquals("", this.servletResponse.getContentAsString());
+	}
+
+	@Test
+	public void closeOnFailure() throws Exception {
+		TestIterator<Person> iterator = new TestIterator<Person>(Arrays.asList(new Person("Juergen", 42))) {
+			@Override
+			public Person next() {
+				throw new IllegalStateException("Connection reset");
+			}
+		};
+		try {
+			this.handler.handleReturnValue(iterator, createReturnValueParam("persons"), this.mavContainer, this.webRequest);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("Connection reset", ex.getMessage());
+		}
+		assertTrue(iterator.closed);
+	}
+
+
+	private MethodParameter createReturnValueParam(String methodName) throws Exception {
+		Method method = getClass().getDeclaredMethod(methodName);
+		return new MethodParameter(method, -1);
+	}
+
+	CloseableIterator<Person> persons() {
+		return null;
+	}
+
+	Iterator<Person> iterator() {
+		return null;
+	}
+
+
+	private static class TestIterator<T> implements CloseableIterator<T> {
+
+		private final Iterator<T> delegate;
+
+		private boolean closed;
+
+		public TestIterator(List<T> elements) {
+			this.delegate = elements.iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (!this.closed && this.delegate.hasNext());
+		}
+
+		@Override
+		public T next() {
+			return this.delegate.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+
+
+	@SuppressWarnings("unused")
+	private static class Person {
+
+		private final String name;
+
+		private final int age;
+
+		public Person(String name, int age) {
+			this.name = name;
+			this.age = age;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+	}
+
+}
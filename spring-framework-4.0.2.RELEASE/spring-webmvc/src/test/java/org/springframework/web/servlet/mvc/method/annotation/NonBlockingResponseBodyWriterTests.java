@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.test.MockAsyncContext;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test fixture with {@link NonBlockingResponseBodyWriter}, using a stub
+ * {@link ServletOutputStream} that is writable for a given number of writes.
+ *
+ * @author agent
+ */
+public class NonBlockingResponseBodyWriterTests {
+
+	private static final int BODY_SIZE = 20000;
+
+	private MockHttpServletRequest servletRequest;
+
+	private MockHttpServletResponse servletResponse;
+
+	private StubServletOutputStream outputStream;
+
+	private byte[] body;
+
+
+	@Before
+	public void setUp() {
+		this.servletRequest = new MockHttpServletRequest();
+		this.servletRequest.setAsyncSupported(true);
+		this.outputStream = new StubServletOutputStream();
+		this.servletResponse = new MockHttpServletResponse() {
+			@Override
+			public ServletOutputStream getOutputStream() {
+				return outputStream;
+			}
+		};
+		this.body = new byte[BODY_SIZE];
+		Arrays.fill(this.body, (byte) 'a');
+	}
+
+
+	@Test
+	public void isSupported() {
+		assertTrue(NonBlockingResponseBodyWriter.isSupported(this.servletRequest, this.servletResponse));
+		this.servletRequest.setAsyncSupported(false);
+		assertFalse(NonBlockingResponseBodyWriter.isSupported(this.servletRequest, this.servletResponse));
+	}
+
+	@Test
+	public void writeBufferedBody() throws Exception {
+		startWriting(null);
+
+		assertEquals(201, this.servletResponse.getStatus());
+		assertEquals("text/plain", this.servletResponse.getHeader("Content-Type"));
+		assertEquals(BODY_SIZE, this.servletResponse.getContentLength());
+		assertTrue(this.servletRequest.isAsyncStarted());
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(this.servletRequest);
+		assertTrue(asyncManager.isConcurrentHandlingStarted());
+		assertEquals("Container default timeout", 10 * 1000L, getAsyncContext().getTimeout());
+		assertNotNull(this.outputStream.writeListener);
+		assertEquals(0, this.outputStream.content.size());
+
+		this.outputStream.writesUntilNotReady = 1;
+		this.outputStream.writeListener.onWritePossible();
+		assertEquals(8192, this.outputStream.content.size());
+		assertTrue(this.servletRequest.isAsyncStarted());
+
+		this.outputStream.writesUntilNotReady = 10;
+		this.outputStream.writeListener.onWritePossible();
+		assertArrayEquals(this.body, this.outputStream.content.toByteArray());
+		assertFalse("Request not completed", this.servletRequest.isAsyncStarted());
+		assertFalse(asyncManager.isConcurrentHandlingStarted());
+		assertFalse(this.outputStream.closed);
+	}
+
+	@Test
+	public void timeout() throws Exception {
+		startWriting(5000L);
+		assertEquals(5000, getAsyncContext().getTimeout());
+
+		this.outputStream.writesUntilNotReady = 1;
+		this.outputStream.writeListener.onWritePossible();
+		fireTimeout();
+
+		assertTrue("Output stream not closed", this.outputStream.closed);
+		assertFalse("Request not completed", this.servletRequest.isAsyncStarted());
+		assertEquals(201, this.servletResponse.getStatus());
+
+		this.outputStream.writesUntilNotReady = 10;
+		this.outputStream.writeListener.onWritePossible();
+		assertEquals(8192, this.outputStream.content.size());
+	}
+
+	@Test
+	public void timeoutBeforeCommit() throws Exception {
+		startWriting(5000L);
+		fireTimeout();
+
+		assertFalse(this.outputStream.closed);
+		assertFalse("Request not completed", this.servletRequest.isAsyncStarted());
+		assertEquals(503, this.servletResponse.getStatus());
+		assertEquals(0, this.servletResponse.getContentLength());
+		assertNull(this.servletResponse.getHeader("Content-Type"));
+	}
+
+
+	private void startWriting(Long timeout) throws IOException {
+		NonBlockingResponseBodyWriter writer =
+				new NonBlockingResponseBodyWriter(new ServletServerHttpResponse(this.servletResponse), timeout);
+		ServletServerHttpResponse outputMessage = writer.getOutputMessage();
+		outputMessage.setStatusCode(HttpStatus.CREATED);
+		outputMessage.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+		outputMessage.getBody().write(this.body);
+		outputMessage.close();
+		writer.startWriting(this.servletRequest);
+	}
+
+	private MockAsyncContext getAsyncContext() {
+		return (MockAsyncContext) this.servletRequest.getAsyncContext();
+	}
+
+	private void fireTimeout() throws IOException {
+		MockAsyncContext asyncContext = getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(new AsyncEvent(asyncContext, this.servletRequest, this.servletResponse));
+		}
+	}
+
+
+	private class StubServletOutputStream extends ServletOutputStream {
+
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		private WriteListener writeListener;
+
+		private int writesUntilNotReady;
+
+		private boolean closed;
+
+		@Override
+		public void write(int b) {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			assertTrue("Written while not ready", isReady());
+			this.content.write(bytes, offset, length);
+			this.writesUntilNotReady--;
+			servletResponse.setCommitted(true);
+		}
+
+		@Override
+		public boolean isReady() {
+			return (this.writesUntilNotReady > 0);
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			this.writeListener = writeListener;
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+
+}
@@ -23,12 +23,15 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import org.springframework.mock.web.test.MockAsyncContext;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.mock.web.test.MockHttpServletResponse;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.SessionAttributes;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.context.support.StaticWebApplicationContext;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.annotation.ModelMethodProcessor;
@@ -200,6 +203,21 @@ public class RequestMappingHandlerAdapterTests {
 		assertEquals(null,mav.getModel().get("attr3"));
 	}
 
+	@Test
+	public void nonBlockingWritesStartConcurrentHandling() throws Exception {
+		this.request.setAsyncSupported(true);
+		this.handlerAdapter.setNonBlockingWrites(true);
+		this.handlerAdapter.setAsyncRequestTimeout(5000);
+		this.handlerAdapter.afterPropertiesSet();
+
+		HandlerMethod handlerMethod = handlerMethod(new ResponseBodyController(), "handle");
+		ModelAndView mav = this.handlerAdapter.handle(this.request, this.response, handlerMethod);
+
+		assertNull(mav);
+		assertTrue(WebAsyncUtils.getAsyncManager(this.request).isConcurrentHandlingStarted());
+		assertEquals(5000, ((MockAsyncContext) this.request.getAsyncContext()).getTimeout());
+	}
+
 
 	private HandlerMethod handlerMethod(Object handler, String methodName, Class<?>... paramTypes) throws Exception {
 		Method method = handler.getClass().getDeclaredMethod(methodName, paramTypes);
@@ -226,6 +244,15 @@ public class RequestMappingHandlerAdapterTests {
 		}
 	}
 
+	@SuppressWarnings("unused")
+	private static class ResponseBodyController {
+
+		@ResponseBody
+		public String handle() {
+			return "body";
+		}
+	}
+
 	@SessionAttributes("attr1")
 	private static class SessionAttributeController {
 
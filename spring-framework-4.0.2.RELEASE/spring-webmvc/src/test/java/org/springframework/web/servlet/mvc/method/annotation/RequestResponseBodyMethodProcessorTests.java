@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -257,6 +257,21 @@ public class RequestResponseBodyMethodProcessorTests {
 		assertEquals("text/plain;charset=UTF-8", servletResponse.getHeader("Content-Type"));
 	}
 
+	@Test
+	public void handleReturnValueNonBlockingWritesWithoutAsyncSupport() throws Exception {
+		List<HttpMessageConverter<?>> converters = new ArrayList<HttpMessageConverter<?>>();
+		converters.add(new StringHttpMessageConverter());
+		RequestResponseBodyMethodProcessor processor = new RequestResponseBodyMethodProcessor(converters);
+		processor.setNonBlockingWrites(true);
+
+		this.servletRequest.setAsyncSupported(false);
+		processor.handleReturnValue("Foo", returnTypeString, mavContainer, webRequest);
+
+		assertTrue(mavContainer.isRequestHandled());
+		assertFalse(servletRequest.isAsyncStarted());
+		assertEquals("Foo", servletResponse.getContentAsString());
+	}
+
 	@Test
 	public void supportsReturnTypeResponseBodyOnType() throws Exception {
 		Method method = ResponseBodyController.class.getMethod("handle");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.web.servlet.resource;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -23,12 +24,16 @@ import java.util.List;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.mock.web.test.MockHttpServletResponse;
 import org.springframework.mock.web.test.MockServletContext;
+import org.springframework.util.FileCopyUtils;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.servlet.HandlerMapping;
 
@@ -40,6 +45,9 @@ import static org.junit.Assert.*;
  */
 public class ResourceHttpRequestHandlerTests {
 
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
 	private ResourceHttpRequestHandler handler;
 
 	@Before
@@ -219,6 +227,129 @@ public class ResourceHttpRequestHandlerTests {
 		assertEquals(404, response.getStatus());
 	}
 
+	@Test
+	public void partialContent() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=0-1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+		assertEquals("bytes", response.getHeader("Accept-Ranges"));
+		assertEquals("bytes 0-1/17", response.getHeader("Content-Range"));
+		assertEquals(2, response.getContentLength());
+		assertEquals("h1", response.getContentAsString());
+
+		request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=14-");
+		response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+		assertEquals("bytes 14-16/17", response.getHeader("Content-Range"));
+		assertEquals("; }", response.getContentAsString());
+	}
+
+	@Test
+	public void partialContentWithSuffixLength() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=-5");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+		assertEquals("bytes 12-16/17", response.getHeader("Content-Range"));
+		assertEquals("ed; }", response.getContentAsString());
+	}
+
+	@Test
+	public void partialContentNotSatisfiable() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=17-20");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+		assertEquals("bytes */17", response.getHeader("Content-Range"));
+	}
+
+	@Test
+	public void fullContentForMultipleRangesOrNonMatchingIfRange() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=0-1,5-6");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertEquals("h1 { color:red; }", response.getContentAsString());
+
+		request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Range", "bytes=0-1");
+		request.addHeader("If-Range", "\"other\"");
+		response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertEquals("h1 { color:red; }", response.getContentAsString());
+	}
+
+	@Test
+	public void gzippedResource() throws Exception {
+		File css = folder.newFile("foo.css");
+		FileCopyUtils.copy("h1 { color:red; }".getBytes("UTF-8"), css);
+		File gzipped = folder.newFile("foo.css.gz");
+		FileCopyUtils.copy(new byte[] {1, 2, 3}, gzipped);
+		handler.setLocations(Arrays.<Resource>asList(new FileSystemResource(folder.getRoot().getPath() + "/")));
+		handler.setServeGzippedResources(true);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		request.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals("text/css", response.getContentType());
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertEquals(3, response.getContentLength());
+		assertArrayEquals(new byte[] {1, 2, 3}, response.getContentAsByteArray());
+
+		request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertEquals("h1 { color:red; }", response.getContentAsString());
+	}
+
+	@Test
+	public void cachedResourceWithETag() throws Exception {
+		File css = folder.newFile("foo.css");
+		FileCopyUtils.copy("h1 { color:red; }".getBytes("UTF-8"), css);
+		handler.setLocations(Arrays.<Resource>asList(new FileSystemResource(folder.getRoot().getPath() + "/")));
+		handler.setResourceCacheLimit(10);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "/foo.css");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		String eTag = response.getHeader("ETag");
+		assertNotNull(eTag);
+		assertEquals("h1 { color:red; }", response.getContentAsString());
+
+		// served from memory, even if the underlying file is gone
+		assertTrue(css.delete());
+		response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(eTag, response.getHeader("ETag"));
+		assertEquals("h1 { color:red; }", response.getContentAsString());
+
+		request.addHeader("If-None-Match", eTag);
+		response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+	}
+
 
 	private static class TestServletContext extends MockServletContext {
 
@@ -104,6 +104,42 @@ public class ContentNegotiatingViewResolverTests {
 		assertSame("Invalid view", viewMock, result);
 	}
 
+	@Test
+	public void resolveViewNameWithCachedViewDecision() throws Exception {
+		request.addHeader("Accept", "application/vnd.ms-excel");
+
+		ViewResolver viewResolverMock = mock(ViewResolver.class);
+		viewResolver.setViewResolvers(Collections.singletonList(viewResolverMock));
+		viewResolver.setCacheViewDecisions(true);
+		viewResolver.afterPropertiesSet();
+
+		View viewMock = mock(View.class, "application_xls");
+
+		String viewName = "view";
+		Locale locale = Locale.ENGLISH;
+
+		given(viewResolverMock.resolveViewName(viewName, locale)).willReturn(viewMock);
+		given(viewMock.getContentType()).willReturn("application/vnd.ms-excel");
+
+		assertSame("Invalid view", viewMock, viewResolver.resolveViewName(viewName, locale));
+		assertNull(viewResolver.resolveViewName("other", locale));
+
+		request = new MockHttpServletRequest("GET", "/test");
+		request.addHeader("Accept", "application/vnd.ms-excel");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		assertSame("Invalid view", viewMock, viewResolver.resolveViewName(viewName, locale));
+		assertNull(viewResolver.resolveViewName("other", locale));
+		assertEquals(MediaType.valueOf("application/vnd.ms-excel"), request.getAttribute(View.SELECTED_CONTENT_TYPE));
+		verify(viewResolverMock, times(1)).resolveViewName(viewName, locale);
+		verify(viewResolverMock, times(1)).resolveViewName("other", locale);
+
+		request = new MockHttpServletRequest("GET", "/test");
+		request.addHeader("Accept", "text/html");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		assertNull(viewResolver.resolveViewName(viewName, locale));
+		verify(viewResolverMock, times(2)).resolveViewName(viewName, locale);
+	}
+
 	@Test
 	public void resolveViewNameWithAcceptHeader() throws Exception {
 		request.addHeader("Accept", "application/vnd.ms-excel");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,9 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
@@ -535,6 +538,45 @@ public class ViewResolverTests {
 		assertEquals(3, count.intValue());
 	}
 
+	@Test
+	public void testViewCreationDoesNotBlockOtherViews() throws Exception {
+		final CountDownLatch slowViewLoading = new CountDownLatch(1);
+		final CountDownLatch fastViewResolved = new CountDownLatch(1);
+		final AtomicBoolean slowViewCompleted = new AtomicBoolean();
+		final AbstractCachingViewResolver viewResolver = new AbstractCachingViewResolver() {
+			@Override
+			protected View loadView(String viewName, Locale locale) throws Exception {
+				if ("slow".equals(viewName)) {
+					slowViewLoading.countDown();
+					slowViewCompleted.set(fastViewResolved.await(10, TimeUnit.SECONDS));
+				}
+				return new InternalResourceView(viewName);
+			}
+		};
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					viewResolver.resolveViewName("slow", Locale.ENGLISH);
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		};
+		thread.start();
+		assertTrue(slowViewLoading.await(10, TimeUnit.SECONDS));
+
+		View fastView = viewResolver.resolveViewName("fast", Locale.ENGLISH);
+		fastViewResolved.countDown();
+		thread.join(10000);
+
+		assertNotNull(fastView);
+		assertTrue("Creation of other view blocked by slow view creation", slowViewCompleted.get());
+		assertSame(fastView, viewResolver.resolveViewName("fast", Locale.ENGLISH));
+	}
+
 
 	public static class TestView extends InternalResourceView {
 
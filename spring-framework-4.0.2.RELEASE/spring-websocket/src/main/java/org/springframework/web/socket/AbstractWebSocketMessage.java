@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -89,11 +89,9 @@ public abstract class AbstractWebSocketMessage<T> implements WebSocketMessage<T>
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + " payload= " + toStringPayload()
-				+ ", length=" + getPayloadSize() + ", last=" + isLast() + "]";
+				+ ", length=" + getPayloadLength() + ", last=" + isLast() + "]";
 	}
 
 	protected abstract String toStringPayload();
 
-	protected abstract int getPayloadSize();
-
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -133,6 +133,15 @@ public final class CloseStatus {
 	 */
 	public static final CloseStatus TLS_HANDSHAKE_FAILURE = new CloseStatus(1015);
 
+	/**
+	 * A status code for use within the framework to indicate that a session has
+	 * become unreliable (e.g. timed out while sending a message) and extra care
+	 * should be exercised, e.g. avoid sending any further data to the client
+	 * that may be done during normal shutdown.
+	 * @since 4.0.3
+	 */
+	public static final CloseStatus SESSION_NOT_RELIABLE = new CloseStatus(4500);
+
 
 	private final int code;
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,13 +47,13 @@ public final class TextMessage extends AbstractWebSocketMessage<String> {
 
 
 	@Override
-	protected int getPayloadSize() {
+	public int getPayloadLength() {
 		return getPayload().length();
 	}
 
 	@Override
 	protected String toStringPayload() {
-		return (getPayloadSize() > 10) ? getPayload().substring(0, 10) + ".." : getPayload();
+		return (getPayloadLength() > 10) ? getPayload().substring(0, 10) + ".." : getPayload();
 	}
 
 }
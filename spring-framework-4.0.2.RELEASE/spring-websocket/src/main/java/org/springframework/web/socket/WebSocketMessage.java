@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,6 +29,13 @@ public interface WebSocketMessage<T> {
 	 */
 	T getPayload();
 
+	/**
+	 * Return the length of the message payload, i.e. the number of bytes for
+	 * binary messages or the number of characters for text messages.
+	 * @since 4.0.3
+	 */
+	int getPayloadLength();
+
 	/**
 	 * When partial message support is available and requested via
 	 * {@link org.springframework.web.socket.WebSocketHandler#supportsPartialMessages()},
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket.handler;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Wraps a {@link org.springframework.web.socket.WebSocketSession} and guarantees
+ * only one thread can send messages at a time.
+ *
+ * <p>Messages from any number of threads are added to a lock-free buffer and
+ * whichever thread manages to obtain the flush lock sends all buffered messages,
+ * in order, while other threads return immediately. If a send is slow, i.e. the
+ * client is not consuming fast enough, threads attempting to send will find the
+ * flush lock held and will check the configured send time and buffer size limits
+ * instead. When a limit is exceeded, a {@link SessionLimitExceededException} is
+ * raised and the session should be closed.
+ *
+ * @author agent
+ * @since 4.0.3
+ */
+public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+	private static final Log logger = LogFactory.getLog(ConcurrentWebSocketSessionDecorator.class);
+
+
+	private final Queue<WebSocketMessage<?>> buffer = new ConcurrentLinkedQueue<WebSocketMessage<?>>();
+
+	private final AtomicInteger bufferSize = new AtomicInteger();
+
+	private final int sendTimeLimit;
+
+	private final int bufferSizeLimit;
+
+	private volatile long sendStartTime;
+
+	private volatile boolean limitExceeded;
+
+	private volatile boolean closeInProgress;
+
+	private final Lock flushLock = new ReentrantLock();
+
+	private final Lock closeLock = new ReentrantLock();
+
+
+	/**
+	 * Create a new {@code ConcurrentWebSocketSessionDecorator}.
+	 * @param delegate the session to delegate to
+	 * @param sendTimeLimit the maximum time in milliseconds a single send may take
+	 * before the session is considered unresponsive
+	 * @param bufferSizeLimit the maximum number of bytes that may be buffered
+	 * while a send is in progress
+	 */
+	public ConcurrentWebSocketSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit) {
+		super(delegate);
+		this.sendTimeLimit = sendTimeLimit;
+		this.bufferSizeLimit = bufferSizeLimit;
+	}
+
+
+	public int getSendTimeLimit() {
+		return this.sendTimeLimit;
+	}
+
+	public int getBufferSizeLimit() {
+		return this.bufferSizeLimit;
+	}
+
+	/**
+	 * Return the number of bytes currently buffered awaiting a send.
+	 */
+	public int getBufferSize() {
+		return this.bufferSize.get();
+	}
+
+	/**
+	 * Return the time in milliseconds since the current send started,
+	 * or 0 if no send is in progress.
+	 */
+	public long getTimeSinceSendStarted() {
+		long start = this.sendStartTime;
+		return (start > 0 ? (System.currentTimeMillis() - start) : 0);
+	}
+
+
+	@Override
+	public void sendMessage(WebSocketMessage<?> message) throws IOException {
+		if (shouldNotSend()) {
+			return;
+		}
+
+		this.buffer.add(message);
+		this.bufferSize.addAndGet(message.getPayloadLength());
+
+		do {
+			if (!tryFlushMessageBuffer()) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Another send already in progress, session id '" +
+							getId() + "'" + ", in-progress send time " + getTimeSinceSendStarted() +
+							" (ms)" + ", buffer size " + this.bufferSize + " bytes");
+				}
+				checkSessionLimits();
+				break;
+			}
+		}
+		while (!this.buffer.isEmpty() && !shouldNotSend());
+	}
+
+	private boolean shouldNotSend() {
+		return (this.limitExceeded || this.closeInProgress);
+	}
+
+	private boolean tryFlushMessageBuffer() throws IOException {
+		if (this.flushLock.tryLock()) {
+			try {
+				while (true) {
+					WebSocketMessage<?> messageToSend = this.buffer.poll();
+					if (messageToSend == null || shouldNotSend()) {
+						break;
+					}
+					this.bufferSize.addAndGet(-messageToSend.getPayloadLength());
+					this.sendStartTime = System.currentTimeMillis();
+					getDelegate().sendMessage(messageToSend);
+					this.sendStartTime = 0;
+				}
+			}
+			finally {
+				this.sendStartTime = 0;
+				this.flushLock.unlock();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void checkSessionLimits() {
+		if (!shouldNotSend() && this.closeLock.tryLock()) {
+			try {
+				if (getTimeSinceSendStarted() > this.sendTimeLimit) {
+					String errorMessage = "Message send time " + getTimeSinceSendStarted() +
+							" (ms) exceeded the allowed limit " + this.sendTimeLimit;
+					sessionLimitReached(errorMessage, CloseStatus.SESSION_NOT_RELIABLE);
+				}
+				else if (this.bufferSize.get() > this.bufferSizeLimit) {
+					String errorMessage = "The send buffer size " + this.bufferSize.get() + " bytes for " +
+							"session '" + getId() + "' exceeded the allowed limit " + this.bufferSizeLimit;
+					sessionLimitReached(errorMessage, CloseStatus.SESSION_NOT_RELIABLE);
+				}
+			}
+			finally {
+				this.closeLock.unlock();
+			}
+		}
+	}
+
+	private void sessionLimitReached(String reason, CloseStatus status) {
+		this.limitExceeded = true;
+		this.buffer.clear();
+		this.bufferSize.set(0);
+		throw new SessionLimitExceededException(reason, status);
+	}
+
+	@Override
+	public void close(CloseStatus status) throws IOException {
+		this.closeLock.lock();
+		try {
+			if (this.closeInProgress) {
+				return;
+			}
+			if (!CloseStatus.SESSION_NOT_RELIABLE.equals(status)) {
+				try {
+					checkSessionLimits();
+				}
+				catch (SessionLimitExceededException ex) {
+					// Ignore
+				}
+				if (this.limitExceeded) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Changing close status " + status + " to SESSION_NOT_RELIABLE.");
+					}
+					status = CloseStatus.SESSION_NOT_RELIABLE;
+				}
+			}
+			this.closeInProgress = true;
+			super.close(status);
+		}
+		finally {
+			this.closeLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getDelegate().toString();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,15 +99,15 @@ public class StompSubProtocolHandler implements SubProtocolHandler {
 	public void handleMessageFromClient(WebSocketSession session,
 			WebSocketMessage<?> webSocketMessage, MessageChannel outputChannel) {
 
-		Message<?> message = null;
+		List<Message<byte[]>> messages = null;
 		Throwable decodeFailure = null;
 		try {
 			Assert.isInstanceOf(TextMessage.class,  webSocketMessage);
 			String payload = ((TextMessage) webSocketMessage).getPayload();
 			ByteBuffer byteBuffer = ByteBuffer.wrap(payload.getBytes(UTF8_CHARSET));
 
-			message = this.stompDecoder.decode(byteBuffer);
-			if (message == null) {
+			messages = this.stompDecoder.decode(byteBuffer);
+			if (messages.isEmpty()) {
 				decodeFailure = new IllegalStateException("Not a valid STOMP frame: " + payload);
 			}
 		}
@@ -121,26 +121,28 @@ public class StompSubProtocolHandler implements SubProtocolHandler {
 			return;
 		}
 
-		try {
-			StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
-			if (logger.isTraceEnabled()) {
-				if (SimpMessageType.HEARTBEAT.equals(headers.getMessageType())) {
-					logger.trace("Received heartbeat from client session=" + session.getId());
-				}
-				else {
-					logger.trace("Received message from client session=" + session.getId());
+		for (Message<byte[]> message : messages) {
+			try {
+				StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
+				if (logger.isTraceEnabled()) {
+					if (SimpMessageType.HEARTBEAT.equals(headers.getMessageType())) {
+						logger.trace("Received heartbeat from client session=" + session.getId());
+					}
+					else {
+						logger.trace("Received message from client session=" + session.getId());
+					}
 				}
-			}
 
-			headers.setSessionId(session.getId());
-			headers.setUser(session.getPrincipal());
+				headers.setSessionId(session.getId());
+				headers.setUser(session.getPrincipal());
 
-			message = MessageBuilder.withPayload(message.getPayload()).setHeaders(headers).build();
-			outputChannel.send(message);
-		}
-		catch (Throwable ex) {
-			logger.error("Terminating STOMP session due to failure to send message", ex);
-			sendErrorMessage(session, ex);
+				message = MessageBuilder.withPayload(message.getPayload()).setHeaders(headers).build();
+				outputChannel.send(message);
+			}
+			catch (Throwable ex) {
+				logger.error("Terminating STOMP session due to failure to send message", ex);
+				sendErrorMessage(session, ex);
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,8 @@ import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 
 /**
  * An implementation of {@link WebSocketHandler} that delegates incoming WebSocket
@@ -53,6 +55,11 @@ import org.springframework.web.socket.WebSocketSession;
  * session associated with the {@link Message} and passes it, along with the message,
  * to the sub-protocol handler to send messages from the application back to the
  * client.
+ * <p>
+ * Sessions are wrapped with a {@link ConcurrentWebSocketSessionDecorator} so that
+ * messages to a client are buffered and sent by one thread at a time, and so that
+ * a slow client cannot hold on to threads of the outbound channel. Sessions
+ * exceeding the configured send time or buffer size limit are closed.
  *
  * @author Rossen Stoyanchev
  * @author Andy Wilkinson
@@ -74,6 +81,10 @@ public class SubProtocolWebSocketHandler
 
 	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<String, WebSocketSession>();
 
+	private int sendTimeLimit = 10 * 1000;
+
+	private int sendBufferSizeLimit = 512 * 1024;
+
 	private Object lifecycleMonitor = new Object();
 
 	private volatile boolean running = false;
@@ -155,6 +166,44 @@ public class SubProtocolWebSocketHandler
 		return new ArrayList<String>(this.protocolHandlers.keySet());
 	}
 
+	/**
+	 * Configure the maximum amount of time in milliseconds a send to a client
+	 * may take before other attempts to send to the same client conclude that
+	 * the session is unresponsive and close it.
+	 * <p>By default this is set to 10 seconds.
+	 * @since 4.0.3
+	 */
+	public void setSendTimeLimit(int sendTimeLimit) {
+		this.sendTimeLimit = sendTimeLimit;
+	}
+
+	/**
+	 * Return the configured send time limit (milliseconds).
+	 * @since 4.0.3
+	 */
+	public int getSendTimeLimit() {
+		return this.sendTimeLimit;
+	}
+
+	/**
+	 * Configure the maximum number of bytes to buffer for a client while a
+	 * previous send to the same client is in progress. When the limit is
+	 * exceeded the session is closed.
+	 * <p>By default this is set to 512K.
+	 * @since 4.0.3
+	 */
+	public void setSendBufferSizeLimit(int sendBufferSizeLimit) {
+		this.sendBufferSizeLimit = sendBufferSizeLimit;
+	}
+
+	/**
+	 * Return the buffer size limit (number of bytes).
+	 * @since 4.0.3
+	 */
+	public int getSendBufferSizeLimit() {
+		return this.sendBufferSizeLimit;
+	}
+
 	@Override
 	public boolean isAutoStartup() {
 		return true;
@@ -198,6 +247,7 @@ public class SubProtocolWebSocketHandler
 
 	@Override
 	public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+		session = new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
 		this.sessions.put(session.getId(), session);
 		findProtocolHandler(session).afterSessionStarted(session, this.clientInboundChannel);
 	}
@@ -230,6 +280,10 @@ public class SubProtocolWebSocketHandler
 
 	@Override
 	public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+		WebSocketSession decoratedSession = this.sessions.get(session.getId());
+		if (decoratedSession != null) {
+			session = decoratedSession;
+		}
 		findProtocolHandler(session).handleMessageFromClient(session, message, this.clientInboundChannel);
 	}
 
@@ -251,6 +305,17 @@ public class SubProtocolWebSocketHandler
 		try {
 			findProtocolHandler(session).handleMessageToClient(session, message);
 		}
+		catch (SessionLimitExceededException ex) {
+			try {
+				logger.error("Terminating session id '" + sessionId + "'", ex);
+				// Session may be unresponsive so clear first
+				clearSession(session, ex.getStatus());
+				session.close(ex.getStatus());
+			}
+			catch (Exception secondException) {
+				logger.error("Exception terminating session id '" + sessionId + "'", secondException);
+			}
+		}
 		catch (Exception e) {
 			logger.error("Failed to send message to client " + message, e);
 		}
@@ -278,8 +343,14 @@ public class SubProtocolWebSocketHandler
 
 	@Override
 	public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-		this.sessions.remove(session.getId());
-		findProtocolHandler(session).afterSessionEnded(session, closeStatus, this.clientInboundChannel);
+		clearSession(session, closeStatus);
+	}
+
+	private void clearSession(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+		WebSocketSession removed = this.sessions.remove(session.getId());
+		if (removed != null) {
+			findProtocolHandler(removed).afterSessionEnded(removed, closeStatus, this.clientInboundChannel);
+		}
 	}
 
 	@Override
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket.handler;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ConcurrentWebSocketSessionDecorator}.
+ *
+ * @author agent
+ */
+public class ConcurrentWebSocketSessionDecoratorTests {
+
+
+	@Test
+	public void send() throws IOException {
+		TestWebSocketSession session = new TestWebSocketSession();
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(session, 1000, 1024);
+
+		TextMessage textMessage = new TextMessage("payload");
+		concurrentSession.sendMessage(textMessage);
+
+		assertEquals(1, session.getSentMessages().size());
+		assertEquals(textMessage, session.getSentMessages().get(0));
+
+		assertEquals(0, concurrentSession.getBufferSize());
+		assertEquals(0, concurrentSession.getTimeSinceSendStarted());
+		assertTrue(session.isOpen());
+	}
+
+	@Test
+	public void sendAfterBlockedSend() throws IOException, InterruptedException {
+		BlockingSession blockingSession = new BlockingSession();
+		blockingSession.setOpen(true);
+		CountDownLatch sentMessageLatch = blockingSession.getSentMessageLatch();
+
+		final ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(blockingSession, 10 * 1000, 1024);
+
+		startBlockingSend(concurrentSession);
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		// ensure some send time elapses
+		Thread.sleep(100);
+		assertTrue(concurrentSession.getTimeSinceSendStarted() > 0);
+
+		TextMessage payload = new TextMessage("payload");
+		for (int i = 0; i < 5; i++) {
+			concurrentSession.sendMessage(payload);
+		}
+
+		assertTrue(concurrentSession.getTimeSinceSendStarted() > 0);
+		assertEquals(5 * payload.getPayloadLength(), concurrentSession.getBufferSize());
+		assertTrue(blockingSession.isOpen());
+
+		// Releasing the blocked send flushes the buffered messages in order
+		blockingSession.getReleaseLatch().countDown();
+		assertTrue(blockingSession.getFlushedLatch(6).await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void sendTimeLimitExceeded() throws IOException, InterruptedException {
+		BlockingSession blockingSession = new BlockingSession();
+		blockingSession.setId("123");
+		blockingSession.setOpen(true);
+		CountDownLatch sentMessageLatch = blockingSession.getSentMessageLatch();
+
+		int sendTimeLimit = 100;
+		int bufferSizeLimit = 1024;
+
+		final ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(blockingSession, sendTimeLimit, bufferSizeLimit);
+
+		startBlockingSend(concurrentSession);
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		// ensure send time limit is exceeded
+		Thread.sleep(200);
+
+		try {
+			TextMessage payload = new TextMessage("payload");
+			concurrentSession.sendMessage(payload);
+			fail("Expected exception");
+		}
+		catch (SessionLimitExceededException ex) {
+			assertEquals(CloseStatus.SESSION_NOT_RELIABLE, ex.getStatus());
+		}
+
+		// Further messages are silently dropped
+		concurrentSession.sendMessage(new TextMessage("payload"));
+		assertEquals(0, concurrentSession.getBufferSize());
+
+		blockingSession.getReleaseLatch().countDown();
+	}
+
+	@Test
+	public void sendBufferSizeExceeded() throws IOException, InterruptedException {
+		BlockingSession blockingSession = new BlockingSession();
+		blockingSession.setId("123");
+		blockingSession.setOpen(true);
+		CountDownLatch sentMessageLatch = blockingSession.getSentMessageLatch();
+
+		int sendTimeLimit = 10 * 1000;
+		int bufferSizeLimit = 1024;
+
+		final ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(blockingSession, sendTimeLimit, bufferSizeLimit);
+
+		startBlockingSend(concurrentSession);
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0 ; i < 1023; i++) {
+			sb.append("a");
+		}
+
+		TextMessage message = new TextMessage(sb.toString());
+		concurrentSession.sendMessage(message);
+
+		assertEquals(1023, concurrentSession.getBufferSize());
+		assertTrue(blockingSession.isOpen());
+
+		try {
+			concurrentSession.sendMessage(message);
+			fail("Expected exception");
+		}
+		catch (SessionLimitExceededException ex) {
+			assertEquals(CloseStatus.SESSION_NOT_RELIABLE, ex.getStatus());
+		}
+
+		blockingSession.getReleaseLatch().countDown();
+	}
+
+	@Test
+	public void closeStatusChangedAfterLimitExceeded() throws IOException, InterruptedException {
+		BlockingSession blockingSession = new BlockingSession();
+		blockingSession.setOpen(true);
+		CountDownLatch sentMessageLatch = blockingSession.getSentMessageLatch();
+
+		final ConcurrentWebSocketSessionDecorator concurrentSession =
+				new ConcurrentWebSocketSessionDecorator(blockingSession, 10 * 1000, 10);
+
+		startBlockingSend(concurrentSession);
+		assertTrue(sentMessageLatch.await(5, TimeUnit.SECONDS));
+
+		try {
+			concurrentSession.sendMessage(new TextMessage("a message exceeding the buffer limit"));
+			fail("Expected exception");
+		}
+		catch (SessionLimitExceededException ex) {
+			// expected
+		}
+
+		concurrentSession.close(CloseStatus.NORMAL);
+		assertFalse(blockingSession.isOpen());
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, blockingSession.getCloseStatus());
+
+		blockingSession.getReleaseLatch().countDown();
+	}
+
+
+	private void startBlockingSend(final ConcurrentWebSocketSessionDecorator session) {
+		Executors.newSingleThreadExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				TextMessage textMessage = new TextMessage("slow message");
+				try {
+					session.sendMessage(textMessage);
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+
+	private static class BlockingSession extends TestWebSocketSession {
+
+		private final CountDownLatch sentMessageLatch = new CountDownLatch(1);
+
+		private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+		private volatile CountDownLatch flushedLatch = new CountDownLatch(0);
+
+
+		public CountDownLatch getSentMessageLatch() {
+			return this.sentMessageLatch;
+		}
+
+		public CountDownLatch getReleaseLatch() {
+			return this.releaseLatch;
+		}
+
+		public CountDownLatch getFlushedLatch(int messageCount) {
+			synchronized (this) {
+				this.flushedLatch = new CountDownLatch(messageCount - getSentMessages().size());
+				return this.flushedLatch;
+			}
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			synchronized (this) {
+				super.sendMessage(message);
+				this.flushedLatch.countDown();
+			}
+			this.sentMessageLatch.countDown();
+			try {
+				this.releaseLatch.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -130,7 +130,7 @@ public class StompSubProtocolHandlerTests {
 
 		assertEquals(1, this.session.getSentMessages().size());
 		TextMessage textMessage = (TextMessage) this.session.getSentMessages().get(0);
-		Message<?> message = new StompDecoder().decode(ByteBuffer.wrap(textMessage.getPayload().getBytes()));
+		Message<?> message = new StompDecoder().decode(ByteBuffer.wrap(textMessage.getPayload().getBytes())).get(0);
 		StompHeaderAccessor replyHeaders = StompHeaderAccessor.wrap(message);
 
 		assertEquals(StompCommand.CONNECTED, replyHeaders.getCommand());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,10 +22,17 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TestWebSocketSession;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -71,8 +78,8 @@ public class SubProtocolWebSocketHandlerTests {
 		this.session.setAcceptedProtocol("v12.sToMp");
 		this.webSocketHandler.afterConnectionEstablished(session);
 
-		verify(this.stompHandler).afterSessionStarted(session, this.inClientChannel);
-		verify(this.mqttHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
+		verify(this.stompHandler).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
+		verify(this.mqttHandler, times(0)).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
 	}
 
 	@Test
@@ -81,7 +88,7 @@ public class SubProtocolWebSocketHandlerTests {
 		this.session.setAcceptedProtocol("v12.sToMp");
 		this.webSocketHandler.afterConnectionEstablished(session);
 
-		verify(this.stompHandler).afterSessionStarted(session, this.inClientChannel);
+		verify(this.stompHandler).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
 	}
 
 	@Test(expected=IllegalStateException.class)
@@ -98,9 +105,9 @@ public class SubProtocolWebSocketHandlerTests {
 		this.webSocketHandler.setDefaultProtocolHandler(defaultHandler);
 		this.webSocketHandler.afterConnectionEstablished(session);
 
-		verify(this.defaultHandler).afterSessionStarted(session, this.inClientChannel);
-		verify(this.stompHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
-		verify(this.mqttHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
+		verify(this.defaultHandler).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
+		verify(this.stompHandler, times(0)).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
+		verify(this.mqttHandler, times(0)).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
 	}
 
 	@Test
@@ -109,9 +116,9 @@ public class SubProtocolWebSocketHandlerTests {
 		this.webSocketHandler.setDefaultProtocolHandler(defaultHandler);
 		this.webSocketHandler.afterConnectionEstablished(session);
 
-		verify(this.defaultHandler).afterSessionStarted(session, this.inClientChannel);
-		verify(this.stompHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
-		verify(this.mqttHandler, times(0)).afterSessionStarted(session, this.inClientChannel);
+		verify(this.defaultHandler).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
+		verify(this.stompHandler, times(0)).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
+		verify(this.mqttHandler, times(0)).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
 	}
 
 	@Test
@@ -119,7 +126,7 @@ public class SubProtocolWebSocketHandlerTests {
 		this.webSocketHandler.setProtocolHandlers(Arrays.asList(stompHandler));
 		this.webSocketHandler.afterConnectionEstablished(session);
 
-		verify(this.stompHandler).afterSessionStarted(session, this.inClientChannel);
+		verify(this.stompHandler).afterSessionStarted(isA(ConcurrentWebSocketSessionDecorator.class), eq(this.inClientChannel));
 	}
 
 	@Test(expected=IllegalStateException.class)
@@ -134,4 +141,23 @@ public class SubProtocolWebSocketHandlerTests {
 		this.webSocketHandler.afterConnectionEstablished(session);
 	}
 
+	@Test
+	public void sessionLimitExceededClosesSession() throws Exception {
+		this.webSocketHandler.setProtocolHandlers(Arrays.asList(stompHandler));
+		this.session.setOpen(true);
+		this.webSocketHandler.afterConnectionEstablished(session);
+
+		Message<byte[]> message = MessageBuilder.withPayload(new byte[0]).build();
+		when(this.stompHandler.resolveSessionId(message)).thenReturn("1");
+		doThrow(new SessionLimitExceededException("Too slow", CloseStatus.SESSION_NOT_RELIABLE))
+				.when(this.stompHandler).handleMessageToClient(isA(WebSocketSession.class), eq(message));
+
+		this.webSocketHandler.handleMessage(message);
+
+		assertFalse(this.session.isOpen());
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, this.session.getCloseStatus());
+		verify(this.stompHandler).afterSessionEnded(isA(ConcurrentWebSocketSessionDecorator.class),
+				eq(CloseStatus.SESSION_NOT_RELIABLE), eq(this.inClientChannel));
+	}
+
 }